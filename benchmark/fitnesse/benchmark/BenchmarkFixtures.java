@@ -0,0 +1,145 @@
+package fitnesse.benchmark;
+
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
+import fitnesse.wiki.fs.InMemoryPage;
+import fitnesse.wiki.fs.MemoryFileSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Input data for the benchmarks. Everything is generated from a fixed seed, so each run of a benchmark
+ * works on exactly the same pages, tables and messages.
+ */
+public final class BenchmarkFixtures {
+  public static final long SEED = 0x46_69_74_4E_65_73_73_65L;
+
+  /** A word that occurs on roughly one in a hundred generated wiki pages. */
+  public static final String RARE_WORD = "quintessential";
+
+  private static final String[] WORDS = {
+    "account", "balance", "customer", "invoice", "order", "payment", "product", "shipment", "discount",
+    "currency", "ledger", "report", "fixture", "table", "scenario", "script", "query", "decision", "value",
+    "expected", "actual", "result", "service", "request", "response", "session", "user", "role", "access"
+  };
+
+  private BenchmarkFixtures() {
+  }
+
+  /** Wiki text with the usual mix of markup: headers, formatting, links, variables, collapsible sections and tables. */
+  public static String largeWikiPage(int sections) {
+    Random random = new Random(SEED);
+    StringBuilder page = new StringBuilder(sections * 600);
+    page.append("!define CURRENCY {EUR}\n");
+    for (int section = 0; section < sections; section++) {
+      page.append("!3 Section ").append(section).append('\n');
+      page.append(sentence(random, 12)).append(" '''").append(word(random)).append("''' and ''")
+        .append(word(random)).append("'' in ${CURRENCY}, see SectionPage").append(section)
+        .append(" and [[the ").append(word(random)).append(" page][.FrontPage]].\n");
+      page.append(" * ").append(sentence(random, 6)).append('\n');
+      page.append(" * ").append(sentence(random, 6)).append('\n');
+      page.append("!*> details ").append(section).append('\n');
+      page.append("{{{").append(sentence(random, 8)).append("}}}\n");
+      page.append("*!\n");
+      page.append("|script|").append(word(random)).append(" fixture|\n");
+      for (int row = 0; row < 5; row++) {
+        page.append("|check|").append(word(random)).append('|').append(random.nextInt(1000)).append("|\n");
+      }
+      page.append('\n');
+    }
+    return page.toString();
+  }
+
+  /** An HTML page holding one decision table with the given number of rows. */
+  public static String htmlTable(int rows, int columns) {
+    Random random = new Random(SEED);
+    StringBuilder html = new StringBuilder(rows * columns * 24);
+    html.append("<h1>Generated</h1>\n<table>\n<tr><td colspan=\"").append(columns).append("\">")
+      .append("Generated Table</td></tr>\n<tr>");
+    for (int column = 0; column < columns; column++) {
+      html.append("<td>").append(WORDS[column % WORDS.length]).append(column == columns - 1 ? "?" : "")
+        .append("</td>");
+    }
+    html.append("</tr>\n");
+    for (int row = 0; row < rows; row++) {
+      html.append("<tr>");
+      for (int column = 0; column < columns; column++) {
+        html.append("<td>").append(random.nextInt(100_000)).append("</td>");
+      }
+      html.append("</tr>\n");
+    }
+    html.append("</table>\n<p>done</p>\n");
+    return html.toString();
+  }
+
+  /**
+   * A wiki of suites with test pages below them, kept in memory. Every tenth page is tagged "smoke", roughly
+   * one in a hundred pages contains {@link #RARE_WORD}.
+   */
+  public static WikiPage generatedWiki(int pageCount, int pagesPerSuite) {
+    Random random = new Random(SEED);
+    WikiPage root = InMemoryPage.makeRoot("RooT", new MemoryFileSystem());
+    for (int i = 0; i < pageCount; i++) {
+      String suite = "BenchSuite" + (i / pagesPerSuite);
+      if (i % pagesPerSuite == 0) {
+        WikiPageUtil.addPage(root, PathParser.parse(suite), "!contents -R2 -g -p -f -h\n");
+      }
+      StringBuilder content = new StringBuilder(sentence(random, 40));
+      if (random.nextInt(100) == 0) {
+        content.append(' ').append(RARE_WORD);
+      }
+      content.append("\n|script|").append(word(random)).append(" fixture|\n|check|")
+        .append(word(random)).append('|').append(random.nextInt(1000)).append("|\n");
+      WikiPage page = WikiPageUtil.addPage(root, PathParser.parse(suite + ".BenchPage" + i + "Test"),
+        content.toString());
+      if (i % 10 == 0) {
+        PageData data = page.getData();
+        data.setAttribute(PageData.PropertySUITES, "smoke");
+        page.commit(data);
+      }
+    }
+    return root;
+  }
+
+  /** The instructions a Slim test system sends for a decision table with the given number of rows. */
+  public static List<Object> slimInstructions(int rows) {
+    Random random = new Random(SEED);
+    List<Object> instructions = new ArrayList<>(rows * 3 + 2);
+    instructions.add(list("decisionTable_0_0", "import", "fitnesse.fixtures"));
+    instructions.add(list("decisionTable_0_1", "make", "decisionTable_0", "EchoFixture"));
+    for (int row = 0; row < rows; row++) {
+      String id = "decisionTable_0_" + (row + 2);
+      instructions.add(list(id + "_0", "call", "decisionTable_0", "setName", word(random)));
+      instructions.add(list(id + "_1", "call", "decisionTable_0", "echoInt", Integer.toString(random.nextInt(1000))));
+      instructions.add(list(id + "_2", "call", "decisionTable_0", "name"));
+    }
+    return instructions;
+  }
+
+  private static List<Object> list(Object... items) {
+    List<Object> list = new ArrayList<>(items.length);
+    for (Object item : items) {
+      list.add(item);
+    }
+    return list;
+  }
+
+  private static String sentence(Random random, int words) {
+    StringBuilder sentence = new StringBuilder(words * 8);
+    for (int i = 0; i < words; i++) {
+      if (i > 0) {
+        sentence.append(' ');
+      }
+      sentence.append(word(random));
+    }
+    return sentence.toString();
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
@@ -0,0 +1,104 @@
+package fitnesse.responders;
+
+import fitnesse.ConfigurationParameter;
+import fitnesse.FitNesseContext;
+import fitnesse.benchmark.BenchmarkFixtures;
+import fitnesse.http.MockRequest;
+import fitnesse.http.Response;
+import fitnesse.http.ResponseSender;
+import fitnesse.http.SimpleResponse;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a wiki page view, from responder to the bytes handed to the sender.
+ * <p>
+ * {@code viaString} renders the page into a String and encodes it, as page views used to; {@code rendered}
+ * renders straight into the response. With {@code reloadTemplates} the engine checks templates for changes,
+ * as in template development. Template lookups themselves are measured against an earlier build by recording
+ * a baseline there ({@code jmh jmhBaseline}) and running {@code jmh jmhCompare} here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WikiPageViewBenchmark {
+  @Param({"5", "50"})
+  public int sections;
+
+  @Param({"false", "true"})
+  public boolean reloadTemplates;
+
+  private FitNesseContext context;
+  private WikiPage page;
+  private WikiPageResponder responder;
+  private MockRequest request;
+
+  @Setup
+  public void setUp() {
+    Properties properties = new Properties();
+    properties.setProperty(ConfigurationParameter.TEMPLATES_RELOAD.getKey(), String.valueOf(reloadTemplates));
+    context = FitNesseUtil.makeTestContext(properties);
+    page = WikiPageUtil.addPage(context.getRootPage(), PathParser.parse("LargePage"),
+      BenchmarkFixtures.largeWikiPage(sections));
+    responder = new WikiPageResponder();
+    request = new MockRequest("LargePage");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FitNesseUtil.destroyTestContext(context);
+  }
+
+  @Benchmark
+  public void viaString(Blackhole blackhole) throws IOException {
+    SimpleResponse response = new SimpleResponse();
+    response.setContent(responder.makeHtml(context, page));
+    response.sendTo(new BlackholeSender(blackhole));
+  }
+
+  @Benchmark
+  public void rendered(Blackhole blackhole) throws Exception {
+    Response response = responder.makeResponse(context, request);
+    response.sendTo(new BlackholeSender(blackhole));
+  }
+
+  private static final class BlackholeSender implements ResponseSender {
+    private final Blackhole blackhole;
+
+    BlackholeSender(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void send(byte[] bytes) {
+      blackhole.consume(bytes);
+    }
+
+    @Override
+    public void close() {
+      // Nothing to release.
+    }
+  }
+}
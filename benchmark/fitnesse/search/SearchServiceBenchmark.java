@@ -0,0 +1,69 @@
+package fitnesse.search;
+
+import fitnesse.benchmark.BenchmarkFixtures;
+import fitnesse.wiki.WikiPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searching a generated in-memory wiki, both by walking the page tree and from the search index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchServiceBenchmark {
+  @Param({"20000"})
+  public int pages;
+
+  private SearchService treeWalk;
+  private SearchService indexed;
+
+  @Setup
+  public void setUp() {
+    WikiPage root = BenchmarkFixtures.generatedWiki(pages, 200);
+    SearchIndex index = new SearchIndex();
+    index.rebuild(root);
+    treeWalk = new SearchService(root);
+    indexed = new SearchService(root, index);
+  }
+
+  @Benchmark
+  public List<SearchResult> contentTreeWalk() {
+    return treeWalk.search(BenchmarkFixtures.RARE_WORD, SearchService.Mode.CONTENT, 50, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY);
+  }
+
+  @Benchmark
+  public List<SearchResult> contentIndexed() {
+    return indexed.search(BenchmarkFixtures.RARE_WORD, SearchService.Mode.CONTENT, 50, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY);
+  }
+
+  @Benchmark
+  public List<SearchResult> taggedTestsIndexed() {
+    return indexed.search("payment", SearchService.Mode.CONTENT, 50, 0,
+      Collections.singletonList("smoke"), SearchService.PageTypeFilter.TEST);
+  }
+
+  @Benchmark
+  public List<SearchResult> titleTreeWalk() {
+    return treeWalk.search("BenchPage1999", SearchService.Mode.TITLE, 50, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY);
+  }
+}
@@ -0,0 +1,55 @@
+package fitnesse.slim;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch of Slim calls to a fixture: method lookup, argument conversion and invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementExecutorBenchmark {
+  private StatementExecutor executor;
+
+  @Setup
+  public void setUp() throws SlimException {
+    executor = new StatementExecutor();
+    executor.addPath("fitnesse.fixtures");
+    executor.create("echo", "EchoFixture");
+    executor.assign("name", "Bob");
+  }
+
+  @Benchmark
+  public Object callWithStringArgument() throws SlimException {
+    return executor.call("echo", "echo", "Hello");
+  }
+
+  @Benchmark
+  public Object callWithConvertedArgument() throws SlimException {
+    return executor.call("echo", "echoInt", "42");
+  }
+
+  @Benchmark
+  public Object callWithSymbolArgument() throws SlimException {
+    return executor.call("echo", "echo", "$name");
+  }
+
+  @Benchmark
+  public Object callAndAssign() throws SlimException {
+    return executor.callAndAssign("greeting", "echo", "echo", "Hello");
+  }
+}
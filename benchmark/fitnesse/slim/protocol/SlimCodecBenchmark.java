@@ -0,0 +1,73 @@
+package fitnesse.slim.protocol;
+
+import fitnesse.benchmark.BenchmarkFixtures;
+import fitnesse.slim.SlimStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending and receiving the instructions of a decision table as framed messages on a stream, with the string based
+ * serializer and deserializer and with the streaming encoder and decoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlimCodecBenchmark {
+  @Param({"100", "10000"})
+  public int rows;
+
+  private List<Object> instructions;
+  private byte[] message;
+
+  @Setup
+  public void setUp() throws IOException {
+    instructions = BenchmarkFixtures.slimInstructions(rows);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SlimEncoder.writeMessage(out, instructions);
+    message = out.toByteArray();
+  }
+
+  @Benchmark
+  public int sendSerialized() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(message.length);
+    SlimStreamReader.sendSlimMessage(out, SlimSerializer.serialize(instructions));
+    return out.size();
+  }
+
+  @Benchmark
+  public int sendEncoded() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(message.length);
+    SlimEncoder.writeMessage(out, instructions);
+    return out.size();
+  }
+
+  @Benchmark
+  public List<Object> receiveDeserialized() throws IOException {
+    SlimStreamReader reader = new SlimStreamReader(new ByteArrayInputStream(message));
+    return SlimDeserializer.deserialize(reader.getSlimMessage());
+  }
+
+  @Benchmark
+  public List<Object> receiveDecoded() throws IOException {
+    SlimStreamReader reader = new SlimStreamReader(new ByteArrayInputStream(message));
+    return SlimDecoder.decode(reader.readSlimMessage());
+  }
+}
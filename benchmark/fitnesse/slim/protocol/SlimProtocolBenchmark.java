@@ -0,0 +1,70 @@
+package fitnesse.slim.protocol;
+
+import fitnesse.benchmark.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing and deserializing the instructions of a decision table, with the string based classes and
+ * with the streaming encoder and decoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SlimProtocolBenchmark {
+  @Param({"10", "1000"})
+  public int rows;
+
+  private List<Object> instructions;
+  private String serialized;
+
+  @Setup
+  public void setUp() {
+    instructions = BenchmarkFixtures.slimInstructions(rows);
+    serialized = SlimSerializer.serialize(instructions);
+  }
+
+  @Benchmark
+  public String serialize() {
+    return SlimSerializer.serialize(instructions);
+  }
+
+  @Benchmark
+  public List<Object> deserialize() {
+    return SlimDeserializer.deserialize(serialized);
+  }
+
+  @Benchmark
+  public List<Object> roundTrip() {
+    return SlimDeserializer.deserialize(SlimSerializer.serialize(instructions));
+  }
+
+  @Benchmark
+  public int encode() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(serialized.length() + 16);
+    SlimEncoder.write(out, instructions);
+    return out.size();
+  }
+
+  @Benchmark
+  public List<Object> decode() {
+    return SlimDecoder.decode(serialized);
+  }
+}
@@ -0,0 +1,49 @@
+package fitnesse.testsystems.slim;
+
+import fitnesse.benchmark.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning the rendered HTML of a page with a large table, and writing it back out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HtmlTableScannerBenchmark {
+  @Param({"10000"})
+  public int rows;
+
+  private String html;
+  private HtmlTableScanner scanner;
+
+  @Setup
+  public void setUp() {
+    html = BenchmarkFixtures.htmlTable(rows, 4);
+    scanner = new HtmlTableScanner(html);
+  }
+
+  @Benchmark
+  public HtmlTableScanner scan() {
+    return new HtmlTableScanner(html);
+  }
+
+  @Benchmark
+  public String toHtml() {
+    return scanner.toHtml();
+  }
+}
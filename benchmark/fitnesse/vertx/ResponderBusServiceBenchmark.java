@@ -0,0 +1,76 @@
+package fitnesse.vertx;
+
+import fitnesse.FitNesseContext;
+import fitnesse.responders.WikiPageResponder;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPageUtil;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page view through the event bus: turning the bus payload into a request, running the responder on a
+ * worker thread and turning its response into the reply payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponderBusServiceBenchmark {
+  private static final String ADDRESS = "fitnesse.benchmark.page.view";
+
+  private Vertx vertx;
+  private FitNesseContext context;
+  private EventBus bus;
+  private JsonObject payload;
+
+  @Setup
+  public void setUp() {
+    vertx = Vertx.vertx();
+    context = FitNesseUtil.makeTestContext();
+    WikiPageUtil.addPage(context.getRootPage(), PathParser.parse("FrontPage"), "!1 Hello\nSome ''text'' on the FrontPage.\n");
+
+    bus = vertx.eventBus();
+    new ResponderBusService(vertx, context).register(bus, ADDRESS, new WikiPageResponder());
+
+    payload = new JsonObject()
+      .put(ResponderBusService.HEADER_RESOURCE, "FrontPage")
+      .put(ResponderBusService.HEADER_CONTEXT_ROOT, context.contextRoot)
+      .put(ResponderBusService.HEADER_HEADERS, new JsonObject()
+        .put("Accept", new JsonArray().add("text/html"))
+        .put("X-FitNesse-User", new JsonArray().add("bench")))
+      .put(ResponderBusService.HEADER_PARAMS, new JsonObject())
+      .put(ResponderBusService.HEADER_QUERY, "")
+      .put(ResponderBusService.HEADER_UPLOADS, new JsonArray());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    vertx.close();
+    FitNesseUtil.destroyTestContext(context);
+  }
+
+  @Benchmark
+  public Object pageView() throws ExecutionException, InterruptedException {
+    return bus.request(ADDRESS, payload).toCompletionStage().toCompletableFuture().get().body();
+  }
+}
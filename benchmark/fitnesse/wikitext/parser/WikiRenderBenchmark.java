@@ -0,0 +1,69 @@
+package fitnesse.wikitext.parser;
+
+import fitnesse.benchmark.BenchmarkFixtures;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
+import fitnesse.wiki.WikiSourcePage;
+import fitnesse.wiki.fs.InMemoryPage;
+import fitnesse.wikitext.ParsingPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and HTML rendering of a large page. The page cache is bypassed, so every invocation parses the text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WikiRenderBenchmark {
+  @Param({"50", "500"})
+  public int sections;
+
+  private WikiPage page;
+  private String content;
+  private SyntaxTreeV2 parsedTree;
+
+  @Setup
+  public void setUp() {
+    WikiPage root = InMemoryPage.makeRoot("RooT");
+    content = BenchmarkFixtures.largeWikiPage(sections);
+    page = WikiPageUtil.addPage(root, PathParser.parse("LargePage"), content);
+    parsedTree = parse();
+  }
+
+  @Benchmark
+  public Symbol parseOnly() {
+    return parse().getSyntaxTree();
+  }
+
+  @Benchmark
+  public String translateOnly() {
+    return new HtmlTranslator(new WikiSourcePage(page), parsedTree).translateTree(parsedTree.getSyntaxTree());
+  }
+
+  @Benchmark
+  public String parseAndTranslate() {
+    return parse().translateToHtml();
+  }
+
+  private SyntaxTreeV2 parse() {
+    SyntaxTreeV2 tree = new SyntaxTreeV2();
+    tree.parse(content, new ParsingPage(new WikiSourcePage(page)));
+    return tree;
+  }
+}
@@ -0,0 +1,35 @@
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.tasks.*
+
+/**
+ * Fails the build when a benchmark got slower than the baseline by more than the tolerance.
+ */
+public class JmhCompareTask extends DefaultTask {
+  @Internal
+  File baselineFile
+
+  @InputFile
+  File resultsFile
+
+  @Input
+  double tolerance = 0.10
+
+  @TaskAction
+  public void taskAction() {
+    if (!baselineFile.exists()) {
+      logger.lifecycle("No JMH baseline at ${baselineFile}, run the jmhBaseline task to record one.")
+      return
+    }
+    def comparator = new JmhResultComparator(tolerance)
+    def comparisons = comparator.compare(baselineFile, resultsFile)
+    logger.lifecycle(String.format("%-90s %12s %12s %-10s %8s", "Benchmark", "Baseline", "Current", "Unit", "Change"))
+    comparisons.each { logger.lifecycle(it.toString()) }
+
+    def regressions = comparator.regressions(comparisons)
+    if (!regressions.isEmpty()) {
+      throw new GradleException("${regressions.size()} benchmark(s) slower than the baseline by more than " +
+        "${Math.round(tolerance * 100)}%: ${regressions*.benchmark.join(', ')}")
+    }
+  }
+}
@@ -0,0 +1,71 @@
+import groovy.json.JsonSlurper
+
+/**
+ * Compares two JMH result files (written with -rf json), used from the build script to spot regressions
+ * against a stored baseline.
+ */
+public class JmhResultComparator {
+
+  static class Comparison {
+    String benchmark
+    String unit
+    double baseline
+    double current
+    boolean higherIsBetter
+
+    /** Relative change, positive when the current run is slower than the baseline. */
+    double getSlowdown() {
+      higherIsBetter ? (baseline - current) / baseline : (current - baseline) / baseline
+    }
+
+    String toString() {
+      String.format("%-90s %12.3f %12.3f %-10s %+7.1f%%", benchmark, baseline, current, unit, slowdown * 100)
+    }
+  }
+
+  private final double tolerance
+
+  JmhResultComparator(double tolerance) {
+    this.tolerance = tolerance
+  }
+
+  public List<Comparison> compare(File baselineFile, File resultsFile) {
+    Map<String, Map> baseline = readResults(baselineFile)
+    Map<String, Map> results = readResults(resultsFile)
+    List<Comparison> comparisons = []
+    results.each { String key, Map result ->
+      Map reference = baseline[key]
+      if (reference == null || reference.mode != result.mode
+        || reference.primaryMetric.scoreUnit != result.primaryMetric.scoreUnit) {
+        return
+      }
+      comparisons << new Comparison(
+        benchmark: key,
+        unit: result.primaryMetric.scoreUnit,
+        baseline: reference.primaryMetric.score as double,
+        current: result.primaryMetric.score as double,
+        higherIsBetter: result.mode == "thrpt")
+    }
+    comparisons
+  }
+
+  public List<Comparison> regressions(List<Comparison> comparisons) {
+    comparisons.findAll { it.baseline > 0 && it.slowdown > tolerance }
+  }
+
+  private static Map<String, Map> readResults(File file) {
+    Map<String, Map> results = [:]
+    for (Map result : (List<Map>) new JsonSlurper().parse(file)) {
+      results[key(result)] = result
+    }
+    results
+  }
+
+  private static String key(Map result) {
+    Map params = (Map) result.params
+    if (params == null || params.isEmpty()) {
+      return result.benchmark
+    }
+    result.benchmark + "(" + params.keySet().sort().collect { it + "=" + params[it] }.join(",") + ")"
+  }
+}
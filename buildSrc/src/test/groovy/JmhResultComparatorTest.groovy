@@ -0,0 +1,53 @@
+import org.junit.Before
+import org.junit.Test
+
+import static org.junit.Assert.assertEquals
+
+class JmhResultComparatorTest {
+
+  File baseline
+  File results
+
+  @Before
+  public void setUp() throws IOException {
+    baseline = File.createTempFile("jmh-baseline", ".json")
+    results = File.createTempFile("jmh-results", ".json")
+    baseline.deleteOnExit()
+    results.deleteOnExit()
+  }
+
+  @Test
+  public void shouldMatchBenchmarksByNameAndParameters() throws Exception {
+    baseline.text = "[" + result("a.B.parse", "avgt", 10.0, [rows: "10"]) + "," +
+      result("a.B.parse", "avgt", 100.0, [rows: "1000"]) + "]"
+    results.text = "[" + result("a.B.parse", "avgt", 11.0, [rows: "10"]) + "," +
+      result("a.B.parse", "avgt", 90.0, [rows: "1000"]) + "," +
+      result("a.B.other", "avgt", 1.0, [:]) + "]"
+
+    def comparisons = new JmhResultComparator(0.05).compare(baseline, results)
+
+    assertEquals(["a.B.parse(rows=10)", "a.B.parse(rows=1000)"], comparisons*.benchmark)
+    assertEquals(0.1, comparisons[0].slowdown, 0.0001)
+    assertEquals(-0.1, comparisons[1].slowdown, 0.0001)
+  }
+
+  @Test
+  public void shouldReportSlowerBenchmarksAsRegressions() throws Exception {
+    baseline.text = "[" + result("a.B.average", "avgt", 10.0, [:]) + "," +
+      result("a.B.throughput", "thrpt", 1000.0, [:]) + "]"
+    results.text = "[" + result("a.B.average", "avgt", 11.0, [:]) + "," +
+      result("a.B.throughput", "thrpt", 800.0, [:]) + "]"
+
+    def comparator = new JmhResultComparator(0.25)
+    assertEquals([], comparator.regressions(comparator.compare(baseline, results)))
+
+    comparator = new JmhResultComparator(0.15)
+    assertEquals(["a.B.throughput"], comparator.regressions(comparator.compare(baseline, results))*.benchmark)
+  }
+
+  private static String result(String benchmark, String mode, double score, Map<String, String> params) {
+    def paramsJson = params.collect { "\"${it.key}\": \"${it.value}\"" }.join(", ")
+    """{"benchmark": "${benchmark}", "mode": "${mode}", "params": {${paramsJson}},
+       "primaryMetric": {"score": ${score}, "scoreUnit": "ms/op"}}"""
+  }
+}
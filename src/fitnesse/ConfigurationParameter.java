@@ -45,7 +45,11 @@ public enum ConfigurationParameter {
   MAXIMUM_WORKERS("MaximumWorkers"),
   THEME("Theme"),
   PURGE_OPTIONS("TestHistory.purgeOptions"),
-  TESTHISTORY_MAX_COUNT("TestHistory.maxCount");
+  TESTHISTORY_MAX_COUNT("TestHistory.maxCount"),
+  SUITE_CONTENTS_CACHE("SuiteContents.cache"),
+  WIKI_SNAPSHOT("WikiSnapshot"),
+  LINK_GRAPH("LinkGraph"),
+  TEMPLATES_RELOAD("Templates.reload");
 
   private static final Logger LOG = Logger.getLogger(ConfigurationParameter.class.getName());
 
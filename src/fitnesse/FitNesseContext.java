@@ -7,20 +7,27 @@ import fitnesse.components.Logger;
 import fitnesse.html.template.PageFactory;
 import fitnesse.reporting.FormatterFactory;
 import fitnesse.responders.ResponderFactory;
+import fitnesse.testrunner.SuiteContentsCache;
 import fitnesse.testrunner.run.FileBasedTestRunFactory;
+import fitnesse.testrunner.run.ParallelTestRunFactory;
+import fitnesse.testrunner.run.RunTimeBasedTestRunFactory;
 import fitnesse.testrunner.run.TestRunFactoryRegistry;
 import fitnesse.testsystems.TestSystemFactory;
 import fitnesse.testsystems.TestSystemListener;
 import fitnesse.util.StringUtils;
+import fitnesse.wiki.ParsedPageCache;
 import fitnesse.wiki.RecentChanges;
 import fitnesse.wiki.SystemVariableSource;
 import fitnesse.wiki.UrlPathVariableSource;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wiki.WikiPageFactory;
+import fitnesse.wiki.fs.FileSystemPageFactory;
 import fitnesse.wiki.fs.VersionsController;
+import fitnesse.wiki.search.LinkGraph;
 import fitnesse.wikitext.VariableSource;
 
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Properties;
 
@@ -39,6 +46,11 @@ public class FitNesseContext {
   public final TestSystemFactory testSystemFactory;
   public final TestSystemListener testSystemListener;
   public final TestRunFactoryRegistry testRunFactoryRegistry;
+  /** Pages found per suite, when enabled with {@code SuiteContents.cache}; null otherwise. */
+  public final SuiteContentsCache suiteContentsCache;
+  /** References between pages, when enabled with {@code LinkGraph}; null otherwise. */
+  public final LinkGraph linkGraph;
+  private final ParsedPageCache.StructureTracking parsedPageStructureTracking;
 
   public final FormatterFactory formatterFactory;
 
@@ -87,9 +99,17 @@ public class FitNesseContext {
     this.theme = theme;
     responderFactory = new ResponderFactory(getRootPagePath());
     this.variableSource = variableSource;
+    parsedPageStructureTracking = ParsedPageCache.startTrackingStructure();
+    suiteContentsCache = Boolean.parseBoolean(getProperty(ConfigurationParameter.SUITE_CONTENTS_CACHE.getKey()))
+      ? SuiteContentsCache.start() : null;
+    linkGraph = Boolean.parseBoolean(getProperty(ConfigurationParameter.LINK_GRAPH.getKey()))
+      ? LinkGraph.start(this::getRootPage, Paths.get(getRootPagePath(), ".fitnesse", "links", "graph.bin")) : null;
     fitNesse = new FitNesse(this);
     pageFactory = new PageFactory(this);
     testRunFactoryRegistry = new TestRunFactoryRegistry(this);
+    // Factories added later win: explicit partitioning takes precedence over spreading pages in parallel.
+    testRunFactoryRegistry.addFactory(new ParallelTestRunFactory());
+    testRunFactoryRegistry.addFactory(new RunTimeBasedTestRunFactory(this));
     testRunFactoryRegistry.addFactory(new FileBasedTestRunFactory(this));
   }
 
@@ -133,6 +153,22 @@ public class FitNesseContext {
     return variableSource.getProperty(name);
   }
 
+  /**
+   * Stops the background work of the wiki page factory and of the caches kept for it.
+   */
+  public void close() {
+    if (linkGraph != null) {
+      linkGraph.close();
+    }
+    if (suiteContentsCache != null) {
+      suiteContentsCache.close();
+    }
+    parsedPageStructureTracking.close();
+    if (wikiPageFactory instanceof FileSystemPageFactory) {
+      ((FileSystemPageFactory) wikiPageFactory).close();
+    }
+  }
+
   private String unifiedPathPattern(String s) {
     return StringUtils.replace(s, "/", File.separator);
   }
@@ -0,0 +1,538 @@
+package fitnesse.docstore;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeEvents;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.FileSystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Git backed {@link DocStore} that neither starts git nor blocks event loop threads.
+ * <p>
+ * Files are read with the asynchronous Vert.x file system. Changes are committed straight into the repository's
+ * object database on a worker: saves that arrive while a commit is being written are collected and committed
+ * together by the next one, with a single ref and index update. A save with an expected version only conflicts when
+ * its page changed since that version; the merge strategy decides what happens then. History entries are the same
+ * as those of {@link GitHistoryService}.
+ * <p>
+ * The blocking {@link DocStore} methods wait for the asynchronous ones, so they must not be called on an event loop.
+ */
+public final class AsyncGitDocStore implements DocStore {
+  private static final Logger LOG = Logger.getLogger(AsyncGitDocStore.class.getName());
+  private static final String CONTENT_FILE = "content.txt";
+  private static final String PROPERTIES_FILE = "properties.xml";
+  private static final String ATTACHMENTS_DIR = "files";
+  private static final int MAX_BATCH_SIZE = 64;
+  private static final int REF_UPDATE_ATTEMPTS = 5;
+
+  private final Vertx vertx;
+  private final FileSystem fs;
+  private final Path repoRoot;
+  private final GitObjectDatabase objects;
+  private final GitIndex index;
+  private final String commitMessageTemplate;
+  private final GitDocStore.MergeStrategy mergeStrategy;
+  private final GitCommitConfig commitConfig;
+  private final Deque<Change> pending = new ArrayDeque<>();
+  private boolean committing;
+
+  public AsyncGitDocStore(Vertx vertx, Path repoRoot) {
+    this(vertx, repoRoot, "wiki: update %s");
+  }
+
+  public AsyncGitDocStore(Vertx vertx, Path repoRoot, String commitMessageTemplate) {
+    this(vertx, repoRoot, commitMessageTemplate, GitDocStore.MergeStrategy.fromConfig());
+  }
+
+  AsyncGitDocStore(Vertx vertx, Path repoRoot, String commitMessageTemplate, GitDocStore.MergeStrategy mergeStrategy) {
+    this.vertx = vertx;
+    this.fs = vertx.fileSystem();
+    this.repoRoot = repoRoot;
+    this.commitMessageTemplate = commitMessageTemplate;
+    this.mergeStrategy = mergeStrategy == null ? GitDocStore.MergeStrategy.FAST_FORWARD : mergeStrategy;
+    this.commitConfig = GitCommitConfig.fromEnv();
+    Path gitDir = repoRoot.resolve(".git");
+    try {
+      if (!Files.isDirectory(gitDir)) {
+        Files.createDirectories(repoRoot);
+        GitObjectDatabase.init(gitDir);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to create repository " + repoRoot, e);
+    }
+    this.objects = new GitObjectDatabase(gitDir);
+    this.index = new GitIndex(repoRoot, gitDir);
+  }
+
+  @Override
+  public PageRef resolve(String wikiPath) {
+    String normalized = (wikiPath == null || wikiPath.isEmpty()) ? "FrontPage" : wikiPath;
+    return new PageRef(normalized);
+  }
+
+  public Future<Page> readPageAsync(PageRef ref) {
+    Path pageDir = pageDir(ref);
+    return readText(pageDir.resolve(CONTENT_FILE))
+      .compose(content -> readText(pageDir.resolve(PROPERTIES_FILE))
+        .map(properties -> new Page(ref, content, properties)));
+  }
+
+  /**
+   * @return the commit the page was saved in.
+   */
+  public Future<String> writePageAsync(PageRef ref, PageWriteRequest req) {
+    String pagePath = relativePath(ref);
+    Map<String, byte[]> files = new LinkedHashMap<>();
+    files.put(pagePath + "/" + CONTENT_FILE, bytes(req == null ? null : req.content()));
+    if (req != null && req.propertiesXml() != null) {
+      files.put(pagePath + "/" + PROPERTIES_FILE, bytes(req.propertiesXml()));
+    }
+    String expected = req == null ? null : req.expectedVersion();
+    return submit(new Change(ref, "page", files, expected, resolveAuthor(req), ChangeEvent.PAGE));
+  }
+
+  public Future<PageProperties> readPropertiesAsync(PageRef ref) {
+    return readText(pageDir(ref).resolve(PROPERTIES_FILE)).map(PageProperties::new);
+  }
+
+  public Future<String> writePropertiesAsync(PageRef ref, PageProperties props) {
+    Map<String, byte[]> files = Collections.singletonMap(relativePath(ref) + "/" + PROPERTIES_FILE, bytes(props.xml()));
+    return submit(new Change(ref, "properties", files, null, GitIdentityHolder.current(), ChangeEvent.UPDATED));
+  }
+
+  public Future<List<PageRef>> listChildrenAsync(PageRef ref) {
+    return listEntries(pageDir(ref), true)
+      .map(names -> {
+        List<PageRef> children = new ArrayList<>(names.size());
+        for (String name : names) {
+          children.add(new PageRef(ref.wikiPath() + "/" + name));
+        }
+        return children;
+      });
+  }
+
+  public Future<List<AttachmentRef>> listAttachmentsAsync(PageRef ref) {
+    return listEntries(pageDir(ref).resolve(ATTACHMENTS_DIR), false)
+      .map(names -> {
+        List<AttachmentRef> attachments = new ArrayList<>(names.size());
+        for (String name : names) {
+          attachments.add(new AttachmentRef(ref, name));
+        }
+        return attachments;
+      });
+  }
+
+  public Future<Buffer> readAttachmentAsync(AttachmentRef ref) {
+    return fs.readFile(pageDir(ref.pageRef()).resolve(ATTACHMENTS_DIR).resolve(ref.name()).toString());
+  }
+
+  public Future<String> writeAttachmentAsync(AttachmentRef ref, Buffer data) {
+    Map<String, byte[]> files = Collections.singletonMap(
+      relativePath(ref.pageRef()) + "/" + ATTACHMENTS_DIR + "/" + ref.name(), data.getBytes());
+    return submit(new Change(ref.pageRef(), "attachment", files, null, GitIdentityHolder.current(), ChangeEvent.NONE));
+  }
+
+  public Future<PageHistory> historyAsync(PageRef ref, HistoryQuery q) {
+    int limit = q == null ? HistoryQuery.defaultQuery().limit() : q.limit();
+    String path = relativePath(ref);
+    return vertx.executeBlocking(() -> new PageHistory(objects.history(path, Math.max(1, limit))), false);
+  }
+
+  @Override
+  public Page readPage(PageRef ref) {
+    return await(readPageAsync(ref));
+  }
+
+  @Override
+  public void writePage(PageRef ref, PageWriteRequest req) {
+    await(writePageAsync(ref, req));
+  }
+
+  @Override
+  public List<PageRef> listChildren(PageRef ref) {
+    return await(listChildrenAsync(ref));
+  }
+
+  @Override
+  public PageProperties readProperties(PageRef ref) {
+    return await(readPropertiesAsync(ref));
+  }
+
+  @Override
+  public void writeProperties(PageRef ref, PageProperties props) {
+    await(writePropertiesAsync(ref, props));
+  }
+
+  @Override
+  public List<AttachmentRef> listAttachments(PageRef ref) {
+    return await(listAttachmentsAsync(ref));
+  }
+
+  @Override
+  public InputStream readAttachment(AttachmentRef ref) {
+    return new ByteArrayInputStream(await(readAttachmentAsync(ref)).getBytes());
+  }
+
+  @Override
+  public void writeAttachment(AttachmentRef ref, InputStream data, Metadata meta) {
+    try {
+      await(writeAttachmentAsync(ref, Buffer.buffer(data.readAllBytes())));
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to write attachment " + ref.name(), e);
+    }
+  }
+
+  @Override
+  public PageHistory history(PageRef ref, HistoryQuery q) {
+    return await(historyAsync(ref, q));
+  }
+
+  private enum ChangeEvent {
+    PAGE, UPDATED, NONE
+  }
+
+  private static final class Change {
+    private final PageRef ref;
+    private final String reason;
+    private final Map<String, byte[]> files;
+    private final String expectedVersion;
+    private final GitIdentity author;
+    private final ChangeEvent event;
+    private final Promise<String> promise = Promise.promise();
+    private String commitId;
+    private RuntimeException failure;
+    private boolean applied;
+    private boolean existed;
+
+    private Change(PageRef ref, String reason, Map<String, byte[]> files, String expectedVersion, GitIdentity author,
+                   ChangeEvent event) {
+      this.ref = ref;
+      this.reason = reason;
+      this.files = files;
+      this.expectedVersion = expectedVersion;
+      this.author = author;
+      this.event = event;
+    }
+
+    private void reset() {
+      commitId = null;
+      failure = null;
+      applied = false;
+    }
+  }
+
+  private Future<String> submit(Change change) {
+    boolean start;
+    synchronized (pending) {
+      pending.add(change);
+      start = !committing;
+      committing = true;
+    }
+    if (start) {
+      commitNextBatch();
+    }
+    return change.promise.future();
+  }
+
+  private void commitNextBatch() {
+    List<Change> batch = new ArrayList<>();
+    synchronized (pending) {
+      while (!pending.isEmpty() && batch.size() < MAX_BATCH_SIZE) {
+        batch.add(pending.poll());
+      }
+      if (batch.isEmpty()) {
+        committing = false;
+        return;
+      }
+    }
+    vertx.executeBlocking(() -> commit(batch), false).onComplete(ar -> {
+      for (Change change : batch) {
+        if (change.failure != null) {
+          change.promise.fail(change.failure);
+        } else if (ar.failed()) {
+          change.promise.fail(ar.cause());
+        } else {
+          change.promise.complete(change.commitId);
+        }
+      }
+      commitNextBatch();
+    });
+  }
+
+  /**
+   * Commits a batch of changes on top of the current branch, one commit per run of changes by the same author.
+   */
+  private String commit(List<Change> batch) throws IOException {
+    String refName = objects.symbolicHead() != null ? objects.symbolicHead() : "HEAD";
+    for (int attempt = 1; ; attempt++) {
+      String head = objects.resolve(refName);
+      String tip = head;
+      String tree = head == null ? null : objects.readCommit(head).tree;
+      Map<String, String> committed = new LinkedHashMap<>();
+      Map<String, String> group = new LinkedHashMap<>();
+      List<Change> groupChanges = new ArrayList<>();
+      for (Change change : batch) {
+        change.reset();
+        if (!groupChanges.isEmpty() && !sameAuthor(groupChanges.get(0).author, change.author)) {
+          tip = commitGroup(tip, tree, group, groupChanges);
+          tree = tip == null ? null : objects.readCommit(tip).tree;
+          committed.putAll(group);
+          group.clear();
+          groupChanges.clear();
+        }
+        if (!accept(change, tree, group)) {
+          change.commitId = tip;
+          continue;
+        }
+        for (Map.Entry<String, byte[]> file : change.files.entrySet()) {
+          group.put(file.getKey(), objects.insert(GitObjectDatabase.BLOB, file.getValue()));
+        }
+        change.applied = true;
+        groupChanges.add(change);
+      }
+      if (!groupChanges.isEmpty()) {
+        tip = commitGroup(tip, tree, group, groupChanges);
+        committed.putAll(group);
+      }
+      if (Objects.equals(tip, head)) {
+        return head;
+      }
+      if (objects.updateRef(refName, head, tip, committer(), "commit: " + objects.readCommit(tip).subject())) {
+        try {
+          writeWorkTree(batch);
+          updateIndex(committed, objects.readCommit(tip).tree);
+        } catch (IOException e) {
+          // The commit landed, so the changes succeeded; only the checked out files lag behind.
+          LOG.log(Level.WARNING, "Committed " + tip + " but failed to update the work tree of " + repoRoot, e);
+        }
+        publishEvents(batch);
+        return tip;
+      }
+      if (attempt >= REF_UPDATE_ATTEMPTS) {
+        throw new IllegalStateException("Failed to update " + refName + ", it keeps changing");
+      }
+      LOG.log(Level.FINE, "{0} moved while committing, committing again on top of it", refName);
+    }
+  }
+
+  /**
+   * Decides whether a change goes in: when it expects a version, its page must not have changed since then.
+   */
+  private boolean accept(Change change, String tree, Map<String, String> group) throws IOException {
+    String expected = change.expectedVersion;
+    if (expected == null || expected.isEmpty()) {
+      return true;
+    }
+    String pagePath = relativePath(change.ref);
+    boolean changed = groupTouches(group, pagePath);
+    if (!changed) {
+      String expectedTree = null;
+      try {
+        expectedTree = GitObjectDatabase.isObjectId(expected) ? objects.readCommit(expected).tree : null;
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "Unknown expected version " + expected, e);
+      }
+      if (expectedTree == null) {
+        change.failure = new DocStoreConflictException("Conflict writing " + change.ref.wikiPath()
+          + ": unknown version " + expected);
+        return false;
+      }
+      changed = !Objects.equals(objects.entryId(expectedTree, pagePath), objects.entryId(tree, pagePath));
+    }
+    if (!changed) {
+      return true;
+    }
+    switch (mergeStrategy) {
+      case THEIRS:
+        return true;
+      case OURS:
+        // the page keeps the content it has now, like merging with the ours strategy
+        return false;
+      default:
+        change.failure = new DocStoreConflictException("Conflict writing " + change.ref.wikiPath()
+          + ": expected " + expected + " (" + mergeStrategy + ")");
+        return false;
+    }
+  }
+
+  private static boolean groupTouches(Map<String, String> group, String pagePath) {
+    for (String path : group.keySet()) {
+      if (path.startsWith(pagePath + "/")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private String commitGroup(String parent, String tree, Map<String, String> group, List<Change> changes)
+    throws IOException {
+    String newTree = objects.updateTree(tree, group);
+    GitIdentity author = changes.get(0).author;
+    if (author == null || author.isEmpty()) {
+      author = committer();
+    }
+    List<String> parents = parent == null ? Collections.emptyList() : Collections.singletonList(parent);
+    String commitId = objects.writeCommit(newTree, parents, author, committer(), Instant.now(), message(changes));
+    for (Change change : changes) {
+      change.commitId = commitId;
+    }
+    return commitId;
+  }
+
+  private String message(List<Change> changes) {
+    Set<String> paths = new LinkedHashSet<>();
+    Set<String> reasons = new LinkedHashSet<>();
+    for (Change change : changes) {
+      paths.add(change.ref.wikiPath());
+      reasons.add(change.reason);
+    }
+    return String.format(commitMessageTemplate, String.join(", ", paths)) + " (" + String.join(", ", reasons) + ")";
+  }
+
+  private void writeWorkTree(List<Change> batch) throws IOException {
+    for (Change change : batch) {
+      if (!change.applied) {
+        continue;
+      }
+      change.existed = Files.exists(repoRoot.resolve(relativePath(change.ref)).resolve(CONTENT_FILE));
+      for (Map.Entry<String, byte[]> file : change.files.entrySet()) {
+        Path target = repoRoot.resolve(file.getKey());
+        Files.createDirectories(target.getParent());
+        Files.write(target, file.getValue());
+      }
+    }
+  }
+
+  private void updateIndex(Map<String, String> committed, String tree) {
+    try {
+      index.update(committed, tree, objects);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to update git index of " + repoRoot, e);
+    }
+  }
+
+  private void publishEvents(List<Change> batch) {
+    for (Change change : batch) {
+      if (!change.applied || change.event == ChangeEvent.NONE) {
+        continue;
+      }
+      String path = relativePath(change.ref).replace('/', '.');
+      if (change.event == ChangeEvent.PAGE && !change.existed) {
+        PageChangeEvents.publish(PageChangeEvent.created(path, change.commitId));
+      } else {
+        PageChangeEvents.publish(PageChangeEvent.updated(path, change.commitId));
+      }
+    }
+  }
+
+  private Future<String> readText(Path path) {
+    return fs.exists(path.toString()).compose(exists -> exists
+      ? fs.readFile(path.toString()).map(data -> data.toString(StandardCharsets.UTF_8))
+      : Future.succeededFuture(""));
+  }
+
+  private Future<List<String>> listEntries(Path dir, boolean directories) {
+    return fs.exists(dir.toString()).compose(exists -> {
+      if (!exists) {
+        return Future.succeededFuture(Collections.<String>emptyList());
+      }
+      return fs.readDir(dir.toString()).compose(children -> {
+        List<Future<Boolean>> matches = new ArrayList<>(children.size());
+        for (String child : children) {
+          matches.add(fs.props(child).map(props -> directories ? props.isDirectory() : props.isRegularFile()));
+        }
+        return Future.all(matches).map(done -> {
+          List<String> names = new ArrayList<>();
+          for (int i = 0; i < children.size(); i++) {
+            String name = Path.of(children.get(i)).getFileName().toString();
+            if (matches.get(i).result() && !name.startsWith(".")) {
+              names.add(name);
+            }
+          }
+          return names;
+        });
+      });
+    });
+  }
+
+  private static <T> T await(Future<T> future) {
+    if (Context.isOnEventLoopThread()) {
+      throw new IllegalStateException("Blocking document store call on an event loop thread");
+    }
+    try {
+      return future.toCompletionStage().toCompletableFuture().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the document store", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause.getMessage(), cause);
+    }
+  }
+
+  private GitIdentity committer() {
+    return new GitIdentity(commitConfig.committerName(), commitConfig.committerEmail());
+  }
+
+  private static boolean sameAuthor(GitIdentity a, GitIdentity b) {
+    if (a == null || b == null) {
+      return a == b;
+    }
+    return Objects.equals(a.name(), b.name()) && Objects.equals(a.email(), b.email());
+  }
+
+  private static GitIdentity resolveAuthor(PageWriteRequest req) {
+    if (req != null && (req.authorName() != null || req.authorEmail() != null)) {
+      return new GitIdentity(req.authorName(), req.authorEmail());
+    }
+    return GitIdentityHolder.current();
+  }
+
+  private Path pageDir(PageRef ref) {
+    return repoRoot.resolve(relativePath(ref));
+  }
+
+  private static String relativePath(PageRef ref) {
+    StringBuilder path = new StringBuilder();
+    for (String part : ref.wikiPath().replace("\\", "/").split("/")) {
+      if (!part.isEmpty()) {
+        if (path.length() > 0) {
+          path.append('/');
+        }
+        path.append(part);
+      }
+    }
+    return path.toString();
+  }
+
+  private static byte[] bytes(String value) {
+    return (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -1,5 +1,7 @@
 package fitnesse.docstore;
 
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeEvents;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
@@ -12,7 +14,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class GitDocStore implements DocStore {
   private static final String CONTENT_FILE = "content.txt";
@@ -26,6 +30,7 @@ public final class GitDocStore implements DocStore {
   private final String commitMessageTemplate;
   private final MergeStrategy mergeStrategy;
   private final GitCommitConfig commitConfig;
+  private final GitWriteBehindQueue writeBehind;
 
   public GitDocStore(Path repoRoot) {
     this(Vertx.vertx(), repoRoot, "wiki: update %s", MergeStrategy.fromConfig());
@@ -40,6 +45,21 @@ public final class GitDocStore implements DocStore {
   }
 
   public GitDocStore(Vertx vertx, Path repoRoot, String commitMessageTemplate, MergeStrategy mergeStrategy) {
+    this(vertx, repoRoot, commitMessageTemplate, mergeStrategy, GitWriteBehindQueue.Settings.fromConfig());
+  }
+
+  /**
+   * Store that commits changes made within {@code writeBehindWindowMillis} of each other together, at most
+   * {@code writeBehindMaxBatch} per batch. A window of 0 commits each change when it is made.
+   */
+  public GitDocStore(Vertx vertx, Path repoRoot, String commitMessageTemplate, MergeStrategy mergeStrategy,
+                     long writeBehindWindowMillis, int writeBehindMaxBatch) {
+    this(vertx, repoRoot, commitMessageTemplate, mergeStrategy,
+      new GitWriteBehindQueue.Settings(writeBehindWindowMillis, writeBehindMaxBatch));
+  }
+
+  private GitDocStore(Vertx vertx, Path repoRoot, String commitMessageTemplate, MergeStrategy mergeStrategy,
+                      GitWriteBehindQueue.Settings writeBehindSettings) {
     this.vertx = vertx;
     this.fs = vertx.fileSystem();
     this.repoRoot = repoRoot;
@@ -48,6 +68,22 @@ public final class GitDocStore implements DocStore {
     this.mergeStrategy = mergeStrategy == null ? MergeStrategy.FAST_FORWARD : mergeStrategy;
     this.commitConfig = GitCommitConfig.fromEnv();
     initRepoIfNeeded();
+    if (writeBehindSettings.enabled()) {
+      this.writeBehind = new GitWriteBehindQueue(vertx, repoRoot, git, commitConfig, commitMessageTemplate,
+        writeBehindSettings.windowMillis, writeBehindSettings.maxBatchSize);
+      writeBehind.recover();
+    } else {
+      this.writeBehind = null;
+    }
+  }
+
+  /**
+   * Commits the changes still waiting in the write-behind queue.
+   */
+  public void flush() {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
   }
 
   @Override
@@ -67,17 +103,36 @@ public final class GitDocStore implements DocStore {
   @Override
   public void writePage(PageRef ref, PageWriteRequest req) {
     Path pageDir = pageDir(ref);
+    boolean existed = fs.existsBlocking(pageDir.resolve(CONTENT_FILE).toString());
     String expected = req == null ? null : req.expectedVersion();
-    if (expected == null || expected.isEmpty()) {
-      writeAndCommit(ref, req, pageDir);
-      return;
+    if (writeBehind != null) {
+      if (expected == null || expected.isEmpty()) {
+        String content = req == null ? null : req.content();
+        String propertiesXml = req == null ? null : req.propertiesXml();
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put(relativeTo(pageDir.resolve(CONTENT_FILE)), safe(content).getBytes(StandardCharsets.UTF_8));
+        if (propertiesXml != null) {
+          files.put(relativeTo(pageDir.resolve(PROPERTIES_FILE)), propertiesXml.getBytes(StandardCharsets.UTF_8));
+        }
+        writeBehind.write(ref, "page", resolveAuthor(req), files, existed);
+        return;
+      }
+      // merging needs the expected version and everything before it committed
+      writeBehind.flush();
     }
-    String current = git.currentCommit();
-    if (current == null || current.isEmpty() || current.equals(expected)) {
+    if (expected == null || expected.isEmpty()) {
       writeAndCommit(ref, req, pageDir);
-      return;
+    } else {
+      String current = git.currentCommit();
+      if (current == null || current.isEmpty() || current.equals(expected)) {
+        writeAndCommit(ref, req, pageDir);
+      } else {
+        applyWriteWithMerge(ref, req, pageDir, expected);
+      }
     }
-    applyWriteWithMerge(ref, req, pageDir, expected);
+    String path = wikiPagePath(ref);
+    String version = git.currentCommit();
+    PageChangeEvents.publish(existed ? PageChangeEvent.updated(path, version) : PageChangeEvent.created(path, version));
   }
 
   @Override
@@ -112,6 +167,11 @@ public final class GitDocStore implements DocStore {
   @Override
   public void writeProperties(PageRef ref, PageProperties props) {
     Path propsPath = pageDir(ref).resolve(PROPERTIES_FILE);
+    if (writeBehind != null) {
+      writeBehind.write(ref, "properties", GitIdentityHolder.current(),
+        Map.of(relativeTo(propsPath), safe(props.xml()).getBytes(StandardCharsets.UTF_8)), true);
+      return;
+    }
     try {
       fs.mkdirsBlocking(propsPath.getParent().toString());
       fs.writeFileBlocking(propsPath.toString(), Buffer.buffer(safe(props.xml()), StandardCharsets.UTF_8.name()));
@@ -119,6 +179,7 @@ public final class GitDocStore implements DocStore {
       throw new IllegalStateException("Failed to write properties for " + ref.wikiPath(), e);
     }
     commitPaths("properties", ref, GitIdentityHolder.current(), propsPath);
+    PageChangeEvents.publish(PageChangeEvent.updated(wikiPagePath(ref), git.currentCommit()));
   }
 
   @Override
@@ -155,6 +216,15 @@ public final class GitDocStore implements DocStore {
   @Override
   public void writeAttachment(AttachmentRef ref, InputStream data, Metadata meta) {
     Path attachmentPath = pageDir(ref.pageRef()).resolve(ATTACHMENTS_DIR).resolve(ref.name());
+    if (writeBehind != null) {
+      try {
+        writeBehind.write(ref.pageRef(), "attachment", GitIdentityHolder.current(),
+          Map.of(relativeTo(attachmentPath), readAllBytes(data)), true);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to write attachment " + ref.name(), e);
+      }
+      return;
+    }
     try {
       fs.mkdirsBlocking(attachmentPath.getParent().toString());
       fs.writeFileBlocking(attachmentPath.toString(), Buffer.buffer(readAllBytes(data)));
@@ -167,6 +237,7 @@ public final class GitDocStore implements DocStore {
   @Override
   public PageHistory history(PageRef ref, HistoryQuery q) {
     int limit = q == null ? HistoryQuery.defaultQuery().limit() : q.limit();
+    flush();
     List<String> lines = git.log(relativePath(ref), limit);
     List<PageHistoryEntry> entries = new ArrayList<>();
     for (String line : lines) {
@@ -308,6 +379,14 @@ public final class GitDocStore implements DocStore {
     return ref.wikiPath().replace("\\", "/");
   }
 
+  private String relativeTo(Path path) {
+    return repoRoot.relativize(path).toString().replace("\\", "/");
+  }
+
+  private String wikiPagePath(PageRef ref) {
+    return relativePath(ref).replace('/', '.');
+  }
+
   private String readIfExists(Path path) {
     if (!fs.existsBlocking(path.toString())) {
       return "";
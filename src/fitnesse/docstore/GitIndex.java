@@ -0,0 +1,293 @@
+package fitnesse.docstore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Updates the git index (staging area) for files committed through the {@link GitObjectDatabase}, so the working
+ * tree shows up clean in git afterwards.
+ * <p>
+ * Entries of other files are kept as they are. Versions 2 to 4 are read, version 2 (or 3 when entries need it) is
+ * written. Optional extensions, like the cached tree, are dropped; git rebuilds them when needed.
+ */
+final class GitIndex {
+  private static final Logger LOG = Logger.getLogger(GitIndex.class.getName());
+  private static final int SIGNATURE = 0x44495243; // DIRC
+  private static final int EXTENDED_FLAG = 0x4000;
+  private static final int LOCK_ATTEMPTS = 20;
+  private static final long LOCK_WAIT_MILLIS = 50;
+
+  private final Path workTree;
+  private final Path indexFile;
+
+  GitIndex(Path workTree, Path gitDir) {
+    this.workTree = workTree;
+    this.indexFile = gitDir.resolve("index");
+  }
+
+  private static final class Entry {
+    private final byte[] stat;
+    private final byte[] id;
+    private final int flags;
+    private final int extendedFlags;
+    private final byte[] path;
+
+    private Entry(byte[] stat, byte[] id, int flags, int extendedFlags, byte[] path) {
+      this.stat = stat;
+      this.id = id;
+      this.flags = flags;
+      this.extendedFlags = extendedFlags;
+      this.path = path;
+    }
+
+    private int stage() {
+      return (flags >> 12) & 3;
+    }
+  }
+
+  /**
+   * Records new content for files in the index.
+   * @param changes blob ids by path relative to the work tree, a null id removes the file from the index.
+   * @param treeId tree of the new commit, used to rebuild an index that can not be updated in place.
+   */
+  void update(Map<String, String> changes, String treeId, GitObjectDatabase objects) throws IOException {
+    Path lock = indexFile.resolveSibling("index.lock");
+    if (!acquire(lock)) {
+      LOG.log(Level.WARNING, "Git index is locked, not updating it for " + changes.keySet());
+      return;
+    }
+    try {
+      TreeMap<String, Entry> entries = read(treeId, objects);
+      for (Map.Entry<String, String> change : changes.entrySet()) {
+        String path = change.getKey();
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        entries.subMap(key(pathBytes, 0), true, key(pathBytes, 3), true).clear();
+        if (change.getValue() != null) {
+          entries.put(key(pathBytes, 0), new Entry(stat(workTree.resolve(path)), GitObjectDatabase.fromHex(change.getValue()),
+            Math.min(pathBytes.length, 0xfff), 0, pathBytes));
+        }
+      }
+      Files.write(lock, write(entries));
+      GitObjectDatabase.move(lock, indexFile);
+    } finally {
+      Files.deleteIfExists(lock);
+    }
+  }
+
+  private TreeMap<String, Entry> read(String treeId, GitObjectDatabase objects) throws IOException {
+    TreeMap<String, Entry> entries = new TreeMap<>();
+    if (!Files.isRegularFile(indexFile)) {
+      addTree(entries, treeId, "", objects);
+      return entries;
+    }
+    byte[] data = Files.readAllBytes(indexFile);
+    if (data.length < 12 || readInt(data, 0) != SIGNATURE) {
+      throw new IOException("Not a git index: " + indexFile);
+    }
+    int version = readInt(data, 4);
+    if (version < 2 || version > 4) {
+      throw new IOException("Unsupported git index version " + version);
+    }
+    int count = readInt(data, 8);
+    int position = 12;
+    byte[] previousPath = new byte[0];
+    for (int i = 0; i < count; i++) {
+      int start = position;
+      byte[] stat = Arrays.copyOfRange(data, position, position + 40);
+      byte[] id = Arrays.copyOfRange(data, position + 40, position + 60);
+      int flags = ((data[position + 60] & 0xff) << 8) | (data[position + 61] & 0xff);
+      position += 62;
+      int extendedFlags = 0;
+      if ((flags & EXTENDED_FLAG) != 0) {
+        extendedFlags = ((data[position] & 0xff) << 8) | (data[position + 1] & 0xff);
+        position += 2;
+      }
+      byte[] path;
+      if (version == 4) {
+        int[] cursor = {position};
+        int strip = readVarInt(data, cursor);
+        int nul = indexOf(data, cursor[0]);
+        byte[] suffix = Arrays.copyOfRange(data, cursor[0], nul);
+        path = new byte[previousPath.length - strip + suffix.length];
+        System.arraycopy(previousPath, 0, path, 0, previousPath.length - strip);
+        System.arraycopy(suffix, 0, path, previousPath.length - strip, suffix.length);
+        position = nul + 1;
+      } else {
+        int nul = indexOf(data, position);
+        path = Arrays.copyOfRange(data, position, nul);
+        int length = nul - start;
+        position = start + ((length + 8) & ~7);
+      }
+      previousPath = path;
+      Entry entry = new Entry(stat, id, flags, extendedFlags, path);
+      entries.put(key(path, entry.stage()), entry);
+    }
+    while (position + 8 <= data.length - 20) {
+      String signature = new String(data, position, 4, StandardCharsets.US_ASCII);
+      if ("link".equals(signature) || "sdir".equals(signature)) {
+        // a split or sparse index has entries elsewhere, start over from the commit
+        LOG.log(Level.FINE, "Rebuilding git index with " + signature + " extension from tree " + treeId);
+        entries.clear();
+        addTree(entries, treeId, "", objects);
+        return entries;
+      }
+      position += 8 + readInt(data, position + 4);
+    }
+    return entries;
+  }
+
+  /**
+   * Adds entries for all files of a tree, without file status, so git compares their content when it looks at them.
+   */
+  private void addTree(TreeMap<String, Entry> entries, String treeId, String prefix, GitObjectDatabase objects)
+    throws IOException {
+    if (treeId == null) {
+      return;
+    }
+    for (GitObjectDatabase.TreeEntry treeEntry : objects.readTree(treeId)) {
+      String path = prefix + treeEntry.name;
+      if (treeEntry.isTree()) {
+        addTree(entries, treeEntry.id, path + "/", objects);
+      } else {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        byte[] stat = new byte[40];
+        putInt(stat, 24, Integer.parseInt(treeEntry.mode, 8));
+        entries.put(key(pathBytes, 0), new Entry(stat, GitObjectDatabase.fromHex(treeEntry.id),
+          Math.min(pathBytes.length, 0xfff), 0, pathBytes));
+      }
+    }
+  }
+
+  private static byte[] write(TreeMap<String, Entry> entries) throws IOException {
+    boolean extended = false;
+    for (Entry entry : entries.values()) {
+      extended |= (entry.flags & EXTENDED_FLAG) != 0;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + entries.size() * 96);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(SIGNATURE);
+    out.writeInt(extended ? 3 : 2);
+    out.writeInt(entries.size());
+    for (Entry entry : entries.values()) {
+      out.write(entry.stat);
+      out.write(entry.id);
+      out.writeShort(entry.flags);
+      int length = 62;
+      if ((entry.flags & EXTENDED_FLAG) != 0) {
+        out.writeShort(entry.extendedFlags);
+        length += 2;
+      }
+      out.write(entry.path);
+      length += entry.path.length;
+      int padding = ((length + 8) & ~7) - length;
+      out.write(new byte[padding]);
+    }
+    MessageDigest sha1 = GitObjectDatabase.sha1();
+    byte[] content = bytes.toByteArray();
+    sha1.update(content);
+    byte[] result = Arrays.copyOf(content, content.length + 20);
+    System.arraycopy(sha1.digest(), 0, result, content.length, 20);
+    return result;
+  }
+
+  /**
+   * File status as git records it, so git sees the file unchanged without reading it.
+   */
+  private static byte[] stat(Path file) throws IOException {
+    byte[] stat = new byte[40];
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    Map<String, Object> unix = null;
+    try {
+      unix = Files.readAttributes(file, "unix:ctime,dev,ino,uid,gid", LinkOption.NOFOLLOW_LINKS);
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      // not a unix file system, git on it does not trust these fields either
+    }
+    FileTime ctime = unix != null ? (FileTime) unix.get("ctime") : attributes.creationTime();
+    putTime(stat, 0, ctime);
+    putTime(stat, 8, attributes.lastModifiedTime());
+    if (unix != null) {
+      putInt(stat, 16, (int) ((Number) unix.get("dev")).longValue());
+      putInt(stat, 20, (int) ((Number) unix.get("ino")).longValue());
+      putInt(stat, 28, ((Number) unix.get("uid")).intValue());
+      putInt(stat, 32, ((Number) unix.get("gid")).intValue());
+    }
+    // pages are committed as regular files, whatever their permissions on disk
+    putInt(stat, 24, 0100644);
+    putInt(stat, 36, (int) attributes.size());
+    return stat;
+  }
+
+  private static void putTime(byte[] stat, int position, FileTime time) {
+    long nanos = time.to(TimeUnit.NANOSECONDS);
+    putInt(stat, position, (int) (nanos / 1_000_000_000L));
+    putInt(stat, position + 4, (int) (nanos % 1_000_000_000L));
+  }
+
+  private static String key(byte[] path, int stage) {
+    // index entries sort by path bytes, then by stage; ISO-8859-1 keeps the byte order
+    return new String(path, StandardCharsets.ISO_8859_1) + "\0" + (char) stage;
+  }
+
+  private static boolean acquire(Path lock) throws IOException {
+    for (int attempt = 0; attempt < LOCK_ATTEMPTS; attempt++) {
+      try {
+        Files.createFile(lock);
+        return true;
+      } catch (FileAlreadyExistsException e) {
+        try {
+          Thread.sleep(LOCK_WAIT_MILLIS);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static int readVarInt(byte[] data, int[] cursor) {
+    int c = data[cursor[0]++] & 0xff;
+    int value = c & 0x7f;
+    while ((c & 0x80) != 0) {
+      c = data[cursor[0]++] & 0xff;
+      value = ((value + 1) << 7) | (c & 0x7f);
+    }
+    return value;
+  }
+
+  private static int indexOf(byte[] data, int from) {
+    for (int i = from; i < data.length; i++) {
+      if (data[i] == 0) {
+        return i;
+      }
+    }
+    return data.length;
+  }
+
+  private static int readInt(byte[] data, int position) {
+    return ((data[position] & 0xff) << 24) | ((data[position + 1] & 0xff) << 16)
+      | ((data[position + 2] & 0xff) << 8) | (data[position + 3] & 0xff);
+  }
+
+  private static void putInt(byte[] data, int position, int value) {
+    data[position] = (byte) (value >>> 24);
+    data[position + 1] = (byte) (value >>> 16);
+    data[position + 2] = (byte) (value >>> 8);
+    data[position + 3] = (byte) value;
+  }
+}
@@ -0,0 +1,896 @@
+package fitnesse.docstore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes the objects and refs of a git repository directly, without starting git.
+ * <p>
+ * Objects are read from loose object files and from pack files (version 1 and 2 indexes, with offset and reference
+ * deltas). New objects are written as loose objects, refs are updated with the same lock files git uses.
+ */
+final class GitObjectDatabase {
+  static final String BLOB = "blob";
+  static final String TREE = "tree";
+  static final String COMMIT = "commit";
+  static final String TREE_MODE = "40000";
+  static final String FILE_MODE = "100644";
+
+  private static final int OBJ_COMMIT = 1;
+  private static final int OBJ_TREE = 2;
+  private static final int OBJ_BLOB = 3;
+  private static final int OBJ_TAG = 4;
+  private static final int OBJ_OFS_DELTA = 6;
+  private static final int OBJ_REF_DELTA = 7;
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final Path gitDir;
+  private final Path objectsDir;
+  private volatile List<Pack> packs;
+
+  GitObjectDatabase(Path gitDir) {
+    this.gitDir = gitDir;
+    this.objectsDir = gitDir.resolve("objects");
+  }
+
+  /**
+   * Creates the directories and files of an empty repository, with HEAD pointing to an unborn master branch.
+   */
+  static void init(Path gitDir) throws IOException {
+    Files.createDirectories(gitDir.resolve("objects").resolve("pack"));
+    Files.createDirectories(gitDir.resolve("objects").resolve("info"));
+    Files.createDirectories(gitDir.resolve("refs").resolve("heads"));
+    Files.createDirectories(gitDir.resolve("refs").resolve("tags"));
+    writeIfAbsent(gitDir.resolve("HEAD"), "ref: refs/heads/master\n");
+    writeIfAbsent(gitDir.resolve("config"), "[core]\n\trepositoryformatversion = 0\n\tfilemode = true\n\tbare = false\n"
+      + "\tlogallrefupdates = true\n");
+    writeIfAbsent(gitDir.resolve("description"), "Unnamed repository; edit this file 'description' to name the repository.\n");
+  }
+
+  Path gitDir() {
+    return gitDir;
+  }
+
+  static final class GitObject {
+    final String type;
+    final byte[] data;
+
+    GitObject(String type, byte[] data) {
+      this.type = type;
+      this.data = data;
+    }
+  }
+
+  static final class TreeEntry {
+    final String mode;
+    final String name;
+    final String id;
+
+    TreeEntry(String mode, String name, String id) {
+      this.mode = mode;
+      this.name = name;
+      this.id = id;
+    }
+
+    boolean isTree() {
+      return TREE_MODE.equals(mode);
+    }
+  }
+
+  static final class Commit {
+    final String id;
+    final String tree;
+    final List<String> parents;
+    final String author;
+    final String committer;
+    final String message;
+
+    Commit(String id, String tree, List<String> parents, String author, String committer, String message) {
+      this.id = id;
+      this.tree = tree;
+      this.parents = parents;
+      this.author = author;
+      this.committer = committer;
+      this.message = message;
+    }
+
+    String authorName() {
+      int open = author.indexOf(" <");
+      return open < 0 ? author : author.substring(0, open);
+    }
+
+    String authorEmail() {
+      int open = author.indexOf('<');
+      int close = author.indexOf('>', open + 1);
+      return open < 0 || close < 0 ? "" : author.substring(open + 1, close);
+    }
+
+    long authorTime() {
+      return identTime(author);
+    }
+
+    long commitTime() {
+      return identTime(committer);
+    }
+
+    /**
+     * @return the first paragraph of the message on one line, as shown by git log's %s.
+     */
+    String subject() {
+      StringBuilder subject = new StringBuilder();
+      for (String line : message.split("\n")) {
+        if (line.trim().isEmpty()) {
+          if (subject.length() > 0) {
+            break;
+          }
+          continue;
+        }
+        if (subject.length() > 0) {
+          subject.append(' ');
+        }
+        subject.append(line.trim());
+      }
+      return subject.toString();
+    }
+
+    private static long identTime(String ident) {
+      int close = ident.lastIndexOf('>');
+      String[] parts = ident.substring(close + 1).trim().split(" ");
+      try {
+        return Long.parseLong(parts[0]);
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+  }
+
+  GitObject read(String id) throws IOException {
+    GitObject object = readLoose(id);
+    if (object == null) {
+      object = readPacked(id, packs());
+    }
+    if (object == null) {
+      object = readPacked(id, reloadPacks());
+    }
+    if (object == null) {
+      throw new NoSuchFileException("Missing git object " + id);
+    }
+    return object;
+  }
+
+  boolean contains(String id) throws IOException {
+    if (Files.exists(loosePath(id))) {
+      return true;
+    }
+    for (Pack pack : packs()) {
+      if (pack.find(id) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Stores an object as loose object, unless the repository already has it.
+   * @return the id of the object.
+   */
+  String insert(String type, byte[] data) throws IOException {
+    byte[] header = (type + " " + data.length + "\0").getBytes(StandardCharsets.US_ASCII);
+    MessageDigest sha1 = sha1();
+    sha1.update(header);
+    sha1.update(data);
+    String id = toHex(sha1.digest());
+    if (contains(id)) {
+      return id;
+    }
+    Path target = loosePath(id);
+    Files.createDirectories(target.getParent());
+    Path temp = Files.createTempFile(target.getParent(), "tmp_obj_", "");
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      try (DeflaterOutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp), deflater, 8192)) {
+        out.write(header);
+        out.write(data);
+      }
+      move(temp, target);
+    } finally {
+      deflater.end();
+      Files.deleteIfExists(temp);
+    }
+    return id;
+  }
+
+  List<TreeEntry> readTree(String id) throws IOException {
+    GitObject object = read(id);
+    if (!TREE.equals(object.type)) {
+      throw new IOException("Object " + id + " is a " + object.type + ", not a tree");
+    }
+    List<TreeEntry> entries = new ArrayList<>();
+    byte[] data = object.data;
+    int position = 0;
+    while (position < data.length) {
+      int space = indexOf(data, (byte) ' ', position);
+      int nul = indexOf(data, (byte) 0, space + 1);
+      String mode = new String(data, position, space - position, StandardCharsets.US_ASCII);
+      String name = new String(data, space + 1, nul - space - 1, StandardCharsets.UTF_8);
+      String entryId = toHex(Arrays.copyOfRange(data, nul + 1, nul + 21));
+      entries.add(new TreeEntry(mode, name, entryId));
+      position = nul + 21;
+    }
+    return entries;
+  }
+
+  String writeTree(Iterable<TreeEntry> entries) throws IOException {
+    List<TreeEntry> sorted = new ArrayList<>();
+    entries.forEach(sorted::add);
+    sorted.sort(Comparator.comparing(GitObjectDatabase::sortName));
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    for (TreeEntry entry : sorted) {
+      data.write((entry.mode + " ").getBytes(StandardCharsets.US_ASCII));
+      data.write(entry.name.getBytes(StandardCharsets.UTF_8));
+      data.write(0);
+      data.write(fromHex(entry.id));
+    }
+    return insert(TREE, data.toByteArray());
+  }
+
+  Commit readCommit(String id) throws IOException {
+    GitObject object = read(id);
+    if (!COMMIT.equals(object.type)) {
+      throw new IOException("Object " + id + " is a " + object.type + ", not a commit");
+    }
+    String text = new String(object.data, StandardCharsets.UTF_8);
+    int headerEnd = text.indexOf("\n\n");
+    String headers = headerEnd < 0 ? text : text.substring(0, headerEnd);
+    String message = headerEnd < 0 ? "" : text.substring(headerEnd + 2);
+    String tree = null;
+    String author = "";
+    String committer = "";
+    List<String> parents = new ArrayList<>(2);
+    for (String line : headers.split("\n")) {
+      if (line.startsWith("tree ")) {
+        tree = line.substring(5).trim();
+      } else if (line.startsWith("parent ")) {
+        parents.add(line.substring(7).trim());
+      } else if (line.startsWith("author ")) {
+        author = line.substring(7);
+      } else if (line.startsWith("committer ")) {
+        committer = line.substring(10);
+      }
+    }
+    return new Commit(id, tree, parents, author, committer, message);
+  }
+
+  String writeCommit(String tree, List<String> parents, GitIdentity author, GitIdentity committer, Instant when,
+                     String message) throws IOException {
+    StringBuilder text = new StringBuilder();
+    text.append("tree ").append(tree == null ? insert(TREE, new byte[0]) : tree).append('\n');
+    for (String parent : parents) {
+      text.append("parent ").append(parent).append('\n');
+    }
+    text.append("author ").append(ident(author, when)).append('\n');
+    text.append("committer ").append(ident(committer, when)).append('\n');
+    text.append('\n').append(message);
+    if (!message.endsWith("\n")) {
+      text.append('\n');
+    }
+    return insert(COMMIT, text.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return id of the blob or tree at the path in the tree, null when there is none.
+   */
+  String entryId(String treeId, String path) throws IOException {
+    String current = treeId;
+    for (String name : path.split("/")) {
+      if (name.isEmpty()) {
+        continue;
+      }
+      if (current == null) {
+        return null;
+      }
+      String next = null;
+      for (TreeEntry entry : readTree(current)) {
+        if (entry.name.equals(name)) {
+          next = entry.id;
+          break;
+        }
+      }
+      current = next;
+    }
+    return current;
+  }
+
+  /**
+   * Writes the trees for a set of changed files.
+   * @param treeId tree to change, null for an empty tree.
+   * @param changes blob ids by path relative to the tree, a null id removes the file.
+   * @return id of the new tree, null when it has no entries left.
+   */
+  String updateTree(String treeId, Map<String, String> changes) throws IOException {
+    Map<String, TreeEntry> entries = new LinkedHashMap<>();
+    if (treeId != null) {
+      for (TreeEntry entry : readTree(treeId)) {
+        entries.put(entry.name, entry);
+      }
+    }
+    Map<String, Map<String, String>> nested = new LinkedHashMap<>();
+    for (Map.Entry<String, String> change : changes.entrySet()) {
+      String path = change.getKey();
+      int slash = path.indexOf('/');
+      if (slash < 0) {
+        TreeEntry existing = entries.get(path);
+        if (change.getValue() == null) {
+          entries.remove(path);
+        } else {
+          String mode = existing != null && !existing.isTree() ? existing.mode : FILE_MODE;
+          entries.put(path, new TreeEntry(mode, path, change.getValue()));
+        }
+      } else {
+        nested.computeIfAbsent(path.substring(0, slash), dir -> new LinkedHashMap<>())
+          .put(path.substring(slash + 1), change.getValue());
+      }
+    }
+    for (Map.Entry<String, Map<String, String>> dir : nested.entrySet()) {
+      TreeEntry existing = entries.get(dir.getKey());
+      String subtree = updateTree(existing != null && existing.isTree() ? existing.id : null, dir.getValue());
+      if (subtree == null) {
+        entries.remove(dir.getKey());
+      } else {
+        entries.put(dir.getKey(), new TreeEntry(TREE_MODE, dir.getKey(), subtree));
+      }
+    }
+    return entries.isEmpty() ? null : writeTree(entries.values());
+  }
+
+  /**
+   * @param revision HEAD, a full ref name or a full object id.
+   * @return the commit id, null when the ref does not exist (yet).
+   */
+  String resolve(String revision) throws IOException {
+    if (isObjectId(revision)) {
+      return revision;
+    }
+    return resolveRef(revision, 0);
+  }
+
+  /**
+   * @return the ref HEAD points to, null when HEAD is detached.
+   */
+  String symbolicHead() throws IOException {
+    String head = readRefFile("HEAD");
+    return head != null && head.startsWith("ref: ") ? head.substring(5).trim() : null;
+  }
+
+  /**
+   * Moves a ref from the expected id to a new one, as long as no one else moved it in the meantime.
+   * @param expectedId id the ref has now, null when it should not exist yet.
+   * @return false when the ref did not have the expected id.
+   */
+  boolean updateRef(String refName, String expectedId, String newId, GitIdentity committer, String reason)
+    throws IOException {
+    Path ref = gitDir.resolve(refName);
+    Path lock = gitDir.resolve(refName + ".lock");
+    Files.createDirectories(lock.getParent());
+    try {
+      Files.createFile(lock);
+    } catch (FileAlreadyExistsException e) {
+      return false;
+    }
+    try {
+      if (!Objects.equals(resolveRef(refName, 0), expectedId)) {
+        return false;
+      }
+      Files.write(lock, (newId + "\n").getBytes(StandardCharsets.US_ASCII));
+      move(lock, ref);
+    } finally {
+      Files.deleteIfExists(lock);
+    }
+    String entry = (expectedId == null ? zeroId() : expectedId) + " " + newId + " " + ident(committer, Instant.now())
+      + "\t" + reason.replace('\n', ' ') + "\n";
+    appendReflog(refName, entry);
+    if (!"HEAD".equals(refName) && refName.equals(symbolicHead())) {
+      appendReflog("HEAD", entry);
+    }
+    return true;
+  }
+
+  /**
+   * History of a path the way git log shows it for a path: commits that changed it, following only a parent with
+   * the same content for the path where there is one.
+   */
+  List<PageHistoryEntry> history(String path, int limit) throws IOException {
+    List<PageHistoryEntry> entries = new ArrayList<>();
+    String head = resolve("HEAD");
+    if (head == null) {
+      return entries;
+    }
+    PriorityQueue<Commit> queue = new PriorityQueue<>(
+      Comparator.comparingLong(Commit::commitTime).reversed());
+    Set<String> seen = new HashSet<>();
+    queue.add(readCommit(head));
+    seen.add(head);
+    while (!queue.isEmpty() && entries.size() < limit) {
+      Commit commit = queue.poll();
+      String id = entryId(commit.tree, path);
+      List<Commit> parents = new ArrayList<>(commit.parents.size());
+      Commit sameAsParent = null;
+      for (String parentId : commit.parents) {
+        Commit parent = readCommit(parentId);
+        parents.add(parent);
+        if (sameAsParent == null && Objects.equals(id, entryId(parent.tree, path))) {
+          sameAsParent = parent;
+        }
+      }
+      if (sameAsParent != null) {
+        parents = Collections.singletonList(sameAsParent);
+      } else if (id != null || !parents.isEmpty()) {
+        entries.add(new PageHistoryEntry(commit.id, commit.authorName(), commit.authorEmail(), commit.subject(),
+          Instant.ofEpochSecond(commit.authorTime())));
+      }
+      for (Commit parent : parents) {
+        if (seen.add(parent.id)) {
+          queue.add(parent);
+        }
+      }
+    }
+    return entries;
+  }
+
+  private String resolveRef(String refName, int depth) throws IOException {
+    if (depth > 5) {
+      throw new IOException("Too many levels of symbolic refs at " + refName);
+    }
+    String value = readRefFile(refName);
+    if (value == null) {
+      return readPackedRef(refName);
+    }
+    if (value.startsWith("ref: ")) {
+      return resolveRef(value.substring(5).trim(), depth + 1);
+    }
+    return value;
+  }
+
+  private String readRefFile(String refName) throws IOException {
+    Path ref = gitDir.resolve(refName);
+    if (!Files.isRegularFile(ref)) {
+      return null;
+    }
+    String value = new String(Files.readAllBytes(ref), StandardCharsets.UTF_8).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private String readPackedRef(String refName) throws IOException {
+    Path packedRefs = gitDir.resolve("packed-refs");
+    if (!Files.isRegularFile(packedRefs)) {
+      return null;
+    }
+    for (String line : Files.readAllLines(packedRefs, StandardCharsets.UTF_8)) {
+      if (line.startsWith("#") || line.startsWith("^")) {
+        continue;
+      }
+      int space = line.indexOf(' ');
+      if (space > 0 && line.substring(space + 1).trim().equals(refName)) {
+        return line.substring(0, space);
+      }
+    }
+    return null;
+  }
+
+  private void appendReflog(String refName, String entry) {
+    Path log = gitDir.resolve("logs").resolve(refName);
+    try {
+      Files.createDirectories(log.getParent());
+      Files.write(log, entry.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      // the reflog is a convenience, the ref itself is updated
+    }
+  }
+
+  private GitObject readLoose(String id) throws IOException {
+    byte[] raw;
+    try (InputStream in = new InflaterInputStream(Files.newInputStream(loosePath(id)))) {
+      raw = in.readAllBytes();
+    } catch (NoSuchFileException | FileNotFoundException e) {
+      return null;
+    }
+    int space = indexOf(raw, (byte) ' ', 0);
+    int nul = indexOf(raw, (byte) 0, space + 1);
+    if (space < 0 || nul < 0) {
+      throw new IOException("Corrupt loose object " + id);
+    }
+    String type = new String(raw, 0, space, StandardCharsets.US_ASCII);
+    return new GitObject(type, Arrays.copyOfRange(raw, nul + 1, raw.length));
+  }
+
+  private GitObject readPacked(String id, List<Pack> candidates) throws IOException {
+    for (Pack pack : candidates) {
+      long offset = pack.find(id);
+      if (offset >= 0) {
+        return pack.read(offset);
+      }
+    }
+    return null;
+  }
+
+  private List<Pack> packs() throws IOException {
+    List<Pack> current = packs;
+    return current != null ? current : reloadPacks();
+  }
+
+  private synchronized List<Pack> reloadPacks() throws IOException {
+    Map<Path, Pack> known = new HashMap<>();
+    if (packs != null) {
+      for (Pack pack : packs) {
+        known.put(pack.idxPath, pack);
+      }
+    }
+    List<Pack> found = new ArrayList<>();
+    Path packDir = objectsDir.resolve("pack");
+    if (Files.isDirectory(packDir)) {
+      try (DirectoryStream<Path> indexes = Files.newDirectoryStream(packDir, "*.idx")) {
+        for (Path idx : indexes) {
+          Pack pack = known.get(idx);
+          found.add(pack != null ? pack : new Pack(idx));
+        }
+      }
+    }
+    packs = found;
+    return found;
+  }
+
+  private Path loosePath(String id) {
+    return objectsDir.resolve(id.substring(0, 2)).resolve(id.substring(2));
+  }
+
+  /**
+   * A pack file with its index, which is kept in memory.
+   */
+  private final class Pack {
+    private final Path idxPath;
+    private final Path packPath;
+    private final byte[] idx;
+    private final int version;
+    private final int count;
+
+    private Pack(Path idxPath) throws IOException {
+      this.idxPath = idxPath;
+      String name = idxPath.getFileName().toString();
+      this.packPath = idxPath.resolveSibling(name.substring(0, name.length() - 4) + ".pack");
+      this.idx = Files.readAllBytes(idxPath);
+      this.version = readInt(idx, 0) == 0xff744f63 ? readInt(idx, 4) : 1;
+      if (version != 1 && version != 2) {
+        throw new IOException("Unsupported pack index version " + version + " in " + idxPath);
+      }
+      this.count = readInt(idx, fanoutStart() + 255 * 4);
+    }
+
+    private int fanoutStart() {
+      return version == 1 ? 0 : 8;
+    }
+
+    /**
+     * @return offset of the object in the pack, -1 when it is not in this pack.
+     */
+    private long find(String id) {
+      byte[] sha = fromHex(id);
+      int first = sha[0] & 0xff;
+      int low = first == 0 ? 0 : readInt(idx, fanoutStart() + (first - 1) * 4);
+      int high = readInt(idx, fanoutStart() + first * 4) - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int compare = compareSha(sha, shaPosition(middle));
+        if (compare == 0) {
+          return offset(middle);
+        } else if (compare < 0) {
+          high = middle - 1;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return -1;
+    }
+
+    private int shaPosition(int index) {
+      return version == 1 ? 256 * 4 + index * 24 + 4 : 8 + 256 * 4 + index * 20;
+    }
+
+    private long offset(int index) {
+      if (version == 1) {
+        return readInt(idx, 256 * 4 + index * 24) & 0xffffffffL;
+      }
+      int offsets = 8 + 256 * 4 + count * 24;
+      int offset = readInt(idx, offsets + index * 4);
+      if (offset >= 0) {
+        return offset;
+      }
+      int large = offsets + count * 4 + (offset & 0x7fffffff) * 8;
+      return ((long) readInt(idx, large) << 32) | (readInt(idx, large + 4) & 0xffffffffL);
+    }
+
+    private int compareSha(byte[] sha, int position) {
+      for (int i = 0; i < 20; i++) {
+        int difference = (sha[i] & 0xff) - (idx[position + i] & 0xff);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return 0;
+    }
+
+    private GitObject read(long offset) throws IOException {
+      try (RandomAccessFile file = new RandomAccessFile(packPath.toFile(), "r")) {
+        return read(file, offset);
+      }
+    }
+
+    private GitObject read(RandomAccessFile file, long offset) throws IOException {
+      file.seek(offset);
+      InputStream in = new BufferedInputStream(Channels.newInputStream(file.getChannel()), 8192);
+      int c = readByte(in);
+      int type = (c >> 4) & 7;
+      long size = c & 15;
+      int shift = 4;
+      while ((c & 0x80) != 0) {
+        c = readByte(in);
+        size |= (long) (c & 0x7f) << shift;
+        shift += 7;
+      }
+      switch (type) {
+        case OBJ_COMMIT:
+          return new GitObject(COMMIT, inflate(in, size));
+        case OBJ_TREE:
+          return new GitObject(TREE, inflate(in, size));
+        case OBJ_BLOB:
+          return new GitObject(BLOB, inflate(in, size));
+        case OBJ_TAG:
+          return new GitObject("tag", inflate(in, size));
+        case OBJ_OFS_DELTA: {
+          c = readByte(in);
+          long distance = c & 0x7f;
+          while ((c & 0x80) != 0) {
+            c = readByte(in);
+            distance = ((distance + 1) << 7) | (c & 0x7f);
+          }
+          byte[] delta = inflate(in, size);
+          GitObject base = read(file, offset - distance);
+          return new GitObject(base.type, applyDelta(base.data, delta));
+        }
+        case OBJ_REF_DELTA: {
+          byte[] baseId = new byte[20];
+          readFully(in, baseId);
+          byte[] delta = inflate(in, size);
+          GitObject base = GitObjectDatabase.this.read(toHex(baseId));
+          return new GitObject(base.type, applyDelta(base.data, delta));
+        }
+        default:
+          throw new IOException("Unknown object type " + type + " at " + offset + " in " + packPath);
+      }
+    }
+  }
+
+  static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+    int[] position = {0};
+    long baseSize = readDeltaSize(delta, position);
+    if (baseSize != base.length) {
+      throw new IOException("Delta does not apply to base of " + base.length + " bytes");
+    }
+    byte[] result = new byte[(int) readDeltaSize(delta, position)];
+    int out = 0;
+    int p = position[0];
+    while (p < delta.length) {
+      int op = delta[p++] & 0xff;
+      if ((op & 0x80) != 0) {
+        int copyOffset = 0;
+        int copySize = 0;
+        for (int i = 0; i < 4; i++) {
+          if ((op & (1 << i)) != 0) {
+            copyOffset |= (delta[p++] & 0xff) << (8 * i);
+          }
+        }
+        for (int i = 0; i < 3; i++) {
+          if ((op & (0x10 << i)) != 0) {
+            copySize |= (delta[p++] & 0xff) << (8 * i);
+          }
+        }
+        if (copySize == 0) {
+          copySize = 0x10000;
+        }
+        System.arraycopy(base, copyOffset, result, out, copySize);
+        out += copySize;
+      } else if (op != 0) {
+        System.arraycopy(delta, p, result, out, op);
+        p += op;
+        out += op;
+      } else {
+        throw new IOException("Invalid delta instruction");
+      }
+    }
+    if (out != result.length) {
+      throw new IOException("Delta produced " + out + " bytes instead of " + result.length);
+    }
+    return result;
+  }
+
+  private static long readDeltaSize(byte[] delta, int[] position) {
+    long size = 0;
+    int shift = 0;
+    int c;
+    do {
+      c = delta[position[0]++] & 0xff;
+      size |= (long) (c & 0x7f) << shift;
+      shift += 7;
+    } while ((c & 0x80) != 0);
+    return size;
+  }
+
+  private static byte[] inflate(InputStream in, long size) throws IOException {
+    byte[] result = new byte[(int) size];
+    Inflater inflater = new Inflater();
+    try {
+      byte[] buffer = new byte[size < 512 ? 512 : 8192];
+      int out = 0;
+      while (out < result.length) {
+        if (inflater.needsInput()) {
+          int read = in.read(buffer);
+          if (read < 0) {
+            throw new EOFException("Pack ends inside an object");
+          }
+          inflater.setInput(buffer, 0, read);
+        }
+        int inflated = inflater.inflate(result, out, result.length - out);
+        out += inflated;
+        if (inflater.finished() || (inflated == 0 && inflater.needsDictionary())) {
+          break;
+        }
+      }
+      if (out != result.length) {
+        throw new IOException("Pack object has " + out + " bytes instead of " + size);
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt pack object", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static int readByte(InputStream in) throws IOException {
+    int c = in.read();
+    if (c < 0) {
+      throw new EOFException("Unexpected end of pack");
+    }
+    return c;
+  }
+
+  private static void readFully(InputStream in, byte[] buffer) throws IOException {
+    int read = in.readNBytes(buffer, 0, buffer.length);
+    if (read != buffer.length) {
+      throw new EOFException("Unexpected end of pack");
+    }
+  }
+
+  private static String sortName(TreeEntry entry) {
+    return entry.isTree() ? entry.name + "/" : entry.name;
+  }
+
+  static String ident(GitIdentity identity, Instant when) {
+    String name = identity == null || identity.name() == null ? "" : identity.name();
+    String email = identity == null || identity.email() == null ? "" : identity.email();
+    ZoneOffset offset = ZoneId.systemDefault().getRules().getOffset(when);
+    int minutes = offset.getTotalSeconds() / 60;
+    String zone = String.format("%s%02d%02d", minutes < 0 ? "-" : "+", Math.abs(minutes) / 60, Math.abs(minutes) % 60);
+    return clean(name) + " <" + clean(email) + "> " + when.getEpochSecond() + " " + zone;
+  }
+
+  private static String clean(String value) {
+    return value.replace("<", "").replace(">", "").replace("\n", " ").trim();
+  }
+
+  static boolean isObjectId(String value) {
+    if (value == null || value.length() != 40) {
+      return false;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static MessageDigest sha1() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+
+  static String toHex(byte[] bytes) {
+    char[] hex = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      hex[i * 2] = HEX[(bytes[i] >> 4) & 15];
+      hex[i * 2 + 1] = HEX[bytes[i] & 15];
+    }
+    return new String(hex);
+  }
+
+  static byte[] fromHex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+    }
+    return bytes;
+  }
+
+  private static String zeroId() {
+    return "0000000000000000000000000000000000000000";
+  }
+
+  private static int readInt(byte[] data, int position) {
+    return ((data[position] & 0xff) << 24) | ((data[position + 1] & 0xff) << 16)
+      | ((data[position + 2] & 0xff) << 8) | (data[position + 3] & 0xff);
+  }
+
+  private static int indexOf(byte[] data, byte value, int from) {
+    for (int i = from; i < data.length; i++) {
+      if (data[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void writeIfAbsent(Path file, String content) throws IOException {
+    if (!Files.exists(file)) {
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package fitnesse.docstore;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -26,6 +27,16 @@ public final class GitRepository {
     run(args.toArray(new String[0]));
   }
 
+  /**
+   * Stages {@code content} as {@code path}, whatever the working tree holds for it.
+   *
+   * @param path relative to the repository root.
+   */
+  public void stage(String path, byte[] content) {
+    String id = runWithEnv(List.of("hash-object", "-w", "--stdin"), null, null, content);
+    run("update-index", "--add", "--cacheinfo", "100644," + id + "," + path.replace("\\", "/"));
+  }
+
   public void commit(String message) {
     commit(message, null, GitCommitConfig.fromEnv());
   }
@@ -40,6 +51,10 @@ public final class GitRepository {
     runWithEnv(args, author, commitConfig);
   }
 
+  public boolean hasStagedChanges() {
+    return !run("diff", "--cached", "--name-only").isEmpty();
+  }
+
   public String currentCommit() {
     return run("rev-parse", "HEAD");
   }
@@ -129,6 +144,10 @@ public final class GitRepository {
   }
 
   private String runWithEnv(List<String> args, GitIdentity author, GitCommitConfig commitConfig) {
+    return runWithEnv(args, author, commitConfig, null);
+  }
+
+  private String runWithEnv(List<String> args, GitIdentity author, GitCommitConfig commitConfig, byte[] input) {
     List<String> command = new ArrayList<>();
     command.add("git");
     command.addAll(args);
@@ -153,6 +172,11 @@ public final class GitRepository {
     }
     try {
       Process process = builder.start();
+      try (OutputStream stdin = process.getOutputStream()) {
+        if (input != null) {
+          stdin.write(input);
+        }
+      }
       String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
       int exit = process.waitFor();
       if (exit != 0) {
@@ -0,0 +1,369 @@
+package fitnesse.docstore;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeEvents;
+import io.vertx.core.Vertx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind queue for {@link GitDocStore}: changed files go to the working tree at once, so they can be read
+ * right away, and are committed later. Changes made within the coalescing window (or until the batch is full) end up
+ * in a single commit per author.
+ * <p>
+ * Every change is first appended to a journal in the git directory. Changes still in the journal when the store
+ * starts were not committed before it stopped; they are written again and committed.
+ */
+final class GitWriteBehindQueue {
+  private static final Logger LOG = Logger.getLogger(GitWriteBehindQueue.class.getName());
+  static final String JOURNAL_FILE = "fitnesse-write-behind.journal";
+
+  private final Vertx vertx;
+  private final Path repoRoot;
+  private final GitRepository git;
+  private final GitCommitConfig commitConfig;
+  private final String commitMessageTemplate;
+  private final long windowMillis;
+  private final int maxBatchSize;
+  private final Path journal;
+  private final Object commitLock = new Object();
+  private final List<PendingWrite> pending = new ArrayList<>();
+  private long nextSequence;
+  private boolean flushScheduled;
+
+  GitWriteBehindQueue(Vertx vertx, Path repoRoot, GitRepository git, GitCommitConfig commitConfig,
+                      String commitMessageTemplate, long windowMillis, int maxBatchSize) {
+    this.vertx = vertx;
+    this.repoRoot = repoRoot;
+    this.git = git;
+    this.commitConfig = commitConfig;
+    this.commitMessageTemplate = commitMessageTemplate;
+    this.windowMillis = windowMillis;
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.journal = repoRoot.resolve(".git").resolve(JOURNAL_FILE);
+  }
+
+  /**
+   * Settings read from system properties or the environment. A window of 0 (the default) commits every change
+   * as it is made.
+   */
+  static final class Settings {
+    final long windowMillis;
+    final int maxBatchSize;
+
+    Settings(long windowMillis, int maxBatchSize) {
+      this.windowMillis = windowMillis;
+      this.maxBatchSize = maxBatchSize;
+    }
+
+    boolean enabled() {
+      return windowMillis > 0;
+    }
+
+    static Settings fromConfig() {
+      return new Settings(
+        readLong("docstore.git.writeBehind.windowMillis", "FITNESSE_GIT_WRITE_BEHIND_WINDOW_MILLIS", 0),
+        (int) readLong("docstore.git.writeBehind.maxBatch", "FITNESSE_GIT_WRITE_BEHIND_MAX_BATCH", 100));
+    }
+
+    private static long readLong(String propertyKey, String envKey, long defaultValue) {
+      String value = System.getProperty(propertyKey);
+      if (value == null || value.isEmpty()) {
+        value = System.getenv(envKey);
+      }
+      if (value == null || value.isBlank()) {
+        return defaultValue;
+      }
+      try {
+        return Long.parseLong(value.trim());
+      } catch (NumberFormatException e) {
+        LOG.warning("Ignoring invalid value '" + value + "' for " + propertyKey);
+        return defaultValue;
+      }
+    }
+  }
+
+  private static final class PendingWrite {
+    private final long sequence;
+    private final String wikiPath;
+    private final String reason;
+    private final GitIdentity author;
+    private final Map<String, byte[]> files;
+    private final boolean existed;
+
+    private PendingWrite(long sequence, String wikiPath, String reason, GitIdentity author, Map<String, byte[]> files,
+                         boolean existed) {
+      this.sequence = sequence;
+      this.wikiPath = wikiPath;
+      this.reason = reason;
+      this.author = author;
+      this.files = files;
+      this.existed = existed;
+    }
+  }
+
+  /**
+   * Journals the change, writes it to the working tree and schedules its commit.
+   * @param files content by path relative to the repository root.
+   */
+  void write(PageRef ref, String reason, GitIdentity author, Map<String, byte[]> files, boolean existed) {
+    boolean flushNow;
+    synchronized (pending) {
+      PendingWrite write = new PendingWrite(nextSequence++, ref.wikiPath(), reason, author, files, existed);
+      try {
+        appendToJournal(write);
+        writeFiles(write);
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to write " + reason + " for " + ref.wikiPath(), e);
+      }
+      pending.add(write);
+      flushNow = pending.size() >= maxBatchSize;
+      if (!flushNow && flushScheduled) {
+        return;
+      }
+      flushScheduled = true;
+    }
+    if (flushNow) {
+      vertx.executeBlocking(() -> flushScheduled(), false);
+    } else {
+      vertx.setTimer(windowMillis, id -> vertx.executeBlocking(() -> flushScheduled(), false));
+    }
+  }
+
+  /**
+   * Commits changes left in the journal by a previous run.
+   */
+  void recover() {
+    if (!Files.isRegularFile(journal)) {
+      return;
+    }
+    synchronized (pending) {
+      try {
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+          PendingWrite write = parse(line);
+          if (write != null) {
+            writeFiles(write);
+            pending.add(write);
+          }
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Failed to read write-behind journal " + journal, e);
+      }
+      if (!pending.isEmpty()) {
+        LOG.info("Committing " + pending.size() + " changes left uncommitted in " + journal);
+      }
+    }
+    flush();
+  }
+
+  /**
+   * Commits all pending changes before returning.
+   */
+  void flush() {
+    while (commitBatch()) {
+      // next batch
+    }
+  }
+
+  boolean hasPendingWrites() {
+    synchronized (pending) {
+      return !pending.isEmpty();
+    }
+  }
+
+  private Void flushScheduled() {
+    synchronized (pending) {
+      flushScheduled = false;
+    }
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      LOG.log(Level.SEVERE, "Failed to commit pending wiki changes, they stay in " + journal, e);
+    }
+    return null;
+  }
+
+  /**
+   * @return whether there was a batch to commit.
+   */
+  private boolean commitBatch() {
+    synchronized (commitLock) {
+      List<PendingWrite> batch;
+      synchronized (pending) {
+        if (pending.isEmpty()) {
+          return false;
+        }
+        batch = new ArrayList<>(pending.subList(0, Math.min(maxBatchSize, pending.size())));
+      }
+      List<String> versions = new ArrayList<>(batch.size());
+      String version = null;
+      int start = 0;
+      while (start < batch.size()) {
+        int end = start + 1;
+        while (end < batch.size() && sameAuthor(batch.get(start).author, batch.get(end).author)) {
+          end++;
+        }
+        version = commitGroup(batch.subList(start, end), version);
+        for (int i = start; i < end; i++) {
+          versions.add(version);
+        }
+        start = end;
+      }
+      synchronized (pending) {
+        pending.subList(0, batch.size()).clear();
+        rewriteJournal();
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        PendingWrite write = batch.get(i);
+        if (!"attachment".equals(write.reason)) {
+          String path = write.wikiPath.replace("\\", "/").replace('/', '.');
+          PageChangeEvent event = write.existed || !"page".equals(write.reason)
+            ? PageChangeEvent.updated(path, versions.get(i)) : PageChangeEvent.created(path, versions.get(i));
+          PageChangeEvents.publish(event);
+        }
+      }
+      return true;
+    }
+  }
+
+  private String commitGroup(List<PendingWrite> group, String version) {
+    Set<String> pages = new LinkedHashSet<>();
+    Set<String> reasons = new LinkedHashSet<>();
+    for (PendingWrite write : group) {
+      // stage what this write journaled: the working tree may already hold a later write to the same file
+      for (Map.Entry<String, byte[]> file : write.files.entrySet()) {
+        git.stage(file.getKey(), file.getValue());
+      }
+      pages.add(write.wikiPath);
+      reasons.add(write.reason);
+    }
+    if (!git.hasStagedChanges()) {
+      // the group wrote the content that was already committed
+      return version == null ? git.currentCommit() : version;
+    }
+    String message = String.format(commitMessageTemplate, String.join(", ", pages))
+      + " (" + String.join(", ", reasons) + ")";
+    git.commit(message, group.get(0).author, commitConfig);
+    return git.currentCommit();
+  }
+
+  private void writeFiles(PendingWrite write) throws IOException {
+    for (Map.Entry<String, byte[]> file : write.files.entrySet()) {
+      Path target = repoRoot.resolve(file.getKey());
+      Files.createDirectories(target.getParent());
+      Files.write(target, file.getValue());
+    }
+  }
+
+  private void appendToJournal(PendingWrite write) throws IOException {
+    try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+      StandardOpenOption.APPEND)) {
+      BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+        StandardCharsets.UTF_8));
+      writer.write(format(write));
+      writer.write('\n');
+      writer.flush();
+      channel.force(false);
+    }
+  }
+
+  private void rewriteJournal() {
+    try {
+      if (pending.isEmpty()) {
+        Files.deleteIfExists(journal);
+        return;
+      }
+      Path temp = journal.resolveSibling(JOURNAL_FILE + ".tmp");
+      List<String> lines = new ArrayList<>(pending.size());
+      for (PendingWrite write : pending) {
+        lines.add(format(write));
+      }
+      Files.write(temp, lines, StandardCharsets.UTF_8);
+      Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // committed changes left in the journal are committed again on recovery, which adds nothing
+      LOG.log(Level.WARNING, "Failed to update write-behind journal " + journal, e);
+    }
+  }
+
+  /**
+   * One line per change: sequence, page, reason, author name, author email, then path and content of each file,
+   * all tab separated and base64 encoded where needed.
+   */
+  private static String format(PendingWrite write) {
+    StringBuilder line = new StringBuilder();
+    line.append(write.sequence).append('\t').append(encode(write.wikiPath)).append('\t').append(write.reason)
+      .append('\t').append(write.existed)
+      .append('\t').append(encode(write.author == null ? null : write.author.name()))
+      .append('\t').append(encode(write.author == null ? null : write.author.email()));
+    for (Map.Entry<String, byte[]> file : write.files.entrySet()) {
+      line.append('\t').append(encode(file.getKey()))
+        .append('\t').append(Base64.getEncoder().encodeToString(file.getValue()));
+    }
+    return line.toString();
+  }
+
+  private PendingWrite parse(String line) {
+    String[] fields = line.split("\t", -1);
+    if (fields.length < 6 || (fields.length - 6) % 2 != 0) {
+      // the last line is incomplete when the server stopped while writing it, its files were not written either
+      LOG.warning("Skipping incomplete entry in write-behind journal " + journal);
+      return null;
+    }
+    try {
+      Map<String, byte[]> files = new LinkedHashMap<>();
+      for (int i = 6; i < fields.length; i += 2) {
+        files.put(decode(fields[i]), Base64.getDecoder().decode(fields[i + 1]));
+      }
+      String name = decode(fields[4]);
+      String email = decode(fields[5]);
+      GitIdentity author = name == null && email == null ? null : new GitIdentity(name, email);
+      nextSequence = Math.max(nextSequence, Long.parseLong(fields[0]) + 1);
+      return new PendingWrite(Long.parseLong(fields[0]), decode(fields[1]), fields[2], author, files,
+        Boolean.parseBoolean(fields[3]));
+    } catch (IllegalArgumentException e) {
+      LOG.warning("Skipping corrupt entry in write-behind journal " + journal);
+      return null;
+    }
+  }
+
+  private static String encode(String value) {
+    return value == null ? "-" : "=" + Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decode(String value) {
+    if (value.startsWith("=")) {
+      return new String(Base64.getDecoder().decode(value.substring(1)), StandardCharsets.UTF_8);
+    }
+    if ("-".equals(value)) {
+      return null;
+    }
+    throw new IllegalArgumentException("Not an encoded value: " + value);
+  }
+
+  private static boolean sameAuthor(GitIdentity a, GitIdentity b) {
+    if (a == null || b == null) {
+      return a == b;
+    }
+    return Objects.equals(a.name(), b.name()) && Objects.equals(a.email(), b.email());
+  }
+}
@@ -5,6 +5,7 @@ package fitnesse.html.template;
 import java.io.StringWriter;
 import java.io.Writer;
 
+import fitnesse.http.RenderedResponse;
 import fitnesse.http.Request;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -78,6 +79,13 @@ public class HtmlPage {
     return writer.toString();
   }
 
+  /**
+   * Returns a response that renders this page into its content, without an intermediate String.
+   */
+  public RenderedResponse response(Request request) {
+    return new RenderedResponse(writer -> render(writer, request));
+  }
+
   public void render(Writer writer, Request request) {
     if (request != null) {
       String requestedTheme = sanitizeTheme(request.getCookie("fitnesse_theme"));
@@ -2,25 +2,55 @@
 // Released under the terms of the CPL Common Public License version 1.0.
 package fitnesse.html.template;
 
+import fitnesse.ConfigurationParameter;
 import fitnesse.FitNesseContext;
+import fitnesse.util.Clock;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.exception.VelocityException;
 import util.FileUtil;
 
+import java.io.File;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
+/**
+ * Creates pages from the Velocity templates of a theme.
+ * <p>
+ * Compiled templates are kept for the lifetime of the engine and never checked for changes. For template
+ * development, {@code Templates.reload} drops them whenever the overrides in {@code files/fitnesse/templates}
+ * change; otherwise changes take effect after {@link #invalidateTemplates()}.
+ */
 public class PageFactory {
+  /**
+   * Templates every wiki page view needs; they are compiled up front.
+   */
+  private static final List<String> PRELOADED_TEMPLATES = Arrays.asList(
+    "skeleton.vm", "header.vm", "wikiNav.vm", "menu.vm", "wikiPage.vm", "keyboardShortcuts.vm", "wikiFooter.vm");
+  private static final long RELOAD_CHECK_INTERVAL_MILLIS = 2000;
+
   private final String theme;
   private final String contextRoot;
   private final String wikiRoot;
-  private VelocityEngine velocityEngine = null;
+  private final String rootPagePath;
+  private final boolean reloadTemplates;
+  private volatile VelocityEngine velocityEngine = null;
+  private volatile long nextReloadCheck;
+  private long overridesStamp;
 
   public PageFactory(FitNesseContext context) {
     this.theme = context.theme;
-    this.velocityEngine = newVelocityEngine(context.getRootPagePath(), this.theme);
+    this.rootPagePath = context.getRootPagePath();
+    this.reloadTemplates = Boolean.parseBoolean(context.getProperty(ConfigurationParameter.TEMPLATES_RELOAD.getKey()));
+    this.velocityEngine = newVelocityEngine(rootPagePath, this.theme);
+    if (reloadTemplates) {
+      overridesStamp = overridesStamp();
+      nextReloadCheck = Clock.currentTimeInMillis() + RELOAD_CHECK_INTERVAL_MILLIS;
+    }
     this.contextRoot = context.contextRoot;
     this.wikiRoot = resolveWikiRoot(context);
   }
@@ -33,9 +63,20 @@ public class PageFactory {
 
   public String render(VelocityContext context, String templateName) {
     Writer writer = new StringWriter();
+    render(context, templateName, writer);
+    return writer.toString();
+  }
+
+  public void render(VelocityContext context, String templateName, Writer writer) {
     Template template = getVelocityEngine().getTemplate(templateName, FileUtil.CHARENCODING);
     template.merge(context, writer);
-    return writer.toString();
+  }
+
+  /**
+   * Drops all compiled templates, e.g. after a template override was added or removed.
+   */
+  public void invalidateTemplates() {
+    velocityEngine = newVelocityEngine(rootPagePath, theme);
   }
 
   public String getTheme() {
@@ -43,6 +84,9 @@ public class PageFactory {
   }
 
   public VelocityEngine getVelocityEngine() {
+    if (reloadTemplates && Clock.currentTimeInMillis() >= nextReloadCheck) {
+      reloadChangedTemplates();
+    }
     return velocityEngine;
   }
 
@@ -57,6 +101,13 @@ public class PageFactory {
     properties.setProperty(VelocityEngine.INPUT_ENCODING, FileUtil.CHARENCODING);
 
     properties.setProperty(VelocityEngine.RESOURCE_LOADERS, "file,themepath,classpath");
+    // Keep every compiled template; there are only a few dozen.
+    properties.setProperty(VelocityEngine.RESOURCE_MANAGER_DEFAULTCACHE_SIZE, "0");
+    for (String loader : Arrays.asList("file", "themepath", "classpath")) {
+      String prefix = VelocityEngine.RESOURCE_LOADER + "." + loader + ".";
+      properties.setProperty(prefix + VelocityEngine.RESOURCE_LOADER_CACHE, "true");
+      properties.setProperty(prefix + VelocityEngine.RESOURCE_LOADER_CHECK_INTERVAL, "0");
+    }
 
     properties.setProperty(VelocityEngine.FILE_RESOURCE_LOADER_PATH,
         String.format("%s/files/fitnesse/templates", rootPagePath));
@@ -76,9 +127,48 @@ public class PageFactory {
 
     engine.loadDirective(TraverseDirective.class.getName());
     engine.loadDirective(EscapeDirective.class.getName());
+    preload(engine);
     return engine;
   }
 
+  private synchronized void reloadChangedTemplates() {
+    if (Clock.currentTimeInMillis() < nextReloadCheck) {
+      return;
+    }
+    long stamp = overridesStamp();
+    if (stamp != overridesStamp) {
+      overridesStamp = stamp;
+      invalidateTemplates();
+    }
+    nextReloadCheck = Clock.currentTimeInMillis() + RELOAD_CHECK_INTERVAL_MILLIS;
+  }
+
+  /**
+   * Changes when a template override is added, removed or modified.
+   */
+  private long overridesStamp() {
+    File[] overrides = new File(rootPagePath, "files/fitnesse/templates").listFiles();
+    if (overrides == null) {
+      return 0;
+    }
+    long stamp = overrides.length;
+    for (File override : overrides) {
+      stamp = 31 * stamp + override.getName().hashCode();
+      stamp = 31 * stamp + override.lastModified();
+    }
+    return stamp;
+  }
+
+  private static void preload(VelocityEngine engine) {
+    for (String templateName : PRELOADED_TEMPLATES) {
+      try {
+        engine.getTemplate(templateName, FileUtil.CHARENCODING);
+      } catch (VelocityException e) {
+        // Missing or broken templates are reported when a page uses them.
+      }
+    }
+  }
+
   private String resolveWikiRoot(FitNesseContext context) {
     String wikiRoot = context.getProperty("wiki.root");
     if (wikiRoot == null || wikiRoot.isEmpty()) {
@@ -0,0 +1,122 @@
+package fitnesse.http;
+
+import util.FileUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link SimpleResponse} whose content is produced by a renderer writing straight into encoded chunks,
+ * instead of being built as one String and encoded afterwards. Content is rendered once, on first use.
+ */
+public class RenderedResponse extends SimpleResponse {
+  public interface Renderer {
+    void render(Writer writer) throws IOException;
+  }
+
+  private Renderer renderer;
+  private List<byte[]> chunks;
+  private int size;
+
+  public RenderedResponse(Renderer renderer) {
+    this.renderer = renderer;
+  }
+
+  @Override
+  public void sendTo(ResponseSender sender) throws IOException {
+    try {
+      render();
+      sender.send(makeHttpHeaders().getBytes());
+      for (byte[] chunk : chunks) {
+        sender.send(chunk);
+      }
+    } finally {
+      sender.close();
+    }
+  }
+
+  @Override
+  public void setContent(String value) throws UnsupportedEncodingException {
+    setContent(getEncodedBytes(value));
+  }
+
+  @Override
+  public void setContent(byte[] value) {
+    renderer = null;
+    chunks = Collections.singletonList(Arrays.copyOf(value, value.length));
+    size = value.length;
+  }
+
+  @Override
+  public String getContent() {
+    return new String(getContentBytes(), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public byte[] getContentBytes() {
+    renderUnchecked();
+    byte[] content = new byte[size];
+    int offset = 0;
+    for (byte[] chunk : chunks) {
+      System.arraycopy(chunk, 0, content, offset, chunk.length);
+      offset += chunk.length;
+    }
+    return content;
+  }
+
+  @Override
+  public int getContentSize() {
+    renderUnchecked();
+    return size;
+  }
+
+  private void renderUnchecked() {
+    try {
+      render();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void render() throws IOException {
+    if (chunks != null) {
+      return;
+    }
+    ChunkOutputStream output = new ChunkOutputStream();
+    Writer writer = new OutputStreamWriter(output, FileUtil.CHARENCODING);
+    renderer.render(writer);
+    writer.flush();
+    chunks = output.chunks;
+    size = output.size;
+  }
+
+  /**
+   * Keeps each block the encoder writes as is, so content is never copied into a bigger array.
+   */
+  private static final class ChunkOutputStream extends OutputStream {
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int size;
+
+    @Override
+    public void write(int b) {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      if (length > 0) {
+        chunks.add(Arrays.copyOfRange(bytes, offset, offset + length));
+        size += length;
+      }
+    }
+  }
+}
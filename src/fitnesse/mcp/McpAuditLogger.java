@@ -1,26 +1,25 @@
 package fitnesse.mcp;
 
+import fitnesse.util.AppendOnlyLog;
 import io.vertx.core.Vertx;
-import io.vertx.core.buffer.Buffer;
-import io.vertx.core.file.OpenOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.http.HttpServerRequest;
 
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.UUID;
 
 /**
  * Writes MCP audit events to a JSONL file under the wiki root.
+ * <p>
+ * Events are queued and written in batches by an {@link AppendOnlyLog}, so logging never waits for the disk.
+ * Use one logger per wiki: HTTP, WebSocket and gRPC share it.
  */
-public final class McpAuditLogger {
-  private final Vertx vertx;
-  private final Path logPath;
+public final class McpAuditLogger implements AutoCloseable {
+  private final AppendOnlyLog log;
 
   public McpAuditLogger(Vertx vertx, String rootPath, String rootDirectory) {
-    this.vertx = vertx;
-    this.logPath = Paths.get(rootPath, rootDirectory, ".fitnesse", "audit", "mcp-audit.jsonl");
+    this.log = new AppendOnlyLog(vertx, Paths.get(rootPath, rootDirectory, ".fitnesse", "audit", "mcp-audit.jsonl"));
   }
 
   public void log(String actor, String action, String resource, HttpServerRequest request,
@@ -75,14 +74,15 @@ public final class McpAuditLogger {
     writeEvent(event);
   }
 
+  /**
+   * Writes pending events and releases the file.
+   */
+  @Override
+  public void close() {
+    log.close();
+  }
+
   private void writeEvent(JsonObject event) {
-    String directory = logPath.getParent().toString();
-    OpenOptions options = new OpenOptions().setWrite(true).setCreate(true).setAppend(true);
-    vertx.fileSystem().mkdirs(directory)
-      .compose(ignored -> vertx.fileSystem().open(logPath.toString(), options))
-      .onSuccess(file -> {
-        Buffer buffer = Buffer.buffer(event.encode() + System.lineSeparator());
-        file.write(buffer, file.getWritePos()).onComplete(ar -> file.close());
-      });
+    log.append(event.encode());
   }
 }
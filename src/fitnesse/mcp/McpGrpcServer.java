@@ -7,15 +7,18 @@ import fitnesse.mcp.proto.ListResourcesRequest;
 import fitnesse.mcp.proto.ListResourcesResponse;
 import fitnesse.mcp.proto.ReadPageRequest;
 import fitnesse.mcp.proto.ReadPageResponse;
+import fitnesse.mcp.proto.Resource;
 import fitnesse.mcp.proto.SearchRequest;
 import fitnesse.mcp.proto.SearchResponse;
 import fitnesse.mcp.proto.VertxFitnesseMcpGrpc;
 import fitnesse.search.SearchResult;
 import io.grpc.ServerInterceptors;
 import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.grpc.VertxServer;
 import io.vertx.grpc.VertxServerBuilder;
 
@@ -34,11 +37,10 @@ public final class McpGrpcServer {
   }
 
   public static synchronized void start(McpService service, Authenticator authenticator, boolean authEnabled,
-                                        int port, Vertx vertx, String rootPath, String rootDirectory) {
+                                        int port, Vertx vertx, McpAuditLogger audit) {
     if (server != null) {
       return;
     }
-    McpAuditLogger audit = new McpAuditLogger(vertx, rootPath, rootDirectory);
     McpGrpcAuthInterceptor authInterceptor = new McpGrpcAuthInterceptor(authEnabled, authenticator);
     VertxFitnesseMcpGrpc.FitnesseMcpVertxImplBase grpcService = new McpGrpcService(service, audit, authInterceptor);
     ServerServiceDefinition intercepted = ServerInterceptors.intercept(grpcService, authInterceptor);
@@ -58,6 +60,7 @@ public final class McpGrpcServer {
   }
 
   private static final class McpGrpcService extends VertxFitnesseMcpGrpc.FitnesseMcpVertxImplBase {
+    private static final int STREAM_BATCH_SIZE = 100;
     private final McpService service;
     private final McpAuditLogger audit;
     private final McpGrpcAuthInterceptor authInterceptor;
@@ -81,18 +84,22 @@ public final class McpGrpcServer {
     public Future<ListResourcesResponse> listResources(ListResourcesRequest request) {
       int limit = request.getLimit() <= 0 ? 50 : request.getLimit();
       int offset = Math.max(0, request.getOffset());
-      McpService.PageListing listing = service.listPages(limit, offset);
+      McpService.PageListing listing;
+      try {
+        listing = request.getCursor().isEmpty()
+          ? service.listPages(limit, offset)
+          : service.listPages(limit, request.getCursor());
+      } catch (IllegalArgumentException e) {
+        audit.logGrpc(actor(), "mcp.grpc.resources.list", "resources", 400, new io.vertx.core.json.JsonObject());
+        return Future.failedFuture(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+      }
       ListResourcesResponse.Builder builder = ListResourcesResponse.newBuilder()
         .setTotal(listing.total())
         .setLimit(listing.limit())
-        .setOffset(listing.offset());
+        .setOffset(listing.offset())
+        .setNextCursor(listing.nextCursor() == null ? "" : listing.nextCursor());
       for (McpService.PageSummary summary : listing.pages()) {
-        builder.addResources(fitnesse.mcp.proto.Resource.newBuilder()
-          .setId(summary.path())
-          .setName(summary.name())
-          .setUri("/mcp/page/" + summary.path())
-          .setType("wiki-page")
-          .build());
+        builder.addResources(toResource(summary));
       }
       ListResourcesResponse resp = builder.build();
       audit.logGrpc(actor(), "mcp.grpc.resources.list", "resources", 200,
@@ -100,6 +107,64 @@ public final class McpGrpcServer {
       return Future.succeededFuture(resp);
     }
 
+    /**
+     * Streams all pages from the cursor on (or at most {@code limit}), reading the index one batch at a time
+     * and pausing while the client is not reading.
+     */
+    @Override
+    public void streamResources(ListResourcesRequest request, WriteStream<Resource> response) {
+      String actor = actor();
+      int limit = request.getLimit() <= 0 ? Integer.MAX_VALUE : request.getLimit();
+      McpService.PageListing first;
+      try {
+        first = nextBatch(request.getCursor(), limit, 0);
+      } catch (IllegalArgumentException e) {
+        audit.logGrpc(actor, "mcp.grpc.resources.stream", "resources", 400, new io.vertx.core.json.JsonObject());
+        // Thrown rather than ending the stream, so the call fails with this status instead of succeeding empty.
+        throw Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+      }
+      streamFrom(first, limit, 0, response, actor);
+    }
+
+    /**
+     * Writes a batch and the ones after it. Cursors of later batches come from the index itself.
+     */
+    private void streamFrom(McpService.PageListing batch, int limit, int sent, WriteStream<Resource> response,
+                            String actor) {
+      while (true) {
+        for (McpService.PageSummary summary : batch.pages()) {
+          response.write(toResource(summary));
+        }
+        sent += batch.pages().size();
+        String cursor = batch.nextCursor();
+        if (cursor == null || sent >= limit) {
+          break;
+        }
+        if (response.writeQueueFull()) {
+          int sentSoFar = sent;
+          response.drainHandler(v -> streamFrom(nextBatch(cursor, limit, sentSoFar), limit, sentSoFar, response, actor));
+          return;
+        }
+        batch = nextBatch(cursor, limit, sent);
+      }
+      response.end();
+      audit.logGrpc(actor, "mcp.grpc.resources.stream", "resources", 200,
+        new io.vertx.core.json.JsonObject().put("count", sent));
+    }
+
+    private McpService.PageListing nextBatch(String cursor, int limit, int sent) {
+      return service.listPages(Math.min(STREAM_BATCH_SIZE, limit - sent), cursor);
+    }
+
+    private static Resource toResource(McpService.PageSummary summary) {
+      return Resource.newBuilder()
+        .setId(summary.path())
+        .setName(summary.name())
+        .setUri("/mcp/page/" + summary.path())
+        .setType("wiki-page")
+        .build();
+    }
+
     @Override
     public Future<ReadPageResponse> readPage(ReadPageRequest request) {
       McpService.PageDetails details = service.readPage(request.getPath());
@@ -20,11 +20,21 @@ public class McpPlugin extends PluginFeatureFactoryBase {
   }
 
   private static final class McpHttpPlugin implements VertxPlugin {
+    private McpService service;
+    private McpAuditLogger audit;
+
     @Override
     public void register(VertxPluginContext context) {
-      McpService service = new McpService(context.fitnesseContext.getRootPage());
+      McpService service = new McpService(context.fitnesseContext.getRootPage(), context.searchService);
+      service.start();
+      this.service = service;
+      context.vertx.executeBlocking(() -> {
+        service.warmUp();
+        return null;
+      }, false);
       McpAccessController access = new McpAccessController(context.fitnesseContext.authenticator, context.config.authEnabled());
       McpAuditLogger audit = new McpAuditLogger(context.vertx, context.config.rootPath(), context.config.rootDirectory());
+      this.audit = audit;
 
       context.router.get("/mcp/health").handler(ctx -> {
         if (!access.authorize(ctx)) {
@@ -41,7 +51,15 @@ public class McpPlugin extends PluginFeatureFactoryBase {
         }
         int limit = parseInt(ctx.request().getParam("limit"), 50);
         int offset = parseInt(ctx.request().getParam("offset"), 0);
-        McpService.PageListing listing = service.listPages(limit, offset);
+        String cursor = ctx.request().getParam("cursor");
+        McpService.PageListing listing;
+        try {
+          listing = cursor == null ? service.listPages(limit, offset) : service.listPages(limit, cursor);
+        } catch (IllegalArgumentException e) {
+          ctx.response().setStatusCode(400).end(e.getMessage());
+          audit.log(access.resolveActor(ctx), "mcp.resources.list", "/mcp/resources", ctx.request(), 400, new JsonObject());
+          return;
+        }
         JsonArray resources = new JsonArray();
         for (McpService.PageSummary summary : listing.pages()) {
           resources.add(new JsonObject()
@@ -56,6 +74,7 @@ public class McpPlugin extends PluginFeatureFactoryBase {
           .put("total", listing.total())
           .put("limit", listing.limit())
           .put("offset", listing.offset())
+          .put("nextCursor", listing.nextCursor())
           .encode());
         audit.log(access.resolveActor(ctx), "mcp.resources.list", "/mcp/resources", ctx.request(), 200,
           new JsonObject().put("limit", listing.limit()).put("offset", listing.offset()));
@@ -124,7 +143,17 @@ public class McpPlugin extends PluginFeatureFactoryBase {
 
       if (context.config.mcpGrpcEnabled()) {
         McpGrpcServer.start(service, context.fitnesseContext.authenticator, context.config.authEnabled(),
-          context.config.mcpGrpcPort(), context.vertx, context.config.rootPath(), context.config.rootDirectory());
+          context.config.mcpGrpcPort(), context.vertx, audit);
+      }
+    }
+
+    @Override
+    public void close() {
+      if (service != null) {
+        service.close();
+      }
+      if (audit != null) {
+        audit.close();
       }
     }
 
@@ -175,7 +204,18 @@ public class McpPlugin extends PluginFeatureFactoryBase {
         case "list":
           int limit = payload.getInteger("limit", 50);
           int offset = payload.getInteger("offset", 0);
-          McpService.PageListing listing = service.listPages(limit, offset);
+          String cursor = payload.getString("cursor");
+          McpService.PageListing listing;
+          try {
+            listing = cursor == null ? service.listPages(limit, offset) : service.listPages(limit, cursor);
+          } catch (IllegalArgumentException e) {
+            socket.writeTextMessage(new JsonObject()
+              .put("type", "error")
+              .put("requestId", requestId)
+              .put("message", e.getMessage())
+              .encode());
+            break;
+          }
           JsonArray resources = new JsonArray();
           for (McpService.PageSummary summary : listing.pages()) {
             resources.add(new JsonObject()
@@ -191,6 +231,7 @@ public class McpPlugin extends PluginFeatureFactoryBase {
             .put("total", listing.total())
             .put("limit", listing.limit())
             .put("offset", listing.offset())
+            .put("nextCursor", listing.nextCursor())
             .encode());
           audit.logWebSocket(actor, "mcp.ws.resources.list", "/mcp/ws", 200,
             new JsonObject().put("limit", listing.limit()).put("offset", listing.offset()));
@@ -1,15 +1,13 @@
 package fitnesse.mcp;
 
-import fitnesse.components.TraversalListener;
 import fitnesse.search.SearchResult;
 import fitnesse.search.SearchService;
-import fitnesse.wiki.NoPruningStrategy;
+import fitnesse.wiki.PageChangeEvents;
 import fitnesse.wiki.PageData;
 import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wiki.WikiPageProperty;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -79,12 +77,18 @@ public final class McpService {
     private final int total;
     private final int limit;
     private final int offset;
+    private final String nextCursor;
 
     public PageListing(List<PageSummary> pages, int total, int limit, int offset) {
+      this(pages, total, limit, offset, null);
+    }
+
+    public PageListing(List<PageSummary> pages, int total, int limit, int offset, String nextCursor) {
       this.pages = pages;
       this.total = total;
       this.limit = limit;
       this.offset = offset;
+      this.nextCursor = nextCursor;
     }
 
     public List<PageSummary> pages() {
@@ -102,6 +106,13 @@ public final class McpService {
     public int offset() {
       return offset;
     }
+
+    /**
+     * Returns the cursor for the next page, or null when this is the last page.
+     */
+    public String nextCursor() {
+      return nextCursor;
+    }
   }
 
   /**
@@ -133,35 +144,68 @@ public final class McpService {
 
   private final WikiPage root;
   private final SearchService searchService;
+  private final PagePathIndex pageIndex;
 
   public McpService(WikiPage root) {
+    this(root, new SearchService(root));
+  }
+
+  public McpService(WikiPage root, SearchService searchService) {
     this.root = root;
-    this.searchService = new SearchService(root);
+    this.searchService = searchService;
+    this.pageIndex = new PagePathIndex(root);
   }
 
   /**
-   * Lists pages in the wiki tree with pagination.
+   * Lists pages in the wiki tree with pagination, sorted by path.
    */
   public PageListing listPages(int limit, int offset) {
     int safeLimit = limit <= 0 ? 50 : limit;
     int safeOffset = Math.max(0, offset);
-    List<PageSummary> pages = new ArrayList<>();
-    root.getPageCrawler().traverse(new TraversalListener<WikiPage>() {
-      @Override
-      public void process(WikiPage page) {
-        if (page.isRoot()) {
-          return;
-        }
-        String path = page.getFullPath().toString();
-        pages.add(new PageSummary(page.getName(), path));
-      }
-    }, new NoPruningStrategy());
-    int total = pages.size();
-    if (safeOffset >= total) {
-      return new PageListing(Collections.emptyList(), total, safeLimit, safeOffset);
-    }
-    int end = Math.min(total, safeOffset + safeLimit);
-    return new PageListing(pages.subList(safeOffset, end), total, safeLimit, safeOffset);
+    int total = pageIndex.size();
+    List<PageSummary> pages = pageIndex.at(safeOffset, safeLimit);
+    String nextCursor = safeOffset + pages.size() < total && !pages.isEmpty()
+      ? PagePathIndex.cursorAfter(pages.get(pages.size() - 1)) : null;
+    return new PageListing(pages, total, safeLimit, safeOffset, nextCursor);
+  }
+
+  /**
+   * Lists the pages following a cursor from an earlier listing; a null or empty cursor starts at the first page.
+   * Each call costs a lookup plus the page size, however deep the listing is.
+   *
+   * @throws IllegalArgumentException if the cursor is not a cursor of this service, or does not name a page path.
+   */
+  public PageListing listPages(int limit, String cursor) {
+    int safeLimit = limit <= 0 ? 50 : limit;
+    List<PageSummary> pages = pageIndex.after(cursor, safeLimit + 1);
+    String nextCursor = null;
+    if (pages.size() > safeLimit) {
+      pages = pages.subList(0, safeLimit);
+      nextCursor = PagePathIndex.cursorAfter(pages.get(safeLimit - 1));
+    }
+    return new PageListing(pages, pageIndex.size(), safeLimit, 0, nextCursor);
+  }
+
+  /**
+   * Builds the page index, so the first listing does not have to walk the tree.
+   */
+  public void warmUp() {
+    pageIndex.ensureBuilt();
+  }
+
+  /**
+   * Follows page changes, so listings show pages added, moved or removed after the index was built. Call
+   * {@link #close()} to stop.
+   */
+  public void start() {
+    PageChangeEvents.addListener(pageIndex);
+  }
+
+  /**
+   * Stops following page changes.
+   */
+  public void close() {
+    PageChangeEvents.removeListener(pageIndex);
   }
 
   /**
@@ -0,0 +1,258 @@
+package fitnesse.mcp;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeListener;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sorted index of page paths, kept up to date from {@link PageChangeEvent}s, so listings do not walk the tree.
+ * <p>
+ * The tree is walked once, on first use. Symbolic links are listed by their own path; pages below them are not,
+ * as they are listed under the page the link points to. Continuation cursors encode the last path returned, so
+ * a page of results costs a lookup plus its own size, and stays stable when pages are added or removed between
+ * calls. Cursors carry a version prefix and must decode to a page path; they are not signed, as they only point
+ * into a listing the caller may read anyway.
+ */
+final class PagePathIndex implements PageChangeListener {
+  private static final String CURSOR_PREFIX = "p1.";
+  private final WikiPage root;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final TreeMap<String, String> pages = new TreeMap<>();
+  private List<PageChangeEvent> changedWhileBuilding;
+  private volatile boolean ready;
+
+  PagePathIndex(WikiPage root) {
+    this.root = root;
+  }
+
+  /**
+   * Walks the page tree, unless that has been done already.
+   */
+  void ensureBuilt() {
+    if (ready) {
+      return;
+    }
+    synchronized (this) {
+      if (ready) {
+        return;
+      }
+      lock.writeLock().lock();
+      try {
+        changedWhileBuilding = new ArrayList<>();
+      } finally {
+        lock.writeLock().unlock();
+      }
+      TreeMap<String, String> built = new TreeMap<>();
+      walk(root, built);
+      lock.writeLock().lock();
+      try {
+        pages.clear();
+        pages.putAll(built);
+        for (PageChangeEvent event : changedWhileBuilding) {
+          apply(event);
+        }
+        changedWhileBuilding = null;
+        ready = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  int size() {
+    ensureBuilt();
+    lock.readLock().lock();
+    try {
+      return pages.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} pages following the given cursor (null for the first page).
+   */
+  List<McpService.PageSummary> after(String cursor, int limit) {
+    ensureBuilt();
+    String lastPath = cursor == null || cursor.isEmpty() ? null : decodeCursor(cursor);
+    lock.readLock().lock();
+    try {
+      NavigableMap<String, String> tail = lastPath == null ? pages : pages.tailMap(lastPath, false);
+      return take(tail, 0, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} pages starting at a numeric offset. Skipping is linear in the offset;
+   * prefer cursors for deep paging.
+   */
+  List<McpService.PageSummary> at(int offset, int limit) {
+    ensureBuilt();
+    lock.readLock().lock();
+    try {
+      return take(pages, offset, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  static String cursorAfter(McpService.PageSummary last) {
+    return CURSOR_PREFIX
+      + Base64.getUrlEncoder().withoutPadding().encodeToString(last.path().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodeCursor(String cursor) {
+    if (!cursor.startsWith(CURSOR_PREFIX)) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+    String path;
+    try {
+      path = new String(Base64.getUrlDecoder().decode(cursor.substring(CURSOR_PREFIX.length())), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+    }
+    if (path.isEmpty() || PathParser.parse(path) == null) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+    return path;
+  }
+
+  private static List<McpService.PageSummary> take(NavigableMap<String, String> from, int skip, int limit) {
+    List<McpService.PageSummary> result = new ArrayList<>(Math.min(limit, 256));
+    int skipped = 0;
+    for (Map.Entry<String, String> entry : from.entrySet()) {
+      if (skipped < skip) {
+        skipped++;
+        continue;
+      }
+      if (result.size() >= limit) {
+        break;
+      }
+      result.add(new McpService.PageSummary(entry.getValue(), entry.getKey()));
+    }
+    return result;
+  }
+
+  @Override
+  public void pageChanged(PageChangeEvent event) {
+    lock.writeLock().lock();
+    try {
+      if (changedWhileBuilding != null) {
+        changedWhileBuilding.add(event);
+      } else if (ready) {
+        apply(event);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void apply(PageChangeEvent event) {
+    switch (event.type()) {
+      case CREATED:
+        addTree(event.newPath());
+        break;
+      case UPDATED:
+        refreshChildren(event.newPath());
+        break;
+      case MOVED:
+        removeTree(event.oldPath());
+        addTree(event.newPath());
+        break;
+      case DELETED:
+        removeTree(event.oldPath());
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void addTree(String path) {
+    WikiPage page = find(path);
+    if (page != null) {
+      walk(page, pages);
+    }
+  }
+
+  /**
+   * A saved page may have gained or lost symbolic links, which are not announced separately.
+   */
+  private void refreshChildren(String path) {
+    WikiPage page = find(path);
+    if (page == null) {
+      return;
+    }
+    if (!page.isRoot()) {
+      pages.put(path, page.getName());
+    }
+    Set<String> current = new HashSet<>();
+    for (WikiPage child : page.getChildren()) {
+      String childPath = child.getFullPath().toString();
+      current.add(childPath);
+      if (!pages.containsKey(childPath)) {
+        walk(child, pages);
+      }
+    }
+    String prefix = path.isEmpty() ? "" : path + ".";
+    for (String indexed : children(prefix)) {
+      if (!current.contains(indexed)) {
+        removeTree(indexed);
+      }
+    }
+  }
+
+  private List<String> children(String prefix) {
+    List<String> result = new ArrayList<>();
+    NavigableMap<String, String> below =
+      prefix.isEmpty() ? pages : pages.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    for (String candidate : below.keySet()) {
+      if (candidate.indexOf('.', prefix.length()) < 0) {
+        result.add(candidate);
+      }
+    }
+    return result;
+  }
+
+  private void removeTree(String path) {
+    if (path == null || path.isEmpty()) {
+      pages.clear();
+      return;
+    }
+    pages.remove(path);
+    pages.subMap(path + ".", true, path + "." + Character.MAX_VALUE, false).clear();
+  }
+
+  private WikiPage find(String path) {
+    if (path == null || path.isEmpty()) {
+      return root;
+    }
+    return root.getPageCrawler().getPage(PathParser.parse(path));
+  }
+
+  private static void walk(WikiPage page, Map<String, String> into) {
+    if (!page.isRoot()) {
+      into.put(page.getFullPath().toString(), page.getName());
+    }
+    if (page.isSymbolicPage()) {
+      return;
+    }
+    for (WikiPage child : page.getChildren()) {
+      walk(child, into);
+    }
+  }
+}
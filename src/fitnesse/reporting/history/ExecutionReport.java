@@ -10,11 +10,11 @@ import fitnesse.util.XmlUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -76,98 +76,47 @@ public abstract class ExecutionReport {
   }
 
   public static ExecutionReport makeReport(String xmlString) throws InvalidReportException {
-    Document xmlDocument = null;
-    try {
-      xmlDocument = XmlUtil.newDocument(xmlString);
-    } catch (IOException | SAXException e) {
-      throw new InvalidReportException(format("%s is not a valid execution report", xmlString), e);
-    }
-    Element documentElement = xmlDocument.getDocumentElement();
-    String documentNodeName = documentElement.getNodeName();
-    switch (documentNodeName) {
-      case "testResults":
-        return new TestExecutionReport(xmlDocument);
-      case "suiteResults":
-        return new SuiteExecutionReport(xmlDocument);
-      default:
-        throw new InvalidReportException(format("%s is not a valid document element tag for an Execution Report.", documentNodeName));
-    }
+    ReportBuilder builder = new ReportBuilder(null);
+    ExecutionReportReader.read(new StringReader(xmlString), builder);
+    return builder.report;
   }
 
-  protected void unpackCommonFields(Element documentElement) throws InvalidReportException {
-    version = XmlUtil.getTextValue(documentElement, "FitNesseVersion");
-    rootPath = XmlUtil.getTextValue(documentElement, "rootPath");
-    String dateString = XmlUtil.getTextValue(documentElement, "date");
-    if (dateString != null)
-      try {
-        date = DateTimeUtil.getDateFromString(dateString);
-      } catch (ParseException e) {
-        throw new InvalidReportException(format("'%s' is not a valid date.", dateString), e);
-      }
-    unpackFinalCounts(documentElement);
-    totalRunTimeInMillis = getTotalRunTimeInMillisOrMinusOneIfNotPresent(documentElement);
+  /**
+   * Reads a report from a file, without keeping the XML of it in memory.
+   */
+  public static ExecutionReport makeReport(File file) throws IOException, InvalidReportException {
+    ReportBuilder builder = new ReportBuilder(null);
+    ExecutionReportReader.read(file, builder);
+    return builder.report;
   }
 
-  protected long getTotalRunTimeInMillisOrMinusOneIfNotPresent(Element documentElement) {
-    String textValue = XmlUtil.getTextValue(documentElement, "totalRunTimeInMillis");
-    return textValue == null ? NO_RUN_TIME : Long.parseLong(textValue);
+  public static ExecutionReport makeReport(InputStream input) throws InvalidReportException {
+    ReportBuilder builder = new ReportBuilder(null);
+    ExecutionReportReader.read(input, builder);
+    return builder.report;
   }
 
-  private void unpackFinalCounts(Element testResults) {
-    Element counts = XmlUtil.getElementByTagName(testResults, "finalCounts");
-    if (counts != null) {
-      finalCounts = new TestSummary(
-        Integer.parseInt(XmlUtil.getTextValue(counts, "right")),
-        Integer.parseInt(XmlUtil.getTextValue(counts, "wrong")),
-        Integer.parseInt(XmlUtil.getTextValue(counts, "ignores")),
-        Integer.parseInt(XmlUtil.getTextValue(counts, "exceptions"))
-      );
-    }
+  protected void unpackXml(File file) throws IOException, InvalidReportException {
+    ExecutionReportReader.read(file, new ReportBuilder(this));
   }
 
-  protected void unpackXml(Document xmlDoc) throws InvalidReportException {
-    Element historyDocument = xmlDoc.getDocumentElement();
-    unpackCommonFields(historyDocument);
-    unpackResults(historyDocument);
-    unpackExecutionLogs(historyDocument);
+  protected void unpackXml(InputStream input) throws InvalidReportException {
+    ExecutionReportReader.read(input, new ReportBuilder(this));
   }
 
-  private void unpackExecutionLogs(Element historyDocument) {
-    NodeList logs = historyDocument.getElementsByTagName("executionLog");
-    if (logs == null) {
-      return;
-    }
-    for (int i = 0; i < logs.getLength(); i++) {
-      Element log = (Element) logs.item(i);
-      String commandLine = XmlUtil.getTextValue(log, "command");
-      String testSystemName = XmlUtil.getTextValue(log, "testSystem");
-      String exitCode = XmlUtil.getTextValue(log, "exitCode");
-      String stdOut = XmlUtil.getTextValue(log, "stdOut");
-      String stdErr = XmlUtil.getTextValue(log, "stdErr");
-
-      ExecutionLogReport report = new ExecutionLogReport(commandLine, testSystemName);
-      if (StringUtils.isNotBlank(exitCode)) {
-        report.exitCode(Integer.parseInt(exitCode));
-      }
-      if (stdOut != null) {
-        report.setStdOut(stdOut);
-      }
-      if (stdErr != null) {
-        report.setStdErr(stdErr);
-      }
-
-      NodeList exceptionNodes = log.getElementsByTagName("exception");
-      if (exceptionNodes != null) {
-        for (int k = 0; k < exceptionNodes.getLength(); k++) {
-          report.exceptionOccurred(new Exception(exceptionNodes.item(k).getTextContent()));
-        }
-      }
-      executionLogs.add(report);
+  /**
+   * Reads a report that is already parsed, through the same reader as reports read from files.
+   */
+  protected void unpackXml(Document xmlDoc) throws InvalidReportException {
+    String xml;
+    try {
+      xml = XmlUtil.xmlAsString(xmlDoc);
+    } catch (IOException e) {
+      throw new InvalidReportException("Unable to serialize report document", e);
     }
+    ExecutionReportReader.read(new StringReader(xml), new ReportBuilder(this));
   }
 
-  protected abstract void unpackResults(Element testResults) throws InvalidReportException;
-
   public TestSummary getFinalCounts() {
     return finalCounts;
   }
@@ -244,6 +193,91 @@ public abstract class ExecutionReport {
     executionLogReport().exceptionOccurred(e);
   }
 
+  /**
+   * Fills a report with the parts read by an {@link ExecutionReportReader}.
+   */
+  private static class ReportBuilder implements ExecutionReportReader.Handler {
+    private ExecutionReport report;
+    private boolean dateRead;
+    private boolean finalCountsRead;
+
+    private ReportBuilder(ExecutionReport report) {
+      this.report = report;
+    }
+
+    @Override
+    public void reportStarted(String documentElement) {
+      if (report == null) {
+        report = ExecutionReportReader.TEST_RESULTS.equals(documentElement)
+          ? new TestExecutionReport() : new SuiteExecutionReport();
+      }
+      report.version = null;
+      report.rootPath = null;
+    }
+
+    @Override
+    public void field(String name, String value) throws InvalidReportException {
+      switch (name) {
+        case "FitNesseVersion":
+          report.version = value;
+          break;
+        case "rootPath":
+          report.rootPath = value;
+          break;
+        case "date":
+          readDate(value);
+          break;
+        case "totalRunTimeInMillis":
+          report.totalRunTimeInMillis = value == null ? NO_RUN_TIME : Long.parseLong(value);
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void pageHistoryReference(SuiteExecutionReport.PageHistoryReference reference) throws InvalidReportException {
+      // a suite report without date of its own gets the date of its first page, as it did when read from a DOM
+      readDate(reference.getDateString());
+      if (report instanceof SuiteExecutionReport) {
+        ((SuiteExecutionReport) report).addPageHistoryReference(reference);
+      }
+    }
+
+    @Override
+    public void testResult(TestExecutionReport.TestResult result) throws InvalidReportException {
+      readDate(result.getDateString());
+      if (report instanceof TestExecutionReport) {
+        ((TestExecutionReport) report).addResult(result);
+      }
+    }
+
+    @Override
+    public void executionLog(ExecutionLogReport log) {
+      report.executionLogs.add(log);
+    }
+
+    @Override
+    public void finalCounts(TestSummary counts) {
+      if (!finalCountsRead) {
+        finalCountsRead = true;
+        report.finalCounts = counts;
+      }
+    }
+
+    private void readDate(String dateString) throws InvalidReportException {
+      if (dateRead || dateString == null) {
+        return;
+      }
+      dateRead = true;
+      try {
+        report.date = DateTimeUtil.getDateFromString(dateString);
+      } catch (ParseException e) {
+        throw new InvalidReportException(format("'%s' is not a valid date.", dateString), e);
+      }
+    }
+  }
+
   public static class ExecutionLogReport {
     private final String command;
     private final String testSystemName;
@@ -0,0 +1,363 @@
+package fitnesse.reporting.history;
+
+import fitnesse.testsystems.TestSummary;
+import fitnesse.util.DateTimeUtil;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static java.lang.String.format;
+
+/**
+ * Reads test and suite history files one element at a time, so reports of any size can be processed without
+ * keeping them in memory.
+ * <p>
+ * The parts of a report are passed to a {@link Handler} as soon as they are read: the page history references of a
+ * suite, the results of a test, execution logs, final counts and the simple fields of the report itself.
+ * {@link ExecutionReport#makeReport(InputStream)} uses it to build the full report for callers that need one.
+ */
+public class ExecutionReportReader {
+  public static final String TEST_RESULTS = "testResults";
+  public static final String SUITE_RESULTS = "suiteResults";
+
+  private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+  /**
+   * Receives the parts of a report in document order.
+   */
+  public interface Handler {
+    /**
+     * @param documentElement {@link #TEST_RESULTS} or {@link #SUITE_RESULTS}.
+     */
+    default void reportStarted(String documentElement) throws InvalidReportException {
+    }
+
+    /**
+     * A simple element of the report itself, like FitNesseVersion, rootPath, date or totalRunTimeInMillis.
+     * @param value text of the element, null when empty.
+     */
+    default void field(String name, String value) throws InvalidReportException {
+    }
+
+    default void pageHistoryReference(SuiteExecutionReport.PageHistoryReference reference) throws InvalidReportException {
+    }
+
+    default void testResult(TestExecutionReport.TestResult result) throws InvalidReportException {
+    }
+
+    default void executionLog(ExecutionReport.ExecutionLogReport log) throws InvalidReportException {
+    }
+
+    default void finalCounts(TestSummary counts) throws InvalidReportException {
+    }
+  }
+
+  private final XMLStreamReader reader;
+  private final Handler handler;
+
+  private ExecutionReportReader(XMLStreamReader reader, Handler handler) {
+    this.reader = reader;
+    this.handler = handler;
+  }
+
+  public static void read(File file, Handler handler) throws IOException, InvalidReportException {
+    try (InputStream input = new FileInputStream(file)) {
+      read(input, handler);
+    }
+  }
+
+  public static void read(InputStream input, Handler handler) throws InvalidReportException {
+    XMLStreamReader reader;
+    try {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+    } catch (XMLStreamException e) {
+      throw new InvalidReportException("Input is not a valid execution report", e);
+    }
+    read(reader, handler);
+  }
+
+  public static void read(Reader input, Handler handler) throws InvalidReportException {
+    XMLStreamReader reader;
+    try {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+    } catch (XMLStreamException e) {
+      throw new InvalidReportException("Input is not a valid execution report", e);
+    }
+    read(reader, handler);
+  }
+
+  private static void read(XMLStreamReader reader, Handler handler) throws InvalidReportException {
+    try {
+      new ExecutionReportReader(reader, handler).readReport();
+    } catch (XMLStreamException e) {
+      throw new InvalidReportException("Input is not a valid execution report", e);
+    } catch (NumberFormatException e) {
+      throw new InvalidReportException(format("Execution report contains an invalid number: %s", e.getMessage()), e);
+    } finally {
+      close(reader);
+    }
+  }
+
+  private void readReport() throws XMLStreamException, InvalidReportException {
+    String documentElement = nextStartElement();
+    if (!TEST_RESULTS.equals(documentElement) && !SUITE_RESULTS.equals(documentElement)) {
+      throw new InvalidReportException(format("%s is not a valid document element tag for an Execution Report.", documentElement));
+    }
+    handler.reportStarted(documentElement);
+    readElement(name -> {
+      switch (name) {
+        case "pageHistoryReference":
+          handler.pageHistoryReference(readPageHistoryReference());
+          break;
+        case "result":
+          handler.testResult(readTestResult());
+          break;
+        case "executionLog":
+          handler.executionLog(readExecutionLog());
+          break;
+        case "finalCounts":
+          handler.finalCounts(readCounts());
+          break;
+        default:
+          handler.field(name, readText());
+      }
+      return true;
+    });
+  }
+
+  private SuiteExecutionReport.PageHistoryReference readPageHistoryReference() throws XMLStreamException, InvalidReportException {
+    Map<String, String> values = new HashMap<>();
+    TestSummary[] counts = new TestSummary[1];
+    readElement(name -> {
+      if ("counts".equals(name) && counts[0] == null) {
+        counts[0] = readCounts();
+        return true;
+      }
+      return readFirstText(name, values, "name", "date", "runTimeInMillis");
+    });
+    String dateString = values.get("date");
+    if (dateString == null) {
+      throw new InvalidReportException(format("No date for page history reference %s", values.get("name")));
+    }
+    long time;
+    try {
+      time = DateTimeUtil.getTimeFromString(dateString);
+    } catch (ParseException e) {
+      throw new InvalidReportException(format("'%s' is not a valid date", dateString), e);
+    }
+    String runTimeInMillis = values.get("runTimeInMillis");
+    SuiteExecutionReport.PageHistoryReference reference = new SuiteExecutionReport.PageHistoryReference(
+      values.get("name"), time, runTimeInMillis == null ? 0 : Long.parseLong(runTimeInMillis));
+    if (counts[0] == null) {
+      throw new InvalidReportException(format("No counts for page history reference %s", values.get("name")));
+    }
+    reference.setTestSummary(counts[0]);
+    return reference;
+  }
+
+  private TestExecutionReport.TestResult readTestResult() throws XMLStreamException, InvalidReportException {
+    TestExecutionReport.TestResult result = new TestExecutionReport.TestResult();
+    Map<String, String> values = new HashMap<>();
+    boolean[] instructionsRead = new boolean[1];
+    readElement(name -> {
+      if ("instructions".equals(name) && !instructionsRead[0]) {
+        instructionsRead[0] = true;
+        readInstructions(result);
+        return true;
+      }
+      return readFirstText(name, values, "content", "right", "wrong", "ignores", "exceptions", "relativePageName",
+        "tags", "date", "runTimeInMillis");
+    });
+    result.content = values.get("content");
+    result.right = values.get("right");
+    result.wrong = values.get("wrong");
+    result.ignores = values.get("ignores");
+    result.exceptions = values.get("exceptions");
+    result.relativePageName = values.get("relativePageName");
+    result.tags = values.get("tags");
+    result.dateString = values.get("date");
+    result.runTimeInMillis = values.get("runTimeInMillis");
+    return result;
+  }
+
+  private void readInstructions(TestExecutionReport.TestResult result) throws XMLStreamException, InvalidReportException {
+    readElement(name -> {
+      if (!"instructionResult".equals(name)) {
+        return false;
+      }
+      TestExecutionReport.InstructionResult instructionResult = new TestExecutionReport.InstructionResult();
+      Map<String, String> values = new HashMap<>();
+      readElement(childName -> {
+        if ("expectation".equals(childName)) {
+          instructionResult.addExpectation(readExpectation());
+          return true;
+        }
+        return readFirstText(childName, values, "instruction", "slimResult");
+      });
+      instructionResult.instruction = values.get("instruction");
+      instructionResult.slimResult = values.get("slimResult");
+      result.instructions.add(instructionResult);
+      return true;
+    });
+  }
+
+  private TestExecutionReport.Expectation readExpectation() throws XMLStreamException, InvalidReportException {
+    Map<String, String> values = new HashMap<>();
+    readElement(name -> readFirstText(name, values, "status", "instructionId", "col", "row", "type", "actual",
+      "expected", "evaluationMessage"));
+    TestExecutionReport.Expectation expectation = new TestExecutionReport.Expectation();
+    expectation.status = values.get("status");
+    expectation.instructionId = values.get("instructionId");
+    expectation.col = values.get("col");
+    expectation.row = values.get("row");
+    expectation.type = values.get("type");
+    expectation.actual = values.get("actual");
+    expectation.expected = values.get("expected");
+    expectation.evaluationMessage = values.get("evaluationMessage");
+    return expectation;
+  }
+
+  private ExecutionReport.ExecutionLogReport readExecutionLog() throws XMLStreamException, InvalidReportException {
+    Map<String, String> values = new HashMap<>();
+    List<String> exceptionMessages = new ArrayList<>();
+    readElement(name -> {
+      if ("exception".equals(name)) {
+        String message = readText();
+        exceptionMessages.add(message == null ? "" : message);
+        return true;
+      }
+      return readFirstText(name, values, "command", "testSystem", "exitCode", "stdOut", "stdErr");
+    });
+    ExecutionReport.ExecutionLogReport log = new ExecutionReport.ExecutionLogReport(values.get("command"), values.get("testSystem"));
+    String exitCode = values.get("exitCode");
+    if (StringUtils.isNotBlank(exitCode)) {
+      log.exitCode(Integer.parseInt(exitCode));
+    }
+    if (values.get("stdOut") != null) {
+      log.setStdOut(values.get("stdOut"));
+    }
+    if (values.get("stdErr") != null) {
+      log.setStdErr(values.get("stdErr"));
+    }
+    for (String message : exceptionMessages) {
+      log.exceptionOccurred(new Exception(message));
+    }
+    return log;
+  }
+
+  private TestSummary readCounts() throws XMLStreamException, InvalidReportException {
+    Map<String, String> values = new HashMap<>();
+    readElement(name -> readFirstText(name, values, "right", "wrong", "ignores", "exceptions"));
+    return new TestSummary(
+      Integer.parseInt(values.get("right")),
+      Integer.parseInt(values.get("wrong")),
+      Integer.parseInt(values.get("ignores")),
+      Integer.parseInt(values.get("exceptions")));
+  }
+
+  /**
+   * Keeps the text of the first element with one of the names, like a lookup by tag name in a DOM would find.
+   */
+  private boolean readFirstText(String name, Map<String, String> values, String... names) throws XMLStreamException {
+    for (String wanted : names) {
+      if (wanted.equals(name)) {
+        String text = readText();
+        if (!values.containsKey(name)) {
+          values.put(name, text);
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private interface ChildReader {
+    /**
+     * @return true when the element was read up to and including its end tag.
+     */
+    boolean read(String name) throws XMLStreamException, InvalidReportException;
+  }
+
+  /**
+   * Reads the content of the current element up to its end tag, passing each element inside it to the child reader.
+   * Elements the child reader does not read are searched for nested elements.
+   */
+  private void readElement(ChildReader childReader) throws XMLStreamException, InvalidReportException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        if (!childReader.read(reader.getLocalName())) {
+          depth++;
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  /**
+   * @return all text inside the current element, null when there is none.
+   */
+  private String readText() throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    int depth = 1;
+    while (depth > 0) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          text.append(reader.getText());
+          break;
+        default:
+          break;
+      }
+    }
+    return text.length() == 0 ? null : text.toString();
+  }
+
+  private String nextStartElement() throws XMLStreamException, InvalidReportException {
+    while (reader.hasNext()) {
+      if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+        return reader.getLocalName();
+      }
+    }
+    throw new InvalidReportException("Execution report has no document element");
+  }
+
+  private static void close(XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        // nothing to release
+      }
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
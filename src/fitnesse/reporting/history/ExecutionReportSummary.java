@@ -0,0 +1,79 @@
+package fitnesse.reporting.history;
+
+import fitnesse.testsystems.TestSummary;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Totals of a test or suite report, read without building the report itself.
+ */
+public class ExecutionReportSummary implements ExecutionReportReader.Handler {
+  private String documentElement;
+  private String rootPath;
+  private TestSummary finalCounts = new TestSummary(0, 0, 0, 0);
+  private boolean finalCountsRead;
+  private long totalRunTimeInMillis = PageRunTimes.UNKNOWN;
+  private int pageCount;
+
+  public static ExecutionReportSummary read(File report) throws IOException, InvalidReportException {
+    ExecutionReportSummary summary = new ExecutionReportSummary();
+    ExecutionReportReader.read(report, summary);
+    return summary;
+  }
+
+  @Override
+  public void reportStarted(String documentElement) {
+    this.documentElement = documentElement;
+  }
+
+  @Override
+  public void field(String name, String value) {
+    if ("rootPath".equals(name)) {
+      rootPath = value;
+    } else if ("totalRunTimeInMillis".equals(name) && value != null) {
+      totalRunTimeInMillis = Long.parseLong(value);
+    }
+  }
+
+  @Override
+  public void pageHistoryReference(SuiteExecutionReport.PageHistoryReference reference) {
+    pageCount++;
+  }
+
+  @Override
+  public void testResult(TestExecutionReport.TestResult result) {
+    pageCount++;
+  }
+
+  @Override
+  public void finalCounts(TestSummary counts) {
+    if (!finalCountsRead) {
+      finalCountsRead = true;
+      finalCounts = counts;
+    }
+  }
+
+  public boolean isSuiteReport() {
+    return ExecutionReportReader.SUITE_RESULTS.equals(documentElement);
+  }
+
+  public String getRootPath() {
+    return rootPath;
+  }
+
+  public TestSummary getFinalCounts() {
+    return finalCounts;
+  }
+
+  public long getTotalRunTimeInMillis() {
+    return totalRunTimeInMillis;
+  }
+
+  /**
+   * @return number of pages referred to by a suite report, or number of results in a test report.
+   */
+  public int getPageCount() {
+    return pageCount;
+  }
+}
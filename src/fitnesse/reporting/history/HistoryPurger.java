@@ -100,6 +100,7 @@ public class HistoryPurger {
     } else {
       deleteExpiredFiles(files);
     }
+    TestHistoryIndex.deleteIfOnlyEntry(file);
     if (FileUtil.isEmpty(file)) {
       FileUtil.deleteFileSystemDirectory(file);
     }
@@ -9,9 +9,6 @@ import fitnesse.FitNesseContext;
 import fitnesse.reporting.BaseFormatter;
 import fitnesse.wiki.WikiPage;
 
-import org.apache.velocity.Template;
-import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.xml.sax.SAXException;
 
 /**
@@ -20,28 +17,27 @@ import org.xml.sax.SAXException;
  */
 public class JunitReFormatter extends BaseFormatter implements Closeable {
 
-  private final FitNesseContext context;
   private final Writer writer;
   private final SuiteHistoryFormatter historyFormatter;
 
-  public JunitReFormatter(FitNesseContext context, WikiPage page, Writer writer, SuiteHistoryFormatter historyFormatter) {
+  public JunitReFormatter(WikiPage page, Writer writer, SuiteHistoryFormatter historyFormatter) {
     super(page);
-    this.context = context;
     this.writer = writer;
     this.historyFormatter = historyFormatter;
   }
 
+  /**
+   * @deprecated the context is no longer needed, use {@link #JunitReFormatter(WikiPage, Writer, SuiteHistoryFormatter)}.
+   */
+  @Deprecated
+  public JunitReFormatter(FitNesseContext context, WikiPage page, Writer writer, SuiteHistoryFormatter historyFormatter) {
+    this(page, writer, historyFormatter);
+  }
+
   @Override
   public void close() throws IOException {
     historyFormatter.close();
-
-    // read file based on historyFormatter time-stamp
-    VelocityContext velocityContext = new VelocityContext();
-    velocityContext.put("formatter", this);
-    velocityContext.put("suiteExecutionReport", historyFormatter.getSuiteExecutionReport());
-    VelocityEngine velocityEngine = context.pageFactory.getVelocityEngine();
-    Template template = velocityEngine.getTemplate("suiteJunit.vm");
-    template.merge(velocityContext, writer);
+    JunitReportWriter.write(historyFormatter.getSuiteExecutionReport(), writer);
     writer.close();
   }
 
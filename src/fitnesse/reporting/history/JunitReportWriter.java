@@ -0,0 +1,144 @@
+package fitnesse.reporting.history;
+
+import fitnesse.testsystems.TestSummary;
+import fitnesse.util.DateTimeUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Locale;
+
+import static java.lang.String.format;
+
+/**
+ * Writes test and suite reports as JUnit XML: a testsuite with a testcase per page.
+ * <p>
+ * A report file is read twice, first for the totals the testsuite element starts with and then for the test cases,
+ * so reports of any size are converted in constant memory.
+ */
+public class JunitReportWriter {
+  private final Writer writer;
+
+  public JunitReportWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Converts a suite or test history file.
+   */
+  public static void convert(File report, Writer writer) throws IOException, InvalidReportException {
+    ExecutionReportSummary summary = ExecutionReportSummary.read(report);
+    JunitReportWriter junitWriter = new JunitReportWriter(writer);
+    junitWriter.startSuite(summary.getRootPath(), summary.getPageCount(), summary.getFinalCounts(),
+      summary.getTotalRunTimeInMillis());
+    try {
+      ExecutionReportReader.read(report, new ExecutionReportReader.Handler() {
+        @Override
+        public void pageHistoryReference(SuiteExecutionReport.PageHistoryReference reference) {
+          writeUnchecked(junitWriter, reference);
+        }
+
+        @Override
+        public void testResult(TestExecutionReport.TestResult result) throws InvalidReportException {
+          writeUnchecked(junitWriter, toReference(summary.getRootPath(), result));
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    junitWriter.endSuite();
+  }
+
+  /**
+   * Writes a suite report that is already in memory.
+   */
+  public static void write(SuiteExecutionReport report, Writer writer) throws IOException {
+    JunitReportWriter junitWriter = new JunitReportWriter(writer);
+    junitWriter.startSuite(report.getRootPath(), report.getPageHistoryReferences().size(), report.getFinalCounts(),
+      report.getTotalRunTimeInMillis());
+    for (SuiteExecutionReport.PageHistoryReference reference : report.getPageHistoryReferences()) {
+      junitWriter.testCase(reference);
+    }
+    junitWriter.endSuite();
+  }
+
+  public void startSuite(String name, int tests, TestSummary counts, long runTimeInMillis) throws IOException {
+    writer.write("<?xml version=\"1.0\"?>\n");
+    writer.write(format("<testsuite name=\"%s\" tests=\"%d\" failures=\"%d\" disabled=\"%d\" errors=\"%d\" time=\"%s\">\n",
+      escape(name), tests, counts.getWrong(), counts.getIgnores(), counts.getExceptions(), seconds(runTimeInMillis)));
+  }
+
+  public void testCase(SuiteExecutionReport.PageHistoryReference reference) throws IOException {
+    TestSummary counts = reference.getTestSummary();
+    writer.write(format("  <testcase name=\"%s\" assertions=\"%d\" time=\"%s\">\n",
+      escape(reference.getPageName()), counts.getRight(), seconds(reference.getRunTimeInMillis())));
+    if (counts.getExceptions() > 0) {
+      writer.write(format("    <error message=\"%d exceptions\"/>\n", counts.getExceptions()));
+    }
+    if (counts.getWrong() > 0) {
+      writer.write(format("    <failure message=\"%d errors\"/>\n", counts.getWrong()));
+    }
+    writer.write(format("    <system-out>%s?pageHistory&amp;resultDate=%s</system-out>\n",
+      escape(reference.getPageName()), reference.getResultDate()));
+    writer.write("  </testcase>\n");
+  }
+
+  public void endSuite() throws IOException {
+    writer.write("</testsuite>\n");
+    writer.flush();
+  }
+
+  private static void writeUnchecked(JunitReportWriter junitWriter, SuiteExecutionReport.PageHistoryReference reference) {
+    try {
+      junitWriter.testCase(reference);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static SuiteExecutionReport.PageHistoryReference toReference(String pageName, TestExecutionReport.TestResult result)
+    throws InvalidReportException {
+    long time;
+    try {
+      time = result.getDateString() == null ? 0 : DateTimeUtil.getTimeFromString(result.getDateString());
+    } catch (ParseException e) {
+      throw new InvalidReportException(format("'%s' is not a valid date", result.getDateString()), e);
+    }
+    SuiteExecutionReport.PageHistoryReference reference = new SuiteExecutionReport.PageHistoryReference(pageName, time,
+      parseRunTime(result.getRunTimeInMillis()));
+    reference.setTestSummary(result.getTestSummary());
+    return reference;
+  }
+
+  private static long parseRunTime(String runTimeInMillis) {
+    try {
+      return runTimeInMillis == null ? 0 : Long.parseLong(runTimeInMillis.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static String seconds(long millis) {
+    return format(Locale.ROOT, "%.3f", millis / 1000.0);
+  }
+
+  private static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&': escaped.append("&amp;"); break;
+        case '<': escaped.append("&lt;"); break;
+        case '>': escaped.append("&gt;"); break;
+        case '"': escaped.append("&quot;"); break;
+        default: escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+}
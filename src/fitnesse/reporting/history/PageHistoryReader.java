@@ -5,26 +5,38 @@ import util.FileUtil;
 import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static java.lang.String.format;
 
 public class PageHistoryReader {
 
-  private SimpleDateFormat dateFormat = PageHistory.getDateFormat();
   public static final String TEST_FILE_FORMAT = "\\A\\d{14}_\\d+_\\d+_\\d+_\\d+(.xml)*\\Z";
 
   void readHistoryFromPageDirectory(File pageDirectory) {
-    File[] resultDir = FileUtil.getDirectoryListing(pageDirectory);
+    for (TestResultRecord record : TestHistoryIndex.read(pageDirectory)) {
+      processTestFile(record);
+    }
+  }
 
+  /**
+   * Lists the history files of a page, the way history was found before the index was kept.
+   */
+  static List<TestResultRecord> readHistoryFiles(File pageDirectory) {
+    SimpleDateFormat dateFormat = PageHistory.getDateFormat();
+    File[] resultDir = FileUtil.getDirectoryListing(pageDirectory);
+    List<TestResultRecord> records = new ArrayList<>(resultDir.length);
     for (File file : resultDir) {
       if (fileIsNotADirectoryAndIsValid(file)) {
-        compileResultFileIntoHistory(file);
+        records.add(buildTestResultRecord(file, dateFormat));
       }
     }
+    return records;
   }
 
-  private boolean fileIsNotADirectoryAndIsValid(File file) {
+  private static boolean fileIsNotADirectoryAndIsValid(File file) {
     return !file.isDirectory() && matchesPageHistoryFileFormat(file.getName());
   }
 
@@ -32,16 +44,11 @@ public class PageHistoryReader {
     return pageHistoryFileName.matches(TEST_FILE_FORMAT);
   }
 
-  private void compileResultFileIntoHistory(File file) {
-    TestResultRecord record = buildTestResultRecord(file);
-    processTestFile(record);
-  }
-
   void processTestFile(TestResultRecord record) {
     // for subclasses.
   }
 
-  private TestResultRecord buildTestResultRecord(File file) {
+  private static TestResultRecord buildTestResultRecord(File file, SimpleDateFormat dateFormat) {
     String[] parts = file.getName().split("_|\\.");
     Date date;
     try {
@@ -0,0 +1,93 @@
+package fitnesse.reporting.history;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Run times of test pages, as recorded in the most recent test history file of each page.
+ * <p>
+ * The run time kept in the {@link TestHistoryIndex} is used when present. Otherwise only the start of the history file
+ * is read: the run time of a test is written before the page content.
+ */
+public class PageRunTimes {
+  public static final long UNKNOWN = -1;
+
+  private static final Logger LOG = Logger.getLogger(PageRunTimes.class.getName());
+  private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+  private final File historyDirectory;
+  private final Map<String, Long> runTimes = new ConcurrentHashMap<>();
+
+  public PageRunTimes(File historyDirectory) {
+    this.historyDirectory = historyDirectory;
+  }
+
+  /**
+   * @param fullPageName full path of the test page.
+   * @return run time of the last recorded run of the page, or {@link #UNKNOWN} when unknown.
+   */
+  public long getRunTimeInMillis(String fullPageName) {
+    return runTimes.computeIfAbsent(fullPageName, this::readRunTimeInMillis);
+  }
+
+  private long readRunTimeInMillis(String fullPageName) {
+    File pageDirectory = new File(historyDirectory, fullPageName);
+    if (!pageDirectory.isDirectory()) {
+      return UNKNOWN;
+    }
+    TestResultRecord record = new MostRecentPageHistoryReader(pageDirectory).findMostRecentTestRun();
+    if (record == null) {
+      return UNKNOWN;
+    }
+    if (record.getRunTimeInMillis() != UNKNOWN) {
+      return record.getRunTimeInMillis();
+    }
+    try (InputStream input = new FileInputStream(record.getFile())) {
+      return readRunTimeInMillis(input);
+    } catch (IOException | XMLStreamException | NumberFormatException e) {
+      LOG.log(Level.FINE, "Unable to read run time from " + record.getFile(), e);
+      return UNKNOWN;
+    }
+  }
+
+  static long readRunTimeInMillis(InputStream input) throws XMLStreamException {
+    XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(input);
+    try {
+      boolean testResults = false;
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+          continue;
+        }
+        String name = reader.getLocalName();
+        if (!testResults) {
+          if (!"testResults".equals(name)) {
+            return UNKNOWN;
+          }
+          testResults = true;
+        } else if ("runTimeInMillis".equals(name) || "totalRunTimeInMillis".equals(name)) {
+          return Long.parseLong(reader.getElementText().trim());
+        }
+      }
+      return UNKNOWN;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
@@ -3,18 +3,14 @@ package fitnesse.reporting.history;
 import fitnesse.FitNesseVersion;
 import fitnesse.testsystems.TestSummary;
 import fitnesse.util.DateTimeUtil;
-import fitnesse.util.XmlUtil;
 import fitnesse.wiki.PathParser;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 import java.io.Writer;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -25,6 +21,13 @@ import static java.lang.String.format;
 public class SuiteExecutionReport extends ExecutionReport {
   private List<PageHistoryReference> pageHistoryReferences = new ArrayList<>();
 
+  SuiteExecutionReport() {
+  }
+
+  /**
+   * @deprecated use {@link ExecutionReport#makeReport(java.io.File)}, which does not need the whole document in memory.
+   */
+  @Deprecated
   public SuiteExecutionReport(Document xmlDocument) throws InvalidReportException {
     super();
     unpackXml(xmlDocument);
@@ -85,37 +88,6 @@ public class SuiteExecutionReport extends ExecutionReport {
     template.merge(velocityContext, writer);
   }
 
-  @Override
-  protected void unpackResults(Element testResults) throws InvalidReportException {
-    NodeList references = testResults.getElementsByTagName("pageHistoryReference");
-    for (int referenceIndex = 0;referenceIndex < references.getLength();referenceIndex++){
-      Element refElement = (Element) references.item(referenceIndex);
-      String name = XmlUtil.getTextValue(refElement,"name");
-      long time = 0;
-      String dateString = XmlUtil.getTextValue(refElement, "date");
-      try {
-        time = DateTimeUtil.getTimeFromString(dateString);
-      } catch (ParseException e) {
-        throw new InvalidReportException(format("'%s' is not a valid date", dateString), e);
-      }
-      long runTimeInMillis = getRunTimeInMillisOrZeroIfNotPresent(refElement);
-      PageHistoryReference r1 = new PageHistoryReference(name,time,runTimeInMillis);
-      Element counts = XmlUtil.getElementByTagName(refElement,"counts");
-
-      r1.setTestSummary(new TestSummary(
-              Integer.valueOf(XmlUtil.getTextValue(counts, "right")),
-              Integer.valueOf(XmlUtil.getTextValue(counts, "wrong")),
-              Integer.valueOf(XmlUtil.getTextValue(counts, "ignores")),
-              Integer.valueOf(XmlUtil.getTextValue(counts, "exceptions"))));
-      pageHistoryReferences.add(r1);
-    }
-  }
-
-  protected long getRunTimeInMillisOrZeroIfNotPresent(Element refElement) {
-    String textValue = XmlUtil.getTextValue(refElement, "runTimeInMillis");
-    return textValue == null ? 0 : Long.parseLong(textValue);
-  }
-
   public List<PageHistoryReference> getPageHistoryReferences() {
     return pageHistoryReferences;
   }
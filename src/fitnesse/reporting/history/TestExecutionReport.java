@@ -5,14 +5,10 @@ import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import fitnesse.testsystems.TestSummary;
 
-import fitnesse.util.XmlUtil;
-
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,79 +23,25 @@ public class TestExecutionReport extends ExecutionReport {
     super(version, rootPath);
   }
 
+  TestExecutionReport() {
+  }
+
   public TestExecutionReport(InputStream input) throws IOException, SAXException, InvalidReportException {
-    Document xmlDoc = XmlUtil.newDocument(input);
-    unpackXml(xmlDoc);
+    unpackXml(input);
   }
 
   public TestExecutionReport(File file) throws IOException, SAXException, InvalidReportException {
-    Document xmlDoc = XmlUtil.newDocument(file);
-    unpackXml(xmlDoc);
+    unpackXml(file);
   }
 
+  /**
+   * @deprecated use {@link #TestExecutionReport(File)}, which does not need the whole document in memory.
+   */
+  @Deprecated
   public TestExecutionReport(Document xmlDocument) throws InvalidReportException {
     unpackXml(xmlDocument);
   }
 
-  @Override
-  protected void unpackResults(Element testResults) {
-    NodeList xmlResults = testResults.getElementsByTagName("result");
-    for (int resultIndex = 0; resultIndex < xmlResults.getLength(); resultIndex++) {
-      unpackResult(xmlResults, resultIndex);
-    }
-  }
-
-  private void unpackResult(NodeList xmlResults, int resultIndex) {
-    Element xmlResult = (Element) xmlResults.item(resultIndex);
-    TestResult result = new TestResult();
-    result.content = XmlUtil.getTextValue(xmlResult, "content");
-    result.right = XmlUtil.getTextValue(xmlResult, "right");
-    result.wrong = XmlUtil.getTextValue(xmlResult, "wrong");
-    result.ignores = XmlUtil.getTextValue(xmlResult, "ignores");
-    result.exceptions = XmlUtil.getTextValue(xmlResult, "exceptions");
-    result.relativePageName = XmlUtil.getTextValue(xmlResult, "relativePageName");
-    result.tags = XmlUtil.getTextValue(xmlResult, "tags");
-    result.dateString = XmlUtil.getTextValue(xmlResult, "date");
-    result.runTimeInMillis = XmlUtil.getTextValue(xmlResult, "runTimeInMillis");
-
-    Element xmlInstructions = XmlUtil.getElementByTagName(xmlResult, "instructions");
-    if (xmlInstructions != null) {
-      unpackInstructions(result, xmlInstructions);
-    }
-    addResult(result);
-  }
-
-  private void unpackInstructions(TestResult result, Element xmlInstructions) {
-    NodeList xmlInstructionResults = xmlInstructions.getElementsByTagName("instructionResult");
-    for (int instructionIndex = 0; instructionIndex < xmlInstructionResults.getLength(); instructionIndex++) {
-      Element instructionElement = (Element) xmlInstructionResults.item(instructionIndex);
-      String instruction = XmlUtil.getTextValue(instructionElement, "instruction");
-      String slimResult = XmlUtil.getTextValue(instructionElement, "slimResult");
-      InstructionResult instructionResult = new InstructionResult();
-      instructionResult.instruction = instruction;
-      instructionResult.slimResult = slimResult;
-      result.instructions.add(instructionResult);
-      unpackExpectations(instructionElement, instructionResult);
-    }
-  }
-
-  private void unpackExpectations(Element instructionElement, InstructionResult instructionResult) {
-    NodeList xmlExpectations = instructionElement.getElementsByTagName("expectation");
-    for (int expectationIndex = 0; expectationIndex < xmlExpectations.getLength(); expectationIndex++) {
-      Element expectationElement = (Element) xmlExpectations.item(expectationIndex);
-      Expectation expectation = new Expectation();
-      instructionResult.addExpectation(expectation);
-      expectation.status = XmlUtil.getTextValue(expectationElement, "status");
-      expectation.instructionId = XmlUtil.getTextValue(expectationElement, "instructionId");
-      expectation.col = XmlUtil.getTextValue(expectationElement, "col");
-      expectation.row = XmlUtil.getTextValue(expectationElement, "row");
-      expectation.type = XmlUtil.getTextValue(expectationElement, "type");
-      expectation.actual = XmlUtil.getTextValue(expectationElement, "actual");
-      expectation.expected = XmlUtil.getTextValue(expectationElement, "expected");
-      expectation.evaluationMessage = XmlUtil.getTextValue(expectationElement, "evaluationMessage");
-    }
-  }
-
   public List<TestResult> getResults() {
     return new ArrayList<>(results);
   }
@@ -4,6 +4,10 @@ import fitnesse.wiki.PathParser;
 import util.FileUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 public class TestHistory {
@@ -30,7 +34,15 @@ public class TestHistory {
   }
 
   private boolean isValidFile(File file) {
-    return file.isDirectory() && file.list().length > 0 && PathParser.isWikiPath(file.getName());
+    return file.isDirectory() && PathParser.isWikiPath(file.getName()) && hasEntries(file);
+  }
+
+  private static boolean hasEntries(File directory) {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory.toPath())) {
+      return entries.iterator().hasNext();
+    } catch (IOException e) {
+      return false;
+    }
   }
 
   public Set<String> getPageNames() {
@@ -0,0 +1,236 @@
+package fitnesse.reporting.history;
+
+import fitnesse.testsystems.TestSummary;
+import fitnesse.util.Clock;
+import util.FileUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A compact summary of the history files of a page, so the history views do not have to list and parse the names
+ * of all files on every request.
+ * <p>
+ * Each page history directory gets an append-only file with one record per run: date, counts, run time and the
+ * name of the history file, which is only read when the details of a run are asked for. Directories without a
+ * current index are read the old way and indexed then. The index is current when it was written after the last
+ * change to its directory, so files added or removed by other means are picked up. When both were modified in the
+ * same clock tick (file systems may keep modification times to the second) the names in the directory are
+ * compared with the index instead.
+ * <p>
+ * Rebuilding and appending hold the same lock, and a run is only appended if the index does not list its file yet.
+ */
+public final class TestHistoryIndex {
+  private static final Logger LOG = Logger.getLogger(TestHistoryIndex.class.getName());
+
+  public static final String FILE_NAME = "history.idx";
+  private static final int MAGIC = 0x464e4831;
+
+  private TestHistoryIndex() {
+  }
+
+  /**
+   * @return the runs recorded for the page directory, from the index if it is current.
+   */
+  static List<TestResultRecord> read(File pageDirectory) {
+    if (!pageDirectory.isDirectory()) {
+      return new ArrayList<>();
+    }
+    File index = new File(pageDirectory, FILE_NAME);
+    List<TestResultRecord> records = readIfCurrent(pageDirectory, index);
+    return records != null ? records : rebuild(pageDirectory, index);
+  }
+
+  /**
+   * Writer for a new history file, that adds the run to the index of its directory when closed.
+   *
+   * @param time start of the run, the run time is taken to last until the writer is closed.
+   */
+  public static Writer recordingWriter(File resultFile, TestSummary counts, long time) throws IOException {
+    File index = new File(resultFile.getParentFile(), FILE_NAME);
+    boolean indexWasCurrent = readIfCurrent(resultFile.getParentFile(), index) != null;
+    return new RecordingWriter(resultFile, index, indexWasCurrent, counts, time);
+  }
+
+  /**
+   * Removes the index from a directory that has nothing else left, so the directory can be removed.
+   */
+  static void deleteIfOnlyEntry(File pageDirectory) throws IOException {
+    String[] entries = pageDirectory.list();
+    if (entries != null && entries.length == 1 && FILE_NAME.equals(entries[0])) {
+      FileUtil.deleteFile(new File(pageDirectory, FILE_NAME));
+    }
+  }
+
+  /**
+   * @return the records of the index, or null if the index is missing, incomplete or older than its directory.
+   */
+  private static List<TestResultRecord> readIfCurrent(File pageDirectory, File index) {
+    long indexModified = index.lastModified();
+    long directoryModified = pageDirectory.lastModified();
+    if (!index.isFile() || indexModified < directoryModified) {
+      return null;
+    }
+    List<TestResultRecord> records = readIndex(pageDirectory, index);
+    if (records == null || (indexModified == directoryModified && !listsAllFiles(pageDirectory, records))) {
+      return null;
+    }
+    return records;
+  }
+
+  private static boolean listsAllFiles(File pageDirectory, List<TestResultRecord> records) {
+    String[] names = pageDirectory.list();
+    if (names == null) {
+      return false;
+    }
+    Set<String> indexed = new HashSet<>();
+    for (TestResultRecord record : records) {
+      indexed.add(record.getFile().getName());
+    }
+    int historyFiles = 0;
+    for (String name : names) {
+      if (PageHistoryReader.matchesPageHistoryFileFormat(name)) {
+        if (!indexed.contains(name)) {
+          return false;
+        }
+        historyFiles++;
+      }
+    }
+    return historyFiles == indexed.size();
+  }
+
+  private static synchronized List<TestResultRecord> rebuild(File pageDirectory, File index) {
+    List<TestResultRecord> records = PageHistoryReader.readHistoryFiles(pageDirectory);
+    writeIndex(index, records);
+    return records;
+  }
+
+  private static List<TestResultRecord> readIndex(File pageDirectory, File index) {
+    try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(index.toPath())))) {
+      if (input.readInt() != MAGIC) {
+        return null;
+      }
+      List<TestResultRecord> records = new ArrayList<>();
+      while (input.available() > 0) {
+        Date date = new Date(input.readLong());
+        int right = input.readInt();
+        int wrong = input.readInt();
+        int ignores = input.readInt();
+        int exceptions = input.readInt();
+        long runTimeInMillis = input.readLong();
+        File file = new File(pageDirectory, input.readUTF());
+        records.add(new TestResultRecord(file, date, right, wrong, ignores, exceptions, runTimeInMillis));
+      }
+      return records;
+    } catch (EOFException e) {
+      LOG.log(Level.FINE, "Incomplete test history index " + index + ", reading history files instead");
+      return null;
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Unable to read test history index " + index, e);
+      return null;
+    }
+  }
+
+  private static void writeIndex(File index, List<TestResultRecord> records) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + records.size() * 64);
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.writeInt(MAGIC);
+      for (TestResultRecord record : records) {
+        writeRecord(output, record.getDate().getTime(), record.toTestSummary(), record.getRunTimeInMillis(),
+          record.getFile().getName());
+      }
+      try (OutputStream file = new FileOutputStream(index, false)) {
+        file.write(bytes.toByteArray());
+      }
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Unable to write test history index " + index, e);
+    }
+  }
+
+  private static synchronized void appendRecord(File index, long time, TestSummary counts, long runTimeInMillis,
+                                                String fileName) {
+    List<TestResultRecord> records = readIndex(index.getParentFile(), index);
+    if (records == null) {
+      return;
+    }
+    for (TestResultRecord record : records) {
+      if (record.getFile().getName().equals(fileName)) {
+        // A history view rebuilt the index while the run was written.
+        return;
+      }
+    }
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+      writeRecord(new DataOutputStream(bytes), time, counts, runTimeInMillis, fileName);
+      try (OutputStream file = new FileOutputStream(index, true)) {
+        file.write(bytes.toByteArray());
+      }
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Unable to add to test history index " + index + ", it will be rebuilt", e);
+      if (!index.delete()) {
+        LOG.log(Level.WARNING, "Unable to remove test history index " + index);
+      }
+    }
+  }
+
+  private static void writeRecord(DataOutputStream output, long time, TestSummary counts, long runTimeInMillis,
+                                  String fileName) throws IOException {
+    output.writeLong(time);
+    output.writeInt(counts.getRight());
+    output.writeInt(counts.getWrong());
+    output.writeInt(counts.getIgnores());
+    output.writeInt(counts.getExceptions());
+    output.writeLong(runTimeInMillis);
+    output.writeUTF(fileName);
+  }
+
+  private static final class RecordingWriter extends PrintWriter {
+    private final File resultFile;
+    private final File index;
+    private final boolean indexWasCurrent;
+    private final TestSummary counts;
+    private final long time;
+    private boolean closed;
+
+    private RecordingWriter(File resultFile, File index, boolean indexWasCurrent, TestSummary counts, long time)
+      throws IOException {
+      super(resultFile, FileUtil.CHARENCODING);
+      this.resultFile = resultFile;
+      this.index = index;
+      this.indexWasCurrent = indexWasCurrent;
+      this.counts = counts;
+      this.time = time;
+    }
+
+    @Override
+    public void close() {
+      super.close();
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (indexWasCurrent && !checkError()) {
+        // history file names, and so dates read back from them, are precise to the second
+        appendRecord(index, time / 1000 * 1000, counts, Clock.currentTimeInMillis() - time, resultFile.getName());
+      }
+    }
+  }
+}
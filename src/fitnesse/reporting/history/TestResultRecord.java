@@ -12,14 +12,20 @@ public class TestResultRecord {
   private final int wrong;
   private final int ignores;
   private final int exceptions;
+  private final long runTimeInMillis;
 
   public TestResultRecord(File file, Date date, int right, int wrong, int ignores, int exceptions) {
+    this(file, date, right, wrong, ignores, exceptions, PageRunTimes.UNKNOWN);
+  }
+
+  public TestResultRecord(File file, Date date, int right, int wrong, int ignores, int exceptions, long runTimeInMillis) {
     this.file = file;
     this.date = date;
     this.right = right;
     this.wrong = wrong;
     this.ignores = ignores;
     this.exceptions = exceptions;
+    this.runTimeInMillis = runTimeInMillis;
   }
 
   public Date getDate() {
@@ -50,6 +56,13 @@ public class TestResultRecord {
     return exceptions;
   }
 
+  /**
+   * @return run time recorded when the result was written, or {@link PageRunTimes#UNKNOWN}.
+   */
+  public long getRunTimeInMillis() {
+    return runTimeInMillis;
+  }
+
   public TestSummary toTestSummary() {
     return new TestSummary(right, wrong, ignores, exceptions);
   }
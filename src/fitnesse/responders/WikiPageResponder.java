@@ -23,7 +23,6 @@ import fitnesse.wiki.WikiPage;
 import fitnesse.wiki.WikiPagePath;
 import fitnesse.wiki.WikiPageUtil;
 
-import java.io.UnsupportedEncodingException;
 import java.util.Map;
 
 public class WikiPageResponder implements SecureResponder {
@@ -63,16 +62,17 @@ public class WikiPageResponder implements SecureResponder {
     return dontCreate != null && (dontCreate.isEmpty() || Boolean.parseBoolean(dontCreate));
   }
 
-  private SimpleResponse makePageResponse(FitNesseContext context, WikiPage page) throws UnsupportedEncodingException {
-      String html = makeHtml(context, page);
-
-      SimpleResponse response = new SimpleResponse();
+  private SimpleResponse makePageResponse(FitNesseContext context, WikiPage page) {
+      SimpleResponse response = makeHtmlPage(context, page).response(request);
       response.setMaxAge(0);
-      response.setContent(html);
       return response;
   }
 
   public String makeHtml(FitNesseContext context, WikiPage page) {
+    return makeHtmlPage(context, page).html(request);
+  }
+
+  private HtmlPage makeHtmlPage(FitNesseContext context, WikiPage page) {
     PageData pageData = page.getData();
     HtmlPage html = context.pageFactory.newPage();
     WikiPagePath fullPath = page.getFullPath();
@@ -102,7 +102,7 @@ public class WikiPageResponder implements SecureResponder {
     html.setFooterTemplate("wikiFooter");
     html.put("footerContent", new WikiPageFooterRenderer(page));
     handleSpecialProperties(html, page);
-    return html.html(request);
+    return html;
   }
 
   private void handleSpecialProperties(HtmlPage html, WikiPage page) {
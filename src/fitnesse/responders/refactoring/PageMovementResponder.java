@@ -55,9 +55,15 @@ public abstract class PageMovementResponder implements SecureResponder {
     }
 
     if (request.hasInput("refactorReferences")) {
-      ReferenceRenamingTraverser.renameReferences(context.getRootPage(), getReferenceRenamer());
+      ReferenceRenamingTraverser.renameReferences(context.getRootPage(), getReferenceRenamer(), oldRefactoredPage,
+        context.linkGraph);
     }
-    execute();
+    String oldPath = oldRefactoredPage.getFullPath().toString();
+    try (PageChangeEvents.Suppression ignored = PageChangeEvents.suppress()) {
+      execute();
+    }
+    PageChangeEvents.publish(PageChangeEvent.moved(oldPath,
+      newParentPage.getFullPath().addNameToEnd(getNewPageName()).toString()));
 
     SimpleResponse response = new SimpleResponse();
     response.redirect(context.contextRoot, createRedirectionUrl(newParentPage, getNewPageName()));
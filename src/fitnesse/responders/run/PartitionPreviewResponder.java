@@ -37,7 +37,7 @@ public class PartitionPreviewResponder extends ChunkingResponder {
 
   protected PagePositions getPagesToRun() {
     SuiteFilter filter = SuiteResponder.createSuiteFilter(request, page.getFullPath().toString());
-    SuiteContentsFinder suiteTestFinder = new SuiteContentsFinder(page, filter, root);
+    SuiteContentsFinder suiteTestFinder = new SuiteContentsFinder(page, filter, root, context.suiteContentsCache);
     List<WikiPage> allPages = suiteTestFinder.getAllPagesToRunForThisSuite();
     return applyPartition(allPages);
   }
@@ -22,6 +22,7 @@ import fitnesse.reporting.history.JunitReFormatter;
 import fitnesse.reporting.history.PageHistory;
 import fitnesse.reporting.history.SuiteHistoryFormatter;
 import fitnesse.reporting.history.SuiteXmlReformatter;
+import fitnesse.reporting.history.TestHistoryIndex;
 import fitnesse.reporting.history.TestXmlFormatter;
 import fitnesse.responders.ChunkingResponder;
 import fitnesse.responders.WikiImporter;
@@ -47,11 +48,9 @@ import fitnesse.wiki.WikiPagePath;
 import fitnesse.wiki.WikiPageProperty;
 import fitnesse.wiki.WikiPageUtil;
 import org.apache.commons.lang3.StringUtils;
-import util.FileUtil;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.io.Writer;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -330,7 +329,7 @@ public class SuiteResponder extends ChunkingResponder implements SecureResponder
   }
 
   protected BaseFormatter newJunitFormatter() {
-    return new JunitReFormatter(context, page, response.getWriter(), getSuiteHistoryFormatter());
+    return new JunitReFormatter(page, response.getWriter(), getSuiteHistoryFormatter());
   }
 
   protected BaseFormatter newHtmlFormatter() {
@@ -352,7 +351,7 @@ public class SuiteResponder extends ChunkingResponder implements SecureResponder
 
   protected List<WikiPage> getPagesToRun() {
     SuiteFilter filter = createSuiteFilter(request, page.getFullPath().toString());
-    SuiteContentsFinder suiteTestFinder = new SuiteContentsFinder(page, filter, root);
+    SuiteContentsFinder suiteTestFinder = new SuiteContentsFinder(page, filter, root, context.suiteContentsCache);
     return suiteTestFinder.getAllPagesToRunForThisSuite();
   }
 
@@ -364,6 +363,7 @@ public class SuiteResponder extends ChunkingResponder implements SecureResponder
 
     runner.setRunInProcess(debug);
     runner.setEnableRemoteDebug(remoteDebug);
+    runner.setSuiteName(page.getFullPath().toString());
     addFormatters(runner);
 
     return runner;
@@ -466,7 +466,7 @@ public class SuiteResponder extends ChunkingResponder implements SecureResponder
         resultDirectory.mkdirs();
       }
       File resultFile = new File(resultDirectory, resultPath.getName());
-      return new PrintWriter(resultFile, FileUtil.CHARENCODING);
+      return TestHistoryIndex.recordingWriter(resultFile, counts, time);
     }
   }
 
@@ -11,7 +11,7 @@ public class WhereUsedResponder extends ResultResponder {
 
   @Override
   public PageFinder getPageFinder(TraversalListener<WikiPage> observer) {
-    return new WhereUsedPageFinder(page, observer);
+    return new WhereUsedPageFinder(page, observer, context.linkGraph);
   }
 
   @Override
@@ -16,7 +16,6 @@ import fitnesse.reporting.history.TestHistory;
 import fitnesse.reporting.history.TestResultRecord;
 import fitnesse.responders.ErrorResponder;
 import fitnesse.wiki.PathParser;
-import util.FileUtil;
 
 import java.io.File;
 import java.text.ParseException;
@@ -57,8 +56,7 @@ public class ExecutionLogResponder implements SecureResponder {
   }
 
   private Response makeExecutionLogResponse(Request request, Date resultDate, TestResultRecord testResultRecord) throws Exception {
-    String content = FileUtil.getFileContent(testResultRecord.getFile());
-    ExecutionReport report = ExecutionReport.makeReport(content);
+    ExecutionReport report = ExecutionReport.makeReport(testResultRecord.getFile());
     HtmlPage page = context.pageFactory.newPage();
     String tags = "";
     if (report instanceof TestExecutionReport && !((TestExecutionReport) report).getResults().isEmpty()) {
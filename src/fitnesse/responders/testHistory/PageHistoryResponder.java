@@ -11,6 +11,8 @@ import fitnesse.http.Response;
 import fitnesse.http.Response.Format;
 import fitnesse.http.SimpleResponse;
 import fitnesse.reporting.history.ExecutionReport;
+import fitnesse.reporting.history.InvalidReportException;
+import fitnesse.reporting.history.JunitReportWriter;
 import fitnesse.reporting.history.PageHistory;
 import fitnesse.reporting.history.SuiteExecutionReport;
 import fitnesse.reporting.history.TestExecutionReport;
@@ -24,6 +26,7 @@ import util.FileUtil;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -72,6 +75,11 @@ public class PageHistoryResponder implements SecureResponder {
     return "xml".equalsIgnoreCase(format);
   }
 
+  private boolean formatIsJunit(Request request) {
+    String format = request.getInput("format");
+    return "junit".equalsIgnoreCase(format);
+  }
+
   private Response tryToMakeTestExecutionReport(Request request) throws Exception {
     Date resultDate;
     String date = request.getInput("resultDate");
@@ -95,10 +103,9 @@ public class PageHistoryResponder implements SecureResponder {
   private Response makeTestExecutionReportResponse(Request request, Date resultDate, TestResultRecord testResultRecord) throws Exception {
     if (formatIsXML(request))
       return generateXMLResponse(testResultRecord.getFile());
-    ExecutionReport report;
-
-    String content = FileUtil.getFileContent(testResultRecord.getFile());
-    report = ExecutionReport.makeReport(content);
+    if (formatIsJunit(request))
+      return generateJunitResponse(testResultRecord.getFile());
+    ExecutionReport report = ExecutionReport.makeReport(testResultRecord.getFile());
     if (report instanceof TestExecutionReport) {
       report.setDate(resultDate);
       return generateHtmlTestExecutionResponse(request, (TestExecutionReport) report);
@@ -150,6 +157,17 @@ public class PageHistoryResponder implements SecureResponder {
     return response;
   }
 
+  /**
+   * Converts the stored report while reading it, so the report itself is never held in memory.
+   */
+  private Response generateJunitResponse(File file) throws IOException, InvalidReportException {
+    StringWriter junit = new StringWriter();
+    JunitReportWriter.convert(file, junit);
+    response.setContent(junit.toString());
+    response.setContentType(Format.XML);
+    return response;
+  }
+
   private Response makeResponse(Request request) throws UnsupportedEncodingException {
     response.setContent(page.html(request));
     return response;
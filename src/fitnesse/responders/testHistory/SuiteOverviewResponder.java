@@ -28,7 +28,7 @@ public class SuiteOverviewResponder implements Responder {
     WikiPage page = root.getPageCrawler().getPage(PathParser.parse(request.getResource()));
 
     SuiteFilter filter = SuiteResponder.createSuiteFilter(request, page.getFullPath().toString());
-    SuiteContentsFinder suiteTestFinder = new SuiteContentsFinder(page, filter, root);
+    SuiteContentsFinder suiteTestFinder = new SuiteContentsFinder(page, filter, root, context.suiteContentsCache);
 
     List<WikiPage> pagelist = suiteTestFinder.getAllPagesToRunForThisSuite();
 
@@ -0,0 +1,772 @@
+package fitnesse.search;
+
+import fitnesse.components.TraversalListener;
+import fitnesse.wiki.NoPruningStrategy;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PageType;
+import fitnesse.wiki.WikiPage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted full-text index over wiki pages (term to posting lists with positions).
+ * <p>
+ * The index is built once from the page tree, kept up to date with {@link #update(WikiPage)} and
+ * {@link #remove(String)}, and persisted in a compact binary file so a restart only has to
+ * {@link #refresh(WikiPage) re-index} pages that changed while the server was down.
+ * Tag and page type filters are kept as document sets, so filtering happens before scoring.
+ * <p>
+ * Like the tree search it replaces, content queries match parts of words: a query term matches every indexed
+ * term that contains it, so {@code page} finds pages mentioning {@code FrontPage}. Those terms are looked up
+ * through a dictionary of the trigrams of the indexed terms. Terms of a quoted phrase must match whole terms.
+ * <p>
+ * Unlike the literal tree search, pages and queries are split into terms of letters and digits, so punctuation
+ * in a query is ignored: {@code !define} finds every page with a term containing {@code define}, and
+ * {@code a.b} finds pages with terms containing {@code a} and {@code b} anywhere; quote it ({@code "a.b"})
+ * to have them next to each other.
+ */
+public final class SearchIndex {
+  private static final int MAGIC = 0x464E5349;
+  private static final int FORMAT_VERSION = 1;
+  private static final int MAX_TERM_LENGTH = 255;
+  private static final int GRAM = 3;
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final double TITLE_BOOST = 2.0;
+
+  /**
+   * Ranked index hit.
+   */
+  static final class Hit {
+    final String path;
+    final String name;
+    final double score;
+
+    Hit(String path, String name, double score) {
+      this.path = path;
+      this.name = name;
+      this.score = score;
+    }
+  }
+
+  private static final class IndexedPage {
+    final int id;
+    final String path;
+    final String name;
+    final PageType type;
+    final Set<String> tags;
+    final int length;
+    final int signature;
+    final String[] terms;
+
+    IndexedPage(int id, String path, String name, PageType type, Set<String> tags, int length, int signature,
+                String[] terms) {
+      this.id = id;
+      this.path = path;
+      this.name = name;
+      this.type = type;
+      this.tags = tags;
+      this.length = length;
+      this.signature = signature;
+      this.terms = terms;
+    }
+  }
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private Map<String, Map<Integer, int[]>> postings = new HashMap<>();
+  private Map<String, Set<String>> termsByTrigram = new HashMap<>();
+  private Set<String> shortTerms = new HashSet<>();
+  private Map<Integer, IndexedPage> pages = new HashMap<>();
+  private Map<String, Integer> idsByPath = new HashMap<>();
+  private Map<String, Set<Integer>> idsByTag = new HashMap<>();
+  private Map<PageType, Set<Integer>> idsByType = new HashMap<>();
+  private long totalLength;
+  private int nextId;
+  private List<Runnable> changedWhileRebuilding;
+  private volatile boolean ready;
+  private volatile boolean dirty;
+
+  /**
+   * True once the index has been built or loaded and can answer queries.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * True if the index changed since it was last saved or loaded.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Number of indexed pages.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return pages.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Discards the current content and indexes every page below (and including) the given root.
+   * <p>
+   * The pages are indexed into a new index, which replaces the current one when done, so queries and updates
+   * are not held up by the traversal. Updates made meanwhile are applied to the new index as well.
+   */
+  public synchronized void rebuild(WikiPage root) {
+    lock.writeLock().lock();
+    try {
+      changedWhileRebuilding = new ArrayList<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    SearchIndex built = new SearchIndex();
+    boolean done = false;
+    try {
+      root.getPageCrawler().traverse((TraversalListener<WikiPage>) built::addPage, new NoPruningStrategy());
+      done = true;
+    } finally {
+      lock.writeLock().lock();
+      try {
+        if (done) {
+          postings = built.postings;
+          termsByTrigram = built.termsByTrigram;
+          shortTerms = built.shortTerms;
+          pages = built.pages;
+          idsByPath = built.idsByPath;
+          idsByTag = built.idsByTag;
+          idsByType = built.idsByType;
+          totalLength = built.totalLength;
+          nextId = built.nextId;
+          for (Runnable change : changedWhileRebuilding) {
+            change.run();
+          }
+          ready = true;
+          dirty = true;
+        }
+        changedWhileRebuilding = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Brings a loaded index in line with the page tree: changed and new pages are re-indexed,
+   * pages that no longer exist are dropped. Unchanged pages are not re-tokenized.
+   */
+  public void refresh(WikiPage root) {
+    Set<String> seen = new HashSet<>();
+    root.getPageCrawler().traverse((TraversalListener<WikiPage>) page -> {
+      String path = pathOf(page);
+      seen.add(path);
+      PageData data = page.getData();
+      lock.writeLock().lock();
+      try {
+        Integer id = idsByPath.get(path);
+        if (id == null || pages.get(id).signature != signatureOf(data)) {
+          change(() -> {
+            removePage(path);
+            addPage(page, path, data);
+          });
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }, new NoPruningStrategy());
+    lock.writeLock().lock();
+    try {
+      for (String path : new ArrayList<>(idsByPath.keySet())) {
+        if (!seen.contains(path)) {
+          change(() -> removePage(path));
+        }
+      }
+      ready = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * (Re-)indexes a single page.
+   */
+  public void update(WikiPage page) {
+    String path = pathOf(page);
+    PageData data = page.getData();
+    lock.writeLock().lock();
+    try {
+      change(() -> {
+        removePage(path);
+        addPage(page, path, data);
+      });
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * (Re-)indexes a page and all pages below it.
+   */
+  public void updateTree(WikiPage page) {
+    page.getPageCrawler().traverse((TraversalListener<WikiPage>) this::update, new NoPruningStrategy());
+  }
+
+  /**
+   * Removes a page and all pages below it.
+   */
+  public void remove(String path) {
+    lock.writeLock().lock();
+    try {
+      change(() -> removeTree(path));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ranked content query. All clauses must match; phrases must match on consecutive positions.
+   */
+  List<Hit> search(SearchQuery query, SearchService.PageTypeFilter pageTypeFilter, List<String> tags) {
+    List<Hit> hits = new ArrayList<>();
+    if (query.isEmpty()) {
+      return hits;
+    }
+    lock.readLock().lock();
+    try {
+      Collection<Integer> candidates = filteredIds(pageTypeFilter, tags);
+      List<List<String>> clauses = query.clauses();
+      List<Map<Integer, Integer>> frequencies = new ArrayList<>();
+      for (List<String> clause : clauses) {
+        Map<Integer, Integer> clauseFrequencies = clause.size() == 1 ? termFrequencies(clause.get(0))
+          : phraseFrequencies(clause);
+        if (clauseFrequencies.isEmpty()) {
+          return hits;
+        }
+        frequencies.add(clauseFrequencies);
+      }
+      Map<Integer, Integer> smallest = Collections.min(frequencies, (a, b) -> Integer.compare(a.size(), b.size()));
+      Collection<Integer> ids = candidates == null || candidates.size() > smallest.size() ? smallest.keySet() : candidates;
+      double averageLength = pages.isEmpty() ? 1.0 : Math.max(1.0, (double) totalLength / pages.size());
+      for (Integer id : ids) {
+        if (candidates != null && !candidates.contains(id)) {
+          continue;
+        }
+        IndexedPage page = pages.get(id);
+        double score = 0.0;
+        for (int i = 0; i < clauses.size(); i++) {
+          Integer frequency = frequencies.get(i).get(id);
+          if (frequency == null) {
+            score = -1.0;
+            break;
+          }
+          score += clauseScore(clauses.get(i), frequency, frequencies.get(i).size(), page, averageLength);
+        }
+        if (score >= 0.0) {
+          hits.add(new Hit(page.path, page.name, score));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    hits.sort((a, b) -> {
+      int byScore = Double.compare(b.score, a.score);
+      return byScore != 0 ? byScore : a.path.compareTo(b.path);
+    });
+    return hits;
+  }
+
+  /**
+   * Case-insensitive page name query, answered from the page table without touching the wiki.
+   */
+  List<Hit> searchTitles(String query, SearchService.PageTypeFilter pageTypeFilter, List<String> tags) {
+    List<Hit> hits = new ArrayList<>();
+    String needle = query.toLowerCase(Locale.ROOT);
+    lock.readLock().lock();
+    try {
+      Collection<Integer> candidates = filteredIds(pageTypeFilter, tags);
+      Collection<Integer> ids = candidates == null ? pages.keySet() : candidates;
+      for (Integer id : ids) {
+        IndexedPage page = pages.get(id);
+        if (page.name.toLowerCase(Locale.ROOT).contains(needle)) {
+          hits.add(new Hit(page.path, page.name, 0.0));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    hits.sort((a, b) -> a.path.compareTo(b.path));
+    return hits;
+  }
+
+  /**
+   * Loads a previously saved index. Returns false if the file is missing or has an unknown format.
+   */
+  public boolean load(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return false;
+      }
+      Map<Integer, IndexedPage> loadedPages = new HashMap<>();
+      Map<Integer, List<String>> termsById = new HashMap<>();
+      int pageCount = in.readInt();
+      for (int i = 0; i < pageCount; i++) {
+        int id = in.readInt();
+        String path = in.readUTF();
+        String name = in.readUTF();
+        PageType type = PageType.values()[in.readByte()];
+        int length = in.readInt();
+        int signature = in.readInt();
+        int tagCount = in.readInt();
+        Set<String> tags = new LinkedHashSet<>();
+        for (int t = 0; t < tagCount; t++) {
+          tags.add(in.readUTF());
+        }
+        loadedPages.put(id, new IndexedPage(id, path, name, type, tags, length, signature, null));
+        termsById.put(id, new ArrayList<>());
+      }
+      Map<String, Map<Integer, int[]>> loadedPostings = new HashMap<>();
+      int termCount = in.readInt();
+      for (int i = 0; i < termCount; i++) {
+        String term = in.readUTF();
+        int documentFrequency = readVarInt(in);
+        Map<Integer, int[]> termPostings = new HashMap<>(documentFrequency * 2);
+        int id = 0;
+        for (int d = 0; d < documentFrequency; d++) {
+          id += readVarInt(in);
+          int[] positions = new int[readVarInt(in)];
+          int position = 0;
+          for (int p = 0; p < positions.length; p++) {
+            position += readVarInt(in);
+            positions[p] = position;
+          }
+          termPostings.put(id, positions);
+          termsById.get(id).add(term);
+        }
+        loadedPostings.put(term, termPostings);
+      }
+
+      lock.writeLock().lock();
+      try {
+        clear();
+        postings = loadedPostings;
+        for (String term : postings.keySet()) {
+          addTerm(term);
+        }
+        for (IndexedPage loaded : loadedPages.values()) {
+          IndexedPage page = new IndexedPage(loaded.id, loaded.path, loaded.name, loaded.type, loaded.tags,
+            loaded.length, loaded.signature, termsById.get(loaded.id).toArray(new String[0]));
+          registerPage(page);
+          nextId = Math.max(nextId, page.id + 1);
+        }
+        ready = true;
+        dirty = false;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      return true;
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Writes the index to disk (via a temporary file, so readers never see a partial index).
+   */
+  public void save(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    lock.readLock().lock();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(pages.size());
+      for (IndexedPage page : pages.values()) {
+        out.writeInt(page.id);
+        out.writeUTF(page.path);
+        out.writeUTF(page.name);
+        out.writeByte(page.type.ordinal());
+        out.writeInt(page.length);
+        out.writeInt(page.signature);
+        out.writeInt(page.tags.size());
+        for (String tag : page.tags) {
+          out.writeUTF(tag);
+        }
+      }
+      out.writeInt(postings.size());
+      for (Map.Entry<String, Map<Integer, int[]>> entry : postings.entrySet()) {
+        out.writeUTF(entry.getKey());
+        List<Integer> ids = new ArrayList<>(entry.getValue().keySet());
+        Collections.sort(ids);
+        writeVarInt(out, ids.size());
+        int previousId = 0;
+        for (Integer id : ids) {
+          writeVarInt(out, id - previousId);
+          previousId = id;
+          int[] positions = entry.getValue().get(id);
+          writeVarInt(out, positions.length);
+          int previousPosition = 0;
+          for (int position : positions) {
+            writeVarInt(out, position - previousPosition);
+            previousPosition = position;
+          }
+        }
+      }
+      dirty = false;
+    } finally {
+      lock.readLock().unlock();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Splits text into lower case alphanumeric terms.
+   */
+  static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null) {
+      return terms;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        if (i - start <= MAX_TERM_LENGTH) {
+          terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        }
+        start = -1;
+      }
+    }
+    return terms;
+  }
+
+  private void addPage(WikiPage page) {
+    addPage(page, pathOf(page), page.getData());
+  }
+
+  private void addPage(WikiPage page, String path, PageData data) {
+    List<String> tokens = tokenize(data.getContent());
+    Map<String, List<Integer>> positionsByTerm = new HashMap<>();
+    for (int position = 0; position < tokens.size(); position++) {
+      positionsByTerm.computeIfAbsent(tokens.get(position), t -> new ArrayList<>()).add(position);
+    }
+    int id = nextId++;
+    for (Map.Entry<String, List<Integer>> entry : positionsByTerm.entrySet()) {
+      List<Integer> positionList = entry.getValue();
+      int[] positions = new int[positionList.size()];
+      for (int i = 0; i < positions.length; i++) {
+        positions[i] = positionList.get(i);
+      }
+      postings.computeIfAbsent(entry.getKey(), term -> {
+        addTerm(term);
+        return new HashMap<>();
+      }).put(id, positions);
+    }
+    registerPage(new IndexedPage(id, path, page.getName(), typeOf(data), tagsOf(data), tokens.size(),
+      signatureOf(data), positionsByTerm.keySet().toArray(new String[0])));
+  }
+
+  private void registerPage(IndexedPage page) {
+    pages.put(page.id, page);
+    idsByPath.put(page.path, page.id);
+    idsByType.computeIfAbsent(page.type, t -> new HashSet<>()).add(page.id);
+    for (String tag : page.tags) {
+      idsByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(page.id);
+    }
+    totalLength += page.length;
+  }
+
+  private void removePage(String path) {
+    Integer id = idsByPath.remove(path);
+    if (id == null) {
+      return;
+    }
+    IndexedPage page = pages.remove(id);
+    for (String term : page.terms) {
+      Map<Integer, int[]> termPostings = postings.get(term);
+      if (termPostings != null) {
+        termPostings.remove(id);
+        if (termPostings.isEmpty()) {
+          postings.remove(term);
+          removeTerm(term);
+        }
+      }
+    }
+    removeFromSet(idsByType, page.type, id);
+    for (String tag : page.tags) {
+      removeFromSet(idsByTag, tag, id);
+    }
+    totalLength -= page.length;
+  }
+
+  private void addTerm(String term) {
+    if (term.length() < GRAM) {
+      shortTerms.add(term);
+    }
+    for (int i = 0; i + GRAM <= term.length(); i++) {
+      termsByTrigram.computeIfAbsent(term.substring(i, i + GRAM), t -> new HashSet<>()).add(term);
+    }
+  }
+
+  private void removeTerm(String term) {
+    shortTerms.remove(term);
+    for (int i = 0; i + GRAM <= term.length(); i++) {
+      removeFromSet(termsByTrigram, term.substring(i, i + GRAM), term);
+    }
+  }
+
+  private void removeTree(String path) {
+    String prefix = path + ".";
+    for (String indexed : new ArrayList<>(idsByPath.keySet())) {
+      if (indexed.equals(path) || (!path.isEmpty() && indexed.startsWith(prefix))) {
+        removePage(indexed);
+      }
+    }
+  }
+
+  /**
+   * Applies a change, and again to the new index once a running rebuild is done. Call with the write lock held;
+   * the change must not read pages.
+   */
+  private void change(Runnable change) {
+    change.run();
+    dirty = true;
+    if (changedWhileRebuilding != null) {
+      changedWhileRebuilding.add(change);
+    }
+  }
+
+  private static <K, V> void removeFromSet(Map<K, Set<V>> sets, K key, V value) {
+    Set<V> values = sets.get(key);
+    if (values != null) {
+      values.remove(value);
+      if (values.isEmpty()) {
+        sets.remove(key);
+      }
+    }
+  }
+
+  private void clear() {
+    postings = new HashMap<>();
+    termsByTrigram = new HashMap<>();
+    shortTerms = new HashSet<>();
+    pages = new HashMap<>();
+    idsByPath = new HashMap<>();
+    idsByTag = new HashMap<>();
+    idsByType = new HashMap<>();
+    totalLength = 0;
+    nextId = 0;
+  }
+
+  /**
+   * Returns the documents allowed by the filters, or null if no filter applies.
+   */
+  private Collection<Integer> filteredIds(SearchService.PageTypeFilter pageTypeFilter, List<String> tags) {
+    Set<Integer> result = null;
+    if (pageTypeFilter == SearchService.PageTypeFilter.SUITE || pageTypeFilter == SearchService.PageTypeFilter.TEST) {
+      PageType type = pageTypeFilter == SearchService.PageTypeFilter.SUITE ? PageType.SUITE : PageType.TEST;
+      result = new HashSet<>(idsByType.getOrDefault(type, Collections.emptySet()));
+    }
+    if (tags != null) {
+      for (String tag : tags) {
+        Set<Integer> tagged = idsByTag.getOrDefault(tag.toLowerCase(Locale.ROOT), Collections.emptySet());
+        if (result == null) {
+          result = new HashSet<>(tagged);
+        } else {
+          result.retainAll(tagged);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Occurrences per page of all indexed terms that contain the given term.
+   */
+  private Map<Integer, Integer> termFrequencies(String term) {
+    Map<Integer, Integer> result = new HashMap<>();
+    for (String indexed : termsContaining(term)) {
+      for (Map.Entry<Integer, int[]> posting : postings.get(indexed).entrySet()) {
+        result.merge(posting.getKey(), posting.getValue().length, Integer::sum);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Indexed terms that contain the given term: those sharing its rarest trigram, or for terms shorter than a
+   * trigram, those of the trigrams containing it and the short terms.
+   */
+  private Collection<String> termsContaining(String term) {
+    List<String> result = new ArrayList<>();
+    if (term.length() >= GRAM) {
+      Set<String> rarest = null;
+      for (int i = 0; i + GRAM <= term.length(); i++) {
+        Set<String> terms = termsByTrigram.get(term.substring(i, i + GRAM));
+        if (terms == null) {
+          return result;
+        }
+        if (rarest == null || terms.size() < rarest.size()) {
+          rarest = terms;
+        }
+      }
+      for (String candidate : rarest) {
+        if (candidate.contains(term)) {
+          result.add(candidate);
+        }
+      }
+      return result;
+    }
+    Set<String> found = new HashSet<>();
+    for (String shortTerm : shortTerms) {
+      if (shortTerm.contains(term)) {
+        found.add(shortTerm);
+      }
+    }
+    for (Map.Entry<String, Set<String>> entry : termsByTrigram.entrySet()) {
+      if (entry.getKey().contains(term)) {
+        found.addAll(entry.getValue());
+      }
+    }
+    result.addAll(found);
+    return result;
+  }
+
+  /**
+   * Occurrences per page of the terms on consecutive positions.
+   */
+  private Map<Integer, Integer> phraseFrequencies(List<String> clause) {
+    Map<Integer, Integer> result = new HashMap<>();
+    List<Map<Integer, int[]>> termPostings = new ArrayList<>();
+    for (String term : clause) {
+      Map<Integer, int[]> found = postings.get(term);
+      if (found == null) {
+        return result;
+      }
+      termPostings.add(found);
+    }
+    for (Map.Entry<Integer, int[]> first : termPostings.get(0).entrySet()) {
+      int matches = 0;
+      for (int start : first.getValue()) {
+        boolean match = true;
+        for (int i = 1; i < termPostings.size() && match; i++) {
+          int[] positions = termPostings.get(i).get(first.getKey());
+          match = positions != null && Arrays.binarySearch(positions, start + i) >= 0;
+        }
+        if (match) {
+          matches++;
+        }
+      }
+      if (matches > 0) {
+        result.put(first.getKey(), matches);
+      }
+    }
+    return result;
+  }
+
+  private double clauseScore(List<String> clause, int frequency, int documentFrequency, IndexedPage page,
+                             double averageLength) {
+    double idf = 0.0;
+    if (clause.size() == 1) {
+      idf = idf(documentFrequency);
+    } else {
+      for (String term : clause) {
+        idf += idf(postings.get(term).size());
+      }
+    }
+    double norm = K1 * (1.0 - B + B * page.length / averageLength);
+    double score = idf * (frequency * (K1 + 1.0)) / (frequency + norm);
+    if (page.name.toLowerCase(Locale.ROOT).contains(String.join("", clause))) {
+      score += TITLE_BOOST;
+    }
+    return score;
+  }
+
+  private double idf(int documentFrequency) {
+    return Math.log(1.0 + (pages.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+  }
+
+  private static String pathOf(WikiPage page) {
+    return page.getFullPath().toString();
+  }
+
+  private static PageType typeOf(PageData data) {
+    if (data.hasAttribute(PageType.SUITE.toString())) {
+      return PageType.SUITE;
+    }
+    if (data.hasAttribute(PageType.TEST.toString())) {
+      return PageType.TEST;
+    }
+    return PageType.STATIC;
+  }
+
+  private static Set<String> tagsOf(PageData data) {
+    Set<String> tags = new LinkedHashSet<>();
+    String rawTags = data.getAttribute(PageData.PropertySUITES);
+    if (rawTags == null) {
+      return tags;
+    }
+    for (String tag : rawTags.split(",")) {
+      String normalized = tag.trim().toLowerCase(Locale.ROOT);
+      if (!normalized.isEmpty()) {
+        tags.add(normalized);
+      }
+    }
+    return tags;
+  }
+
+  private static int signatureOf(PageData data) {
+    String content = data.getContent();
+    int result = content == null ? 0 : content.hashCode();
+    result = 31 * result + typeOf(data).ordinal();
+    result = 31 * result + tagsOf(data).hashCode();
+    return result;
+  }
+
+  private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
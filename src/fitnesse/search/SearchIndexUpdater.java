@@ -0,0 +1,107 @@
+package fitnesse.search;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeListener;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a {@link SearchIndex} in line with the page tree by applying page-change events,
+ * so only the pages that actually changed are re-indexed.
+ * <p>
+ * Events are applied on a thread of its own, in the order they were published, so saving a page does not wait
+ * for the index (which may be locked by a rebuild).
+ */
+public final class SearchIndexUpdater implements PageChangeListener, AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(SearchIndexUpdater.class.getName());
+
+  private final SearchIndex index;
+  private final WikiPage root;
+  private final Executor executor;
+
+  public SearchIndexUpdater(SearchIndex index, WikiPage root) {
+    this(index, root, Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "search index updater");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * @param executor applies the events; it must run them one at a time, in order.
+   */
+  SearchIndexUpdater(SearchIndex index, WikiPage root, Executor executor) {
+    this.index = index;
+    this.root = root;
+    this.executor = executor;
+  }
+
+  @Override
+  public void pageChanged(PageChangeEvent event) {
+    try {
+      executor.execute(() -> apply(event));
+    } catch (RejectedExecutionException e) {
+      // Closed.
+    }
+  }
+
+  /**
+   * Applies the events received so far and stops.
+   */
+  @Override
+  public void close() {
+    if (executor instanceof ExecutorService) {
+      ExecutorService service = (ExecutorService) executor;
+      service.shutdown();
+      try {
+        service.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void apply(PageChangeEvent event) {
+    try {
+      switch (event.type()) {
+        case CREATED:
+        case UPDATED:
+          WikiPage page = find(event.newPath());
+          if (page != null) {
+            index.update(page);
+          }
+          break;
+        case MOVED:
+          index.remove(event.oldPath());
+          WikiPage moved = find(event.newPath());
+          if (moved != null) {
+            index.updateTree(moved);
+          }
+          break;
+        case DELETED:
+          index.remove(event.oldPath());
+          break;
+        default:
+          break;
+      }
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Unable to update the search index for " + event.type() + " of "
+        + (event.newPath() != null ? event.newPath() : event.oldPath()), e);
+    }
+  }
+
+  private WikiPage find(String path) {
+    if (path == null || path.isEmpty()) {
+      return root;
+    }
+    return root.getPageCrawler().getPage(PathParser.parse(path));
+  }
+}
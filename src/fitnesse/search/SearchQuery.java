@@ -0,0 +1,70 @@
+package fitnesse.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parsed full-text query: a list of clauses that must all match.
+ * Unquoted words become single-term clauses, quoted text becomes a phrase clause.
+ */
+final class SearchQuery {
+  private final List<List<String>> clauses;
+
+  private SearchQuery(List<List<String>> clauses) {
+    this.clauses = clauses;
+  }
+
+  /**
+   * Parses raw user input. Text between double quotes is treated as a phrase.
+   */
+  static SearchQuery parse(String raw) {
+    List<List<String>> clauses = new ArrayList<>();
+    if (raw == null || raw.isEmpty()) {
+      return new SearchQuery(clauses);
+    }
+    boolean inPhrase = false;
+    StringBuilder segment = new StringBuilder();
+    for (int i = 0; i < raw.length(); i++) {
+      char ch = raw.charAt(i);
+      if (ch == '"') {
+        addSegment(clauses, segment.toString(), inPhrase);
+        segment.setLength(0);
+        inPhrase = !inPhrase;
+      } else {
+        segment.append(ch);
+      }
+    }
+    addSegment(clauses, segment.toString(), inPhrase);
+    return new SearchQuery(clauses);
+  }
+
+  private static void addSegment(List<List<String>> clauses, String segment, boolean phrase) {
+    List<String> terms = SearchIndex.tokenize(segment);
+    if (terms.isEmpty()) {
+      return;
+    }
+    if (phrase) {
+      clauses.add(terms);
+    } else {
+      for (String term : terms) {
+        clauses.add(Collections.singletonList(term));
+      }
+    }
+  }
+
+  boolean isEmpty() {
+    return clauses.isEmpty();
+  }
+
+  List<List<String>> clauses() {
+    return clauses;
+  }
+
+  /**
+   * Returns the first term of the query, used to position snippets.
+   */
+  String firstTerm() {
+    return clauses.isEmpty() ? null : clauses.get(0).get(0);
+  }
+}
@@ -3,6 +3,7 @@ package fitnesse.search;
 import fitnesse.components.TraversalListener;
 import fitnesse.wiki.PageData;
 import fitnesse.wiki.PageType;
+import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wiki.search.RegularExpressionWikiPageFinder;
 import fitnesse.wiki.search.TitleWikiPageFinder;
@@ -18,7 +19,8 @@ import static java.util.regex.Pattern.CASE_INSENSITIVE;
 import static java.util.regex.Pattern.LITERAL;
 
 /**
- * Provides in-memory search over the current wiki tree.
+ * Provides search over the current wiki tree. Queries are answered from a {@link SearchIndex} when one is
+ * available and ready; otherwise the tree is walked page by page.
  */
 public final class SearchService {
   /**
@@ -39,12 +41,21 @@ public final class SearchService {
   }
 
   private final WikiPage root;
+  private final SearchIndex index;
 
   /**
    * Creates a new SearchService anchored to the wiki root.
    */
   public SearchService(WikiPage root) {
+    this(root, null);
+  }
+
+  /**
+   * Creates a new SearchService that answers from the given index once it is ready.
+   */
+  public SearchService(WikiPage root, SearchIndex index) {
     this.root = root;
+    this.index = index;
   }
 
   /**
@@ -57,6 +68,9 @@ public final class SearchService {
     }
     int max = limit <= 0 ? 50 : limit;
     int skip = Math.max(0, offset);
+    if (index != null && index.isReady()) {
+      return searchIndex(query, mode, max, skip, tags, pageTypeFilter);
+    }
     int[] seen = new int[] { 0 };
     TraversalListener<WikiPage> listener = page -> {
       if (!matchesFilters(page, tags, pageTypeFilter)) {
@@ -82,6 +96,26 @@ public final class SearchService {
     return results;
   }
 
+  private List<SearchResult> searchIndex(String query, Mode mode, int max, int skip, List<String> tags,
+                                         PageTypeFilter pageTypeFilter) {
+    List<SearchResult> results = new ArrayList<>();
+    SearchQuery parsed = SearchQuery.parse(query);
+    List<SearchIndex.Hit> hits = mode == Mode.TITLE
+      ? index.searchTitles(query, pageTypeFilter, tags)
+      : index.search(parsed, pageTypeFilter, tags);
+    for (int i = skip; i < hits.size() && results.size() < max; i++) {
+      SearchIndex.Hit hit = hits.get(i);
+      if (mode == Mode.TITLE) {
+        results.add(new SearchResult(hit.path, hit.name));
+        continue;
+      }
+      WikiPage page = root.getPageCrawler().getPage(PathParser.parse(hit.path));
+      String snippet = page == null ? "" : buildSnippet(page, parsed.firstTerm(), mode);
+      results.add(new SearchResult(hit.path, snippet));
+    }
+    return results;
+  }
+
   private boolean matchesFilters(WikiPage page, List<String> tags, PageTypeFilter pageTypeFilter) {
     if (pageTypeFilter != null && pageTypeFilter != PageTypeFilter.ANY) {
       PageType pageType = PageType.fromWikiPage(page);
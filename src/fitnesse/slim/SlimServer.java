@@ -2,8 +2,7 @@
 // Released under the terms of the CPL Common Public License version 1.0.
 package fitnesse.slim;
 
-import fitnesse.slim.protocol.SlimDeserializer;
-import fitnesse.slim.protocol.SlimSerializer;
+import fitnesse.slim.protocol.SlimDecoder;
 import fitnesse.socketservice.SocketServer;
 import util.FileUtil;
 
@@ -65,24 +64,28 @@ public class SlimServer implements SocketServer {
   }
 
   private boolean processOneSetOfInstructions(SlimStreamReader reader, OutputStream writer, ListExecutor executor) throws IOException {
-    String instructions = reader.getSlimMessage();
+    CharSequence instructions = reader.readSlimMessage();
     // Not sure why this is need but we keep it.
     if (instructions == null) return true;
     // We are done Bye Bye message received
-    if (instructions.equalsIgnoreCase(SlimVersion.BYEMESSAGE)) {
+    if (isByeMessage(instructions)) {
       return false;
     }
 
     // Do some real work
-    String resultString = executeInstructions(executor, instructions);
-    SlimStreamReader.sendSlimMessage(writer, resultString);
+    List<Object> results = executeInstructions(executor, instructions);
+    SlimStreamReader.sendSlimMessage(writer, results);
     return true;
   }
 
-  private String executeInstructions(ListExecutor executor, String instructions) {
-    List<Object> statements = SlimDeserializer.deserialize(instructions);
-    List<Object> results = executor.execute(statements);
-    return SlimSerializer.serialize(results);
+  private static boolean isByeMessage(CharSequence instructions) {
+    return instructions.length() == SlimVersion.BYEMESSAGE.length()
+      && instructions.toString().equalsIgnoreCase(SlimVersion.BYEMESSAGE);
+  }
+
+  private List<Object> executeInstructions(ListExecutor executor, CharSequence instructions) {
+    List<Object> statements = SlimDecoder.decode(instructions);
+    return executor.execute(statements);
   }
 
 }
@@ -6,14 +6,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
+import fitnesse.slim.protocol.SlimEncoder;
 import util.FileUtil;
 import util.StreamReader;
 
 public class SlimStreamReader extends StreamReader {
+  private static final int READ_BUFFER_SIZE = 8192;
+
+  private final InputStream input;
 
   public SlimStreamReader(InputStream input) {
     super(input);
+    this.input = input;
   }
 
   public static void sendSlimMessage(OutputStream writer, String message) throws IOException {
@@ -24,6 +35,13 @@ public class SlimStreamReader extends StreamReader {
     writer.flush();
   }
 
+  /**
+   * Serializes the list directly onto the stream, see {@link SlimEncoder}.
+   */
+  public static void sendSlimMessage(OutputStream writer, List<?> message) throws IOException {
+    SlimEncoder.writeMessage(writer, message);
+  }
+
   public static void sendSlimHeader(OutputStream writer, String header) throws IOException {
     // The Header has no length information as prefix
     byte[] msgChars = header.getBytes(FileUtil.CHARENCODING);
@@ -57,6 +75,34 @@ public class SlimStreamReader extends StreamReader {
     return read(resultLength);
   }
 
+  /**
+   * Reads a message like {@link #getSlimMessage()}, but decodes the bytes while they arrive into a single
+   * character buffer, which can be parsed in place with {@link fitnesse.slim.protocol.SlimDecoder}.
+   */
+  public CharSequence readSlimMessage() throws IOException {
+    int remaining = getLengthToRead();
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer chars = CharBuffer.allocate(remaining);
+    ByteBuffer bytes = ByteBuffer.allocate(Math.min(remaining, READ_BUFFER_SIZE));
+    while (remaining > 0) {
+      int read = input.read(bytes.array(), bytes.position(), Math.min(bytes.remaining(), remaining));
+      if (read < 0)
+        throw new IOException("Stream Read Failure. EOF reached with " + remaining + " bytes of the message left to read.  Possibly test aborted.");
+      remaining -= read;
+      bytes.position(bytes.position() + read);
+      bytes.flip();
+      decoder.decode(bytes, chars, false);
+      bytes.compact();
+    }
+    bytes.flip();
+    decoder.decode(bytes, chars, true);
+    decoder.flush(chars);
+    chars.flip();
+    return chars;
+  }
+
   public static SlimStreamReader getReader(Socket socket) throws IOException {
     return new SlimStreamReader(new BufferedInputStream(socket.getInputStream()));
   }
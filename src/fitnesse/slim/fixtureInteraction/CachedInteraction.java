@@ -1,34 +1,72 @@
 package fitnesse.slim.fixtureInteraction;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.lang.reflect.Modifier;
 import java.util.Map;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the classes, constructors and methods found, and invokes methods through method handles.
+ * <p>
+ * All caches are safe for concurrent use. Constructors and methods are cached per class and number of arguments,
+ * so lookups do not allocate keys. Interactions created with {@code shareMembers} share the constructors and methods
+ * they found with all other instances of the same interaction class in the process; class names are always resolved
+ * per interaction, as they depend on the class loader.
+ */
 public class CachedInteraction extends SimpleInteraction {
   private static final Constructor<?> noConstructor = NotExisting.class.getConstructors()[0];
   private static final Method noMethod = NotExisting.class.getDeclaredMethods()[0];
 
-  private final Map<String, Constructor<?>> constructorsByClassAndArgs = new HashMap<>();
-  private final Map<String, Class<?>> classCache = new HashMap<>();
-  private final Map<MethodKey, Method> methodsByNameAndArgs = new HashMap<>();
+  private static final ClassValue<MemberCache> sharedMembers = new ClassValue<MemberCache>() {
+    @Override
+    protected MemberCache computeValue(Class<?> interactionClass) {
+      return new MemberCache();
+    }
+  };
+
+  private static final ClassValue<Map<Method, Invoker>> invokersByDeclaringClass = new ClassValue<Map<Method, Invoker>>() {
+    @Override
+    protected Map<Method, Invoker> computeValue(Class<?> declaringClass) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  private final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
+  private final MemberCache members;
+
+  public CachedInteraction() {
+    this(false);
+  }
+
+  /**
+   * @param shareMembers share constructors and methods found with other instances of the same class. Only
+   *                     subclasses that always find the same constructors and methods for a class may do so.
+   */
+  protected CachedInteraction(boolean shareMembers) {
+    members = shareMembers ? sharedMembers.get(getClass()) : new MemberCache();
+  }
 
   @Override
   protected Constructor<?> getConstructor(Class<?> clazz, Object[] args) {
-    String key = getConstructorKey(clazz, args);
-    Constructor<?> cached = constructorsByClassAndArgs.get(key);
+    Map<Integer, Constructor<?>> constructors = members.of(clazz).constructorsByArgs;
+    Constructor<?> cached = constructors.get(args.length);
     if (cached == noConstructor) return null;
     if (cached != null) return cached;
 
     Constructor<?> constructor = handleConstructorCacheMiss(clazz, args);
-    if (constructor == null) {
-      constructorsByClassAndArgs.put(key, noConstructor);
-    } else {
-      constructorsByClassAndArgs.put(key, constructor);
-    }
+    constructors.put(args.length, constructor == null ? noConstructor : constructor);
     return constructor;
   }
 
+  /**
+   * @deprecated constructors are cached per class and number of arguments, the key is no longer used and
+   * overriding this method has no effect.
+   */
+  @Deprecated
   protected String getConstructorKey(Class<?> clazz, Object[] args) {
     return clazz.getName()+ "_" + args.length;
   }
@@ -40,28 +78,23 @@ public class CachedInteraction extends SimpleInteraction {
     if (cached != null) return cached;
 
     Class<?> k = handleClassCacheMiss(className);
-    if (k == null) {
-      classCache.put(className, NotExisting.class);
-    } else {
-      classCache.put(className, k);
-    }
+    classCache.put(className, k == null ? NotExisting.class : k);
     return k;
   }
 
   @Override
   protected Method findMatchingMethod(String methodName, Object instance, Object... args) {
-    MethodKey key = new MethodKey(instance.getClass(), methodName, args.length);
-    Method cached = methodsByNameAndArgs.get(key);
+    Map<String, Map<Integer, Method>> methodsByName = members.of(instance.getClass()).methodsByNameAndArgs;
+    Map<Integer, Method> methods = methodsByName.get(methodName);
+    if (methods == null) {
+      methods = methodsByName.computeIfAbsent(methodName, name -> new ConcurrentHashMap<>());
+    }
+    Method cached = methods.get(args.length);
     if (cached == noMethod) return null;
     if (cached != null) return cached;
 
     Method method = handleMethodCacheMiss(methodName, instance, args);
-
-    if (method == null) {
-      methodsByNameAndArgs.put(key, noMethod);
-    } else {
-      methodsByNameAndArgs.put(key, method);
-    }
+    methods.put(args.length, method == null ? noMethod : method);
     return method;
   }
 
@@ -77,34 +110,93 @@ public class CachedInteraction extends SimpleInteraction {
     return super.findMatchingMethod(methodName, instance, args);
   }
 
-  private static final class MethodKey {
-    private final String k;
-    private final String method;
-    private final int nArgs;
-
-    public MethodKey(Class<?> k, String method, int nArgs) {
-      this.k = k.getName();
-      this.method = method;
-      this.nArgs = nArgs;
+  /**
+   * Invokes through a cached method handle. Calls a handle cannot make, or would fail on because of the arguments,
+   * go through reflection, so they fail the same way as without cache.
+   */
+  @Override
+  public Object methodInvoke(Method method, Object instance, Object... convertedArgs) throws Throwable {
+    Map<Method, Invoker> invokers = invokersByDeclaringClass.get(method.getDeclaringClass());
+    Invoker invoker = invokers.get(method);
+    if (invoker == null) {
+      invoker = invokers.computeIfAbsent(method, Invoker::new);
     }
+    if (!invoker.accepts(instance, convertedArgs)) {
+      return super.methodInvoke(method, instance, convertedArgs);
+    }
+    return (Object) invoker.handle.invokeExact(instance, convertedArgs);
+  }
 
-    @Override
-    public int hashCode() {
-      int result = k.hashCode();
-      result = 31 * result + method.hashCode();
-      result = 31 * result + nArgs;
-      return result;
+  /**
+   * Constructors and methods found, per class and number of arguments.
+   */
+  private static final class MemberCache {
+    private final ClassValue<Members> membersByClass = new ClassValue<Members>() {
+      @Override
+      protected Members computeValue(Class<?> clazz) {
+        return new Members();
+      }
+    };
+
+    private Members of(Class<?> clazz) {
+      return membersByClass.get(clazz);
     }
+  }
 
-    @Override
-    public boolean equals(Object o) {
-      if (o == null || getClass() != o.getClass()) return false;
+  private static final class Members {
+    private final Map<Integer, Constructor<?>> constructorsByArgs = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, Method>> methodsByNameAndArgs = new ConcurrentHashMap<>();
+  }
 
-      MethodKey methodKey = (MethodKey) o;
+  /**
+   * A method handle of type (Object, Object[])Object, taking the instance and the arguments, with what the
+   * arguments must be for the handle to behave like reflection.
+   */
+  private static final class Invoker {
+    private final Class<?> declaringClass;
+    private final boolean isStatic;
+    private final Class<?>[] argumentTypes;
+    private final boolean[] required;
+    private final MethodHandle handle;
+
+    private Invoker(Method method) {
+      declaringClass = method.getDeclaringClass();
+      isStatic = Modifier.isStatic(method.getModifiers());
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      argumentTypes = new Class<?>[parameterTypes.length];
+      required = new boolean[parameterTypes.length];
+      for (int i = 0; i < parameterTypes.length; i++) {
+        argumentTypes[i] = MethodType.methodType(parameterTypes[i]).wrap().returnType();
+        required[i] = parameterTypes[i].isPrimitive();
+      }
+      handle = createHandle(method, parameterTypes.length);
+    }
+
+    private static MethodHandle createHandle(Method method, int parameterCount) {
+      try {
+        MethodHandle handle = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+        if (Modifier.isStatic(method.getModifiers())) {
+          handle = MethodHandles.dropArguments(handle.asType(MethodType.genericMethodType(parameterCount)), 0, Object.class);
+        } else {
+          handle = handle.asType(MethodType.genericMethodType(parameterCount + 1));
+        }
+        return handle.asSpreader(Object[].class, parameterCount);
+      } catch (IllegalAccessException | RuntimeException e) {
+        return null;
+      }
+    }
 
-      if (nArgs != methodKey.nArgs) return false;
-      if (!k.equals(methodKey.k)) return false;
-      return method.equals(methodKey.method);
+    private boolean accepts(Object instance, Object[] args) {
+      if (handle == null || args == null || args.length != argumentTypes.length
+        || !isStatic && !declaringClass.isInstance(instance)) {
+        return false;
+      }
+      for (int i = 0; i < args.length; i++) {
+        if (args[i] == null ? required[i] : !argumentTypes[i].isInstance(args[i])) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
@@ -1,4 +1,7 @@
 package fitnesse.slim.fixtureInteraction;
 
 public class DefaultInteraction extends CachedInteraction {
+  public DefaultInteraction() {
+    super(true);
+  }
 }
@@ -0,0 +1,100 @@
+package fitnesse.slim.protocol;
+
+import fitnesse.slim.SlimVersion;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the format of {@link SlimSerializer} with the same results as {@link SlimDeserializer}, but in place:
+ * nested lists are parsed within the enclosing text instead of being copied out first, so only the leaf
+ * strings are allocated.
+ */
+public final class SlimDecoder {
+  private final CharSequence text;
+  private int index;
+
+  private SlimDecoder(CharSequence text) {
+    this.text = text;
+  }
+
+  public static List<Object> decode(CharSequence serialized) {
+    if (serialized == null)
+      throw new SyntaxError("Can't deserialize null");
+    if (serialized.length() == 0)
+      throw new SyntaxError("Can't deserialize empty string");
+    try {
+      return new SlimDecoder(serialized).readList(serialized.length());
+    } catch (Exception e) {
+      throw new SyntaxError(e);
+    }
+  }
+
+  private List<Object> readList(int end) {
+    if (nextChar(end) != '[')
+      throw new SyntaxError("Serialized list has no starting [");
+
+    int itemCount = readLength(end);
+    List<Object> result = new ArrayList<>(Math.min(itemCount, end - index));
+    for (int i = 0; i < itemCount; i++) {
+      int itemLength = readLength(end);
+      int start = index;
+      if (itemLength < 0 || itemLength > end - start)
+        throw new SyntaxError("String in serialized list is longer than the list.");
+      index = start + itemLength;
+      checkForColon("String", end);
+      result.add(readItem(start, start + itemLength));
+    }
+
+    if (index >= end || text.charAt(index++) != ']')
+      throw new SyntaxError("Serialized list has no ending ]");
+    return result;
+  }
+
+  private Object readItem(int start, int end) {
+    if (start < end && text.charAt(start) == '[') {
+      int next = index;
+      index = start;
+      try {
+        return readList(end);
+      } catch (RuntimeException e) {
+        // not a list after all, keep it as text
+      } finally {
+        index = next;
+      }
+    }
+    return text.subSequence(start, end).toString();
+  }
+
+  private int readLength(int end) {
+    int digitsEnd = index + SlimVersion.MINIMUM_NUMBER_LENGTH;
+    if (digitsEnd > end)
+      throw new SyntaxError("Length in serialized list is truncated.");
+    int length = Integer.parseInt(text, index, digitsEnd, 10);
+    index = digitsEnd;
+
+    char next;
+    while (Character.isDigit(next = charAt(index, end))) {
+      length = length * 10 + Character.digit(next, 10);
+      index++;
+    }
+
+    checkForColon("Length", end);
+    return length;
+  }
+
+  private void checkForColon(String itemType, int end) {
+    if (nextChar(end) != ':')
+      throw new SyntaxError(itemType + " in serialized list not terminated by colon.");
+  }
+
+  private char nextChar(int end) {
+    return charAt(index++, end);
+  }
+
+  private char charAt(int i, int end) {
+    if (i >= end)
+      throw new SyntaxError("Unexpected end of serialized list.");
+    return text.charAt(i);
+  }
+}
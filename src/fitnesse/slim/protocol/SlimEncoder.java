@@ -0,0 +1,208 @@
+package fitnesse.slim.protocol;
+
+import fitnesse.slim.SlimVersion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes lists in the format of {@link SlimSerializer} straight to an output stream, without building the
+ * serialized text in memory first. The bytes written are identical to encoding the output of
+ * {@link SlimSerializer#serialize(List)} as UTF-8.
+ * <p>
+ * Item lengths in the format count characters, while the message length prefix counts bytes. Both are
+ * determined in a first pass over the list; the second pass encodes the text through a small buffer.
+ */
+public final class SlimEncoder {
+  private static final int BUFFER_SIZE = 8192;
+
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final OutputStream out;
+  private int position;
+
+  // Character lengths of all (nested) lists, in the order they are written.
+  private int[] listLengths = new int[16];
+  private int listCount;
+  private int listIndex;
+  // String values of items that are neither strings nor lists, in the order they are written.
+  private final List<String> converted = new ArrayList<>();
+  private int convertedIndex;
+  private long extraBytes;
+
+  private SlimEncoder(OutputStream out) {
+    this.out = out;
+  }
+
+  /**
+   * Writes the list as a Slim message: the byte length of the serialized list, followed by the list.
+   */
+  public static void writeMessage(OutputStream out, List<?> list) throws IOException {
+    SlimEncoder encoder = new SlimEncoder(out);
+    long charLength = encoder.measure(list);
+    encoder.writeLength(charLength + encoder.extraBytes);
+    encoder.writeList(list);
+    encoder.flush();
+  }
+
+  /**
+   * Writes the serialized list, without a length prefix.
+   */
+  public static void write(OutputStream out, List<?> list) throws IOException {
+    SlimEncoder encoder = new SlimEncoder(out);
+    encoder.measure(list);
+    encoder.writeList(list);
+    encoder.flush();
+  }
+
+  private int measure(List<?> list) {
+    int slot = listCount++;
+    if (slot == listLengths.length) {
+      int[] grown = new int[slot * 2];
+      System.arraycopy(listLengths, 0, grown, 0, slot);
+      listLengths = grown;
+    }
+    long length = 2 + lengthWidth(list.size());
+    for (Object item : list) {
+      long itemLength;
+      if (item instanceof List) {
+        itemLength = measure((List<?>) item);
+      } else {
+        String s = item instanceof String ? (String) item : convert(item);
+        itemLength = s.length();
+        extraBytes += extraUtf8Bytes(s);
+      }
+      length += lengthWidth(itemLength) + itemLength + 1;
+    }
+    if (length > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Serialized list is too long: " + length + " characters");
+    }
+    listLengths[slot] = (int) length;
+    return (int) length;
+  }
+
+  private String convert(Object item) {
+    String s = item == null ? "null" : item.toString();
+    converted.add(s);
+    return s;
+  }
+
+  private void writeList(List<?> list) throws IOException {
+    listIndex++;
+    put('[');
+    writeLength(list.size());
+    for (Object item : list) {
+      if (item instanceof List) {
+        writeLength(listLengths[listIndex]);
+        writeList((List<?>) item);
+      } else {
+        String s = item instanceof String ? (String) item : converted.get(convertedIndex++);
+        writeLength(s.length());
+        writeString(s);
+      }
+      put(':');
+    }
+    put(']');
+  }
+
+  private static int lengthWidth(long length) {
+    int digits = 1;
+    for (long rest = length / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    return Math.max(digits, SlimVersion.MINIMUM_NUMBER_LENGTH) + 1;
+  }
+
+  /** Writes the length like {@link SlimVersion#LENGTH_FORMAT}: zero padded, followed by a colon. */
+  private void writeLength(long length) throws IOException {
+    int width = lengthWidth(length) - 1;
+    ensureCapacity(width + 1);
+    long rest = length;
+    for (int i = position + width - 1; i >= position; i--) {
+      buffer[i] = (byte) ('0' + rest % 10);
+      rest /= 10;
+    }
+    position += width;
+    buffer[position++] = ':';
+  }
+
+  /** Encodes like {@code String.getBytes(UTF_8)}, including '?' for unpaired surrogates. */
+  private void writeString(String s) throws IOException {
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        if (position == BUFFER_SIZE) {
+          drain();
+        }
+        buffer[position++] = (byte) c;
+      } else if (c < 0x800) {
+        ensureCapacity(2);
+        buffer[position++] = (byte) (0xC0 | (c >> 6));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+          int codePoint = Character.toCodePoint(c, s.charAt(++i));
+          ensureCapacity(4);
+          buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+          buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+          put('?');
+        }
+      } else {
+        ensureCapacity(3);
+        buffer[position++] = (byte) (0xE0 | (c >> 12));
+        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+  }
+
+  private static long extraUtf8Bytes(String s) {
+    long extra = 0;
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c < 0x80) {
+        continue;
+      }
+      if (c < 0x800) {
+        extra += 1;
+      } else if (Character.isSurrogate(c)) {
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+          extra += 2;
+          i++;
+        }
+      } else {
+        extra += 2;
+      }
+    }
+    return extra;
+  }
+
+  private void put(char c) throws IOException {
+    if (position == BUFFER_SIZE) {
+      drain();
+    }
+    buffer[position++] = (byte) c;
+  }
+
+  private void ensureCapacity(int bytes) throws IOException {
+    if (position + bytes > BUFFER_SIZE) {
+      drain();
+    }
+  }
+
+  private void drain() throws IOException {
+    out.write(buffer, 0, position);
+    position = 0;
+  }
+
+  private void flush() throws IOException {
+    drain();
+    out.flush();
+  }
+}
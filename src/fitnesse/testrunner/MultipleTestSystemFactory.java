@@ -71,6 +71,7 @@ public class MultipleTestSystemFactory implements TestSystemFactory, TestSystemF
       SlimCommandRunningClient slimClient = clientBuilder.build();
       HtmlSlimTestSystem testSystem = new HtmlSlimTestSystem(clientBuilder.getTestSystemName(), slimClient,
               slimTableFactory.copy(), customComparatorRegistry);
+      testSystem.setPhaseTimers(descriptor.getPhaseTimers());
 
       return testSystem;
     }
@@ -94,6 +95,7 @@ public class MultipleTestSystemFactory implements TestSystemFactory, TestSystemF
       SlimClient slimClient = clientBuilder.build();
       HtmlSlimTestSystem testSystem = new HtmlSlimTestSystem(clientBuilder.getTestSystemName(), slimClient,
               slimTableFactory.copy(), customComparatorRegistry);
+      testSystem.setPhaseTimers(descriptor.getPhaseTimers());
 
       return testSystem;
     }
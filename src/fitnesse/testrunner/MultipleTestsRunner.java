@@ -10,6 +10,8 @@ import fitnesse.testsystems.CompositeExecutionLogListener;
 import fitnesse.testsystems.Descriptor;
 import fitnesse.testsystems.ExceptionResult;
 import fitnesse.testsystems.ExecutionLogListener;
+import fitnesse.testsystems.PhaseTimers;
+import fitnesse.testsystems.PhaseTimers.Phase;
 import fitnesse.testsystems.TestExecutionException;
 import fitnesse.testsystems.TestPage;
 import fitnesse.testsystems.TestResult;
@@ -18,11 +20,14 @@ import fitnesse.testsystems.TestSystem;
 import fitnesse.testsystems.TestSystemFactory;
 import fitnesse.testsystems.TestSystemListener;
 import fitnesse.testsystems.slim.TestingInterruptedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import util.FileUtil;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
 
 public class MultipleTestsRunner implements Stoppable {
   private final TestRun run;
@@ -35,6 +40,8 @@ public class MultipleTestsRunner implements Stoppable {
 
   private boolean runInProcess;
   private boolean enableRemoteDebug;
+  private String suiteName = "";
+  private MeterRegistry meterRegistry = Metrics.globalRegistry;
 
   private final AtomicInteger testsInProgressCount = new AtomicInteger();
 
@@ -53,6 +60,17 @@ public class MultipleTestsRunner implements Stoppable {
     this.enableRemoteDebug = enableRemoteDebug;
   }
 
+  /**
+   * Name of the page being run, used to tag the phase timers.
+   */
+  public void setSuiteName(String suiteName) {
+    this.suiteName = suiteName;
+  }
+
+  public void setMeterRegistry(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
   public void addTestSystemListener(TestSystemListener listener) {
     this.formatters.addTestSystemListener(listener);
   }
@@ -106,6 +124,13 @@ public class MultipleTestsRunner implements Stoppable {
 
     @Override
     public TestSystem startTestSystem(final WikiPageIdentity identity, final List<TestPage> testPages) {
+      return startTestSystem(identity, testPages, UnaryOperator.identity());
+    }
+
+    @Override
+    public TestSystem startTestSystem(final WikiPageIdentity identity, final List<TestPage> testPages,
+                                      final UnaryOperator<TestSystemListener> listenerDecorator) {
+      final PhaseTimers phaseTimers = new PhaseTimers(meterRegistry, identity.testSystem(), suiteName);
       Descriptor descriptor = new Descriptor() {
         private ClassPath classPath;
 
@@ -150,14 +175,21 @@ public class MultipleTestsRunner implements Stoppable {
         public ExecutionLogListener getExecutionLogListener() {
           return executionLogListener;
         }
+
+        @Override
+        public PhaseTimers getPhaseTimers() {
+          return phaseTimers;
+        }
       };
 
-      InternalTestSystemListener internalTestSystemListener = new InternalTestSystemListener();
+      TestSystemListener internalTestSystemListener = listenerDecorator.apply(new InternalTestSystemListener(phaseTimers));
       try {
         TestSystem testSystem = testSystemFactory.create(descriptor);
 
         testSystem.addTestSystemListener(internalTestSystemListener);
+        long start = phaseTimers.start();
         testSystem.start();
+        phaseTimers.stop(Phase.START, start);
         return testSystem;
       } catch (Exception e) {
         formatters.unableToStartTestSystem(descriptor.getTestSystem(), e);
@@ -184,30 +216,46 @@ public class MultipleTestsRunner implements Stoppable {
   }
 
   private class InternalTestSystemListener implements TestSystemListener {
+    private final PhaseTimers phaseTimers;
+
+    private InternalTestSystemListener(PhaseTimers phaseTimers) {
+      this.phaseTimers = phaseTimers;
+    }
+
     @Override
     public void testSystemStarted(TestSystem testSystem) {
+      long start = phaseTimers.start();
       formatters.testSystemStarted(testSystem);
+      phaseTimers.stop(Phase.FORMATTER, start);
     }
 
     @Override
     public void testOutputChunk(TestPage testPage, String output) {
+      long start = phaseTimers.start();
       formatters.testOutputChunk(testPage, output);
+      phaseTimers.stop(Phase.FORMATTER, start);
     }
 
     @Override
     public void testStarted(TestPage testPage) {
+      long start = phaseTimers.start();
       formatters.testStarted(testPage);
+      phaseTimers.stop(Phase.FORMATTER, start);
     }
 
     @Override
     public void testComplete(TestPage testPage, TestSummary testSummary) {
+      long start = phaseTimers.start();
       formatters.testComplete(testPage, testSummary);
+      phaseTimers.stop(Phase.FORMATTER, start);
       testsInProgressCount.getAndDecrement();
     }
 
     @Override
     public void testSystemStopped(TestSystem testSystem, Throwable cause) {
+      long start = phaseTimers.start();
       formatters.testSystemStopped(testSystem, cause);
+      phaseTimers.stop(Phase.FORMATTER, start);
 
       if (cause != null) {
         executionLogListener.exceptionOccurred(cause);
@@ -217,12 +265,16 @@ public class MultipleTestsRunner implements Stoppable {
 
     @Override
     public void testAssertionVerified(Assertion assertion, TestResult testResult) {
+      long start = phaseTimers.start();
       formatters.testAssertionVerified(assertion, testResult);
+      phaseTimers.stop(Phase.FORMATTER, start);
     }
 
     @Override
     public void testExceptionOccurred(Assertion assertion, ExceptionResult exceptionResult) {
+      long start = phaseTimers.start();
       formatters.testExceptionOccurred(assertion, exceptionResult);
+      phaseTimers.stop(Phase.FORMATTER, start);
     }
   }
 
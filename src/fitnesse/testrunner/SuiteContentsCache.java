@@ -0,0 +1,116 @@
+package fitnesse.testrunner;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeEvents;
+import fitnesse.wiki.PageChangeListener;
+import fitnesse.wiki.PageCrawler;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPagePath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the pages found for a suite and filter, by path, until a page of the wiki changes.
+ * <p>
+ * Pages are looked up again from the root page of the caller, so each request gets pages of its own page tree.
+ * Pages edited outside of FitNesse raise no page change events, which is why the cache is off unless
+ * {@code SuiteContents.cache} is set.
+ * <p>
+ * Created with {@link #start()}, which has it follow page changes until {@link #close()}.
+ */
+public class SuiteContentsCache implements PageChangeListener, AutoCloseable {
+  private static final int MAX_ENTRIES = 256;
+
+  private final AtomicLong treeVersion = new AtomicLong();
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private SuiteContentsCache() {
+  }
+
+  /**
+   * Creates a cache that follows page changes.
+   */
+  public static SuiteContentsCache start() {
+    SuiteContentsCache cache = new SuiteContentsCache();
+    PageChangeEvents.addListener(cache);
+    return cache;
+  }
+
+  @Override
+  public void pageChanged(PageChangeEvent event) {
+    treeVersion.incrementAndGet();
+  }
+
+  /**
+   * @return the version of the page tree, to pass to {@link #put} with the pages found.
+   */
+  long treeVersion() {
+    return treeVersion.get();
+  }
+
+  /**
+   * @return the pages found before, or null when not found yet, when the tree changed since, or when a page can not
+   * be found any more.
+   */
+  List<WikiPage> get(WikiPage pageToRun, SuiteFilter suiteFilter, WikiPage root) {
+    String key = key(pageToRun, suiteFilter);
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.treeVersion != treeVersion.get()) {
+      entries.remove(key, entry);
+      return null;
+    }
+    PageCrawler crawler = root.getPageCrawler();
+    List<WikiPage> pages = new ArrayList<>(entry.paths.size());
+    for (WikiPagePath path : entry.paths) {
+      WikiPage page = crawler.getPage(path);
+      if (page == null) {
+        entries.remove(key, entry);
+        return null;
+      }
+      pages.add(page);
+    }
+    return pages;
+  }
+
+  void put(WikiPage pageToRun, SuiteFilter suiteFilter, List<WikiPage> pages, long treeVersion) {
+    List<WikiPagePath> paths = new ArrayList<>(pages.size());
+    for (WikiPage page : pages) {
+      paths.add(page.getFullPath());
+    }
+    if (entries.size() >= MAX_ENTRIES) {
+      entries.clear();
+    }
+    entries.put(key(pageToRun, suiteFilter), new Entry(paths, treeVersion));
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  @Override
+  public void close() {
+    PageChangeEvents.removeListener(this);
+    entries.clear();
+  }
+
+  private static String key(WikiPage pageToRun, SuiteFilter suiteFilter) {
+    return pageToRun.getFullPath() + "\n" + suiteFilter.hasMatchingTests() + "\n" + suiteFilter;
+  }
+
+  private static final class Entry {
+    private final List<WikiPagePath> paths;
+    private final long treeVersion;
+
+    private Entry(List<WikiPagePath> paths, long treeVersion) {
+      this.paths = paths;
+      this.treeVersion = treeVersion;
+    }
+  }
+}
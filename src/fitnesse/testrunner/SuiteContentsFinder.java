@@ -3,87 +3,206 @@
 package fitnesse.testrunner;
 
 import fitnesse.wiki.PageCrawler;
+import fitnesse.wiki.PageData;
 import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wiki.WikiPagePath;
 import fitnesse.wiki.WikiPageProperty;
 import fitnesse.wiki.WikiPageUtil;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-
+import java.util.regex.Pattern;
+
+/**
+ * Finds the pages to run for a suite.
+ * <p>
+ * The page tree is walked in parallel on a pool of its own, one fork/join task per page with children, deciding from
+ * the properties of the pages only. The suite page is rendered only when its wiki text may hold a suite specification
+ * table, and pages are parsed for cross references only when they may have any.
+ */
 public class SuiteContentsFinder {
   private static final Logger LOG = Logger.getLogger(SuiteContentsFinder.class.getName());
 
+  private static final Pattern SUITE_CELL = Pattern.compile("\\|\\s*(?:!-)?Suite\\s*(?:-!)?\\s*\\|");
+  private static final String XREF = "!see";
+  private static final String[] GENERATED_CONTENT = { "!include", "${" };
+  // Reading pages blocks on the file system, so use more threads than cores and keep them out of the common pool.
+  private static final ForkJoinPool FINDER_POOL = new ForkJoinPool(
+    Math.max(4, 4 * Runtime.getRuntime().availableProcessors()),
+    pool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("fitnesse-suite-finder-" + thread.getPoolIndex());
+      thread.setDaemon(true);
+      return thread;
+    }, null, false);
+
   private final WikiPage pageToRun;
   private final WikiPage wikiRootPage;
   private final SuiteFilter suiteFilter;
+  private final SuiteContentsCache cache;
 
   public SuiteContentsFinder(final WikiPage pageToRun, final SuiteFilter suiteFilter, WikiPage root) {
+    this(pageToRun, suiteFilter, root, null);
+  }
+
+  /**
+   * @param cache pages found before for the same suite and filter, or null to always search.
+   */
+  public SuiteContentsFinder(final WikiPage pageToRun, final SuiteFilter suiteFilter, WikiPage root, SuiteContentsCache cache) {
     this.pageToRun = pageToRun;
     wikiRootPage = root;
     this.suiteFilter = (suiteFilter != null) ? suiteFilter : SuiteFilter.MATCH_ALL;
+    this.cache = cache;
   }
 
   public List<WikiPage> getAllPagesToRunForThisSuite() {
-    List<WikiPage> testPageList = new LinkedList<>();
-    String content = pageToRun.getHtml();
-    if (SuiteSpecificationRunner.isASuiteSpecificationsPage(content)) {
-      SuiteSpecificationRunner runner = new SuiteSpecificationRunner(wikiRootPage);
-      if (runner.getPageListFromPageContent(content))
-        testPageList = runner.testPages();
-    } else {
+    if (cache == null) {
+      return findAllPagesToRunForThisSuite();
+    }
+    List<WikiPage> testPageList = cache.get(pageToRun, suiteFilter, wikiRootPage);
+    if (testPageList == null) {
+      long treeVersion = cache.treeVersion();
+      testPageList = findAllPagesToRunForThisSuite();
+      cache.put(pageToRun, suiteFilter, testPageList, treeVersion);
+    }
+    return testPageList;
+  }
+
+  private List<WikiPage> findAllPagesToRunForThisSuite() {
+    List<WikiPage> testPageList = null;
+    if (maySpecifySuite(pageToRun.getData().getContent())) {
+      String content = pageToRun.getHtml();
+      if (SuiteSpecificationRunner.isASuiteSpecificationsPage(content)) {
+        SuiteSpecificationRunner runner = new SuiteSpecificationRunner(wikiRootPage);
+        testPageList = runner.getPageListFromPageContent(content) ? runner.testPages() : new ArrayList<>();
+      }
+    }
+    if (testPageList == null) {
       testPageList = getAllTestPagesUnder();
     }
     return testPageList;
   }
 
-  private List<WikiPage> getAllTestPagesUnder() {
-    List<WikiPage> testPages = addTestPagesToSuite(pageToRun, suiteFilter);
+  static boolean maySpecifySuite(String content) {
+    return content != null && (SUITE_CELL.matcher(content).find() || mayGenerateContent(content));
+  }
 
-    testPages.sort((p1, p2) -> {
-      try {
-        WikiPagePath path1 = p1.getFullPath();
-        WikiPagePath path2 = p2.getFullPath();
+  private static boolean mayHaveXrefs(String content) {
+    return content != null && (content.contains(XREF) || mayGenerateContent(content));
+  }
 
-        return path1.compareTo(path2);
-      } catch (Exception e) {
-        LOG.log(Level.WARNING, "Unable to compare " + p1 + " and " + p2, e);
-        return 0;
+  private static boolean mayGenerateContent(String content) {
+    for (String generated : GENERATED_CONTENT) {
+      if (content.contains(generated)) {
+        return true;
       }
-    });
+    }
+    return false;
+  }
 
-    return testPages;
+  private List<WikiPage> getAllTestPagesUnder() {
+    List<WikiPage> testPages = FINDER_POOL.invoke(new FindTestPages(pageToRun, suiteFilter));
+    return sortByPath(testPages);
   }
 
-  private List<WikiPage> addTestPagesToSuite(WikiPage page, SuiteFilter suiteFilter) {
-    List<WikiPage> testPages = new LinkedList<>();
-    boolean includePage = isTopPage(page) || !isPruned(page);
-    if (suiteFilter.isMatchingTest(page) && includePage) {
-      testPages.add(page);
+  /**
+   * Sorts the pages by their full path, keeping the order of pages with the same path. Paths are compared the way
+   * {@link WikiPagePath#compareTo(Object)} does, but worked out once per page instead of for every comparison.
+   */
+  private static List<WikiPage> sortByPath(List<WikiPage> pages) {
+    PageWithPath[] sorted = new PageWithPath[pages.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = new PageWithPath(pages.get(i));
     }
-    addXrefPages(testPages, page);
+    Arrays.sort(sorted, Comparator.comparing(page -> page.path));
+    List<WikiPage> result = new ArrayList<>(sorted.length);
+    for (PageWithPath page : sorted) {
+      result.add(page.page);
+    }
+    return result;
+  }
 
-    SuiteFilter suiteFilterForChildren = includePage ? suiteFilter.getFilterForTestsInSuite(page) : SuiteFilter.NO_MATCHING;
+  private static final class PageWithPath {
+    private final WikiPage page;
+    private final String path;
 
-    for (WikiPage child : page.getChildren()) {
-      testPages.addAll(addTestPagesToSuite(child, suiteFilterForChildren));
+    private PageWithPath(WikiPage page) {
+      this.page = page;
+      this.path = compressedPath(page);
+    }
+
+    private static String compressedPath(WikiPage page) {
+      try {
+        return StringUtils.join(page.getFullPath().getNames(), "");
+      } catch (Exception e) {
+        LOG.log(Level.WARNING, "Unable to determine path of " + page, e);
+        return "";
+      }
     }
-    return testPages;
   }
 
-  private boolean isPruned(WikiPage page) {
-    return page.getData().hasAttribute(WikiPageProperty.PRUNE);
+  /**
+   * The test pages in and under a page, in depth first order. Children are searched in tasks of their own.
+   */
+  private final class FindTestPages extends RecursiveTask<List<WikiPage>> {
+    private final WikiPage page;
+    private final SuiteFilter suiteFilter;
+
+    private FindTestPages(WikiPage page, SuiteFilter suiteFilter) {
+      this.page = page;
+      this.suiteFilter = suiteFilter;
+    }
+
+    @Override
+    protected List<WikiPage> compute() {
+      PageData data = page.getData();
+      boolean includePage = isTopPage(page) || !data.hasAttribute(WikiPageProperty.PRUNE);
+      List<WikiPage> ownPages = new ArrayList<>();
+      if (includePage && suiteFilter.isMatchingTest(page, data)) {
+        ownPages.add(page);
+      }
+      if (mayHaveXrefs(data.getContent())) {
+        addXrefPages(ownPages, page);
+      }
+
+      List<WikiPage> children = page.getChildren();
+      if (children.isEmpty()) {
+        return ownPages;
+      }
+      SuiteFilter suiteFilterForChildren = includePage ? suiteFilter.getFilterForTestsInSuite(page, data) : SuiteFilter.NO_MATCHING;
+      List<FindTestPages> tasks = new ArrayList<>(children.size());
+      for (WikiPage child : children) {
+        tasks.add(new FindTestPages(child, suiteFilterForChildren));
+      }
+      invokeAll(tasks);
+
+      int size = ownPages.size();
+      for (FindTestPages task : tasks) {
+        size += task.join().size();
+      }
+      List<WikiPage> testPages = new ArrayList<>(size);
+      testPages.addAll(ownPages);
+      for (FindTestPages task : tasks) {
+        testPages.addAll(task.join());
+      }
+      return testPages;
+    }
   }
 
   private boolean isTopPage(WikiPage page) {
     return page == pageToRun;
   }
 
-  private void addXrefPages(List<WikiPage> pages, WikiPage thePage) {
+  private static void addXrefPages(List<WikiPage> pages, WikiPage thePage) {
     List<String> pageReferences = WikiPageUtil.getXrefPages(thePage);
     if (pageReferences.isEmpty()) {
       return;
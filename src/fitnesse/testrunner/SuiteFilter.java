@@ -27,6 +27,11 @@ public class SuiteFilter {
     public boolean isMatchingTest(WikiPage testPage) {
       return false;
     }
+
+    @Override
+    public boolean isMatchingTest(WikiPage testPage, PageData data) {
+      return false;
+    }
   };
 
   public static final SuiteFilter MATCH_ALL = new SuiteFilter(null, null, null, null);
@@ -48,11 +53,17 @@ public class SuiteFilter {
   }
 
   public boolean isMatchingTest(WikiPage testPage) {
-    PageData data = testPage.getData();
+    return isMatchingTest(testPage, testPage.getData());
+  }
+
+  /**
+   * Same as {@link #isMatchingTest(WikiPage)}, for callers that already read the data of the page.
+   */
+  public boolean isMatchingTest(WikiPage testPage, PageData data) {
     boolean isTest = data.hasAttribute(PageType.TEST.toString());
     return isTest &&
-           matchTags.matches(testPage) &&
-           !notMatchTags.matches(testPage) &&
+           matchTags.matches(testPage, data) &&
+           !notMatchTags.matches(testPage, data) &&
            afterStartingTest(testPage);
   }
 
@@ -70,12 +81,18 @@ public class SuiteFilter {
   }
 
   public SuiteFilter getFilterForTestsInSuite(WikiPage suitePage) {
-    PageData pageData = suitePage.getData();
-    if (pageData.hasAttribute(PageType.SUITE.toString()) && matchTags.isFiltering() && matchTags.matches(suitePage)) {
-      return new SuiteFilter(null, notMatchTags.tagString, null, startWithTest).getFilterForTestsInSuite(suitePage);
+    return getFilterForTestsInSuite(suitePage, suitePage.getData());
+  }
+
+  /**
+   * Same as {@link #getFilterForTestsInSuite(WikiPage)}, for callers that already read the data of the page.
+   */
+  public SuiteFilter getFilterForTestsInSuite(WikiPage suitePage, PageData pageData) {
+    if (pageData.hasAttribute(PageType.SUITE.toString()) && matchTags.isFiltering() && matchTags.matches(suitePage, pageData)) {
+      return new SuiteFilter(null, notMatchTags.tagString, null, startWithTest).getFilterForTestsInSuite(suitePage, pageData);
     }
 
-    if (notMatchTags.matches(suitePage)) {
+    if (notMatchTags.matches(suitePage, pageData)) {
       return NO_MATCHING;
     }
 
@@ -129,18 +146,18 @@ public class SuiteFilter {
       return (tags != null);
     }
 
-    boolean matches(WikiPage wikiPage) {
-      return (tags == null) ? matchIfNoTags : testMatchesQuery(wikiPage);
+    boolean matches(WikiPage wikiPage, PageData data) {
+      return (tags == null) ? matchIfNoTags : testMatchesQuery(wikiPage, data);
     }
 
-    private boolean testMatchesQuery(WikiPage wikiPage) {
-      String testTagString = getTestTags(wikiPage);
+    private boolean testMatchesQuery(WikiPage wikiPage, PageData data) {
+      String testTagString = getTestTags(wikiPage, data);
       return (testTagString != null && testTagsMatchQueryTags(testTagString));
     }
 
-    private String getTestTags(WikiPage context) {
+    private String getTestTags(WikiPage context, PageData data) {
       try {
-        return context.getData().getAttribute(PageData.PropertySUITES);
+        return data.getAttribute(PageData.PropertySUITES);
       } catch (Exception e) {
         LOG.log(Level.WARNING, "Unable to retrieve tags for page " + context, e);
         return null;
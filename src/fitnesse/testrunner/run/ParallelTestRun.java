@@ -0,0 +1,395 @@
+package fitnesse.testrunner.run;
+
+import fitnesse.testrunner.WikiPageIdentity;
+import fitnesse.testsystems.Assertion;
+import fitnesse.testsystems.ExceptionResult;
+import fitnesse.testsystems.TestExecutionException;
+import fitnesse.testsystems.TestPage;
+import fitnesse.testsystems.TestResult;
+import fitnesse.testsystems.TestSummary;
+import fitnesse.testsystems.TestSystem;
+import fitnesse.testsystems.TestSystemListener;
+import fitnesse.testsystems.slim.TestingInterruptedException;
+import fitnesse.util.partitioner.EqualLengthListPartitioner;
+import fitnesse.wiki.WikiPage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the pages of each test system on several instances of that test system at the same time.
+ * <p>
+ * The pages of a test system are split into consecutive lanes. Each lane is surrounded by the suite set-ups
+ * and tear-downs it needs and runs on its own test system. Events of the first unfinished lane are passed on
+ * directly; events of later lanes are held back until all lanes before them are done, so listeners see
+ * the same order as when the lanes had run one after another. The test output held back is kept in a temporary
+ * file per lane rather than in memory.
+ */
+public class ParallelTestRun implements TestRun {
+  private final PagesByTestSystem pagesByTestSystem;
+  private final Function<List<WikiPage>, ? extends PagesByTestSystem> factory;
+  private final int laneCount;
+  private final List<Lane> lanes = new CopyOnWriteArrayList<>();
+  private volatile boolean stopped;
+
+  public ParallelTestRun(PagesByTestSystem pagesByTestSystem,
+                         Function<List<WikiPage>, ? extends PagesByTestSystem> factory,
+                         int laneCount) {
+    if (laneCount < 1) {
+      throw new IllegalArgumentException("laneCount must be at least 1");
+    }
+    this.pagesByTestSystem = pagesByTestSystem;
+    this.factory = factory;
+    this.laneCount = laneCount;
+  }
+
+  @Override
+  public void executeTestPages(RunCoordinator coordinator) throws TestExecutionException {
+    Map<WikiPageIdentity, List<List<TestPage>>> lanePages = new LinkedHashMap<>();
+    for (WikiPageIdentity identity : pagesByTestSystem.identities()) {
+      lanePages.put(identity, splitIntoLanes(identity));
+    }
+    coordinator.announceTotalTestsToRun(lanePages.values().stream()
+      .flatMap(List::stream)
+      .mapToInt(List::size)
+      .sum());
+
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(laneCount, runnable -> {
+      Thread thread = new Thread(runnable, "fitnesse-test-lane-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      for (Map.Entry<WikiPageIdentity, List<List<TestPage>>> entry : lanePages.entrySet()) {
+        runLanes(coordinator, executor, entry.getKey(), entry.getValue());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    coordinator.waitForNoTestsInProgress();
+  }
+
+  @Override
+  public List<WikiPage> getPages() {
+    return pagesByTestSystem.testsToRun();
+  }
+
+  @Override
+  public void stop() {
+    stopped = true;
+    for (Lane lane : lanes) {
+      lane.kill();
+    }
+  }
+
+  List<List<TestPage>> splitIntoLanes(WikiPageIdentity identity) {
+    List<WikiPage> tests = pagesByTestSystem.wikiPagesForIdentity(identity).stream()
+      .filter(page -> !page.isSuiteSetupOrTearDown())
+      .collect(Collectors.toList());
+    if (tests.isEmpty()) {
+      return new ArrayList<>();
+    }
+    int count = Math.min(laneCount, tests.size());
+    List<List<TestPage>> result = new ArrayList<>(count);
+    for (List<WikiPage> lane : new EqualLengthListPartitioner<WikiPage>().split(tests, count)) {
+      result.add(factory.apply(new ArrayList<>(lane)).testPagesForIdentity(identity));
+    }
+    return result;
+  }
+
+  private void runLanes(RunCoordinator coordinator, ExecutorService executor, WikiPageIdentity identity,
+                        List<List<TestPage>> pagesPerLane) throws TestExecutionException {
+    Object listenerLock = new Object();
+    List<Lane> identityLanes = new ArrayList<>(pagesPerLane.size());
+    List<Future<Void>> results = new ArrayList<>(pagesPerLane.size());
+    for (List<TestPage> pages : pagesPerLane) {
+      Lane lane = new Lane(coordinator, identity, pages, listenerLock);
+      identityLanes.add(lane);
+      lanes.add(lane);
+    }
+    if (!identityLanes.isEmpty()) {
+      identityLanes.get(0).goLive();
+    }
+    for (Lane lane : identityLanes) {
+      results.add(executor.submit(() -> {
+        lane.execute();
+        return null;
+      }));
+    }
+
+    TestExecutionException failure = null;
+    try {
+      for (int i = 0; i < identityLanes.size(); i++) {
+        try {
+          results.get(i).get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = asTestExecutionException(e.getCause());
+            stop();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          stop();
+          throw new TestingInterruptedException("Interrupted while waiting for test lanes", e);
+        }
+        if (i + 1 < identityLanes.size()) {
+          identityLanes.get(i + 1).goLive();
+        }
+      }
+    } finally {
+      lanes.removeAll(identityLanes);
+      for (Lane lane : identityLanes) {
+        lane.release();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private static TestExecutionException asTestExecutionException(Throwable cause) {
+    if (cause instanceof TestExecutionException) {
+      return (TestExecutionException) cause;
+    }
+    return new TestExecutionException(cause);
+  }
+
+  /**
+   * One test system instance and the pages it runs. Also the listener for that test system, holding back
+   * its events until the lane is allowed to report.
+   */
+  private class Lane implements TestSystemListener {
+    private final RunCoordinator coordinator;
+    private final WikiPageIdentity identity;
+    private final List<TestPage> pages;
+    private final Object listenerLock;
+    private final List<Consumer<TestSystemListener>> heldEvents = new ArrayList<>();
+    private OutputSpool spool;
+    private final AtomicInteger testsInProgress = new AtomicInteger();
+    private TestSystemListener downstream;
+    private boolean live;
+    private volatile TestSystem testSystem;
+
+    private Lane(RunCoordinator coordinator, WikiPageIdentity identity, List<TestPage> pages, Object listenerLock) {
+      this.coordinator = coordinator;
+      this.identity = identity;
+      this.pages = pages;
+      this.listenerLock = listenerLock;
+    }
+
+    void execute() throws TestExecutionException {
+      TestSystem system = null;
+      try {
+        if (coordinator.isNotStopped() && !stopped) {
+          system = coordinator.startTestSystem(identity, pages, this::attach);
+          testSystem = system;
+        }
+
+        if (system != null && system.isSuccessfullyStarted()) {
+          for (TestPage testPage : pages) {
+            testsInProgress.incrementAndGet();
+            coordinator.announceTestStarted();
+            system.runTests(testPage);
+          }
+          waitForNoTestsInProgress();
+        }
+      } finally {
+        if (coordinator.isNotStopped() && !stopped && system != null) {
+          try {
+            system.bye();
+          } catch (Exception e) {
+            coordinator.reportException(e);
+          }
+        }
+      }
+    }
+
+    void kill() {
+      TestSystem system = testSystem;
+      if (system != null) {
+        system.kill();
+      }
+    }
+
+    void goLive() {
+      synchronized (listenerLock) {
+        for (Consumer<TestSystemListener> event : heldEvents) {
+          event.accept(downstream);
+        }
+        heldEvents.clear();
+        closeSpool();
+        live = true;
+      }
+    }
+
+    /**
+     * Drops what is still held, for lanes that never went live.
+     */
+    void release() {
+      synchronized (listenerLock) {
+        heldEvents.clear();
+        closeSpool();
+      }
+    }
+
+    private TestSystemListener attach(TestSystemListener listener) {
+      synchronized (listenerLock) {
+        downstream = listener;
+      }
+      return this;
+    }
+
+    private void waitForNoTestsInProgress() throws TestingInterruptedException {
+      while (testsInProgress.get() > 0 && coordinator.isNotStopped() && !stopped) {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new TestingInterruptedException("Interrupted while waiting for test results", e);
+        }
+      }
+    }
+
+    private void deliver(Consumer<TestSystemListener> event) {
+      synchronized (listenerLock) {
+        if (live) {
+          event.accept(downstream);
+        } else {
+          heldEvents.add(event);
+        }
+      }
+    }
+
+    @Override
+    public void testSystemStarted(TestSystem testSystem) {
+      deliver(listener -> listener.testSystemStarted(testSystem));
+    }
+
+    @Override
+    public void testOutputChunk(TestPage testPage, String output) {
+      synchronized (listenerLock) {
+        if (live) {
+          downstream.testOutputChunk(testPage, output);
+        } else {
+          heldEvents.add(spooled(testPage, output));
+        }
+      }
+    }
+
+    private Consumer<TestSystemListener> spooled(TestPage testPage, String output) {
+      byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+      long position;
+      try {
+        if (spool == null) {
+          spool = new OutputSpool();
+        }
+        position = spool.append(bytes);
+      } catch (IOException e) {
+        // keep it in memory then
+        return listener -> listener.testOutputChunk(testPage, output);
+      }
+      return listener -> {
+        try {
+          listener.testOutputChunk(testPage, spool.read(position, bytes.length));
+        } catch (IOException e) {
+          coordinator.reportException(e);
+        }
+      };
+    }
+
+    private void closeSpool() {
+      if (spool != null) {
+        try {
+          spool.close();
+        } catch (IOException e) {
+          coordinator.reportException(e);
+        }
+        spool = null;
+      }
+    }
+
+    @Override
+    public void testStarted(TestPage testPage) {
+      deliver(listener -> listener.testStarted(testPage));
+    }
+
+    @Override
+    public void testComplete(TestPage testPage, TestSummary testSummary) {
+      testsInProgress.decrementAndGet();
+      deliver(listener -> listener.testComplete(testPage, testSummary));
+    }
+
+    @Override
+    public void testSystemStopped(TestSystem testSystem, Throwable cause) {
+      deliver(listener -> listener.testSystemStopped(testSystem, cause));
+    }
+
+    @Override
+    public void testAssertionVerified(Assertion assertion, TestResult testResult) {
+      deliver(listener -> listener.testAssertionVerified(assertion, testResult));
+    }
+
+    @Override
+    public void testExceptionOccurred(Assertion assertion, ExceptionResult exceptionResult) {
+      deliver(listener -> listener.testExceptionOccurred(assertion, exceptionResult));
+    }
+  }
+
+  /**
+   * Output of a lane that may not report yet, in a temporary file that is removed when closed.
+   */
+  private static final class OutputSpool implements Closeable {
+    private final FileChannel channel;
+    private long size;
+
+    private OutputSpool() throws IOException {
+      channel = FileChannel.open(Files.createTempFile("fitnesse-lane", ".out"),
+        StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    private long append(byte[] bytes) throws IOException {
+      long position = size;
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        channel.write(buffer, position + buffer.position());
+      }
+      size += bytes.length;
+      return position;
+    }
+
+    private String read(long position, int length) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new EOFException("Test output spool ended early");
+        }
+      }
+      return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
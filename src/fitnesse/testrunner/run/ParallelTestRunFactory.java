@@ -0,0 +1,40 @@
+package fitnesse.testrunner.run;
+
+import fitnesse.wiki.WikiPage;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.List;
+
+/**
+ * Runs the pages of each test system on multiple test system instances at the same time,
+ * when the parallelTestSystems variable is set to a value larger than 1.
+ * Partitioning with partitionCount and partitionIndex is applied before the pages are spread.
+ */
+public class ParallelTestRunFactory extends PartitioningTestRunFactory {
+  public static final String PARALLEL_TEST_SYSTEMS_ARG = "parallelTestSystems";
+
+  @Override
+  public boolean canRun(List<WikiPage> pages) {
+    return !pages.isEmpty() && getParallelTestSystems(pages.get(0)) > 1;
+  }
+
+  @Override
+  public TestRun createRun(List<WikiPage> pages) {
+    PagesByTestSystem pagesByTestSystem = getPagesByTestSystem(pages);
+    int laneCount = pages.isEmpty() ? 1 : getParallelTestSystems(pages.get(0));
+    return new ParallelTestRun(pagesByTestSystem, getFactory(), laneCount);
+  }
+
+  protected int getParallelTestSystems(WikiPage page) {
+    int count = 1;
+    String countStr = page.getVariable(PARALLEL_TEST_SYSTEMS_ARG);
+    if (StringUtils.isNotEmpty(countStr)) {
+      try {
+        count = Integer.parseInt(countStr.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(PARALLEL_TEST_SYSTEMS_ARG + " must be a number: " + countStr, e);
+      }
+    }
+    return Math.max(count, 1);
+  }
+}
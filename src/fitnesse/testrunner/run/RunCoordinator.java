@@ -3,9 +3,11 @@ package fitnesse.testrunner.run;
 import fitnesse.testrunner.WikiPageIdentity;
 import fitnesse.testsystems.TestPage;
 import fitnesse.testsystems.TestSystem;
+import fitnesse.testsystems.TestSystemListener;
 import fitnesse.testsystems.slim.TestingInterruptedException;
 
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 public interface RunCoordinator {
   boolean isNotStopped();
@@ -14,6 +16,13 @@ public interface RunCoordinator {
 
   TestSystem startTestSystem(WikiPageIdentity identity, List<TestPage> testPages);
 
+  /**
+   * Starts a test system whose events pass through the listener returned by listenerDecorator,
+   * which receives the listener the coordinator would otherwise register.
+   */
+  TestSystem startTestSystem(WikiPageIdentity identity, List<TestPage> testPages,
+                             UnaryOperator<TestSystemListener> listenerDecorator);
+
   int announceTestStarted();
 
   void waitForNoTestsInProgress() throws TestingInterruptedException;
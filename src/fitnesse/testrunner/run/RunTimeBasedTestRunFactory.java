@@ -0,0 +1,50 @@
+package fitnesse.testrunner.run;
+
+import fitnesse.FitNesseContext;
+import fitnesse.reporting.history.PageRunTimes;
+import fitnesse.util.partitioner.LongestProcessingTimeListPartitioner;
+import fitnesse.util.partitioner.ListPartitioner;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.WikiPage;
+
+import java.util.List;
+
+/**
+ * Partitions test pages so all partitions take about the same time, based on the run times recorded in the test
+ * history, when the partitionByRunTime variable is set to true.
+ * Pages sharing a SuiteSetUp and SuiteTearDown stay in the same partition where possible.
+ */
+public class RunTimeBasedTestRunFactory extends PartitioningTestRunFactory {
+  public static final String PARTITION_BY_RUN_TIME_ARG = "partitionByRunTime";
+  private final FitNesseContext context;
+
+  public RunTimeBasedTestRunFactory(FitNesseContext context) {
+    this.context = context;
+    setPartitioner(p -> new PageListPartitionerImpl(createPartitioner(new PageRunTimes(context.getTestHistoryDirectory()))));
+  }
+
+  @Override
+  public boolean canRun(List<WikiPage> pages) {
+    return super.canRun(pages) && !pages.isEmpty()
+      && Boolean.parseBoolean(pages.get(0).getVariable(PARTITION_BY_RUN_TIME_ARG));
+  }
+
+  protected ListPartitioner<WikiPage> createPartitioner(PageRunTimes runTimes) {
+    return new LongestProcessingTimeListPartitioner<>(
+      page -> runTimes.getRunTimeInMillis(page.getFullPath().toString()),
+      RunTimeBasedTestRunFactory::getSetUpTearDownGroup);
+  }
+
+  static String getSetUpTearDownGroup(WikiPage page) {
+    return getPath(page, PageData.SUITE_SETUP_NAME) + "," + getPath(page, PageData.SUITE_TEARDOWN_NAME);
+  }
+
+  private static String getPath(WikiPage page, String setUpTearDownName) {
+    WikiPage suiteSetUpTearDown = page.getPageCrawler().getClosestInheritedPage(setUpTearDownName);
+    return suiteSetUpTearDown != null ? suiteSetUpTearDown.getFullPath().toString() : null;
+  }
+
+  public FitNesseContext getContext() {
+    return context;
+  }
+}
@@ -18,4 +18,8 @@ public interface Descriptor {
   String getVariable(String name);
 
   ExecutionLogListener getExecutionLogListener();
+
+  default PhaseTimers getPhaseTimers() {
+    return PhaseTimers.NONE;
+  }
 }
@@ -0,0 +1,89 @@
+package fitnesse.testsystems;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer timers for the phases of a test run, tagged with the test system and the top-level suite being run.
+ * <p>
+ * Test runs register them with the global Micrometer registry; the Vert.x server adds its Prometheus registry to
+ * that, so they show up on {@code /metrics}. Meters are never removed, so the suite tag only holds the first
+ * element of the page path, and {@link #suiteLimit()} caps the number of suites. Only the phases that take long
+ * enough to be worth a latency distribution publish a percentile histogram. {@link #NONE} records nothing.
+ */
+public final class PhaseTimers {
+  public static final String TEST_SYSTEM_TAG = "testSystem";
+  public static final String SUITE_TAG = "suite";
+  public static final int MAX_SUITES = 100;
+
+  public enum Phase {
+    START("fitnesse.testsystem.start", "Starting and connecting to a test system", true),
+    RENDER("fitnesse.page.render", "Rendering a test page to HTML and finding its tables", true),
+    INSTRUCTIONS("fitnesse.table.instructions", "Building the instructions of a table", false),
+    ROUND_TRIP("fitnesse.slim.roundtrip", "Sending instructions to the Slim server and reading the results", true),
+    EVALUATION("fitnesse.table.evaluation", "Evaluating the results of a table", false),
+    FORMATTER("fitnesse.formatter.write", "Passing a test event to the result formatters", false);
+
+    private final String meterName;
+    private final String description;
+    private final boolean histogram;
+
+    Phase(String meterName, String description, boolean histogram) {
+      this.meterName = meterName;
+      this.description = description;
+      this.histogram = histogram;
+    }
+
+    public String getMeterName() {
+      return meterName;
+    }
+  }
+
+  public static final PhaseTimers NONE = new PhaseTimers(null, "", "");
+
+  private final Timer[] timers;
+
+  public PhaseTimers(MeterRegistry registry, String testSystem, String suite) {
+    if (registry == null) {
+      timers = null;
+      return;
+    }
+    timers = new Timer[Phase.values().length];
+    for (Phase phase : Phase.values()) {
+      timers[phase.ordinal()] = Timer.builder(phase.meterName)
+        .description(phase.description)
+        .tag(TEST_SYSTEM_TAG, testSystem)
+        .tag(SUITE_TAG, topLevelSuite(suite))
+        .publishPercentileHistogram(phase.histogram)
+        .register(registry);
+    }
+  }
+
+  /**
+   * Denies phase timers for more than {@link #MAX_SUITES} suites, to add to the registry the timers go to.
+   */
+  public static MeterFilter suiteLimit() {
+    return MeterFilter.maximumAllowableTags("fitnesse.", SUITE_TAG, MAX_SUITES, MeterFilter.deny());
+  }
+
+  static String topLevelSuite(String suite) {
+    int dot = suite.indexOf('.');
+    return dot < 0 ? suite : suite.substring(0, dot);
+  }
+
+  /**
+   * @return the start time to pass to {@link #stop(Phase, long)}.
+   */
+  public long start() {
+    return timers == null ? 0L : System.nanoTime();
+  }
+
+  public void stop(Phase phase, long start) {
+    if (timers != null) {
+      timers[phase.ordinal()].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -5,6 +5,7 @@ package fitnesse.testsystems.slim;
 import java.util.List;
 
 import fitnesse.wiki.PageData;
+import fitnesse.testsystems.PhaseTimers.Phase;
 import fitnesse.testsystems.TestExecutionException;
 import fitnesse.testsystems.TestPage;
 import fitnesse.testsystems.slim.results.SlimTestResult;
@@ -14,6 +15,8 @@ import fitnesse.testsystems.slim.tables.SyntaxError;
 
 public class HtmlSlimTestSystem extends SlimTestSystem {
 
+  public static final String SLIM_BATCH_TABLES = "SLIM_BATCH_TABLES";
+
   private static final SlimTable START_OF_TEST = null;
   private static final SlimTable END_OF_TEST = null;
 
@@ -31,9 +34,12 @@ public class HtmlSlimTestSystem extends SlimTestSystem {
 
   @Override
   protected void processAllTablesOnPage(TestPage pageToTest) throws TestExecutionException {
+    long start = getPhaseTimers().start();
     slimPage = SlimPage.Make(pageToTest, getTestContext(), slimTableFactory, customComparatorRegistry);
+    getPhaseTimers().stop(Phase.RENDER, start);
     List<SlimTable> allTables = slimPage.getTables();
     boolean isSuiteTearDownPage = PageData.SUITE_TEARDOWN_NAME.equals(pageToTest.getName());
+    int tablesPerMessage = getTablesPerMessage(pageToTest);
 
     if (allTables.isEmpty()) {
       String html = createHtmlResults(START_OF_TEST, END_OF_TEST);
@@ -44,6 +50,9 @@ public class HtmlSlimTestSystem extends SlimTestSystem {
         SlimTable startWithTable = (index == 0) ? START_OF_TEST : theTable;
         SlimTable nextTable = (index + 1 < allTables.size()) ? allTables.get(index + 1) : END_OF_TEST;
 
+        if (tablesPerMessage > 1) {
+          prepareTables(allTables.subList(index, Math.min(allTables.size(), index + tablesPerMessage)));
+        }
         try {
           processTable(theTable, isSuiteTearDownPage);
         } catch (SyntaxError e) {
@@ -58,6 +67,24 @@ public class HtmlSlimTestSystem extends SlimTestSystem {
     }
   }
 
+  /**
+   * @return the maximum number of tables to send to the Slim server in one message; 1 sends each table on its own.
+   */
+  private static int getTablesPerMessage(TestPage pageToTest) {
+    try {
+      String tables = pageToTest.getVariable("slim.batch.tables");
+      if (tables == null) {
+        tables = pageToTest.getVariable(SLIM_BATCH_TABLES);
+      }
+      if (tables != null) {
+        return Integer.parseInt(tables);
+      }
+    } catch (NumberFormatException e) {
+      // stick with default
+    }
+    return 1;
+  }
+
   private String createHtmlResults(SlimTable startWithTable, SlimTable stopBeforeTable) {
     HtmlTable start = (startWithTable != null) ? (HtmlTable) startWithTable.getTable() : null;
     HtmlTable end = (stopBeforeTable != null) ? (HtmlTable) stopBeforeTable.getTable() : null;
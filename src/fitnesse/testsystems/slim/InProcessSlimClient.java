@@ -11,9 +11,8 @@ import fitnesse.slim.SlimServer;
 import fitnesse.slim.SlimStreamReader;
 import fitnesse.slim.SlimVersion;
 import fitnesse.slim.instructions.Instruction;
-import fitnesse.slim.protocol.SlimDeserializer;
+import fitnesse.slim.protocol.SlimDecoder;
 import fitnesse.slim.protocol.SlimListBuilder;
-import fitnesse.slim.protocol.SlimSerializer;
 import fitnesse.testsystems.ExecutionLogListener;
 import fitnesse.util.MockSocket;
 import fitnesse.util.VertxWorkerPool;
@@ -83,15 +82,15 @@ public class InProcessSlimClient implements SlimClient {
   public Map<String, Object> invokeAndGetResponse(List<Instruction> statements) throws SlimCommunicationException {
     if (statements.isEmpty())
       return Collections.emptyMap();
-    String instructions = SlimSerializer.serialize(new SlimListBuilder(slimServerVersion).toList(statements));
-    String results;
+    List<Object> instructions = new SlimListBuilder(slimServerVersion).toList(statements);
+    CharSequence results;
     try {
       SlimStreamReader.sendSlimMessage(clientOutput, instructions);
-      results = reader.getSlimMessage();
+      results = reader.readSlimMessage();
     } catch (IOException e) {
       throw new SlimCommunicationException("Could not send/receive data with SUT", e);
     }
-    List<Object> resultList = SlimDeserializer.deserialize(results);
+    List<Object> resultList = SlimDecoder.decode(results);
     return resultToMap(resultList);
   }
 
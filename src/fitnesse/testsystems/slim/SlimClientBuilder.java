@@ -9,6 +9,7 @@ import org.apache.commons.lang3.ArrayUtils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.ServerSocket;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static fitnesse.slim.SlimPipeSocket.STDERR_PREFIX;
@@ -22,6 +23,8 @@ public class SlimClientBuilder extends ClientBuilder<SlimCommandRunningClient> {
   public static final String MANUALLY_START_TEST_RUNNER_ON_DEBUG = "MANUALLY_START_TEST_RUNNER_ON_DEBUG";
   public static final String MANUALLY_START_TEST_RUNNER = "MANUALLY_START_TEST_RUNNER";
   public static final String SLIM_SSL = "SLIM_SSL";
+  public static final String SLIM_PRESTART = "SLIM_PRESTART";
+  public static final String SLIM_PRESTART_IDLE = "SLIM_PRESTART_IDLE";
   public static final int SLIM_USE_PIPE_PORT = 1;
 
   private static final AtomicInteger slimPortOffset = new AtomicInteger(0);
@@ -36,6 +39,14 @@ public class SlimClientBuilder extends ClientBuilder<SlimCommandRunningClient> {
 
   @Override
   public SlimCommandRunningClient build() {
+    int prestart = getPrestartedServerCount();
+    if (prestart > 0 && canStartAhead()) {
+      SlimCommandRunningClient client = SlimServerPool.getInstance().take(serverSpec(prestart), getExecutionLogListener());
+      if (client != null) {
+        return client;
+      }
+    }
+
     CommandRunner commandRunner = determineCommandRunner();
 
     return new SlimCommandRunningClient(commandRunner, determineSlimHost(),
@@ -44,6 +55,20 @@ public class SlimClientBuilder extends ClientBuilder<SlimCommandRunningClient> {
 
   }
 
+  /**
+   * Servers can only be started ahead of time when the command does not depend on the port to connect to.
+   */
+  private boolean canStartAhead() {
+    return !isDebug() && !useManualStartForTestSystem() && getSlimPortBase() == 0;
+  }
+
+  private SlimServerPool.ServerSpec serverSpec(int prestart) {
+    String[] command = buildCommand();
+    return new SlimServerPool.ServerSpec(Arrays.copyOf(command, command.length - 1),
+        createClasspathEnvironment(getClassPath()), determineSlimHost(), determineTimeout(), getSlimVersion(),
+        determineSocketFactory(null), prestart, getPrestartIdleSeconds() * 1000L);
+  }
+
   protected CommandRunner determineCommandRunner() {
     if (useManualStartForTestSystem()) {
       return new MockCommandRunner(
@@ -127,7 +152,7 @@ public class SlimClientBuilder extends ClientBuilder<SlimCommandRunningClient> {
     this.slimPort = slimPort;
   }
 
-  private int findFreePort() {
+  static int findFreePort() {
     int port;
     try {
       ServerSocket socket = new PlainServerSocketFactory().createServerSocket(0);
@@ -193,6 +218,36 @@ public class SlimClientBuilder extends ClientBuilder<SlimCommandRunningClient> {
     return 10;
   }
 
+  private int getPrestartedServerCount() {
+    try {
+      String prestart = getVariable("slim.prestart");
+      if (prestart == null) {
+        prestart = getVariable(SLIM_PRESTART);
+      }
+      if (prestart != null) {
+        return Integer.parseInt(prestart);
+      }
+    } catch (NumberFormatException e) {
+      // stick with default
+    }
+    return 0;
+  }
+
+  private int getPrestartIdleSeconds() {
+    try {
+      String idle = getVariable("slim.prestart.idle");
+      if (idle == null) {
+        idle = getVariable(SLIM_PRESTART_IDLE);
+      }
+      if (idle != null) {
+        return Integer.parseInt(idle);
+      }
+    } catch (NumberFormatException e) {
+      // stick with default
+    }
+    return 600;
+  }
+
   protected String determineSlimHost() {
     String slimHost = getVariable("slim.host");
     if (slimHost == null) {
@@ -17,9 +17,8 @@ import fitnesse.slim.SlimError;
 import fitnesse.slim.SlimStreamReader;
 import fitnesse.slim.SlimVersion;
 import fitnesse.slim.instructions.Instruction;
-import fitnesse.slim.protocol.SlimDeserializer;
+import fitnesse.slim.protocol.SlimDecoder;
 import fitnesse.slim.protocol.SlimListBuilder;
-import fitnesse.slim.protocol.SlimSerializer;
 import fitnesse.socketservice.ClientSocketFactory;
 import fitnesse.testsystems.CommandRunner;
 import fitnesse.util.Clock;
@@ -53,6 +52,11 @@ public class SlimCommandRunningClient implements SlimClient {
 
   @Override
   public void start() throws IOException, SlimVersionMismatch {
+    if (isConnected()) {
+      // started ahead of time, see SlimServerPool
+      checkForVersionMismatch();
+      return;
+    }
     try {
       slimRunner.asynchronousStart();
     } catch (Exception e) {
@@ -167,15 +171,15 @@ public class SlimCommandRunningClient implements SlimClient {
   public Map<String, Object> invokeAndGetResponse(List<Instruction> statements) throws SlimCommunicationException {
     if (statements.isEmpty())
       return Collections.emptyMap();
-    String instructions = SlimSerializer.serialize(new SlimListBuilder(slimServerVersion).toList(statements));
-    String results;
+    List<Object> instructions = new SlimListBuilder(slimServerVersion).toList(statements);
+    CharSequence results;
     try {
       SlimStreamReader.sendSlimMessage(writer, instructions);
-      results = reader.getSlimMessage();
+      results = reader.readSlimMessage();
     } catch (IOException e) {
       throw new SlimCommunicationException("Could not send/receive data with SUT", e);
     }
-    List<Object> resultList = SlimDeserializer.deserialize(results);
+    List<Object> resultList = SlimDecoder.decode(results);
     return resultToMap(resultList);
   }
 
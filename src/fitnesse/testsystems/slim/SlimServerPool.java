@@ -0,0 +1,281 @@
+package fitnesse.testsystems.slim;
+
+import fitnesse.socketservice.ClientSocketFactory;
+import fitnesse.testsystems.CommandRunner;
+import fitnesse.testsystems.ExecutionLogListener;
+import fitnesse.util.Clock;
+import fitnesse.util.VertxWorkerPool;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Slim servers started and connected ahead of time, so a test run does not have to wait for a JVM to start.
+ * <p>
+ * Servers are kept per command (test runner, class path, flags) and connection settings. A Slim server ends when
+ * the test system says bye, so servers are handed out once and each hand-out starts a replacement in the background.
+ * Commands that are not asked for during their idle time are dropped, together with their servers.
+ */
+public final class SlimServerPool {
+  private static final Logger LOG = Logger.getLogger(SlimServerPool.class.getName());
+  private static final long SWEEP_INTERVAL_MILLIS = 60_000L;
+  private static final int MAX_STARTING_SERVERS = 4;
+
+  private static SlimServerPool instance;
+
+  private final Executor executor;
+  private final Map<String, Servers> pools = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  SlimServerPool(Executor executor) {
+    this.executor = executor;
+  }
+
+  static synchronized SlimServerPool getInstance() {
+    if (instance == null) {
+      SlimServerPool pool = new SlimServerPool(VertxWorkerPool.newExecutor("fitnesse-slim-prestart", MAX_STARTING_SERVERS));
+      VertxWorkerPool.vertx().setPeriodic(SWEEP_INTERVAL_MILLIS, id -> pool.evictIdle(Clock.currentTimeInMillis()));
+      Runtime.getRuntime().addShutdownHook(new Thread(pool::close, "fitnesse-slim-prestart-shutdown"));
+      instance = pool;
+    }
+    return instance;
+  }
+
+  /**
+   * @return a started and connected client for the server, or null when none is ready yet. Either way the pool
+   * for the server is (re)filled in the background.
+   */
+  SlimCommandRunningClient take(ServerSpec spec, ExecutionLogListener executionLogListener) {
+    Servers servers = pools.computeIfAbsent(spec.key, key -> new Servers(spec));
+    WarmServer server;
+    synchronized (servers) {
+      servers.spec = spec;
+      servers.lastUsed = Clock.currentTimeInMillis();
+      while ((server = servers.ready.poll()) != null && !server.isAlive()) {
+        server.client.kill();
+      }
+    }
+    fill(servers);
+    if (server == null) {
+      return null;
+    }
+    server.log.attach(executionLogListener);
+    return server.client;
+  }
+
+  int readyServers(ServerSpec spec) {
+    Servers servers = pools.get(spec.key);
+    if (servers == null) {
+      return 0;
+    }
+    synchronized (servers) {
+      return servers.ready.size();
+    }
+  }
+
+  void evictIdle(long now) {
+    for (Servers servers : pools.values()) {
+      synchronized (servers) {
+        if (now - servers.lastUsed > servers.spec.idleMillis) {
+          pools.remove(servers.spec.key, servers);
+          servers.killAll();
+        }
+      }
+    }
+  }
+
+  void close() {
+    closed = true;
+    for (Servers servers : pools.values()) {
+      synchronized (servers) {
+        servers.killAll();
+      }
+    }
+    pools.clear();
+  }
+
+  private void fill(Servers servers) {
+    if (closed) {
+      return;
+    }
+    int missing;
+    synchronized (servers) {
+      missing = servers.spec.warmServers - servers.ready.size() - servers.starting;
+      servers.starting += Math.max(0, missing);
+    }
+    for (int i = 0; i < missing; i++) {
+      executor.execute(() -> start(servers));
+    }
+  }
+
+  private void start(Servers servers) {
+    ServerSpec spec;
+    synchronized (servers) {
+      spec = servers.spec;
+    }
+    HeldExecutionLog log = new HeldExecutionLog();
+    SlimCommandRunningClient client = spec.newClient(log);
+    boolean started = false;
+    try {
+      client.start();
+      started = true;
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "Could not start Slim server ahead of time: " + String.join(" ", spec.command), e);
+    } finally {
+      boolean keep;
+      synchronized (servers) {
+        servers.starting--;
+        keep = started && !closed && pools.get(spec.key) == servers;
+        if (keep) {
+          servers.ready.add(new WarmServer(client, log));
+        }
+      }
+      if (!keep) {
+        client.kill();
+      }
+    }
+  }
+
+  /**
+   * What to start: the command without its port, the connection settings, and how many servers to keep ready.
+   */
+  static class ServerSpec {
+    final String[] command;
+    final Map<String, String> environment;
+    final String host;
+    final int timeout;
+    final double slimVersion;
+    final ClientSocketFactory socketFactory;
+    final int warmServers;
+    final long idleMillis;
+    final String key;
+
+    ServerSpec(String[] command, Map<String, String> environment, String host, int timeout, double slimVersion,
+               ClientSocketFactory socketFactory, int warmServers, long idleMillis) {
+      this.command = command;
+      this.environment = environment;
+      this.host = host;
+      this.timeout = timeout;
+      this.slimVersion = slimVersion;
+      this.socketFactory = socketFactory;
+      this.warmServers = warmServers;
+      this.idleMillis = idleMillis;
+      this.key = Arrays.asList(command) + " " + environment + " " + host + ":" + timeout + " v" + slimVersion
+        + " " + socketFactory.getClass().getName();
+    }
+
+    SlimCommandRunningClient newClient(ExecutionLogListener executionLogListener) {
+      int port = SlimClientBuilder.findFreePort();
+      String[] commandWithPort = Arrays.copyOf(command, command.length + 1);
+      commandWithPort[command.length] = Integer.toString(port);
+      CommandRunner runner = new CommandRunner(commandWithPort, environment, executionLogListener, timeout);
+      return new SlimCommandRunningClient(runner, host, port, timeout, slimVersion, socketFactory);
+    }
+  }
+
+  private static class Servers {
+    private final Deque<WarmServer> ready = new ArrayDeque<>();
+    private ServerSpec spec;
+    private int starting;
+    private long lastUsed;
+
+    private Servers(ServerSpec spec) {
+      this.spec = spec;
+      this.lastUsed = Clock.currentTimeInMillis();
+    }
+
+    private void killAll() {
+      WarmServer server;
+      while ((server = ready.poll()) != null) {
+        server.client.kill();
+      }
+    }
+  }
+
+  private static class WarmServer {
+    private final SlimCommandRunningClient client;
+    private final HeldExecutionLog log;
+
+    private WarmServer(SlimCommandRunningClient client, HeldExecutionLog log) {
+      this.client = client;
+      this.log = log;
+    }
+
+    private boolean isAlive() {
+      return client.slimRunner == null || !client.slimRunner.isDead();
+    }
+  }
+
+  /**
+   * Keeps the output of a server until it is handed out, then passes the kept and all further output to the
+   * execution log of the test run. Apart from the start of the command, only the last lines are kept while waiting.
+   */
+  static class HeldExecutionLog implements ExecutionLogListener {
+    private static final int MAX_HELD_EVENTS = 1000;
+
+    private final Deque<Consumer<ExecutionLogListener>> held = new ArrayDeque<>();
+    private ExecutionContext started;
+    private ExecutionLogListener target;
+
+    synchronized void attach(ExecutionLogListener executionLogListener) {
+      if (started != null) {
+        executionLogListener.commandStarted(started);
+      }
+      List<Consumer<ExecutionLogListener>> events = new ArrayList<>(held);
+      held.clear();
+      for (Consumer<ExecutionLogListener> event : events) {
+        event.accept(executionLogListener);
+      }
+      target = executionLogListener;
+    }
+
+    private synchronized void send(Consumer<ExecutionLogListener> event) {
+      if (target != null) {
+        event.accept(target);
+        return;
+      }
+      if (held.size() == MAX_HELD_EVENTS) {
+        held.removeFirst();
+      }
+      held.add(event);
+    }
+
+    @Override
+    public synchronized void commandStarted(ExecutionContext context) {
+      if (target != null) {
+        target.commandStarted(context);
+      } else {
+        started = context;
+      }
+    }
+
+    @Override
+    public void stdOut(String output) {
+      send(listener -> listener.stdOut(output));
+    }
+
+    @Override
+    public void stdErr(String output) {
+      send(listener -> listener.stdErr(output));
+    }
+
+    @Override
+    public void exitCode(int exitCode) {
+      send(listener -> listener.exitCode(exitCode));
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable e) {
+      send(listener -> listener.exceptionOccurred(e));
+    }
+  }
+}
@@ -5,6 +5,7 @@ package fitnesse.testsystems.slim;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -12,6 +13,7 @@ import java.util.Map.Entry;
 import fitnesse.slim.instructions.AssignInstruction;
 import fitnesse.slim.instructions.Instruction;
 import fitnesse.testsystems.*;
+import fitnesse.testsystems.PhaseTimers.Phase;
 import fitnesse.testsystems.slim.results.SlimExceptionResult;
 import fitnesse.testsystems.slim.tables.SlimAssertion;
 import fitnesse.testsystems.slim.tables.SlimTable;
@@ -24,6 +26,8 @@ public abstract class SlimTestSystem implements TestSystem {
   private final CompositeTestSystemListener testSystemListener;
   private final String testSystemName;
 
+  private final Map<SlimTable, PreparedTable> preparedTables = new IdentityHashMap<>();
+  private PhaseTimers phaseTimers = PhaseTimers.NONE;
   private SlimTestContextImpl testContext;
   private boolean stopTestCalled;
   private boolean ignoreAllTestsCalled;
@@ -41,6 +45,14 @@ public abstract class SlimTestSystem implements TestSystem {
     return testContext;
   }
 
+  public void setPhaseTimers(PhaseTimers phaseTimers) {
+    this.phaseTimers = phaseTimers;
+  }
+
+  protected PhaseTimers getPhaseTimers() {
+    return phaseTimers;
+  }
+
   @Override
   public String getName() {
     return testSystemName;
@@ -106,6 +118,7 @@ public abstract class SlimTestSystem implements TestSystem {
 
   protected void initializeTest(TestPage testPage) {
     testContext = createTestContext(testPage);
+    preparedTables.clear();
     stopTestCalled = false;
     ignoreAllTestsCalled = false;
   }
@@ -116,10 +129,64 @@ public abstract class SlimTestSystem implements TestSystem {
 
   protected abstract void processAllTablesOnPage(TestPage testPage) throws TestExecutionException;
 
+  /**
+   * Sends the instructions of consecutive tables to the Slim server in one message, to save round trips.
+   * {@link #processTable(SlimTable, boolean)} still evaluates the tables one by one.
+   * <p>
+   * Tables are only sent together if they would all be executed when sent one by one: a tear down table is
+   * sent on its own, and so are the tables after one that sends symbols back on evaluation. When a table stops or
+   * ignores the test, the server skips the rest of the message; those tables are sent again by processTable.
+   */
+  protected void prepareTables(List<SlimTable> tables) throws SlimCommunicationException {
+    if (tables.isEmpty() || preparedTables.containsKey(tables.get(0))
+      || stopTestCalled || ignoreAllTestsCalled || stopSuiteCalled) {
+      return;
+    }
+    List<PreparedTable> batch = new ArrayList<>();
+    List<Instruction> instructions = new ArrayList<>();
+    for (SlimTable table : tables) {
+      if (table.isTearDown()) {
+        break;
+      }
+      PreparedTable prepared = new PreparedTable(table);
+      batch.add(prepared);
+      if (prepared.assertions != null) {
+        instructions.addAll(SlimAssertion.getInstructions(prepared.assertions));
+      }
+      if (table.storesSymbolsOnEvaluation()) {
+        break;
+      }
+    }
+    for (PreparedTable prepared : batch) {
+      preparedTables.put(prepared.table, prepared);
+    }
+    if (batch.size() > 1) {
+      Map<String, Object> results = invokeAndGetResponse(instructions);
+      for (PreparedTable prepared : batch) {
+        prepared.results = results;
+      }
+    }
+  }
+
   protected void processTable(SlimTable table, boolean isSuiteTearDownPage) throws TestExecutionException {
-    List<SlimAssertion> assertions = table.getAssertions();
+    PreparedTable prepared = preparedTables.remove(table);
+    List<SlimAssertion> assertions;
+    if (prepared == null) {
+      long start = phaseTimers.start();
+      assertions = table.getAssertions();
+      phaseTimers.stop(Phase.INSTRUCTIONS, start);
+    } else {
+      assertions = prepared.getAssertions();
+    }
     final Map<String, Object> instructionResults;
-    if (stopTestCalled && !table.isTearDown()) {
+    if (prepared != null && prepared.results != null) {
+      instructionResults = prepared.results;
+      if (stopsExecution(assertions, instructionResults)) {
+        for (PreparedTable notExecuted : preparedTables.values()) {
+          notExecuted.results = null;
+        }
+      }
+    } else if (stopTestCalled && !table.isTearDown()) {
       instructionResults = Collections.emptyMap();
     } else if (ignoreAllTestsCalled && !table.isTearDown()){
       instructionResults = Collections.emptyMap();
@@ -131,11 +198,34 @@ public abstract class SlimTestSystem implements TestSystem {
       if (stopSuiteCalled && !isSuiteTearDownPage && !tearDownOfAlreadyStartedTest) {
         instructionResults = Collections.emptyMap();
       } else {
-        instructionResults = slimClient.invokeAndGetResponse(SlimAssertion.getInstructions(assertions));
+        instructionResults = invokeAndGetResponse(SlimAssertion.getInstructions(assertions));
       }
     }
 
+    long start = phaseTimers.start();
     evaluateTables(assertions, instructionResults);
+    phaseTimers.stop(Phase.EVALUATION, start);
+  }
+
+  private static boolean stopsExecution(List<SlimAssertion> assertions, Map<String, Object> instructionResults) {
+    for (SlimAssertion a : assertions) {
+      Object returnValue = instructionResults.get(a.getInstruction().getId());
+      if (returnValue instanceof String) {
+        String result = (String) returnValue;
+        if (result.startsWith(EXCEPTION_STOP_TEST_TAG) || result.startsWith(EXCEPTION_STOP_SUITE_TAG)
+          || result.startsWith(EXCEPTION_IGNORE_SCRIPT_TEST_TAG) || result.startsWith(EXCEPTION_IGNORE_ALL_TESTS_TAG)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private Map<String, Object> invokeAndGetResponse(List<Instruction> instructions) throws SlimCommunicationException {
+    long start = phaseTimers.start();
+    Map<String, Object> results = slimClient.invokeAndGetResponse(instructions);
+    phaseTimers.stop(Phase.ROUND_TRIP, start);
+    return results;
   }
 
   protected void evaluateTables(List<SlimAssertion> assertions, Map<String, Object> instructionResults) throws SlimCommunicationException {
@@ -189,7 +279,7 @@ public abstract class SlimTestSystem implements TestSystem {
             }
             //Store variables in context
             if (i > 0) {
-              slimClient.invokeAndGetResponse(instructions);
+              invokeAndGetResponse(instructions);
             }
           }
         }
@@ -197,6 +287,31 @@ public abstract class SlimTestSystem implements TestSystem {
     }
   }
 
+  private final class PreparedTable {
+    private final SlimTable table;
+    private List<SlimAssertion> assertions;
+    private TestExecutionException error;
+    private Map<String, Object> results;
+
+    private PreparedTable(SlimTable table) {
+      this.table = table;
+      long start = phaseTimers.start();
+      try {
+        assertions = table.getAssertions();
+      } catch (TestExecutionException e) {
+        error = e;
+      }
+      phaseTimers.stop(Phase.INSTRUCTIONS, start);
+    }
+
+    private List<SlimAssertion> getAssertions() throws TestExecutionException {
+      if (error != null) {
+        throw error;
+      }
+      return assertions;
+    }
+  }
+
   protected void testOutputChunk(TestPage testPage, String output) {
     testSystemListener.testOutputChunk(testPage, output);
   }
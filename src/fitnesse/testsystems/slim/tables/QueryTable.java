@@ -43,6 +43,11 @@ public class QueryTable extends SlimTable {
     return c.evaluate();
   }
 
+  @Override
+  public boolean storesSymbolsOnEvaluation() {
+    return true;
+  }
+
   @Override
   public List<SlimAssertion> getAssertions() throws SyntaxError {
     if (table.getRowCount() < 2)
@@ -141,6 +141,14 @@ public abstract class SlimTable {
     return table.isTearDown();
   }
 
+  /**
+   * @return true if evaluating the results of this table may send symbols back to the Slim server, so tables
+   * after it can only be executed once this table is evaluated.
+   */
+  public boolean storesSymbolsOnEvaluation() {
+    return false;
+  }
+
   protected String getFixtureName(String tableHeader) {
     if (!tableHeader.contains(":"))
       return tableHeader;
@@ -26,6 +26,11 @@ public class TableTable extends SlimTable {
     return ("tableTable");
   }
 
+  @Override
+  public boolean storesSymbolsOnEvaluation() {
+    return true;
+  }
+
   @Override
   public List<SlimAssertion> getAssertions() {
     SlimAssertion make = constructFixture(getFixtureName());
@@ -0,0 +1,370 @@
+package fitnesse.util;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only line log (e.g. JSONL) written by a dedicated thread.
+ * <p>
+ * {@link #append(String)} only puts the line in a bounded in-memory queue, so it never blocks the caller; when
+ * the queue is full the line is dropped and the returned future fails. The writer takes everything that is
+ * queued, up to a batch size and waiting at most the linger time for more, and writes it with a single call
+ * (group commit). The returned futures complete, on the caller's context, once their batch is written and
+ * synced as the {@link FsyncPolicy} requires. Files are rotated by size and age: the current file is renamed
+ * with a timestamp suffix and a new one started.
+ */
+public final class AppendOnlyLog implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(AppendOnlyLog.class.getName());
+  private static final long IDLE_POLL_MILLIS = 1000;
+  /**
+   * Queued by {@link #close()} to wake the writer; interrupting it would close its file channel.
+   */
+  private static final Entry WAKE_UP = new Entry(new byte[0], null, null);
+
+  public enum FsyncPolicy {
+    /** Leave syncing to the operating system. */
+    NEVER,
+    /** Sync at most once per fsync interval, after a write. */
+    INTERVAL,
+    /** Sync every batch before completing its futures. */
+    EVERY_BATCH
+  }
+
+  public static final class Options {
+    private int queueSize = 8192;
+    private int batchSize = 512;
+    private long lingerMillis = 5;
+    private long maxFileBytes = 64L * 1024 * 1024;
+    private long maxFileAgeMillis = TimeUnit.DAYS.toMillis(1);
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+    private long fsyncIntervalMillis = 1000;
+
+    public Options setQueueSize(int queueSize) {
+      this.queueSize = queueSize;
+      return this;
+    }
+
+    public Options setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    public Options setLingerMillis(long lingerMillis) {
+      this.lingerMillis = lingerMillis;
+      return this;
+    }
+
+    /**
+     * @param maxFileBytes size after which the file is rotated, 0 for no limit.
+     */
+    public Options setMaxFileBytes(long maxFileBytes) {
+      this.maxFileBytes = maxFileBytes;
+      return this;
+    }
+
+    /**
+     * @param maxFileAgeMillis time after opening a file after which it is rotated, 0 for no limit.
+     */
+    public Options setMaxFileAgeMillis(long maxFileAgeMillis) {
+      this.maxFileAgeMillis = maxFileAgeMillis;
+      return this;
+    }
+
+    public Options setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+      this.fsyncPolicy = fsyncPolicy;
+      return this;
+    }
+
+    public Options setFsyncIntervalMillis(long fsyncIntervalMillis) {
+      this.fsyncIntervalMillis = fsyncIntervalMillis;
+      return this;
+    }
+  }
+
+  private static final class Entry {
+    final byte[] line;
+    final Promise<Void> promise;
+    final Context context;
+
+    Entry(byte[] line, Promise<Void> promise, Context context) {
+      this.line = line;
+      this.promise = promise;
+      this.context = context;
+    }
+  }
+
+  private final Vertx vertx;
+  private final Path file;
+  private final Options options;
+  private final BlockingQueue<Entry> queue;
+  private final AtomicLong dropped = new AtomicLong();
+  private final Thread writer;
+  private final Thread shutdownHook;
+  private volatile boolean closed;
+
+  private FileChannel channel;
+  private long fileSize;
+  private long openedAt;
+  private long lastSync;
+  private boolean unsynced;
+  private ByteBuffer batchBuffer = ByteBuffer.allocate(64 * 1024);
+
+  public AppendOnlyLog(Vertx vertx, Path file) {
+    this(vertx, file, new Options());
+  }
+
+  public AppendOnlyLog(Vertx vertx, Path file, Options options) {
+    this.vertx = vertx;
+    this.file = file;
+    this.options = options;
+    this.queue = new ArrayBlockingQueue<>(options.queueSize);
+    this.writer = new Thread(this::run, "log writer " + file.getFileName());
+    this.writer.setDaemon(true);
+    this.writer.start();
+    this.shutdownHook = new Thread(this::close, "log writer shutdown " + file.getFileName());
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  /**
+   * Queues a line; a line separator is added. The future completes once the line is written.
+   */
+  public Future<Void> append(String line) {
+    if (closed) {
+      return Future.failedFuture(new IllegalStateException("Log is closed: " + file));
+    }
+    byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+    Promise<Void> promise = Promise.promise();
+    if (!queue.offer(new Entry(bytes, promise, vertx.getOrCreateContext()))) {
+      dropped.incrementAndGet();
+      return Future.failedFuture(new IllegalStateException("Log buffer is full: " + file));
+    }
+    return promise.future();
+  }
+
+  /**
+   * Writes what is queued and stops the writer. Blocks until done.
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      queue.offer(WAKE_UP, IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      Runtime.getRuntime().removeShutdownHook(shutdownHook);
+    } catch (IllegalStateException e) {
+      // Already shutting down.
+    }
+  }
+
+  private void run() {
+    List<Entry> batch = new ArrayList<>(options.batchSize);
+    while (!closed || !queue.isEmpty()) {
+      try {
+        collect(batch);
+      } catch (InterruptedException e) {
+        queue.drainTo(batch);
+      }
+      batch.remove(WAKE_UP);
+      if (batch.isEmpty()) {
+        syncIfDue();
+      } else {
+        write(batch);
+        batch.clear();
+      }
+    }
+    closeChannel();
+    // Lines that raced with close() are not written.
+    queue.drainTo(batch);
+    batch.remove(WAKE_UP);
+    complete(batch, new IOException("Log is closed: " + file));
+  }
+
+  private void collect(List<Entry> batch) throws InterruptedException {
+    if (closed) {
+      queue.drainTo(batch, options.batchSize);
+      return;
+    }
+    Entry first = queue.poll(unsynced ? Math.max(1, nextSyncIn()) : IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    if (first == null) {
+      return;
+    }
+    batch.add(first);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.lingerMillis);
+    while (batch.size() < options.batchSize) {
+      queue.drainTo(batch, options.batchSize - batch.size());
+      long remaining = deadline - System.nanoTime();
+      if (batch.size() >= options.batchSize || remaining <= 0) {
+        return;
+      }
+      Entry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      if (next == null) {
+        return;
+      }
+      batch.add(next);
+    }
+  }
+
+  private void write(List<Entry> batch) {
+    IOException failure = null;
+    try {
+      ByteBuffer bytes = fill(batch);
+      rotateIfNeeded(bytes.remaining());
+      ensureOpen();
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      fileSize += bytes.limit();
+      unsynced = true;
+      if (options.fsyncPolicy == FsyncPolicy.EVERY_BATCH) {
+        sync();
+      } else {
+        syncIfDue();
+      }
+    } catch (IOException e) {
+      failure = e;
+      LOG.log(Level.WARNING, "Unable to write " + batch.size() + " entries to " + file, e);
+      closeChannel();
+    }
+    long lost = dropped.getAndSet(0);
+    if (lost > 0) {
+      LOG.warning("Dropped " + lost + " entries for " + file + ": buffer was full");
+    }
+    complete(batch, failure);
+  }
+
+  private ByteBuffer fill(List<Entry> batch) {
+    int size = 0;
+    for (Entry entry : batch) {
+      size += entry.line.length;
+    }
+    if (batchBuffer.capacity() < size) {
+      batchBuffer = ByteBuffer.allocate(Math.max(size, batchBuffer.capacity() * 2));
+    }
+    batchBuffer.clear();
+    for (Entry entry : batch) {
+      batchBuffer.put(entry.line);
+    }
+    batchBuffer.flip();
+    return batchBuffer;
+  }
+
+  private static void complete(List<Entry> batch, IOException failure) {
+    for (Entry entry : batch) {
+      entry.context.runOnContext(v -> {
+        if (failure == null) {
+          entry.promise.complete();
+        } else {
+          entry.promise.fail(failure);
+        }
+      });
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (channel != null) {
+      return;
+    }
+    Files.createDirectories(file.getParent());
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    fileSize = channel.size();
+    openedAt = System.currentTimeMillis();
+    lastSync = openedAt;
+  }
+
+  private void rotateIfNeeded(int incoming) throws IOException {
+    ensureOpen();
+    if (fileSize == 0) {
+      return;
+    }
+    boolean tooBig = options.maxFileBytes > 0 && fileSize + incoming > options.maxFileBytes;
+    boolean tooOld = options.maxFileAgeMillis > 0 && System.currentTimeMillis() - openedAt >= options.maxFileAgeMillis;
+    if (!tooBig && !tooOld) {
+      return;
+    }
+    if (options.fsyncPolicy != FsyncPolicy.NEVER) {
+      channel.force(false);
+    }
+    channel.close();
+    channel = null;
+    unsynced = false;
+    Files.move(file, rotatedName());
+  }
+
+  private Path rotatedName() {
+    String name = file.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String base = dot > 0 ? name.substring(0, dot) : name;
+    String extension = dot > 0 ? name.substring(dot) : "";
+    String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+    Path rotated = file.resolveSibling(base + "-" + stamp + extension);
+    for (int i = 1; Files.exists(rotated); i++) {
+      rotated = file.resolveSibling(base + "-" + stamp + "-" + i + extension);
+    }
+    return rotated;
+  }
+
+  private long nextSyncIn() {
+    return lastSync + options.fsyncIntervalMillis - System.currentTimeMillis();
+  }
+
+  private void syncIfDue() {
+    if (unsynced && options.fsyncPolicy == FsyncPolicy.INTERVAL && nextSyncIn() <= 0) {
+      try {
+        sync();
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to sync " + file, e);
+      }
+    }
+  }
+
+  private void sync() throws IOException {
+    if (channel != null) {
+      channel.force(false);
+    }
+    unsynced = false;
+    lastSync = System.currentTimeMillis();
+  }
+
+  private void closeChannel() {
+    if (channel == null) {
+      return;
+    }
+    try {
+      if (unsynced && options.fsyncPolicy != FsyncPolicy.NEVER) {
+        channel.force(false);
+      }
+      channel.close();
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Unable to close " + file, e);
+    }
+    channel = null;
+    unsynced = false;
+  }
+}
@@ -0,0 +1,130 @@
+package fitnesse.util.partitioner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Splits a list into sublists with about the same total run time, using the 'longest processing time first' rule:
+ * the longest remaining element goes to the sublist with the least run time so far.
+ * <p>
+ * Elements of the same group are kept together, unless the group alone takes longer than an equal share of the
+ * total run time. Elements without known run time (a negative value) are assumed to take the average known run time.
+ * Each sublist keeps the order the elements had in the source.
+ * @param <T> list element type
+ */
+public class LongestProcessingTimeListPartitioner<T> implements ListPartitioner<T> {
+  private final ToLongFunction<T> runTimeFunction;
+  private final Function<T, ?> groupFunction;
+
+  /**
+   * Creates new.
+   * @param runTimeFunction expected run time of an element, negative when not known.
+   * @param groupFunction key of the group an element belongs to, elements with equal keys are kept together.
+   */
+  public LongestProcessingTimeListPartitioner(ToLongFunction<T> runTimeFunction, Function<T, ?> groupFunction) {
+    this.runTimeFunction = runTimeFunction;
+    this.groupFunction = groupFunction;
+  }
+
+  @Override
+  public List<List<T>> split(List<T> source, int partitionCount) {
+    long[] runTimes = getRunTimes(source);
+    long total = 0;
+    for (long runTime : runTimes) {
+      total += runTime;
+    }
+    List<Job> jobs = createJobs(source, runTimes, total / partitionCount);
+    jobs.sort(Comparator.comparingLong((Job job) -> job.runTime).reversed());
+
+    List<List<Integer>> assigned = new ArrayList<>(partitionCount);
+    PriorityQueue<Load> loads = new PriorityQueue<>(partitionCount,
+      Comparator.comparingLong((Load load) -> load.runTime).thenComparingInt(load -> load.partition));
+    for (int i = 0; i < partitionCount; i++) {
+      assigned.add(new ArrayList<>());
+      loads.add(new Load(i));
+    }
+    for (Job job : jobs) {
+      Load least = loads.poll();
+      assigned.get(least.partition).addAll(job.indices);
+      least.runTime += job.runTime;
+      loads.add(least);
+    }
+
+    List<List<T>> result = new ArrayList<>(partitionCount);
+    for (List<Integer> indices : assigned) {
+      indices.sort(null);
+      List<T> partition = new ArrayList<>(indices.size());
+      for (int index : indices) {
+        partition.add(source.get(index));
+      }
+      result.add(partition);
+    }
+    return result;
+  }
+
+  private long[] getRunTimes(List<T> source) {
+    long[] runTimes = new long[source.size()];
+    long knownTotal = 0;
+    int known = 0;
+    for (int i = 0; i < runTimes.length; i++) {
+      runTimes[i] = runTimeFunction.applyAsLong(source.get(i));
+      if (runTimes[i] >= 0) {
+        knownTotal += runTimes[i];
+        known++;
+      }
+    }
+    long assumed = known == 0 ? 1 : Math.max(1, knownTotal / known);
+    for (int i = 0; i < runTimes.length; i++) {
+      if (runTimes[i] < 0) {
+        runTimes[i] = assumed;
+      }
+    }
+    return runTimes;
+  }
+
+  private List<Job> createJobs(List<T> source, long[] runTimes, long equalShare) {
+    Map<Object, Job> groups = new LinkedHashMap<>();
+    for (int i = 0; i < runTimes.length; i++) {
+      Job group = groups.computeIfAbsent(groupFunction.apply(source.get(i)), key -> new Job());
+      group.add(i, runTimes[i]);
+    }
+    List<Job> jobs = new ArrayList<>(source.size());
+    for (Job group : groups.values()) {
+      if (group.runTime > equalShare && group.indices.size() > 1) {
+        for (int index : group.indices) {
+          Job single = new Job();
+          single.add(index, runTimes[index]);
+          jobs.add(single);
+        }
+      } else {
+        jobs.add(group);
+      }
+    }
+    return jobs;
+  }
+
+  private static final class Job {
+    private final List<Integer> indices = new ArrayList<>();
+    private long runTime;
+
+    private void add(int index, long indexRunTime) {
+      indices.add(index);
+      runTime += indexRunTime;
+    }
+  }
+
+  private static final class Load {
+    private final int partition;
+    private long runTime;
+
+    private Load(int partition) {
+      this.partition = partition;
+    }
+  }
+}
@@ -1,16 +1,17 @@
 package fitnesse.vertx;
 
 import fitnesse.http.ResponseSender;
+import io.vertx.core.buffer.Buffer;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-
+/**
+ * Collects a responder's output in a Vert.x buffer, which can be handed to the HTTP response as is.
+ */
 final class BufferedResponseSender implements ResponseSender {
-  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private final Buffer buffer = Buffer.buffer(8192);
 
   @Override
-  public void send(byte[] bytes) throws IOException {
-    buffer.write(bytes);
+  public void send(byte[] bytes) {
+    buffer.appendBytes(bytes);
   }
 
   @Override
@@ -18,7 +19,7 @@ final class BufferedResponseSender implements ResponseSender {
     // No resources to close.
   }
 
-  byte[] toByteArray() {
-    return buffer.toByteArray();
+  Buffer toBuffer() {
+    return buffer;
   }
 }
@@ -0,0 +1,172 @@
+package fitnesse.vertx;
+
+import fitnesse.responders.files.FileResponder;
+import io.vertx.core.buffer.Buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The bundled {@code fitnesse/resources} (CSS, JavaScript, images) served below {@code /files/fitnesse/},
+ * read once into an immutable map.
+ * <p>
+ * Each resource carries a strong ETag derived from its content and, for text formats, a precompressed gzip
+ * variant, so serving one is a header lookup and a buffer write.
+ */
+final class ClasspathResources {
+  private static final Logger LOG = Logger.getLogger(ClasspathResources.class.getName());
+  static final String PREFIX = "fitnesse/resources/";
+
+  /**
+   * One bundled file. {@code gzip} is null when compression does not pay off.
+   */
+  static final class Resource {
+    final Buffer content;
+    final Buffer gzip;
+    final String etag;
+    final String contentType;
+
+    Resource(Buffer content, Buffer gzip, String etag, String contentType) {
+      this.content = content;
+      this.gzip = gzip;
+      this.etag = etag;
+      this.contentType = contentType;
+    }
+  }
+
+  private final Map<String, Resource> resources;
+
+  private ClasspathResources(Map<String, Resource> resources) {
+    this.resources = resources;
+  }
+
+  /**
+   * Reads all resources below {@code fitnesse/resources} from directories and jars on the class path.
+   * Earlier class path entries win, as with {@link ClassLoader#getResource(String)}.
+   */
+  static ClasspathResources load(ClassLoader classLoader) {
+    Map<String, Resource> resources = new HashMap<>();
+    try {
+      Enumeration<URL> roots = classLoader.getResources(PREFIX.substring(0, PREFIX.length() - 1));
+      while (roots.hasMoreElements()) {
+        URL root = roots.nextElement();
+        try {
+          loadFrom(root, resources);
+        } catch (IOException | URISyntaxException e) {
+          LOG.log(Level.WARNING, "Unable to read resources from " + root, e);
+        }
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to list FitNesse resources", e);
+    }
+    return new ClasspathResources(Collections.unmodifiableMap(resources));
+  }
+
+  /**
+   * @param name path below {@code fitnesse/resources}, e.g. {@code css/fitnesse_wiki.css}.
+   */
+  Resource get(String name) {
+    return resources.get(name);
+  }
+
+  int size() {
+    return resources.size();
+  }
+
+  private static void loadFrom(URL root, Map<String, Resource> into) throws IOException, URISyntaxException {
+    if ("file".equals(root.getProtocol())) {
+      Path directory = Paths.get(root.toURI());
+      List<Path> files;
+      try (Stream<Path> walk = Files.walk(directory)) {
+        files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+      }
+      for (Path file : files) {
+        String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+        if (!into.containsKey(name)) {
+          into.put(name, resource(name, Files.readAllBytes(file)));
+        }
+      }
+    } else if ("jar".equals(root.getProtocol())) {
+      URLConnection connection = root.openConnection();
+      connection.setUseCaches(false);
+      try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+        Enumeration<JarEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+          JarEntry entry = entries.nextElement();
+          if (entry.isDirectory() || !entry.getName().startsWith(PREFIX)) {
+            continue;
+          }
+          String name = entry.getName().substring(PREFIX.length());
+          if (into.containsKey(name)) {
+            continue;
+          }
+          try (InputStream input = jar.getInputStream(entry)) {
+            into.put(name, resource(name, input.readAllBytes()));
+          }
+        }
+      }
+    } else {
+      LOG.warning("Unsupported resource location: " + root);
+    }
+  }
+
+  static Resource resource(String name, byte[] content) {
+    String contentType = FileResponder.getContentType(name);
+    byte[] gzip = isCompressible(contentType) ? gzip(content) : null;
+    if (gzip != null && gzip.length >= content.length) {
+      gzip = null;
+    }
+    return new Resource(Buffer.buffer(content), gzip == null ? null : Buffer.buffer(gzip), etag(content), contentType);
+  }
+
+  private static boolean isCompressible(String contentType) {
+    return contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("json")
+      || contentType.contains("xml");
+  }
+
+  private static byte[] gzip(byte[] content) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 3 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(content);
+    } catch (IOException e) {
+      return null;
+    }
+    return output.toByteArray();
+  }
+
+  private static String etag(byte[] content) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+      StringBuilder hex = new StringBuilder(34).append('"');
+      for (int i = 0; i < 16; i++) {
+        hex.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+      }
+      return hex.append('"').toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package fitnesse.vertx;
+
+import fitnesse.http.Response;
+import fitnesse.responders.files.FileResponder;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import util.FileUtil;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves plain files below {@code /files} without going through {@link FileResponder}.
+ * <p>
+ * Files in the {@code files} directory are sent with {@code sendFile}, so their content never passes through
+ * the heap. Bundled resources below {@code files/fitnesse/} come from {@link ClasspathResources}, gzipped when
+ * the client accepts it. Both support conditional requests and single byte ranges. Directory listings, invalid
+ * paths and missing files are left to {@code fallback}, which answers them as before.
+ */
+final class FilesHandler implements Handler<RoutingContext> {
+  private static final Logger LOG = Logger.getLogger(FilesHandler.class.getName());
+  private static final String FITNESSE_FILES = "files/fitnesse/";
+  static final long[] UNSATISFIABLE = new long[0];
+
+  private final File rootPath;
+  private final Handler<RoutingContext> fallback;
+  private final long resourcesLastModified = (System.currentTimeMillis() / 1000) * 1000;
+  private volatile ClasspathResources resources;
+
+  FilesHandler(File rootPath, Handler<RoutingContext> fallback) {
+    this.rootPath = rootPath;
+    this.fallback = fallback;
+  }
+
+  /**
+   * Reads the bundled resources, so the first request does not have to. Blocks.
+   */
+  void warmUp() {
+    resources();
+  }
+
+  @Override
+  public void handle(RoutingContext ctx) {
+    String resource;
+    try {
+      resource = URLDecoder.decode(ctx.request().path().substring(1), FileUtil.CHARENCODING);
+    } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+      fallback.handle(ctx);
+      return;
+    }
+    ctx.vertx().executeBlocking(() -> resolve(resource), false).onComplete(ar -> {
+      if (ar.failed()) {
+        LOG.log(Level.FINE, "Unable to resolve " + resource, ar.cause());
+        fallback.handle(ctx);
+      } else if (ar.result() == null) {
+        fallback.handle(ctx);
+      } else {
+        serve(ctx, ar.result());
+      }
+    });
+  }
+
+  private Target resolve(String resource) throws Exception {
+    File file = new File(rootPath, resource);
+    if (!FileResponder.isInFilesDirectory(rootPath, file)) {
+      return null;
+    }
+    if (file.isFile()) {
+      long lastModified = (file.lastModified() / 1000) * 1000;
+      String etag = "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+      return new Target(file.getPath(), null, file.length(), lastModified, etag,
+        FileResponder.getContentType(file.getName()));
+    }
+    if (!file.exists() && resource.startsWith(FITNESSE_FILES)) {
+      ClasspathResources.Resource bundled = resources().get(resource.substring(FITNESSE_FILES.length()));
+      if (bundled != null) {
+        return new Target(null, bundled, bundled.content.length(), resourcesLastModified, bundled.etag,
+          bundled.contentType);
+      }
+    }
+    return null;
+  }
+
+  private ClasspathResources resources() {
+    ClasspathResources loaded = resources;
+    if (loaded == null) {
+      synchronized (this) {
+        loaded = resources;
+        if (loaded == null) {
+          loaded = ClasspathResources.load(Thread.currentThread().getContextClassLoader());
+          resources = loaded;
+        }
+      }
+    }
+    return loaded;
+  }
+
+  private void serve(RoutingContext ctx, Target target) {
+    HttpServerRequest request = ctx.request();
+    HttpServerResponse response = ctx.response();
+    String rangeHeader = request.getHeader("Range");
+    boolean gzip = target.resource != null && target.resource.gzip != null && rangeHeader == null
+      && acceptsGzip(request.getHeader("Accept-Encoding"));
+    String etag = gzip ? target.etag.substring(0, target.etag.length() - 1) + "-gzip\"" : target.etag;
+
+    response.putHeader("ETag", etag)
+      .putHeader("Last-Modified", Response.makeStandardHttpDateFormat().format(new Date(target.lastModified)))
+      .putHeader("Content-Type", target.contentType)
+      .putHeader("Accept-Ranges", "bytes");
+    if (target.resource != null && target.resource.gzip != null) {
+      response.putHeader("Vary", "Accept-Encoding");
+    }
+    if (isNotModified(request, etag, target.lastModified)) {
+      response.setStatusCode(304).end();
+      return;
+    }
+
+    long[] range = null;
+    String ifRange = request.getHeader("If-Range");
+    if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+      range = parseRange(rangeHeader, target.length);
+    }
+    if (range == UNSATISFIABLE) {
+      response.putHeader("Content-Range", "bytes */" + target.length).setStatusCode(416).end();
+      return;
+    }
+    long offset = 0;
+    long length = target.length;
+    if (range != null) {
+      offset = range[0];
+      length = range[1] - range[0] + 1;
+      response.setStatusCode(206)
+        .putHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + target.length);
+    }
+
+    if (target.file != null) {
+      response.sendFile(target.file, offset, length).onFailure(err -> {
+        LOG.log(Level.FINE, "Unable to send " + target.file, err);
+        if (!response.headWritten()) {
+          response.setStatusCode(500).end();
+        }
+      });
+    } else if (gzip) {
+      response.putHeader("Content-Encoding", "gzip").end(target.resource.gzip);
+    } else if (range != null) {
+      response.end(target.resource.content.slice((int) offset, (int) (offset + length)));
+    } else {
+      response.end(target.resource.content);
+    }
+  }
+
+  private static boolean isNotModified(HttpServerRequest request, String etag, long lastModified) {
+    String ifNoneMatch = request.getHeader("If-None-Match");
+    if (ifNoneMatch != null) {
+      for (String candidate : ifNoneMatch.split(",")) {
+        String tag = candidate.trim();
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+        if (tag.equals("*") || tag.equals(etag)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    String ifModifiedSince = request.getHeader("If-Modified-Since");
+    if (ifModifiedSince != null) {
+      try {
+        return !Response.makeStandardHttpDateFormat().parse(ifModifiedSince).before(new Date(lastModified));
+      } catch (ParseException e) {
+        // Some browsers use local date formats; serve the content instead.
+      }
+    }
+    return false;
+  }
+
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+        return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parses a {@code Range} header for a single byte range.
+   *
+   * @return {start, end} (inclusive), null to send the whole content (no, malformed or multiple ranges),
+   * or {@link #UNSATISFIABLE}.
+   */
+  static long[] parseRange(String header, long length) {
+    if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+      return null;
+    }
+    String spec = header.substring("bytes=".length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash < 0) {
+      return null;
+    }
+    try {
+      String first = spec.substring(0, dash).trim();
+      String last = spec.substring(dash + 1).trim();
+      if (first.isEmpty()) {
+        long suffix = Long.parseLong(last);
+        if (suffix <= 0 || length == 0) {
+          return UNSATISFIABLE;
+        }
+        return new long[] {Math.max(0, length - suffix), length - 1};
+      }
+      long start = Long.parseLong(first);
+      long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+      if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+        return null;
+      }
+      if (start >= length) {
+        return UNSATISFIABLE;
+      }
+      return new long[] {start, end};
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static final class Target {
+    final String file;
+    final ClasspathResources.Resource resource;
+    final long length;
+    final long lastModified;
+    final String etag;
+    final String contentType;
+
+    Target(String file, ClasspathResources.Resource resource, long length, long lastModified, String etag,
+           String contentType) {
+      this.file = file;
+      this.resource = resource;
+      this.length = length;
+      this.lastModified = lastModified;
+      this.etag = etag;
+      this.contentType = contentType;
+    }
+  }
+}
@@ -19,9 +19,14 @@ import fitnesse.ai.AiHistoryStore;
 import fitnesse.ai.AiWorkflowService;
 import fitnesse.ai.EchoAiProvider;
 import fitnesse.ai.OpenAiProvider;
+import fitnesse.search.SearchIndex;
+import fitnesse.search.SearchIndexUpdater;
 import fitnesse.search.SearchResult;
 import fitnesse.search.SearchService;
+import fitnesse.testsystems.PhaseTimers;
 import fitnesse.util.ClassUtils;
+import fitnesse.wiki.PageChangeEvents;
+import fitnesse.wikitext.diagram.DiagramCache;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
 import io.vertx.core.file.FileSystem;
@@ -43,11 +48,14 @@ import io.vertx.micrometer.backends.BackendRegistries;
 import io.vertx.micrometer.MicrometerMetricsOptions;
 import io.vertx.micrometer.VertxPrometheusOptions;
 import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -55,6 +63,7 @@ import java.util.logging.Logger;
 
 public final class FitNesseVertxMain {
   private static final Logger LOG = Logger.getLogger(FitNesseVertxMain.class.getName());
+  private static final long SEARCH_INDEX_SAVE_INTERVAL_MS = 30_000L;
 
   public static void main(String[] args) throws Exception {
     Vertx vertx = createVertx();
@@ -99,9 +108,13 @@ public final class FitNesseVertxMain {
     });
     router.route().handler(new VertxIdentityHandler());
 
+    List<Runnable> onClose = new ArrayList<>();
+    // closed last, as the actions run in reverse
+    onClose.add(context::close);
     EventBus bus = vertx.eventBus();
     ResponderBusService busService = new ResponderBusService(vertx, context);
     runMonitor.setOnUpdate(snapshot -> bus.publish("fitnesse.run.monitor", snapshot));
+    runMonitor.setOnResult(result -> bus.publish(RunEventsHandler.ADDRESS_RESULTS, result));
     busService.register(bus, "fitnesse.page.view", new ResponderFactoryResponder());
     busService.register(bus, "fitnesse.page.edit", new EditResponder());
     busService.register(bus, "fitnesse.page.save", new SaveResponder());
@@ -110,11 +123,24 @@ public final class FitNesseVertxMain {
     busService.register(bus, "fitnesse.files", new FileResponder());
     GitBusService gitBusService = new GitBusService(vertx, Paths.get(config.rootPath(), config.rootDirectory()));
     gitBusService.register(bus);
-    SearchService searchService = new SearchService(context.getRootPage());
+    SearchIndex searchIndex = new SearchIndex();
+    Path searchIndexFile = Paths.get(config.rootPath(), config.rootDirectory(), ".fitnesse", "search", "index.bin");
+    startSearchIndex(vertx, context, searchIndex, searchIndexFile);
+    SearchIndexUpdater searchIndexUpdater = new SearchIndexUpdater(searchIndex, context.getRootPage());
+    PageChangeBusBridge pageChangeBusBridge = new PageChangeBusBridge(bus);
+    PageChangeEvents.addListener(searchIndexUpdater);
+    PageChangeEvents.addListener(pageChangeBusBridge);
+    onClose.add(() -> {
+      PageChangeEvents.removeListener(searchIndexUpdater);
+      PageChangeEvents.removeListener(pageChangeBusBridge);
+      searchIndexUpdater.close();
+    });
+    SearchService searchService = new SearchService(context.getRootPage(), searchIndex);
     SearchBusService searchBusService = new SearchBusService(vertx, searchService);
     searchBusService.register(bus);
-    AiAssistantService aiService = new AiAssistantService(buildAiProvider(vertx),
-      new AiHistoryStore(vertx, Paths.get(config.rootPath(), config.rootDirectory())));
+    AiHistoryStore aiHistoryStore = new AiHistoryStore(vertx, Paths.get(config.rootPath(), config.rootDirectory()));
+    onClose.add(aiHistoryStore::close);
+    AiAssistantService aiService = new AiAssistantService(buildAiProvider(vertx), aiHistoryStore);
     AiBusService aiBusService = new AiBusService(vertx, aiService);
     aiBusService.register(bus);
     AiEvalService aiEvalService = new AiEvalService(buildAiProvider(vertx));
@@ -165,6 +191,14 @@ public final class FitNesseVertxMain {
       String resource = resourceFrom(pathAfter(ctx.request().path(), "/wiki/"));
       String address = resolvePageAddress(ctx);
       io.vertx.core.json.JsonObject payload = busService.buildPayload(ctx, resource);
+      if (isStreamableTestRun(address, payload)) {
+        busService.streamResponse(ctx, bus, address, payload, deliveryOptions(address), ar -> {
+          if (ar.succeeded()) {
+            maybeWriteTestArtifacts(vertx, context, address, payload, new io.vertx.core.json.JsonObject());
+          }
+        });
+        return;
+      }
       bus.request(address, payload, deliveryOptions(address))
         .onComplete(ar -> {
         if (ar.succeeded()) {
@@ -537,34 +571,28 @@ public final class FitNesseVertxMain {
       PluginsLoader pluginsLoader = new PluginsLoader(componentFactory, ClassUtils.getClassLoader());
       VertxPluginRegistry pluginRegistry = new VertxPluginRegistry();
       pluginsLoader.loadVertxPlugins(pluginRegistry);
-      pluginRegistry.registerAll(new VertxPluginContext(vertx, router, bus, context, config));
+      pluginRegistry.registerAll(new VertxPluginContext(vertx, router, bus, context, config, searchService));
+      onClose.add(pluginRegistry::closeAll);
     } catch (PluginException e) {
       LOG.log(Level.SEVERE, "Failed to load Vert.x plugins", e);
     }
 
-    router.get("/files").handler(ctx -> handleFileRequest(ctx, bus, busService));
-    router.get("/files/").handler(ctx -> handleFileRequest(ctx, bus, busService));
-    router.get("/files/*").handler(ctx -> handleFileRequest(ctx, bus, busService));
-
-    WebClient webClient = WebClient.create(vertx);
-    String plantUmlProxyTarget = readString("FITNESSE_PLANTUML_PROXY_TARGET", "https://www.plantuml.com/plantuml");
-    router.get("/plantuml/:format/:encoded").handler(ctx -> {
-      String format = ctx.pathParam("format");
-      String encoded = ctx.pathParam("encoded");
-      String target = trimTrailingSlash(plantUmlProxyTarget) + "/" + format + "/" + encoded;
-      webClient.getAbs(target).send().onComplete(ar -> {
-        if (ar.succeeded()) {
-          io.vertx.ext.web.client.HttpResponse<io.vertx.core.buffer.Buffer> response = ar.result();
-          String contentType = response.getHeader("Content-Type");
-          if (contentType != null) {
-            ctx.response().putHeader("Content-Type", contentType);
-          }
-          ctx.response().setStatusCode(response.statusCode()).end(response.bodyAsBuffer());
-        } else {
-          ctx.response().setStatusCode(502).end("PlantUML proxy error: " + ar.cause().getMessage());
-        }
-      });
-    });
+    FilesHandler filesHandler = new FilesHandler(new File(context.getRootPagePath()),
+      ctx -> handleFileRequest(ctx, bus, busService));
+    vertx.executeBlocking(() -> {
+      filesHandler.warmUp();
+      return null;
+    }, false);
+    router.get("/files").handler(filesHandler);
+    router.get("/files/").handler(filesHandler);
+    router.get("/files/*").handler(filesHandler);
+
+    DiagramCache.useDirectory(Paths.get(config.rootPath(), config.rootDirectory(), ".fitnesse", "diagrams"));
+    // Setting a proxy target sends every diagram to that PlantUML server instead of rendering svg/png locally.
+    String plantUmlProxyTarget = readString("FITNESSE_PLANTUML_PROXY_TARGET", null);
+    router.get("/plantuml/:format/:encoded").handler(new PlantUmlHandler(WebClient.create(vertx),
+      plantUmlProxyTarget == null ? "https://www.plantuml.com/plantuml" : plantUmlProxyTarget,
+      plantUmlProxyTarget == null));
 
     router.get("/:legacyPage").handler(ctx -> {
       String legacyPage = ctx.pathParam("legacyPage");
@@ -589,8 +617,10 @@ public final class FitNesseVertxMain {
       ctx.response().putHeader("Content-Type", "application/json");
       ctx.response().end(runMonitor.logsSince(since, limit).encode());
     });
+    router.get("/api/run/events").handler(new RunEventsHandler(bus));
     SockJSBridgeOptions ebOptions = new SockJSBridgeOptions()
-      .addOutboundPermitted(new PermittedOptions().setAddress("fitnesse.run.monitor"));
+      .addOutboundPermitted(new PermittedOptions().setAddress("fitnesse.run.monitor"))
+      .addOutboundPermitted(new PermittedOptions().setAddress(RunEventsHandler.ADDRESS_RESULTS));
     SockJSHandler sockJsHandler = SockJSHandler.create(vertx);
     router.route("/eventbus/*").subRouter(sockJsHandler.bridge(ebOptions));
 
@@ -705,6 +735,8 @@ public final class FitNesseVertxMain {
     vertx.deployVerticle(() -> new TestRunnerVerticle(busService, runMonitor, config), workerOpts)
       .onSuccess(id -> LOG.info("TestRunnerVerticle deployed: " + id))
       .onFailure(err -> LOG.log(Level.SEVERE, "Failed to deploy TestRunnerVerticle", err));
+    vertx.deployVerticle(new ShutdownVerticle(onClose), workerOpts)
+      .onFailure(err -> LOG.log(Level.SEVERE, "Failed to deploy ShutdownVerticle", err));
 
     vertx.createHttpServer(new HttpServerOptions()
         .setIdleTimeout(config.idleTimeoutSeconds())
@@ -728,7 +760,43 @@ public final class FitNesseVertxMain {
       .setPrometheusOptions(new VertxPrometheusOptions().setEnabled(true))
       .setEnabled(true);
     VertxOptions options = new VertxOptions().setMetricsOptions(metrics);
-    return Vertx.vertx(options);
+    Vertx vertx = Vertx.vertx(options);
+    // Test runs time their phases on the global registry, publish those on /metrics as well.
+    MeterRegistry registry = BackendRegistries.getDefaultNow();
+    if (registry != null) {
+      Metrics.globalRegistry.config().meterFilter(PhaseTimers.suiteLimit());
+      Metrics.addRegistry(registry);
+    }
+    return vertx;
+  }
+
+  /**
+   * Loads the persisted search index (or builds it on first start) off the event loop,
+   * and saves it periodically while pages change.
+   */
+  private static void startSearchIndex(Vertx vertx, FitNesseContext context, SearchIndex searchIndex, Path indexFile) {
+    vertx.executeBlocking(() -> {
+      if (searchIndex.load(indexFile)) {
+        searchIndex.refresh(context.getRootPage());
+      } else {
+        searchIndex.rebuild(context.getRootPage());
+      }
+      if (searchIndex.isDirty()) {
+        searchIndex.save(indexFile);
+      }
+      return searchIndex.size();
+    }, false)
+      .onSuccess(size -> LOG.info("Search index ready: " + size + " pages"))
+      .onFailure(err -> LOG.log(Level.WARNING, "Failed to build search index, falling back to tree search", err));
+    vertx.setPeriodic(SEARCH_INDEX_SAVE_INTERVAL_MS, id -> {
+      if (!searchIndex.isDirty()) {
+        return;
+      }
+      vertx.executeBlocking(() -> {
+        searchIndex.save(indexFile);
+        return null;
+      }, false).onFailure(err -> LOG.log(Level.WARNING, "Failed to save search index", err));
+    });
   }
 
   private static String resourceFrom(String raw) {
@@ -794,6 +862,18 @@ public final class FitNesseVertxMain {
     return "fitnesse.page.view";
   }
 
+  /**
+   * Test runs are streamed to the browser while they execute, except formats whose body is kept as an artifact.
+   */
+  private static boolean isStreamableTestRun(String address, io.vertx.core.json.JsonObject payload) {
+    if (!"fitnesse.test.suite".equals(address) && !"fitnesse.test.single".equals(address)) {
+      return false;
+    }
+    io.vertx.core.json.JsonObject params =
+      payload.getJsonObject(ResponderBusService.HEADER_PARAMS, new io.vertx.core.json.JsonObject());
+    return !paramHasValue(params, "format", "junit") && !paramHasValue(params, "format", "xml");
+  }
+
   private static boolean isEditQuery(io.vertx.ext.web.RoutingContext ctx) {
     io.vertx.core.MultiMap params = ctx.request().params();
     if (params.contains("edit")) {
@@ -805,7 +885,7 @@ public final class FitNesseVertxMain {
 
   private static boolean isLongRunningRequest(io.vertx.ext.web.RoutingContext ctx) {
     String path = ctx.request().path();
-    if ("/run".equals(path)) {
+    if ("/run".equals(path) || "/api/run/events".equals(path)) {
       return true;
     }
     if (path != null && path.startsWith("/wiki/")) {
@@ -820,13 +900,20 @@ public final class FitNesseVertxMain {
   }
 
   private static io.vertx.core.eventbus.DeliveryOptions deliveryOptions(String address) {
-    io.vertx.core.eventbus.DeliveryOptions options = new io.vertx.core.eventbus.DeliveryOptions();
+    io.vertx.core.eventbus.DeliveryOptions options = isResponderAddress(address)
+      ? ResponderBusService.deliveryOptions()
+      : new io.vertx.core.eventbus.DeliveryOptions();
     if ("fitnesse.test.suite".equals(address) || "fitnesse.test.single".equals(address)) {
       options.setSendTimeout(10 * 60 * 1000L);
     }
     return options;
   }
 
+  private static boolean isResponderAddress(String address) {
+    return address.startsWith("fitnesse.page.") || address.startsWith("fitnesse.test.")
+      || "fitnesse.results".equals(address) || "fitnesse.files".equals(address);
+  }
+
   private static void maybeWriteTestArtifacts(Vertx vertx,
                                               FitNesseContext context,
                                               String address,
@@ -862,8 +949,8 @@ public final class FitNesseVertxMain {
     io.vertx.core.json.JsonObject params =
       payload.getJsonObject(ResponderBusService.HEADER_PARAMS, new io.vertx.core.json.JsonObject());
     if (paramHasValue(params, "format", "junit")) {
-      byte[] body = java.util.Base64.getDecoder().decode(response.getString("bodyBase64", ""));
-      fs.writeFileBlocking(artifactDir.resolve("junit.xml").toString(), Buffer.buffer(body));
+      Buffer body = response.getBuffer("body");
+      fs.writeFileBlocking(artifactDir.resolve("junit.xml").toString(), body == null ? Buffer.buffer() : body);
     }
 
     String html = renderLatestHistoryHtml(context, resource);
@@ -893,8 +980,8 @@ public final class FitNesseVertxMain {
       BufferedResponseSender sender = new BufferedResponseSender();
       historyResponse.sendTo(sender);
       ResponderResponseParser.ParsedResponse parsed =
-        ResponderResponseParser.parse(sender.toByteArray());
-      return new String(parsed.body, java.nio.charset.StandardCharsets.UTF_8);
+        ResponderResponseParser.parse(sender.toBuffer());
+      return parsed.body.toString(java.nio.charset.StandardCharsets.UTF_8);
     } catch (Exception e) {
       LOG.log(Level.WARNING, "Unable to render history HTML for " + resource, e);
       return null;
@@ -1127,13 +1214,6 @@ public final class FitNesseVertxMain {
     return (value == null || value.isEmpty()) ? fallback : value;
   }
 
-  private static String trimTrailingSlash(String value) {
-    if (value == null || value.isEmpty()) {
-      return "";
-    }
-    return value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
-  }
-
   private static String resolveTheme(io.vertx.ext.web.RoutingContext ctx) {
     String theme = null;
     if (ctx != null && ctx.request() != null && ctx.request().headers() != null) {
@@ -0,0 +1,38 @@
+package fitnesse.vertx;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeListener;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Publishes page-change events on the event bus so verticles and plugins can react to edits.
+ */
+final class PageChangeBusBridge implements PageChangeListener {
+  static final String ADDRESS_CHANGED = "fitnesse.page.changed";
+
+  private final EventBus bus;
+
+  PageChangeBusBridge(EventBus bus) {
+    this.bus = bus;
+  }
+
+  @Override
+  public void pageChanged(PageChangeEvent event) {
+    bus.publish(ADDRESS_CHANGED, toJson(event));
+  }
+
+  static JsonObject toJson(PageChangeEvent event) {
+    JsonObject json = new JsonObject().put("type", event.type().name());
+    if (event.oldPath() != null) {
+      json.put("oldPath", event.oldPath());
+    }
+    if (event.newPath() != null) {
+      json.put("newPath", event.newPath());
+    }
+    if (event.version() != null) {
+      json.put("version", event.version());
+    }
+    return json;
+  }
+}
@@ -0,0 +1,92 @@
+package fitnesse.vertx;
+
+import fitnesse.wikitext.diagram.DiagramCache;
+import fitnesse.wikitext.diagram.PlantUmlEncoder;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serves {@code /plantuml/:format/:encoded} (the PlantUML server URL scheme).
+ * <p>
+ * svg and png diagrams are answered from the local diagram cache, but only for diagrams that a wiki page
+ * produced: the source comes from the URL, and PlantUML can include local files and fetch URLs, so anything
+ * else is not rendered here. A URL always names the same image, so responses carry the cache key as ETag and
+ * may be cached by browsers indefinitely. Other formats, and all diagrams when {@code renderLocally} is off,
+ * are proxied to a PlantUML server.
+ */
+final class PlantUmlHandler implements Handler<RoutingContext> {
+  private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+  private final WebClient webClient;
+  private final String proxyTarget;
+  private final boolean renderLocally;
+
+  PlantUmlHandler(WebClient webClient, String proxyTarget, boolean renderLocally) {
+    this.webClient = webClient;
+    this.proxyTarget = proxyTarget.endsWith("/") ? proxyTarget.substring(0, proxyTarget.length() - 1) : proxyTarget;
+    this.renderLocally = renderLocally;
+  }
+
+  @Override
+  public void handle(RoutingContext ctx) {
+    String format = ctx.pathParam("format");
+    if (!renderLocally || (!"svg".equals(format) && !"png".equals(format))) {
+      proxy(ctx, format);
+      return;
+    }
+    String source;
+    try {
+      source = PlantUmlEncoder.decode(ctx.pathParam("encoded"));
+    } catch (IllegalArgumentException e) {
+      ctx.response().setStatusCode(400).end(e.getMessage());
+      return;
+    }
+    String etag = "\"" + DiagramCache.key(source, format) + "\"";
+    if (etag.equals(ctx.request().getHeader("If-None-Match"))) {
+      ctx.response()
+        .putHeader("ETag", etag)
+        .putHeader("Cache-Control", CACHE_CONTROL)
+        .setStatusCode(304).end();
+      return;
+    }
+    CompletableFuture<byte[]> image = DiagramCache.shared().getKnown(source, format);
+    if (image == null) {
+      ctx.response().setStatusCode(404).end("Unknown diagram; open the wiki page that contains it");
+      return;
+    }
+    Future.fromCompletionStage(image, ctx.vertx().getOrCreateContext())
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          ctx.response()
+            .putHeader("ETag", etag)
+            .putHeader("Cache-Control", CACHE_CONTROL)
+            .putHeader("Content-Type", "svg".equals(format) ? "image/svg+xml" : "image/png")
+            .end(Buffer.buffer(ar.result()));
+        } else {
+          ctx.response().setStatusCode(500).end("PlantUML rendering failed: " + ar.cause().getMessage());
+        }
+      });
+  }
+
+  private void proxy(RoutingContext ctx, String format) {
+    String target = proxyTarget + "/" + format + "/" + ctx.pathParam("encoded");
+    webClient.getAbs(target).send().onComplete(ar -> {
+      if (ar.succeeded()) {
+        HttpResponse<Buffer> response = ar.result();
+        String contentType = response.getHeader("Content-Type");
+        if (contentType != null) {
+          ctx.response().putHeader("Content-Type", contentType);
+        }
+        ctx.response().setStatusCode(response.statusCode()).end(response.bodyAsBuffer());
+      } else {
+        ctx.response().setStatusCode(502).end("PlantUML proxy error: " + ar.cause().getMessage());
+      }
+    });
+  }
+}
@@ -6,10 +6,17 @@ import fitnesse.http.MockRequest;
 import fitnesse.http.Request;
 import fitnesse.http.Response;
 import fitnesse.http.UploadedFile;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.MultiMap;
 import io.vertx.core.Vertx;
 import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.WorkerExecutor;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
@@ -17,13 +24,17 @@ import io.vertx.ext.web.FileUpload;
 import io.vertx.ext.web.RoutingContext;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.Base64;
+import java.util.Deque;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 
 /**
  * Adapts legacy FitNesse responders into async Vert.x EventBus handlers.
  * Uses executeBlocking to keep responder work off the event loop.
+ * Replies carry the body as a {@link Buffer} and are sent with {@link ResponderMessageCodec}.
  */
 final class ResponderBusService {
   static final String HEADER_RESOURCE = "resource";
@@ -33,6 +44,9 @@ final class ResponderBusService {
   static final String HEADER_QUERY = "query";
   static final String HEADER_BODY = "body";
   static final String HEADER_UPLOADS = "uploads";
+  static final String HEADER_STREAM = "stream";
+  private static final String STREAM_ADDRESS_PREFIX = "fitnesse.stream.";
+  private static final long STREAM_STALL_TIMEOUT_MILLIS = 60_000L;
 
   private final Vertx vertx;
   private final FitNesseContext context;
@@ -59,6 +73,7 @@ final class ResponderBusService {
 
   private void register(EventBus bus, String address, Responder responder,
                         WorkerExecutor executor, RunMonitor monitor, int maxQueue) {
+    ResponderMessageCodec.register(bus);
     bus.consumer(address, message -> {
       JsonObject payload = (JsonObject) message.body();
       String resource = payload.getString(HEADER_RESOURCE, "");
@@ -85,7 +100,7 @@ final class ResponderBusService {
       if (executor != null) {
         executor.executeBlocking(work, false).onComplete(ar -> {
           if (ar.succeeded()) {
-            message.reply(ar.result());
+            message.reply(ar.result(), deliveryOptions());
           } else {
             message.fail(500, ar.cause().getMessage());
           }
@@ -93,7 +108,7 @@ final class ResponderBusService {
       } else {
         vertx.executeBlocking(work, false).onComplete(ar -> {
           if (ar.succeeded()) {
-            message.reply(ar.result());
+            message.reply(ar.result(), deliveryOptions());
           } else {
             message.fail(500, ar.cause().getMessage());
           }
@@ -132,10 +147,97 @@ final class ResponderBusService {
    * Writes a responder payload to the HTTP response.
    */
   void writeResponse(RoutingContext routingContext, JsonObject response) {
-    int status = response.getInteger("status", 200);
-    routingContext.response().setStatusCode(status);
-
     JsonObject headers = response.getJsonObject("headers", new JsonObject());
+    writeHead(routingContext, response.getInteger("status", 200), headers);
+
+    Buffer body = response.getBuffer("body");
+    if (body == null) {
+      body = Buffer.buffer();
+    }
+    if ("chunked".equalsIgnoreCase(headers.getString("Transfer-Encoding"))) {
+      body = Buffer.buffer(decodeChunked(body.getBytes()));
+    }
+    routingContext.response().putHeader("Content-Length", String.valueOf(body.length()));
+    if (body.length() == 0) {
+      routingContext.response().end();
+    } else {
+      routingContext.response().end(body);
+    }
+  }
+
+  /**
+   * Sends the request to a responder and writes its output to the HTTP response while the responder is running,
+   * instead of after it finished. Chunks are acknowledged only when the response can take more data, so a slow
+   * client slows down the responder rather than filling memory. {@code onDone} runs when the responder finished,
+   * and fails when it failed; a response that was partly sent by then is reset rather than ended.
+   */
+  void streamResponse(RoutingContext routingContext, EventBus bus, String address, JsonObject payload,
+                      DeliveryOptions options, Handler<AsyncResult<Void>> onDone) {
+    HttpServerResponse response = routingContext.response();
+    String streamAddress = STREAM_ADDRESS_PREFIX + UUID.randomUUID();
+    Deque<Message<Object>> waitingForDrain = new ArrayDeque<>();
+    response.drainHandler(v -> {
+      while (!waitingForDrain.isEmpty()) {
+        waitingForDrain.poll().reply(null);
+      }
+    });
+    MessageConsumer<Object> consumer = bus.consumer(streamAddress, message -> {
+      if (response.closed()) {
+        message.fail(499, "Client closed the connection");
+        return;
+      }
+      if (StreamingResponseSender.KIND_HEAD.equals(message.headers().get(StreamingResponseSender.HEADER_KIND))) {
+        JsonObject head = (JsonObject) message.body();
+        writeHead(routingContext, head.getInteger("status", 200), head.getJsonObject("headers", new JsonObject()));
+        response.setChunked(true);
+        message.reply(null);
+        return;
+      }
+      response.write((Buffer) message.body());
+      if (response.writeQueueFull()) {
+        waitingForDrain.add(message);
+      } else {
+        message.reply(null);
+      }
+    });
+    response.closeHandler(v -> {
+      consumer.unregister();
+      while (!waitingForDrain.isEmpty()) {
+        waitingForDrain.poll().fail(499, "Client closed the connection");
+      }
+    });
+    payload.put(HEADER_STREAM, streamAddress);
+    bus.request(address, payload, options).onComplete(ar -> {
+      consumer.unregister();
+      if (ar.succeeded()) {
+        JsonObject result = (JsonObject) ar.result().body();
+        boolean failed = result.getBoolean("failed", false);
+        if (!result.getBoolean("streamed", false) && !response.headWritten()) {
+          writeResponse(routingContext, result);
+        } else if (!response.ended() && !response.closed()) {
+          if (failed) {
+            // Part of the page was sent already; ending normally would make it look complete.
+            response.reset();
+          } else {
+            response.end();
+          }
+        }
+        onDone.handle(failed
+          ? Future.failedFuture(result.getString("error", "Responder failed"))
+          : Future.succeededFuture());
+      } else {
+        if (!response.headWritten()) {
+          response.setStatusCode(500).end("EventBus error: " + ar.cause().getMessage());
+        } else if (!response.ended() && !response.closed()) {
+          response.reset();
+        }
+        onDone.handle(Future.failedFuture(ar.cause()));
+      }
+    });
+  }
+
+  private void writeHead(RoutingContext routingContext, int status, JsonObject headers) {
+    routingContext.response().setStatusCode(status);
     for (String name : headers.fieldNames()) {
       if (!isValidHeaderName(name)) {
         continue;
@@ -152,18 +254,6 @@ final class ResponderBusService {
     if (!headers.containsKey("ETag") && headers.containsKey("Current-Version")) {
       routingContext.response().putHeader("ETag", headers.getString("Current-Version"));
     }
-
-    String bodyBase64 = response.getString("bodyBase64", "");
-    byte[] body = bodyBase64.isEmpty() ? new byte[0] : Base64.getDecoder().decode(bodyBase64);
-    if ("chunked".equalsIgnoreCase(headers.getString("Transfer-Encoding"))) {
-      body = decodeChunked(body);
-    }
-    routingContext.response().putHeader("Content-Length", String.valueOf(body.length));
-    if (body.length == 0) {
-      routingContext.response().end();
-    } else {
-      routingContext.response().end(Buffer.buffer(body));
-    }
   }
 
   /**
@@ -234,11 +324,16 @@ final class ResponderBusService {
       request.setBody(body);
     }
 
+    String streamAddress = payload.getString(HEADER_STREAM, null);
+    if (streamAddress != null) {
+      return stream(request, responder, streamAddress);
+    }
+
     try {
       Response response = responder.makeResponse(context, request);
       BufferedResponseSender sender = new BufferedResponseSender();
       response.sendTo(sender);
-      ResponderResponseParser.ParsedResponse parsed = ResponderResponseParser.parse(sender.toByteArray());
+      ResponderResponseParser.ParsedResponse parsed = ResponderResponseParser.parse(sender.toBuffer());
       JsonObject result = new JsonObject();
       result.put("status", parsed.status);
       JsonObject headerJson = new JsonObject();
@@ -246,17 +341,43 @@ final class ResponderBusService {
         headerJson.put(entry.getKey(), entry.getValue());
       }
       result.put("headers", headerJson);
-      result.put("bodyBase64", Base64.getEncoder().encodeToString(parsed.body));
+      result.put("body", parsed.body);
       return result;
     } catch (Exception e) {
       JsonObject result = new JsonObject();
       result.put("status", 500);
       result.put("headers", new JsonObject());
-      result.put("bodyBase64", Base64.getEncoder().encodeToString(("Responder error: " + e.getMessage()).getBytes(StandardCharsets.UTF_8)));
+      result.put("body", Buffer.buffer("Responder error: " + e.getMessage()));
       return result;
     }
   }
 
+  private JsonObject stream(Request request, Responder responder, String streamAddress) {
+    StreamingResponseSender sender =
+      new StreamingResponseSender(vertx.eventBus(), streamAddress, STREAM_STALL_TIMEOUT_MILLIS);
+    try {
+      Response response = responder.makeResponse(context, request);
+      response.sendTo(sender);
+      sender.close();
+      return new JsonObject().put("status", response.getStatus()).put("streamed", true);
+    } catch (Exception e) {
+      JsonObject result = new JsonObject();
+      result.put("status", 500);
+      result.put("headers", new JsonObject());
+      result.put("body", Buffer.buffer("Responder error: " + e.getMessage()));
+      result.put("failed", true);
+      result.put("error", "Responder error: " + e.getMessage());
+      return result;
+    }
+  }
+
+  /**
+   * Options for requests to and replies from responders, so the payload is handed over instead of copied.
+   */
+  static DeliveryOptions deliveryOptions() {
+    return new DeliveryOptions().setCodecName(ResponderMessageCodec.NAME);
+  }
+
   private JsonObject multimapToJson(MultiMap map) {
     JsonObject json = new JsonObject();
     for (String name : map.names()) {
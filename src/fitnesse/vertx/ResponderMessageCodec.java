@@ -0,0 +1,58 @@
+package fitnesse.vertx;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * EventBus codec for responder requests and replies.
+ * <p>
+ * The built-in JSON codec deep-copies every object on local delivery, including the rendered page. Requests and
+ * replies are built for one message and not touched after sending, so this codec hands over the reference
+ * instead. Bodies are carried as {@link Buffer} values; on the wire (clustered EventBus) they are written as
+ * regular JSON, where Vert.x encodes buffers as base64.
+ */
+final class ResponderMessageCodec implements MessageCodec<JsonObject, JsonObject> {
+  static final String NAME = "fitnesse.responder";
+
+  /**
+   * Registers the codec once per EventBus.
+   */
+  static void register(EventBus bus) {
+    try {
+      bus.registerCodec(new ResponderMessageCodec());
+    } catch (IllegalStateException e) {
+      // Already registered by another service on this EventBus.
+    }
+  }
+
+  @Override
+  public void encodeToWire(Buffer buffer, JsonObject json) {
+    Buffer encoded = json.toBuffer();
+    buffer.appendInt(encoded.length());
+    buffer.appendBuffer(encoded);
+  }
+
+  @Override
+  public JsonObject decodeFromWire(int pos, Buffer buffer) {
+    int length = buffer.getInt(pos);
+    pos += 4;
+    return new JsonObject(buffer.slice(pos, pos + length));
+  }
+
+  @Override
+  public JsonObject transform(JsonObject json) {
+    return json;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public byte systemCodecID() {
+    return -1;
+  }
+}
@@ -1,5 +1,7 @@
 package fitnesse.vertx;
 
+import io.vertx.core.buffer.Buffer;
+
 import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -9,6 +11,13 @@ final class ResponderResponseParser {
   }
 
   static ParsedResponse parse(byte[] raw) {
+    return parse(Buffer.buffer(raw));
+  }
+
+  /**
+   * Parses a raw responder response. The body is a slice of {@code raw}, not a copy.
+   */
+  static ParsedResponse parse(Buffer raw) {
     int headerEnd = indexOf(raw, "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
     if (headerEnd < 0) {
       headerEnd = indexOf(raw, "\n\n".getBytes(StandardCharsets.ISO_8859_1));
@@ -18,7 +27,7 @@ final class ResponderResponseParser {
       return new ParsedResponse(200, new LinkedHashMap<>(), raw);
     }
 
-    String headerText = new String(raw, 0, headerEnd, StandardCharsets.ISO_8859_1);
+    String headerText = raw.getString(0, headerEnd, StandardCharsets.ISO_8859_1.name());
     String[] lines = headerText.split("\\r?\\n");
     int status = 200;
     Map<String, String> headers = new LinkedHashMap<>();
@@ -44,17 +53,15 @@ final class ResponderResponseParser {
       }
     }
 
-    int bodyStart = headerEnd + (raw[headerEnd] == '\r' ? 4 : 2);
-    byte[] body = new byte[Math.max(0, raw.length - bodyStart)];
-    System.arraycopy(raw, bodyStart, body, 0, body.length);
-    return new ParsedResponse(status, headers, body);
+    int bodyStart = headerEnd + (raw.getByte(headerEnd) == '\r' ? 4 : 2);
+    return new ParsedResponse(status, headers, raw.slice(Math.min(bodyStart, raw.length()), raw.length()));
   }
 
-  private static int indexOf(byte[] array, byte[] target) {
+  private static int indexOf(Buffer buffer, byte[] target) {
     outer:
-    for (int i = 0; i <= array.length - target.length; i++) {
+    for (int i = 0; i <= buffer.length() - target.length; i++) {
       for (int j = 0; j < target.length; j++) {
-        if (array[i + j] != target[j]) {
+        if (buffer.getByte(i + j) != target[j]) {
           continue outer;
         }
       }
@@ -66,9 +73,9 @@ final class ResponderResponseParser {
   static final class ParsedResponse {
     final int status;
     final Map<String, String> headers;
-    final byte[] body;
+    final Buffer body;
 
-    private ParsedResponse(int status, Map<String, String> headers, byte[] body) {
+    private ParsedResponse(int status, Map<String, String> headers, Buffer body) {
       this.status = status;
       this.headers = headers;
       this.body = body;
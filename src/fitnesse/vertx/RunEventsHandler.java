@@ -0,0 +1,70 @@
+package fitnesse.vertx;
+
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Streams per-page test results to the browser as server-sent events while tests are running.
+ * <p>
+ * Results are taken from {@link #ADDRESS_RESULTS}; the optional {@code page} parameter limits them to a suite.
+ * When the client reads slower than results arrive, the bus consumer is paused until the response drains, so
+ * at most {@link #MAX_BUFFERED} results are held per client. Results that arrive while that many are held are
+ * dropped: a slow client misses the newest results, not the ones it has yet to read.
+ */
+final class RunEventsHandler implements Handler<RoutingContext> {
+  static final String ADDRESS_RESULTS = "fitnesse.run.results";
+  static final int MAX_BUFFERED = 1000;
+  private static final long HEARTBEAT_MILLIS = 15_000L;
+
+  private final EventBus bus;
+
+  RunEventsHandler(EventBus bus) {
+    this.bus = bus;
+  }
+
+  @Override
+  public void handle(RoutingContext ctx) {
+    String pagePrefix = ctx.request().getParam("page");
+    HttpServerResponse response = ctx.response();
+    response.setChunked(true)
+      .putHeader("Content-Type", "text/event-stream")
+      .putHeader("Cache-Control", "no-cache")
+      .putHeader("X-Accel-Buffering", "no");
+    response.write(": connected\n\n");
+
+    MessageConsumer<JsonObject> consumer = bus.consumer(ADDRESS_RESULTS);
+    consumer.setMaxBufferedMessages(MAX_BUFFERED);
+    consumer.handler(message -> {
+      JsonObject result = message.body();
+      if (!matches(result.getString("page"), pagePrefix)) {
+        return;
+      }
+      response.write(toEvent(result));
+      if (response.writeQueueFull()) {
+        consumer.pause();
+      }
+    });
+    response.drainHandler(v -> consumer.resume());
+
+    long heartbeat = ctx.vertx().setPeriodic(HEARTBEAT_MILLIS, id -> response.write(": heartbeat\n\n"));
+    response.closeHandler(v -> {
+      ctx.vertx().cancelTimer(heartbeat);
+      consumer.unregister();
+    });
+  }
+
+  static boolean matches(String page, String pagePrefix) {
+    if (pagePrefix == null || pagePrefix.isEmpty()) {
+      return true;
+    }
+    return page != null && (page.equals(pagePrefix) || page.startsWith(pagePrefix + "."));
+  }
+
+  static String toEvent(JsonObject result) {
+    return "event: " + result.getString("type", "result") + "\ndata: " + result.encode() + "\n\n";
+  }
+}
@@ -22,6 +22,7 @@ public final class RunMonitor {
   private final AtomicLong nextLogId = new AtomicLong();
   private final Deque<JsonObject> logs = new ArrayDeque<>();
   private volatile Handler<JsonObject> onUpdate;
+  private volatile Handler<JsonObject> onResult;
 
   public RunMonitor() {
     this(null);
@@ -35,6 +36,13 @@ public final class RunMonitor {
     this.onUpdate = onUpdate;
   }
 
+  /**
+   * Receives an event for every test page that starts or completes, for live result streams.
+   */
+  void setOnResult(Handler<JsonObject> onResult) {
+    this.onResult = onResult;
+  }
+
   boolean canAccept(int maxQueue) {
     if (maxQueue <= 0) {
       return true;
@@ -70,6 +78,20 @@ public final class RunMonitor {
     publish();
   }
 
+  void testStarted(String page) {
+    publishResult(new JsonObject().put("type", "started").put("page", page));
+  }
+
+  void testCompleted(String page, int right, int wrong, int ignores, int exceptions) {
+    publishResult(new JsonObject()
+      .put("type", "completed")
+      .put("page", page)
+      .put("right", right)
+      .put("wrong", wrong)
+      .put("ignores", ignores)
+      .put("exceptions", exceptions));
+  }
+
   /**
    * Captures current queue/running/completed counts and rolling average duration.
    */
@@ -138,4 +160,11 @@ public final class RunMonitor {
       onUpdate.handle(snapshot());
     }
   }
+
+  private void publishResult(JsonObject result) {
+    Handler<JsonObject> handler = onResult;
+    if (handler != null) {
+      handler.handle(result.put("timestamp", System.currentTimeMillis()));
+    }
+  }
 }
@@ -33,6 +33,7 @@ public final class RunMonitorLogListener implements TestSystemListener, Executio
   @Override
   public void testStarted(TestPage testPage) {
     monitor.log("info", "Test started", testPage.getFullPath(), null);
+    monitor.testStarted(testPage.getFullPath());
   }
 
   @Override
@@ -41,6 +42,8 @@ public final class RunMonitorLogListener implements TestSystemListener, Executio
       testSummary.getRight(), testSummary.getWrong(),
       testSummary.getIgnores(), testSummary.getExceptions());
     monitor.log("info", "Test complete (" + summary + ")", testPage.getFullPath(), null);
+    monitor.testCompleted(testPage.getFullPath(), testSummary.getRight(), testSummary.getWrong(),
+      testSummary.getIgnores(), testSummary.getExceptions());
   }
 
   @Override
@@ -0,0 +1,32 @@
+package fitnesse.vertx;
+
+import io.vertx.core.AbstractVerticle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Worker verticle that runs the server's close actions, last added first, when Vert.x is closed. Its stop may
+ * block, e.g. to flush logs or wait for executors.
+ */
+final class ShutdownVerticle extends AbstractVerticle {
+  private static final Logger LOG = Logger.getLogger(ShutdownVerticle.class.getName());
+  private final List<Runnable> actions;
+
+  ShutdownVerticle(List<Runnable> actions) {
+    this.actions = new ArrayList<>(actions);
+  }
+
+  @Override
+  public void stop() {
+    for (int i = actions.size() - 1; i >= 0; i--) {
+      try {
+        actions.get(i).run();
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Close action failed", e);
+      }
+    }
+  }
+}
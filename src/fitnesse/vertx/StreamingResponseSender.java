@@ -0,0 +1,259 @@
+package fitnesse.vertx;
+
+import fitnesse.http.ResponseSender;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.json.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forwards a legacy responder's output to a stream address on the EventBus while the responder is still writing.
+ * <p>
+ * The HTTP status line and headers are sent as one {@code head} message, the body as {@code chunk} messages. Each
+ * chunk is acknowledged by the receiver once the HTTP response can take more data, and at most
+ * {@link #MAX_IN_FLIGHT} chunks are unacknowledged: the responder thread blocks when the client reads slower than
+ * the responder writes, and output written meanwhile is coalesced into the next chunk. If the receiver fails a
+ * message (the client went away), the next write throws a {@link SocketException}, which stops the responder.
+ */
+final class StreamingResponseSender implements ResponseSender {
+  static final String HEADER_KIND = "kind";
+  static final String KIND_HEAD = "head";
+  static final String KIND_CHUNK = "chunk";
+  static final int MAX_IN_FLIGHT = 4;
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final byte[] HEAD_END = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+  private final EventBus bus;
+  private final String address;
+  private final long stallTimeoutMillis;
+  private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+  private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+  private ByteArrayOutputStream head = new ByteArrayOutputStream();
+  private ChunkDecoder chunkDecoder;
+  private volatile Throwable failure;
+  private boolean closed;
+
+  /**
+   * @param stallTimeoutMillis how long a write may wait for the client before the response is given up.
+   */
+  StreamingResponseSender(EventBus bus, String address, long stallTimeoutMillis) {
+    this.bus = bus;
+    this.address = address;
+    this.stallTimeoutMillis = stallTimeoutMillis;
+  }
+
+  @Override
+  public void send(byte[] bytes) throws IOException {
+    checkFailure();
+    if (closed) {
+      throw new IOException("Response already closed");
+    }
+    if (head != null) {
+      bytes = collectHead(bytes);
+      if (bytes == null) {
+        return;
+      }
+    }
+    if (chunkDecoder != null) {
+      chunkDecoder.decode(bytes, pending);
+    } else {
+      pending.write(bytes);
+    }
+    if (pending.size() >= CHUNK_SIZE) {
+      sendPending(true);
+    } else if (pending.size() > 0 && inFlight.tryAcquire()) {
+      sendPending(false);
+    }
+  }
+
+  /**
+   * Sends what is left and waits until the receiver has taken all chunks.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    if (head != null) {
+      byte[] collected = head.toByteArray();
+      boolean hasHeaders = startsWith(collected, "HTTP/");
+      sendHead(collected, hasHeaders);
+      if (!hasHeaders) {
+        pending.write(collected);
+      }
+    }
+    closed = true;
+    if (pending.size() > 0) {
+      sendPending(true);
+    }
+    acquire(MAX_IN_FLIGHT);
+    inFlight.release(MAX_IN_FLIGHT);
+    checkFailure();
+  }
+
+  /**
+   * Collects the status line and headers. Returns the body bytes that followed them, or null while incomplete.
+   */
+  private byte[] collectHead(byte[] bytes) throws IOException {
+    head.write(bytes);
+    byte[] collected = head.toByteArray();
+    if (!startsWith(collected, "HTTP/")) {
+      if (collected.length < 5 && startsWith("HTTP/".getBytes(StandardCharsets.ISO_8859_1), collected)) {
+        return null;
+      }
+      // Text formats are written without status line and headers.
+      sendHead(collected, false);
+      return collected;
+    }
+    int end = indexOf(collected, HEAD_END);
+    if (end < 0) {
+      return null;
+    }
+    int bodyStart = end + HEAD_END.length;
+    sendHead(Arrays.copyOf(collected, bodyStart), true);
+    return Arrays.copyOfRange(collected, bodyStart, collected.length);
+  }
+
+  private void sendHead(byte[] headBytes, boolean hasHeaders) throws IOException {
+    head = null;
+    JsonObject message = new JsonObject().put("status", 200).put("headers", new JsonObject());
+    if (hasHeaders) {
+      ResponderResponseParser.ParsedResponse parsed = ResponderResponseParser.parse(headBytes);
+      JsonObject headers = new JsonObject();
+      for (Map.Entry<String, String> entry : parsed.headers.entrySet()) {
+        if ("Transfer-Encoding".equalsIgnoreCase(entry.getKey())) {
+          if ("chunked".equalsIgnoreCase(entry.getValue())) {
+            chunkDecoder = new ChunkDecoder();
+          }
+          continue;
+        }
+        if ("Content-Length".equalsIgnoreCase(entry.getKey())) {
+          continue;
+        }
+        headers.put(entry.getKey(), entry.getValue());
+      }
+      message.put("status", parsed.status).put("headers", headers);
+    }
+    acquire(1);
+    deliver(message, KIND_HEAD);
+  }
+
+  private void sendPending(boolean waitForReceiver) throws IOException {
+    if (waitForReceiver) {
+      acquire(1);
+    }
+    Buffer chunk = Buffer.buffer(pending.toByteArray());
+    pending.reset();
+    deliver(chunk, KIND_CHUNK);
+  }
+
+  private void deliver(Object message, String kind) {
+    bus.request(address, message, new DeliveryOptions().addHeader(HEADER_KIND, kind).setSendTimeout(stallTimeoutMillis))
+      .onComplete(ar -> {
+        if (ar.failed() && failure == null) {
+          failure = ar.cause();
+        }
+        inFlight.release();
+      });
+  }
+
+  private void acquire(int permits) throws IOException {
+    try {
+      if (!inFlight.tryAcquire(permits, stallTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new SocketException("Client did not read the response for " + stallTimeoutMillis + " ms");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SocketException("Interrupted while streaming the response");
+    }
+    checkFailure();
+  }
+
+  private void checkFailure() throws SocketException {
+    Throwable cause = failure;
+    if (cause != null) {
+      throw new SocketException("Streaming the response failed: " + cause.getMessage());
+    }
+  }
+
+  private static boolean startsWith(byte[] bytes, String prefix) {
+    return startsWith(bytes, prefix.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  private static boolean startsWith(byte[] bytes, byte[] prefix) {
+    if (bytes.length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int indexOf(byte[] bytes, byte[] target) {
+    outer:
+    for (int i = 0; i <= bytes.length - target.length; i++) {
+      for (int j = 0; j < target.length; j++) {
+        if (bytes[i + j] != target[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Removes HTTP chunked framing, for responders that were not asked to turn chunking off.
+   */
+  private static final class ChunkDecoder {
+    private final StringBuilder sizeLine = new StringBuilder();
+    private int remaining = -1;
+    private int separatorBytes;
+    private boolean done;
+
+    void decode(byte[] bytes, ByteArrayOutputStream out) throws IOException {
+      int index = 0;
+      while (index < bytes.length && !done) {
+        if (separatorBytes > 0) {
+          separatorBytes--;
+          index++;
+        } else if (remaining > 0) {
+          int length = Math.min(remaining, bytes.length - index);
+          out.write(bytes, index, length);
+          remaining -= length;
+          index += length;
+          if (remaining == 0) {
+            remaining = -1;
+            separatorBytes = 2;
+          }
+        } else {
+          char ch = (char) bytes[index++];
+          if (ch == '\n') {
+            String size = sizeLine.toString().trim();
+            sizeLine.setLength(0);
+            try {
+              remaining = Integer.parseInt(size, 16);
+            } catch (NumberFormatException e) {
+              throw new IOException("Invalid chunk size: " + size);
+            }
+            done = remaining == 0;
+          } else if (ch != '\r') {
+            sizeLine.append(ch);
+          }
+        }
+      }
+    }
+  }
+}
@@ -5,4 +5,11 @@ package fitnesse.vertx;
  */
 public interface VertxPlugin {
   void register(VertxPluginContext context);
+
+  /**
+   * Releases what {@link #register(VertxPluginContext)} set up, like listeners and files; called when the
+   * server's Vert.x instance is closed.
+   */
+  default void close() {
+  }
 }
@@ -1,6 +1,7 @@
 package fitnesse.vertx;
 
 import fitnesse.FitNesseContext;
+import fitnesse.search.SearchService;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.ext.web.Router;
@@ -14,12 +15,19 @@ public final class VertxPluginContext {
   public final EventBus bus;
   public final FitNesseContext fitnesseContext;
   public final VertxConfig config;
+  public final SearchService searchService;
 
   public VertxPluginContext(Vertx vertx, Router router, EventBus bus, FitNesseContext fitnesseContext, VertxConfig config) {
+    this(vertx, router, bus, fitnesseContext, config, new SearchService(fitnesseContext.getRootPage()));
+  }
+
+  public VertxPluginContext(Vertx vertx, Router router, EventBus bus, FitNesseContext fitnesseContext, VertxConfig config,
+                            SearchService searchService) {
     this.vertx = vertx;
     this.router = router;
     this.bus = bus;
     this.fitnesseContext = fitnesseContext;
     this.config = config;
+    this.searchService = searchService;
   }
 }
@@ -2,11 +2,14 @@ package fitnesse.vertx;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Collects Vert.x plugins loaded via FitNesse plugin system.
  */
 public final class VertxPluginRegistry {
+  private static final Logger LOG = Logger.getLogger(VertxPluginRegistry.class.getName());
   private final List<VertxPlugin> plugins = new ArrayList<>();
 
   public void add(VertxPlugin plugin) {
@@ -20,4 +23,14 @@ public final class VertxPluginRegistry {
       plugin.register(context);
     }
   }
+
+  public void closeAll() {
+    for (VertxPlugin plugin : plugins) {
+      try {
+        plugin.close();
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Unable to close Vert.x plugin " + plugin.getClass().getName(), e);
+      }
+    }
+  }
 }
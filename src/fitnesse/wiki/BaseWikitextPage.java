@@ -14,8 +14,7 @@ import static fitnesse.wiki.PageType.STATIC;
 public abstract class BaseWikitextPage extends BaseWikiPage implements WikitextPage {
 
   private final VariableSource variableSource;
-  private ParsingPage parsingPage;
-  private SyntaxTree syntaxTree;
+  private ParsedPageCache.ParsedPage parsedPage;
 
   protected BaseWikitextPage(String name, VariableSource variableSource) {
     this(name, null, variableSource);
@@ -37,33 +36,37 @@ public abstract class BaseWikitextPage extends BaseWikiPage implements WikitextP
   @Override
   public String getVariable(String name) {
     return getSyntaxTree().findVariable(name)
-      .map(value -> MarkUpSystem.make().variableValueToHtml(parsingPage, value))
+      .map(value -> MarkUpSystem.make().variableValueToHtml(parsedPage.parsingPage, value))
       .orElse(null);
   }
 
   @Override
   public String getHtml() {
-    parse();
-    return syntaxTree.translateToHtml();
+    return parse().html();
+  }
+
+  /**
+   * Renders wiki text in the context of this page, such as the page content decorated with set-up and
+   * tear-down includes.
+   */
+  public String getDecoratedHtml(String content) {
+    return ParsedPageCache.getInstance().parseDecorated(this, getData(), content).html();
   }
 
   @Override
   public SyntaxTree getSyntaxTree() {
-    parse();
-    return syntaxTree;
+    return parse().syntaxTree;
   }
 
-  private void parse() {
-    if (syntaxTree == null) {
-      parsingPage = makeParsingPage(this);
-      String content = getData().getContent();
-      syntaxTree = MarkUpSystem.make(content).parse(parsingPage, content);
+  private ParsedPageCache.ParsedPage parse() {
+    if (parsedPage == null) {
+      parsedPage = ParsedPageCache.getInstance().parse(this, getData());
     }
+    return parsedPage;
   }
 
   protected void resetCache() {
-    parsingPage = null;
-    syntaxTree = null;
+    parsedPage = null;
   }
 
   public static ParsingPage makeParsingPage(BaseWikitextPage page) {
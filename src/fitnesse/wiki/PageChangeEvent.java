@@ -0,0 +1,79 @@
+package fitnesse.wiki;
+
+/**
+ * Describes a single change to the page tree. Paths are rendered relative to the root
+ * (e.g. {@code SuiteOne.TestAlpha}); the root page itself has an empty path.
+ */
+public final class PageChangeEvent {
+  public enum Type {
+    CREATED,
+    UPDATED,
+    MOVED,
+    DELETED
+  }
+
+  private final Type type;
+  private final String oldPath;
+  private final String newPath;
+  private final String version;
+
+  private PageChangeEvent(Type type, String oldPath, String newPath, String version) {
+    this.type = type;
+    this.oldPath = oldPath;
+    this.newPath = newPath;
+    this.version = version;
+  }
+
+  public static PageChangeEvent created(String path, String version) {
+    return new PageChangeEvent(Type.CREATED, null, path, version);
+  }
+
+  public static PageChangeEvent updated(String path, String version) {
+    return new PageChangeEvent(Type.UPDATED, path, path, version);
+  }
+
+  /**
+   * A page, including all pages below it, has been moved or renamed.
+   */
+  public static PageChangeEvent moved(String oldPath, String newPath) {
+    return new PageChangeEvent(Type.MOVED, oldPath, newPath, null);
+  }
+
+  /**
+   * A page, including all pages below it, has been removed.
+   */
+  public static PageChangeEvent deleted(String path) {
+    return new PageChangeEvent(Type.DELETED, path, null, null);
+  }
+
+  public Type type() {
+    return type;
+  }
+
+  /**
+   * Returns the path before the change, or null for created pages.
+   */
+  public String oldPath() {
+    return oldPath;
+  }
+
+  /**
+   * Returns the path after the change, or null for deleted pages.
+   */
+  public String newPath() {
+    return newPath;
+  }
+
+  /**
+   * Returns the version name recorded by the store, or null if the store has none.
+   */
+  public String version() {
+    return version;
+  }
+
+  @Override
+  public String toString() {
+    return type + " " + (oldPath == null ? "" : oldPath) + (type == Type.MOVED ? " -> " + newPath : "")
+      + (type == Type.CREATED ? newPath : "") + (version == null ? "" : " @" + version);
+  }
+}
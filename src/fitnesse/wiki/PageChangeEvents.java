@@ -0,0 +1,85 @@
+package fitnesse.wiki;
+
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process-wide dispatcher for {@link PageChangeEvent}s raised by the page stores.
+ * <p>
+ * Compound operations (such as moving a page tree) can {@link #suppress()} the low-level
+ * events raised while they run and publish a single event describing the whole change.
+ */
+public final class PageChangeEvents {
+  private static final Logger LOG = Logger.getLogger(PageChangeEvents.class.getName());
+
+  private static final List<PageChangeListener> LISTENERS = new CopyOnWriteArrayList<>();
+  private static final ThreadLocal<Integer> SUPPRESSED = ThreadLocal.withInitial(() -> 0);
+
+  static {
+    try {
+      for (PageChangeListener listener : ServiceLoader.load(PageChangeListener.class)) {
+        LISTENERS.add(listener);
+      }
+    } catch (Throwable e) {
+      LOG.log(Level.WARNING, "Failed to load page change listeners", e);
+    }
+  }
+
+  private PageChangeEvents() {}
+
+  public static void addListener(PageChangeListener listener) {
+    LISTENERS.add(listener);
+  }
+
+  public static void removeListener(PageChangeListener listener) {
+    LISTENERS.remove(listener);
+  }
+
+  /**
+   * Delivers the event to all listeners, unless events are suppressed on the current thread.
+   * A failing listener is logged and does not affect the write or the other listeners.
+   */
+  public static void publish(PageChangeEvent event) {
+    if (SUPPRESSED.get() > 0) {
+      return;
+    }
+    for (PageChangeListener listener : LISTENERS) {
+      try {
+        listener.pageChanged(event);
+      } catch (RuntimeException e) {
+        LOG.log(Level.WARNING, "Page change listener failed for " + event, e);
+      }
+    }
+  }
+
+  /**
+   * Drops events raised on the current thread until the returned handle is closed.
+   */
+  public static Suppression suppress() {
+    SUPPRESSED.set(SUPPRESSED.get() + 1);
+    return new Suppression();
+  }
+
+  public static final class Suppression implements AutoCloseable {
+    private boolean closed;
+
+    private Suppression() {}
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      int depth = SUPPRESSED.get() - 1;
+      if (depth <= 0) {
+        SUPPRESSED.remove();
+      } else {
+        SUPPRESSED.set(depth);
+      }
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package fitnesse.wiki;
+
+/**
+ * Receives page-change notifications. Implementations can be registered with
+ * {@link PageChangeEvents#addListener(PageChangeListener)} or listed in
+ * {@code META-INF/services/fitnesse.wiki.PageChangeListener}.
+ * <p>
+ * Listeners are called synchronously on the writing thread and should hand off expensive work.
+ */
+public interface PageChangeListener {
+  void pageChanged(PageChangeEvent event);
+}
@@ -0,0 +1,296 @@
+package fitnesse.wiki;
+
+import fitnesse.wikitext.MarkUpSystem;
+import fitnesse.wikitext.ParseDependencies;
+import fitnesse.wikitext.ParsingPage;
+import fitnesse.wikitext.SyntaxTree;
+import fitnesse.wikitext.VariableSource;
+import fitnesse.wikitext.parser.MarkUpSystemV2;
+import fitnesse.wikitext.parser.Symbol;
+import fitnesse.wikitext.parser.SyntaxTreeV2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide, size-bounded cache of parsed wiki text, shared by all {@link BaseWikitextPage} instances.
+ * <p>
+ * Entries are keyed by page path and the variable source of the page tree. An entry is reused only when the
+ * page content and properties are unchanged and every variable lookup and include made by the original parse
+ * gives the same answer again, so changes to included pages and inherited {@code !define}s are picked up.
+ * Rendered HTML is kept as well for pages whose HTML depends only on the page tree structure, but only while
+ * {@link #startTrackingStructure() page structure changes are tracked}; it is dropped whenever pages are
+ * created, moved or deleted. Least recently used entries are evicted once the estimated size exceeds the limit.
+ */
+public final class ParsedPageCache {
+  static final String MAX_BYTES_PROPERTY = "wiki.parsedPageCache.maxBytes";
+  static final String MAX_BYTES_ENV = "FITNESSE_PARSED_PAGE_CACHE_BYTES";
+  private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+  // Rough memory estimate for a syntax tree per character of source text.
+  private static final int BYTES_PER_SOURCE_CHAR = 16;
+
+  private static final ParsedPageCache INSTANCE = new ParsedPageCache(readMaxBytes());
+  private static final AtomicLong STRUCTURE_VERSION = new AtomicLong();
+  private static final PageChangeListener STRUCTURE_LISTENER = event -> {
+    if (event.type() != PageChangeEvent.Type.UPDATED) {
+      STRUCTURE_VERSION.incrementAndGet();
+    }
+  };
+  private static int structureTrackers;
+  private static volatile boolean structureTracked;
+
+  private final long maxBytes;
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+  private long weight;
+
+  ParsedPageCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  static ParsedPageCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Starts listening for pages being created, moved and deleted, so rendered HTML can be cached. Until the
+   * last tracking is closed, HTML is rendered again for each request.
+   */
+  public static StructureTracking startTrackingStructure() {
+    synchronized (ParsedPageCache.class) {
+      if (structureTrackers++ == 0) {
+        // pages may have changed while nobody was listening
+        STRUCTURE_VERSION.incrementAndGet();
+        PageChangeEvents.addListener(STRUCTURE_LISTENER);
+        structureTracked = true;
+      }
+    }
+    return new StructureTracking();
+  }
+
+  private static synchronized void stopTrackingStructure() {
+    if (--structureTrackers == 0) {
+      structureTracked = false;
+      PageChangeEvents.removeListener(STRUCTURE_LISTENER);
+    }
+  }
+
+  /**
+   * Returns the parse of the page, from the cache when still valid.
+   */
+  ParsedPage parse(BaseWikitextPage page, PageData data) {
+    return parse(page, data, data.getContent(), false);
+  }
+
+  /**
+   * Returns the parse of other wiki text in the context of the page, e.g. the page content decorated with
+   * set-up and tear-down includes for a test run.
+   */
+  ParsedPage parseDecorated(BaseWikitextPage page, PageData data, String content) {
+    return parse(page, data, content, true);
+  }
+
+  private ParsedPage parse(BaseWikitextPage page, PageData data, String content, boolean decorated) {
+    MarkUpSystem markUpSystem = MarkUpSystem.make(content);
+    if (maxBytes <= 0 || !(markUpSystem instanceof MarkUpSystemV2)) {
+      ParsingPage parsingPage = BaseWikitextPage.makeParsingPage(page);
+      return new ParsedPage(parsingPage, markUpSystem.parse(parsingPage, content), null);
+    }
+
+    Key key = new Key(page.getVariableSource(), page.getFullPath().toString(), decorated);
+    String properties = propertiesKey(data);
+    Entry entry = get(key);
+    if (entry != null && entry.content.equals(content) && entry.properties.equals(properties)) {
+      ParsingPage parsingPage = BaseWikitextPage.makeParsingPage(page);
+      if (entry.dependencies.replay(parsingPage)) {
+        return new ParsedPage(parsingPage, new SyntaxTreeV2(entry.tree, parsingPage), entry);
+      }
+    }
+
+    ParsingPage parsingPage = BaseWikitextPage.makeParsingPage(page);
+    ParseDependencies dependencies = ParseDependencies.record(parsingPage);
+    SyntaxTree tree;
+    try {
+      tree = markUpSystem.parse(parsingPage, content);
+    } finally {
+      dependencies.complete();
+    }
+    if (!(tree instanceof SyntaxTreeV2)) {
+      return new ParsedPage(parsingPage, tree, null);
+    }
+    SyntaxTreeV2 syntaxTree = (SyntaxTreeV2) tree;
+    Entry fresh = new Entry(key, content, properties, syntaxTree.getSyntaxTree(), dependencies,
+      !syntaxTree.hasVolatileHtml());
+    put(fresh);
+    return new ParsedPage(parsingPage, syntaxTree, fresh);
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  private synchronized Entry get(Key key) {
+    return entries.get(key);
+  }
+
+  private synchronized void put(Entry entry) {
+    if (entry.weight > maxBytes) {
+      return;
+    }
+    Entry previous = entries.put(entry.key, entry);
+    if (previous != null) {
+      weight -= previous.weight;
+    }
+    weight += entry.weight;
+    evict();
+  }
+
+  private synchronized void storeHtml(Entry entry, String html, long structureVersion) {
+    if (entries.get(entry.key) != entry) {
+      return;
+    }
+    long extra = 2L * html.length() - (entry.html == null ? 0 : 2L * entry.html.html.length());
+    entry.html = new RenderedHtml(html, structureVersion);
+    entry.weight += extra;
+    weight += extra;
+    evict();
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+    while (weight > maxBytes && iterator.hasNext()) {
+      weight -= iterator.next().getValue().weight;
+      iterator.remove();
+    }
+  }
+
+  private static String propertiesKey(PageData data) {
+    WikiPageProperty properties = new WikiPageProperty(data.getProperties());
+    properties.remove(WikiPageProperty.LAST_MODIFIED);
+    return properties.toString();
+  }
+
+  private static long readMaxBytes() {
+    String value = System.getProperty(MAX_BYTES_PROPERTY);
+    if (value == null || value.isEmpty()) {
+      value = System.getenv(MAX_BYTES_ENV);
+    }
+    if (value == null || value.isEmpty()) {
+      return DEFAULT_MAX_BYTES;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return DEFAULT_MAX_BYTES;
+    }
+  }
+
+  /**
+   * The parse of one page instance. Rendering goes through the shared entry when there is one.
+   */
+  final class ParsedPage {
+    final ParsingPage parsingPage;
+    final SyntaxTree syntaxTree;
+    private final Entry entry;
+
+    private ParsedPage(ParsingPage parsingPage, SyntaxTree syntaxTree, Entry entry) {
+      this.parsingPage = parsingPage;
+      this.syntaxTree = syntaxTree;
+      this.entry = entry;
+    }
+
+    String html() {
+      if (entry == null || !entry.htmlCacheable || !structureTracked) {
+        return syntaxTree.translateToHtml();
+      }
+      long structureVersion = STRUCTURE_VERSION.get();
+      RenderedHtml rendered = entry.html;
+      if (rendered != null && rendered.structureVersion == structureVersion) {
+        return rendered.html;
+      }
+      String html = syntaxTree.translateToHtml();
+      storeHtml(entry, html, structureVersion);
+      return html;
+    }
+  }
+
+  /**
+   * Keeps rendered HTML cached, see {@link #startTrackingStructure()}.
+   */
+  public static final class StructureTracking {
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private StructureTracking() {
+    }
+
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        stopTrackingStructure();
+      }
+    }
+  }
+
+  private static final class Key {
+    private final VariableSource variableSource;
+    private final String path;
+    private final boolean decorated;
+
+    private Key(VariableSource variableSource, String path, boolean decorated) {
+      this.variableSource = variableSource;
+      this.path = path;
+      this.decorated = decorated;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) return false;
+      Key that = (Key) other;
+      return variableSource == that.variableSource && path.equals(that.path) && decorated == that.decorated;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * System.identityHashCode(variableSource) + path.hashCode()) + (decorated ? 1 : 0);
+    }
+  }
+
+  private static final class Entry {
+    private final Key key;
+    private final String content;
+    private final String properties;
+    private final Symbol tree;
+    private final ParseDependencies dependencies;
+    private final boolean htmlCacheable;
+    private volatile RenderedHtml html;
+    private long weight;
+
+    private Entry(Key key, String content, String properties, Symbol tree, ParseDependencies dependencies,
+                  boolean htmlCacheable) {
+      this.key = key;
+      this.content = content;
+      this.properties = properties;
+      this.tree = tree;
+      this.dependencies = dependencies;
+      this.htmlCacheable = htmlCacheable;
+      this.weight = (long) BYTES_PER_SOURCE_CHAR * (content.length() + dependencies.includedLength())
+        + 2L * properties.length();
+    }
+  }
+
+  private static final class RenderedHtml {
+    private final String html;
+    private final long structureVersion;
+
+    private RenderedHtml(String html, long structureVersion) {
+      this.html = html;
+      this.structureVersion = structureVersion;
+    }
+  }
+}
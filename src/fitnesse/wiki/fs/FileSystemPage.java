@@ -77,6 +77,7 @@ public class FileSystemPage extends BaseWikitextPage implements FileBasedWikiPag
     } catch (IOException e) {
       throw new WikiPageLoadException(format("Could not remove page %s", new WikiPagePath(this).toString()), e);
     }
+    PageChangeEvents.publish(PageChangeEvent.deleted(getFullPath().toString()));
   }
 
   @Override
@@ -128,11 +129,27 @@ public class FileSystemPage extends BaseWikitextPage implements FileBasedWikiPag
   public VersionInfo commit(final PageData data) {
     // Note: RecentChanges is not handled by the versionsController?
     resetCache();
+    boolean existed;
+    VersionInfo version;
     try {
-      return versionsController.makeVersion(new ContentFileVersion(data), new PropertiesFileVersion(data));
+      existed = isStored();
+      version = versionsController.makeVersion(new ContentFileVersion(data), new PropertiesFileVersion(data));
     } catch (IOException e) {
       throw new WikiPageLoadException(e);
     }
+    publishCommit(existed, version);
+    return version;
+  }
+
+  private void publishCommit(boolean existed, VersionInfo version) {
+    String path = getFullPath().toString();
+    String label = version == null ? null : version.getName();
+    PageChangeEvents.publish(existed ? PageChangeEvent.updated(path, label) : PageChangeEvent.created(path, label));
+  }
+
+  private boolean isStored() throws IOException {
+    FileVersion[] current = versionsController.getRevisionData(null, contentFile(), propertiesFile());
+    return current.length > 0 && current[0] != null;
   }
 
   @Override
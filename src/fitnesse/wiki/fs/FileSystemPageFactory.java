@@ -22,7 +22,7 @@ import fitnesse.wikitext.VariableSource;
  * For historic reasons it's still called FileSystemPageFactory, although it deals with all
  * file based page types (FileSystemPage, WikiFilePage, ExternalSuitePage).
  */
-public class FileSystemPageFactory implements WikiPageFactory, WikiPageFactoryRegistry {
+public class FileSystemPageFactory implements WikiPageFactory, WikiPageFactoryRegistry, AutoCloseable {
   private final FileSystem fileSystem;
   private final VersionsController versionsController;
   private final List<WikiPageFactory> wikiPageFactories = new ArrayList<>();
@@ -37,17 +37,31 @@ public class FileSystemPageFactory implements WikiPageFactory, WikiPageFactoryRe
   }
 
   public FileSystemPageFactory(ComponentFactory componentFactory) {
-    this(new DiskFileSystem(), componentFactory.createComponent(
+    this(createFileSystem(componentFactory), componentFactory.createComponent(
       ConfigurationParameter.VERSIONS_CONTROLLER_CLASS, ZipFileVersionsController.class));
   }
 
+  /**
+   * With {@code WikiSnapshot=true} pages are read from a memory-mapped snapshot of the page tree.
+   */
+  private static FileSystem createFileSystem(ComponentFactory componentFactory) {
+    String rootDirectory = componentFactory.getProperty(ConfigurationParameter.ROOT_DIRECTORY.getKey());
+    if (!Boolean.parseBoolean(componentFactory.getProperty(ConfigurationParameter.WIKI_SNAPSHOT.getKey()))
+      || rootDirectory == null) {
+      return new DiskFileSystem();
+    }
+    String rootPath = componentFactory.getProperty(ConfigurationParameter.ROOT_PATH.getKey(), ".");
+    return SnapshotFileSystem.start(new DiskFileSystem(), new File(rootPath, rootDirectory));
+  }
+
   public FileSystemPageFactory(FileSystem fileSystem, VersionsController versionsController) {
     this(fileSystem, versionsController, RootWikiFilePageFactory.class);
   }
 
   protected FileSystemPageFactory(FileSystem fileSystem, VersionsController versionsController, Class<? extends WikiPageFactory> fallbackPageFactoryClass) {
     this.fileSystem = fileSystem;
-    this.versionsController = versionsController;
+    this.versionsController = fileSystem instanceof SnapshotFileSystem
+      ? new SnapshotVersionsController(versionsController, (SnapshotFileSystem) fileSystem) : versionsController;
     this.fallbackPageFactory = instantiateFallbackPageFactory(fallbackPageFactoryClass);
     initializeWikiPageFactories();
   }
@@ -106,6 +120,16 @@ public class FileSystemPageFactory implements WikiPageFactory, WikiPageFactoryRe
     return versionsController;
   }
 
+  /**
+   * Stops the snapshot of the page tree, if pages are read from one.
+   */
+  @Override
+  public void close() {
+    if (fileSystem instanceof SnapshotFileSystem) {
+      ((SnapshotFileSystem) fileSystem).close();
+    }
+  }
+
   /**
    * This is the class that does the sole handling of FileSystemPages
    */
@@ -0,0 +1,630 @@
+package fitnesse.wiki.fs;
+
+import fitnesse.util.Clock;
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeEvents;
+import fitnesse.wiki.PageChangeListener;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-mostly file system for the page tree: directory listings, file status and page files below the root are kept
+ * in a compact memory-mapped image, so page lookups and reads do not touch the disk.
+ * <p>
+ * Files are loaded on first use and the whole tree is loaded in the background on start. Changes made through this
+ * file system, and pages reported by {@link PageChangeEvents}, are reloaded on their next use; the image is rebuilt
+ * in the background once enough has changed. Files changed outside FitNesse are not noticed until {@link #refresh()}.
+ * The {@code files} directory below the root is always read from disk.
+ * <p>
+ * Created with {@link #start(FileSystem, File)}; {@link #close()} stops following changes and removes the image
+ * files.
+ */
+public class SnapshotFileSystem implements FileSystem, PageChangeListener, AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(SnapshotFileSystem.class.getName());
+  private static final int MAX_CACHED_FILE_SIZE = 256 * 1024;
+  private static final int REBUILD_THRESHOLD = 1024;
+  private static final byte ABSENT = 0;
+  private static final byte FILE = 1;
+  private static final byte DIRECTORY = 2;
+  private static final byte STALE = 3;
+
+  private final FileSystem delegate;
+  private final File root;
+  private final String rootKey;
+  private final String filesKey;
+  private final NavigableMap<String, Node> overlay = new ConcurrentSkipListMap<>();
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+  private final AtomicInteger loadedSinceRebuild = new AtomicInteger();
+  /** Counts invalidations, so a load that raced with one is not kept. */
+  private final AtomicLong invalidations = new AtomicLong();
+  /** Image files that could not be removed yet, because they are still mapped. */
+  private final List<File> oldImageFiles = new ArrayList<>();
+  private final ExecutorService builder = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "wiki snapshot builder");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile Image image = Image.EMPTY;
+
+  private SnapshotFileSystem(FileSystem delegate, File root) {
+    this.delegate = delegate;
+    this.root = root;
+    this.rootKey = key(root);
+    this.filesKey = rootKey + File.separator + "files";
+  }
+
+  /**
+   * Creates a snapshot that follows page changes and loads the tree in the background.
+   */
+  public static SnapshotFileSystem start(FileSystem delegate, File root) {
+    SnapshotFileSystem snapshot = new SnapshotFileSystem(delegate, root);
+    PageChangeEvents.addListener(snapshot);
+    snapshot.builder.execute(snapshot::loadTree);
+    return snapshot;
+  }
+
+  @Override
+  public boolean exists(File file) {
+    if (!inSnapshot(file)) {
+      return delegate.exists(file);
+    }
+    String key = key(file);
+    Node node = overlay.get(key);
+    if (node == null || node.kind == STALE) {
+      int entry = node == null ? image.find(key) : -1;
+      if (entry >= 0) {
+        return image.kind(entry) != ABSENT;
+      }
+      node = load(file, key, node);
+    }
+    return node.kind != ABSENT;
+  }
+
+  @Override
+  public boolean isDirectory(File file) {
+    if (!inSnapshot(file)) {
+      return delegate.isDirectory(file);
+    }
+    String key = key(file);
+    Node node = overlay.get(key);
+    if (node == null || node.kind == STALE) {
+      int entry = node == null ? image.find(key) : -1;
+      if (entry >= 0) {
+        return image.kind(entry) == DIRECTORY;
+      }
+      node = load(file, key, node);
+    }
+    return node.kind == DIRECTORY;
+  }
+
+  @Override
+  public long lastModified(File file) {
+    if (!inSnapshot(file)) {
+      return delegate.lastModified(file);
+    }
+    String key = key(file);
+    Node node = overlay.get(key);
+    if (node == null || node.kind == STALE) {
+      int entry = node == null ? image.find(key) : -1;
+      if (entry >= 0) {
+        return image.kind(entry) == ABSENT ? Clock.currentTimeInMillis() : image.lastModified(entry);
+      }
+      node = load(file, key, node);
+    }
+    return node.kind == ABSENT ? Clock.currentTimeInMillis() : node.lastModified;
+  }
+
+  @Override
+  public String[] list(File path) {
+    if (!inSnapshot(path)) {
+      return delegate.list(path);
+    }
+    String key = key(path);
+    Node node = overlay.get(key);
+    if (node == null || node.kind == STALE) {
+      int entry = node == null ? image.find(key) : -1;
+      if (entry >= 0) {
+        return image.kind(entry) == DIRECTORY ? image.children(entry) : new String[0];
+      }
+      node = load(path, key, node);
+    }
+    return node.kind == DIRECTORY ? node.children.clone() : new String[0];
+  }
+
+  @Override
+  public String getContent(File file) throws IOException {
+    ByteBuffer content = cachedContent(file);
+    if (content == null) {
+      return delegate.getContent(file);
+    }
+    return StandardCharsets.UTF_8.decode(content).toString();
+  }
+
+  @Override
+  public InputStream getInputStream(File file) throws IOException {
+    ByteBuffer content = cachedContent(file);
+    if (content == null) {
+      return delegate.getInputStream(file);
+    }
+    byte[] bytes = new byte[content.remaining()];
+    content.get(bytes);
+    return new ByteArrayInputStream(bytes);
+  }
+
+  @Override
+  public void makeFile(File file, String content) throws IOException {
+    try {
+      delegate.makeFile(file, content);
+    } finally {
+      invalidate(file, false);
+    }
+  }
+
+  @Override
+  public void makeFile(File file, InputStream content) throws IOException {
+    try {
+      delegate.makeFile(file, content);
+    } finally {
+      invalidate(file, false);
+    }
+  }
+
+  @Override
+  public void makeDirectory(File path) throws IOException {
+    try {
+      delegate.makeDirectory(path);
+    } finally {
+      invalidate(path, false);
+    }
+  }
+
+  @Override
+  public void delete(File path) throws IOException {
+    try {
+      delegate.delete(path);
+    } finally {
+      invalidate(path, true);
+    }
+  }
+
+  @Override
+  public void rename(File file, File originalFile) throws IOException {
+    try {
+      delegate.rename(file, originalFile);
+    } finally {
+      invalidate(originalFile, true);
+      invalidate(file, true);
+    }
+  }
+
+  /**
+   * Reloads the pages that changed: their directory and files, and for new, moved and removed pages also the pages
+   * below them and the listings of the pages above them.
+   */
+  @Override
+  public void pageChanged(PageChangeEvent event) {
+    boolean subtree = event.type() != PageChangeEvent.Type.UPDATED;
+    for (String path : new String[] {event.oldPath(), event.newPath()}) {
+      if (path != null) {
+        File pageDir = pageDirectory(path);
+        invalidate(pageDir, subtree);
+        invalidate(new File(pageDir.getPath() + WikiFilePage.FILE_EXTENSION), false);
+        if (!subtree) {
+          invalidateChildren(key(pageDir));
+        }
+      }
+    }
+  }
+
+  /**
+   * Forgets everything, for instance after the page tree was changed outside FitNesse, and loads the tree again.
+   */
+  public void refresh() {
+    invalidate(root, true);
+    builder.execute(this::loadTree);
+  }
+
+  /**
+   * Waits for the snapshot being built in the background.
+   */
+  void awaitBuild() throws InterruptedException, ExecutionException {
+    builder.submit(() -> { }).get();
+  }
+
+  @Override
+  public void close() {
+    PageChangeEvents.removeListener(this);
+    builder.shutdownNow();
+    try {
+      builder.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    Image last = image;
+    image = Image.EMPTY;
+    discard(last);
+    synchronized (oldImageFiles) {
+      // still mapped where open files can not be removed
+      for (File file : oldImageFiles) {
+        file.deleteOnExit();
+      }
+      oldImageFiles.clear();
+    }
+  }
+
+  private ByteBuffer cachedContent(File file) {
+    if (!inSnapshot(file)) {
+      return null;
+    }
+    String key = key(file);
+    Node node = overlay.get(key);
+    if (node == null || node.kind == STALE) {
+      int entry = node == null ? image.find(key) : -1;
+      if (entry >= 0) {
+        return image.kind(entry) == FILE ? image.content(entry) : null;
+      }
+      node = load(file, key, node);
+    }
+    return node.kind == FILE && node.content != null ? ByteBuffer.wrap(node.content) : null;
+  }
+
+  private Node load(File file, String key, Node stale) {
+    long seen = invalidations.get();
+    Node node = read(file);
+    boolean stored = stale == null ? overlay.putIfAbsent(key, node) == null : overlay.replace(key, stale, node);
+    if (stored && invalidations.get() != seen) {
+      // what was read may predate a change whose mark a rebuild has already dropped
+      overlay.remove(key, node);
+      stored = false;
+    }
+    if (stored && loadedSinceRebuild.incrementAndGet() > REBUILD_THRESHOLD) {
+      scheduleRebuild();
+    }
+    return node;
+  }
+
+  private Node read(File file) {
+    if (!delegate.exists(file)) {
+      return new Node(ABSENT, 0, null, null);
+    }
+    if (delegate.isDirectory(file)) {
+      return new Node(DIRECTORY, delegate.lastModified(file), null, delegate.list(file));
+    }
+    return new Node(FILE, delegate.lastModified(file), readSmallFile(file), null);
+  }
+
+  private byte[] readSmallFile(File file) {
+    try (InputStream in = delegate.getInputStream(file)) {
+      byte[] content = in.readNBytes(MAX_CACHED_FILE_SIZE + 1);
+      return content.length > MAX_CACHED_FILE_SIZE ? null : content;
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Not caching " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Has the file, and with {@code subtree} everything below it, read again on next use.
+   */
+  void invalidate(File file, boolean subtree) {
+    if (!inSnapshot(file)) {
+      return;
+    }
+    String key = key(file);
+    // counted before marking, so loads that end after the mark was dropped see it
+    invalidations.incrementAndGet();
+    overlay.put(key, Node.stale());
+    if (subtree) {
+      String prefix = key + File.separator;
+      for (String child : overlay.subMap(prefix, true, prefix + Character.MAX_VALUE, true).keySet()) {
+        overlay.put(child, Node.stale());
+      }
+      for (String child : image.keysStartingWith(prefix)) {
+        overlay.put(child, Node.stale());
+      }
+    }
+    // the listings above changed when files were added or removed
+    File parent = file.getParentFile();
+    while (parent != null && inSnapshot(parent)) {
+      overlay.put(key(parent), Node.stale());
+      parent = parent.getParentFile();
+    }
+  }
+
+  private void invalidateChildren(String dirKey) {
+    String prefix = dirKey + File.separator;
+    for (String child : overlay.subMap(prefix, true, prefix + Character.MAX_VALUE, true).keySet()) {
+      if (child.indexOf(File.separatorChar, prefix.length()) < 0) {
+        overlay.put(child, Node.stale());
+      }
+    }
+    for (String child : image.keysStartingWith(prefix)) {
+      if (child.indexOf(File.separatorChar, prefix.length()) < 0) {
+        overlay.put(child, Node.stale());
+      }
+    }
+  }
+
+  private void loadTree() {
+    try {
+      loadTree(root);
+      rebuild();
+    } catch (RuntimeException e) {
+      LOG.log(Level.WARNING, "Failed to load wiki snapshot of " + root, e);
+    }
+  }
+
+  private void loadTree(File dir) {
+    if (Thread.currentThread().isInterrupted()) {
+      return;
+    }
+    String key = key(dir);
+    Node node = overlay.get(key);
+    if (node == null || node.kind == STALE) {
+      node = load(dir, key, node);
+    }
+    if (node.kind == DIRECTORY) {
+      for (String child : node.children) {
+        File file = new File(dir, child);
+        if (inSnapshot(file)) {
+          loadTree(file);
+        }
+      }
+    }
+  }
+
+  private void scheduleRebuild() {
+    if (rebuilding.compareAndSet(false, true)) {
+      builder.execute(() -> {
+        try {
+          rebuild();
+        } finally {
+          rebuilding.set(false);
+        }
+      });
+    }
+  }
+
+  /**
+   * Writes the current image and the files loaded since into a new image, and drops them from the overlay.
+   */
+  private void rebuild() {
+    loadedSinceRebuild.set(0);
+    List<Map.Entry<String, Node>> captured = new ArrayList<>(overlay.entrySet());
+    Image current = image;
+    try {
+      image = current.merge(captured);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to rebuild wiki snapshot, serving changes from memory", e);
+      return;
+    }
+    for (Map.Entry<String, Node> entry : captured) {
+      overlay.remove(entry.getKey(), entry.getValue());
+    }
+    discard(current);
+  }
+
+  /**
+   * Removes the file of an image that is no longer served, and those of earlier images that could not be removed
+   * before, once their mappings are gone.
+   */
+  private void discard(Image old) {
+    synchronized (oldImageFiles) {
+      if (old.file != null) {
+        oldImageFiles.add(old.file);
+      }
+      oldImageFiles.removeIf(file -> file.delete() || !file.exists());
+    }
+  }
+
+  private boolean inSnapshot(File file) {
+    String key = key(file);
+    return (key.equals(rootKey) || key.startsWith(rootKey + File.separator))
+      && !(key.equals(filesKey) || key.startsWith(filesKey + File.separator));
+  }
+
+  private File pageDirectory(String wikiPath) {
+    File dir = root;
+    for (String name : wikiPath.split("\\.")) {
+      if (!name.isEmpty()) {
+        dir = new File(dir, name);
+      }
+    }
+    return dir;
+  }
+
+  private static String key(File file) {
+    return file.toPath().toAbsolutePath().normalize().toString();
+  }
+
+  private static final class Node {
+    private final byte kind;
+    private final long lastModified;
+    private final byte[] content;
+    private final String[] children;
+
+    private Node(byte kind, long lastModified, byte[] content, String[] children) {
+      this.kind = kind;
+      this.lastModified = lastModified;
+      this.content = content;
+      this.children = children;
+    }
+
+    private static Node stale() {
+      // a new instance each time, so rebuilding only drops the marks it has seen
+      return new Node(STALE, 0, null, null);
+    }
+  }
+
+  /**
+   * Immutable, memory-mapped image: sorted paths with the offsets of their entries. An entry is the kind, the
+   * modification time, the content length (-1 when not cached), the content, and the names of the children.
+   */
+  private static final class Image {
+    private static final Image EMPTY = new Image(new String[0], new int[0], ByteBuffer.allocate(0), null);
+
+    private final String[] paths;
+    private final int[] offsets;
+    private final ByteBuffer data;
+    /** The mapped file, when it could not be removed while mapped; null otherwise. */
+    private final File file;
+
+    private Image(String[] paths, int[] offsets, ByteBuffer data, File file) {
+      this.paths = paths;
+      this.offsets = offsets;
+      this.data = data;
+      this.file = file;
+    }
+
+    int find(String path) {
+      int index = Arrays.binarySearch(paths, path);
+      return index < 0 ? -1 : offsets[index];
+    }
+
+    byte kind(int entry) {
+      return data.get(entry);
+    }
+
+    long lastModified(int entry) {
+      return data.getLong(entry + 1);
+    }
+
+    ByteBuffer content(int entry) {
+      int length = data.getInt(entry + 9);
+      if (length < 0) {
+        return null;
+      }
+      return data.duplicate().position(entry + 13).limit(entry + 13 + length).slice();
+    }
+
+    String[] children(int entry) {
+      int position = entry + 13 + Math.max(0, data.getInt(entry + 9));
+      String[] children = new String[data.getInt(position)];
+      position += 4;
+      ByteBuffer view = data.duplicate();
+      for (int i = 0; i < children.length; i++) {
+        int length = data.getInt(position);
+        view.limit(position + 4 + length).position(position + 4);
+        children[i] = StandardCharsets.UTF_8.decode(view).toString();
+        position += 4 + length;
+      }
+      return children;
+    }
+
+    List<String> keysStartingWith(String prefix) {
+      int from = Arrays.binarySearch(paths, prefix);
+      from = from < 0 ? -from - 1 : from;
+      List<String> keys = new ArrayList<>();
+      for (int i = from; i < paths.length && paths[i].startsWith(prefix); i++) {
+        keys.add(paths[i]);
+      }
+      return keys;
+    }
+
+    /**
+     * Builds a new image with the overlay entries replacing (or, when stale, removing) entries of this one.
+     */
+    Image merge(List<Map.Entry<String, Node>> changes) throws IOException {
+      NavigableMap<String, Object> entries = new TreeMap<>();
+      for (int i = 0; i < paths.length; i++) {
+        entries.put(paths[i], offsets[i]);
+      }
+      for (Map.Entry<String, Node> change : changes) {
+        if (change.getValue().kind == STALE) {
+          entries.remove(change.getKey());
+        } else {
+          entries.put(change.getKey(), change.getValue());
+        }
+      }
+      String[] newPaths = new String[entries.size()];
+      int[] newOffsets = new int[entries.size()];
+      File file = File.createTempFile("fitnesse-snapshot", ".img");
+      boolean mapped = false;
+      try {
+        long size;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+          int index = 0;
+          for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            if (out.size() < 0 || out.size() > Integer.MAX_VALUE - MAX_CACHED_FILE_SIZE * 2) {
+              throw new IOException("Wiki snapshot exceeds 2GB");
+            }
+            newPaths[index] = entry.getKey();
+            newOffsets[index++] = out.size();
+            if (entry.getValue() instanceof Node) {
+              write(out, (Node) entry.getValue());
+            } else {
+              copy(out, (Integer) entry.getValue());
+            }
+          }
+          size = out.size();
+        }
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+          // the mapping stays valid after the channel is closed
+          data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        mapped = true;
+        // where mapped files can not be removed, it is removed once the image is replaced
+        return new Image(newPaths, newOffsets, data, file.delete() ? null : file);
+      } finally {
+        if (!mapped) {
+          file.delete();
+        }
+      }
+    }
+
+    private static void write(DataOutputStream out, Node node) throws IOException {
+      out.writeByte(node.kind);
+      out.writeLong(node.lastModified);
+      out.writeInt(node.content == null ? -1 : node.content.length);
+      if (node.content != null) {
+        out.write(node.content);
+      }
+      String[] children = node.children == null ? new String[0] : node.children;
+      out.writeInt(children.length);
+      for (String child : children) {
+        byte[] name = child.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(name.length);
+        out.write(name);
+      }
+    }
+
+    private void copy(DataOutputStream out, int entry) throws IOException {
+      int position = entry + 13 + Math.max(0, data.getInt(entry + 9));
+      int childCount = data.getInt(position);
+      position += 4;
+      for (int i = 0; i < childCount; i++) {
+        position += 4 + data.getInt(position);
+      }
+      byte[] copy = new byte[position - entry];
+      data.duplicate().position(entry).get(copy);
+      out.write(copy);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package fitnesse.wiki.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import fitnesse.wiki.VersionInfo;
+
+/**
+ * Reads the latest version of pages from a {@link SnapshotFileSystem}, and has the snapshot reload files as soon
+ * as they are changed. Older versions and all changes are handled by the wrapped versions controller.
+ */
+class SnapshotVersionsController implements VersionsController {
+  private final VersionsController delegate;
+  private final SnapshotFileSystem snapshot;
+  private final VersionsController latest;
+
+  SnapshotVersionsController(VersionsController delegate, SnapshotFileSystem snapshot) {
+    this.delegate = delegate;
+    this.snapshot = snapshot;
+    this.latest = new SimpleFileVersionsController(snapshot);
+  }
+
+  @Override
+  public FileVersion[] getRevisionData(String revision, File... files) throws IOException {
+    return revision == null ? latest.getRevisionData(null, files) : delegate.getRevisionData(revision, files);
+  }
+
+  @Override
+  public Collection<VersionInfo> history(File... files) {
+    return delegate.history(files);
+  }
+
+  @Override
+  public VersionInfo makeVersion(FileVersion... fileVersions) throws IOException {
+    try {
+      return delegate.makeVersion(fileVersions);
+    } finally {
+      for (FileVersion fileVersion : fileVersions) {
+        // the versions are stored next to the file, so the listing of its directory changes as well
+        snapshot.invalidate(fileVersion.getFile(), false);
+        snapshot.invalidate(fileVersion.getFile().getParentFile(), false);
+      }
+    }
+  }
+
+  @Override
+  public VersionInfo addDirectory(FileVersion filePath) throws IOException {
+    try {
+      return delegate.addDirectory(filePath);
+    } finally {
+      snapshot.invalidate(filePath.getFile(), false);
+    }
+  }
+
+  @Override
+  public void rename(FileVersion fileVersion, File originalFile) throws IOException {
+    try {
+      delegate.rename(fileVersion, originalFile);
+    } finally {
+      snapshot.invalidate(originalFile, true);
+      snapshot.invalidate(fileVersion.getFile(), true);
+    }
+  }
+
+  @Override
+  public void delete(File... files) throws IOException {
+    try {
+      delegate.delete(files);
+    } finally {
+      for (File file : files) {
+        snapshot.invalidate(file, true);
+      }
+    }
+  }
+}
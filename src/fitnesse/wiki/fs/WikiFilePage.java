@@ -77,6 +77,7 @@ public class WikiFilePage extends BaseWikitextPage implements FileBasedWikiPage
     } catch (IOException e) {
       throw new WikiPageLoadException(format("Could not remove page %s", new WikiPagePath(this).toString()), e);
     }
+    PageChangeEvents.publish(PageChangeEvent.deleted(getFullPath().toString()));
   }
 
   @Override
@@ -114,11 +115,19 @@ public class WikiFilePage extends BaseWikitextPage implements FileBasedWikiPage
   @Override
   public VersionInfo commit(final PageData data) {
     resetCache();
+    boolean existed;
+    VersionInfo version;
     try {
-      return versionsController.makeVersion(new WikiFilePageVersion(data));
+      FileVersion[] current = versionsController.getRevisionData(null, path);
+      existed = current.length > 0 && current[0] != null;
+      version = versionsController.makeVersion(new WikiFilePageVersion(data));
     } catch (IOException e) {
       throw new WikiPageLoadException(e);
     }
+    String pagePath = getFullPath().toString();
+    String label = version == null ? null : version.getName();
+    PageChangeEvents.publish(existed ? PageChangeEvent.updated(pagePath, label) : PageChangeEvent.created(pagePath, label));
+    return version;
   }
 
   @Override
@@ -2,8 +2,10 @@ package fitnesse.wiki.refactoring;
 
 import fitnesse.components.TraversalListener;
 import fitnesse.wiki.*;
+import fitnesse.wiki.search.LinkGraph;
 import fitnesse.wikitext.MarkUpSystem;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -13,6 +15,27 @@ public class ReferenceRenamingTraverser implements TraversalListener<WikiPage> {
     root.getPageCrawler().traverse(new ReferenceRenamingTraverser(changeReference), new NoPruningStrategy());
   }
 
+  /**
+   * Renames the references to the subject, or to pages below it. When the link graph is ready only the pages it
+   * names as possible referrers are read and rewritten.
+   */
+  public static void renameReferences(WikiPage root, ChangeReference changeReference, WikiPage subject,
+                                      LinkGraph linkGraph) {
+    List<String> candidates = linkGraph == null ? null : linkGraph.referringPaths(subject);
+    if (candidates == null) {
+      renameReferences(root, changeReference);
+      return;
+    }
+    ReferenceRenamingTraverser traverser = new ReferenceRenamingTraverser(changeReference);
+    PageCrawler crawler = root.getPageCrawler();
+    for (String path : candidates) {
+      WikiPage page = path.isEmpty() ? root : crawler.getPage(PathParser.parse(path));
+      if (page != null) {
+        traverser.process(page);
+      }
+    }
+  }
+
   private final ChangeReference changeReference;
 
   private ReferenceRenamingTraverser(ChangeReference changeReference) {
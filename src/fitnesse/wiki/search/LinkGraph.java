@@ -0,0 +1,609 @@
+package fitnesse.wiki.search;
+
+import fitnesse.components.TraversalListener;
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageChangeEvents;
+import fitnesse.wiki.PageChangeListener;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.SymbolicPage;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageProperty;
+import fitnesse.wiki.WikiSourcePage;
+import fitnesse.wikitext.MarkUpSystem;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Graph of the references between wiki pages: for each page the page names used in its wiki text (WikiWords,
+ * aliases, {@code !include} and {@code !see}) and the targets of its symbolic links.
+ * <p>
+ * References are stored as written and resolved only when a query is answered, so the graph stays valid when pages
+ * are added or moved elsewhere in the tree. A reverse index from page name to referring pages narrows where-used
+ * queries and refactorings down to the pages that can refer to a page at all.
+ * The graph follows {@link PageChangeEvents} and is persisted in a compact binary file, so a restart only has to
+ * re-read pages that changed while the server was down. Pages are indexed at their real location; pages reached
+ * through symbolic links are not indexed again.
+ * <p>
+ * A graph created with {@link #start(Supplier, Path)} parses changed pages on its own thread, not on the thread that
+ * saved them; until it has caught up, queries are answered with null so callers search all pages.
+ */
+public final class LinkGraph implements PageChangeListener, AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(LinkGraph.class.getName());
+  private static final int MAGIC = 0x464E4C47;
+  private static final int FORMAT_VERSION = 2;
+  private static final int SIGNATURE_LENGTH = 32;
+  private static final long SAVE_DELAY_SECONDS = 10;
+  private static final String[] NONE = new String[0];
+
+  private static final class PageLinks {
+    final byte[] signature;
+    final String[] references;
+    final String[] symlinks;
+
+    PageLinks(byte[] signature, String[] references, String[] symlinks) {
+      this.signature = signature;
+      this.references = references;
+      this.symlinks = symlinks;
+    }
+
+    boolean isEmpty() {
+      return references.length == 0 && symlinks.length == 0;
+    }
+  }
+
+  private final Supplier<WikiPage> root;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final NavigableMap<String, PageLinks> pages = new TreeMap<>();
+  private final Map<String, Set<String>> pathsByName = new HashMap<>();
+  private final AtomicBoolean saveScheduled = new AtomicBoolean();
+  private final AtomicInteger pendingChanges = new AtomicInteger();
+  private ScheduledThreadPoolExecutor executor;
+  private Path file;
+  private Set<String> changedWhileBuilding;
+  private volatile boolean ready;
+  private volatile boolean dirty;
+
+  /**
+   * @param root supplies the root page used to look up the pages named in page change events.
+   */
+  public LinkGraph(Supplier<WikiPage> root) {
+    this.root = root;
+  }
+
+  /**
+   * Creates a graph that follows page changes, loads or builds it in the background and saves it to the file
+   * shortly after it changes.
+   */
+  public static LinkGraph start(Supplier<WikiPage> root, Path file) {
+    LinkGraph graph = new LinkGraph(root);
+    graph.file = file;
+    graph.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "link graph");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // close() saves itself rather than waiting for a scheduled save
+    graph.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    PageChangeEvents.addListener(graph);
+    graph.executor.execute(graph::loadOrBuild);
+    return graph;
+  }
+
+  /**
+   * True once the graph has been built or loaded and can answer queries.
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * True if the graph changed since it was last saved or loaded.
+   */
+  public boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Number of indexed pages.
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return pages.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Discards the current content and indexes every page below (and including) the root.
+   */
+  public void rebuild() {
+    lock.writeLock().lock();
+    try {
+      pages.clear();
+      pathsByName.clear();
+      changedWhileBuilding = new HashSet<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    build(false);
+  }
+
+  /**
+   * Brings a loaded graph in line with the page tree: changed and new pages are parsed again, pages that no longer
+   * exist are dropped. Unchanged pages are not parsed.
+   */
+  public void refresh() {
+    lock.writeLock().lock();
+    try {
+      changedWhileBuilding = new HashSet<>();
+    } finally {
+      lock.writeLock().unlock();
+    }
+    build(true);
+  }
+
+  private void build(boolean incremental) {
+    Set<String> seen = new HashSet<>();
+    try {
+      root.get().getPageCrawler().traverse((TraversalListener<WikiPage>) page -> {
+        String path = pathOf(page);
+        seen.add(path);
+        PageData data = page.getData();
+        byte[] signature = signatureOf(data);
+        if (incremental) {
+          PageLinks known = get(path);
+          if (known != null && Arrays.equals(known.signature, signature)) {
+            return;
+          }
+        }
+        PageLinks links = linksOf(page, data, signature);
+        lock.writeLock().lock();
+        try {
+          if (!changedWhileBuilding.contains(path)) {
+            put(path, links);
+          }
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }, WikiPage::isSymbolicPage);
+      lock.writeLock().lock();
+      try {
+        for (String path : new ArrayList<>(pages.keySet())) {
+          if (!seen.contains(path) && !changedWhileBuilding.contains(path)) {
+            removePage(path);
+          }
+        }
+        ready = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    } finally {
+      lock.writeLock().lock();
+      try {
+        changedWhileBuilding = null;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * (Re-)indexes a single page.
+   */
+  public void update(WikiPage page) {
+    if (page.isSymbolicPage()) {
+      return;
+    }
+    String path = pathOf(page);
+    PageData data = page.getData();
+    PageLinks links = linksOf(page, data, signatureOf(data));
+    lock.writeLock().lock();
+    try {
+      put(path, links);
+      if (changedWhileBuilding != null) {
+        changedWhileBuilding.add(path);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * (Re-)indexes a page and all pages below it.
+   */
+  public void updateTree(WikiPage page) {
+    page.getPageCrawler().traverse((TraversalListener<WikiPage>) this::update, WikiPage::isSymbolicPage);
+  }
+
+  /**
+   * Removes a page and all pages below it.
+   */
+  public void remove(String path) {
+    lock.writeLock().lock();
+    try {
+      List<String> removed = new ArrayList<>();
+      removed.add(path);
+      removed.addAll(path.isEmpty() ? pages.keySet() : below(path).keySet());
+      for (String indexed : removed) {
+        removePage(indexed);
+        if (changedWhileBuilding != null) {
+          changedWhileBuilding.add(indexed);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the references made by a page: the page names in its wiki text followed by its symbolic link targets.
+   */
+  public List<String> referencesOf(String path) {
+    PageLinks links = get(path);
+    if (links == null) {
+      return Collections.emptyList();
+    }
+    List<String> references = new ArrayList<>(Arrays.asList(links.references));
+    references.addAll(Arrays.asList(links.symlinks));
+    return references;
+  }
+
+  /**
+   * Returns the paths of the pages that may refer to the subject or to a page below it, in path order: pages using
+   * the subject's name in a reference, and pages below the subject with relative references. Callers still have to
+   * resolve the references of these pages.
+   *
+   * @return the candidate pages, or null if the graph can not answer (yet) and all pages have to be searched.
+   */
+  public List<String> referringPaths(WikiPage subject) {
+    if (!ready || pendingChanges.get() > 0 || subject.isRoot()) {
+      return null;
+    }
+    String path = pathOf(subject);
+    lock.readLock().lock();
+    try {
+      Set<String> paths = new TreeSet<>(pathsByName.getOrDefault(subject.getName(), Collections.emptySet()));
+      PageLinks own = pages.get(path);
+      if (own != null && !own.isEmpty()) {
+        paths.add(path);
+      }
+      for (Map.Entry<String, PageLinks> entry : below(path).entrySet()) {
+        if (!entry.getValue().isEmpty()) {
+          paths.add(entry.getKey());
+        }
+      }
+      return new ArrayList<>(paths);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void pageChanged(PageChangeEvent event) {
+    if (executor == null) {
+      apply(event);
+      return;
+    }
+    pendingChanges.incrementAndGet();
+    try {
+      executor.execute(() -> {
+        try {
+          apply(event);
+        } catch (RuntimeException e) {
+          LOG.log(Level.WARNING, "Failed to update link graph for " + event, e);
+        } finally {
+          pendingChanges.decrementAndGet();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // closed
+      pendingChanges.decrementAndGet();
+    }
+  }
+
+  private void apply(PageChangeEvent event) {
+    switch (event.type()) {
+      case CREATED:
+      case UPDATED:
+        WikiPage page = find(event.newPath());
+        if (page != null) {
+          update(page);
+        }
+        break;
+      case MOVED:
+        remove(event.oldPath());
+        WikiPage moved = find(event.newPath());
+        if (moved != null) {
+          updateTree(moved);
+        }
+        break;
+      case DELETED:
+        remove(event.oldPath());
+        break;
+      default:
+        break;
+    }
+    scheduleSave();
+  }
+
+  /**
+   * Loads a previously saved graph. Returns false if the file is missing or has an unknown format.
+   */
+  public boolean load(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return false;
+      }
+      Map<String, PageLinks> loaded = new HashMap<>();
+      int pageCount = in.readInt();
+      for (int i = 0; i < pageCount; i++) {
+        String path = in.readUTF();
+        byte[] signature = new byte[SIGNATURE_LENGTH];
+        in.readFully(signature);
+        String[] references = readStrings(in);
+        String[] symlinks = readStrings(in);
+        loaded.put(path, new PageLinks(signature, references, symlinks));
+      }
+      lock.writeLock().lock();
+      try {
+        pages.clear();
+        pathsByName.clear();
+        for (Map.Entry<String, PageLinks> entry : loaded.entrySet()) {
+          put(entry.getKey(), entry.getValue());
+        }
+        ready = true;
+        dirty = false;
+      } finally {
+        lock.writeLock().unlock();
+      }
+      return true;
+    } catch (NoSuchFileException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Writes the graph to disk (via a temporary file, so readers never see a partial graph).
+   */
+  public void save(Path file) throws IOException {
+    Files.createDirectories(file.getParent());
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    lock.readLock().lock();
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(pages.size());
+      for (Map.Entry<String, PageLinks> entry : pages.entrySet()) {
+        out.writeUTF(entry.getKey());
+        out.write(entry.getValue().signature);
+        writeStrings(out, entry.getValue().references);
+        writeStrings(out, entry.getValue().symlinks);
+      }
+      dirty = false;
+    } finally {
+      lock.readLock().unlock();
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Stops following page changes, applies the changes already reported and saves the graph.
+   */
+  @Override
+  public void close() {
+    PageChangeEvents.removeListener(this);
+    if (executor != null) {
+      executor.shutdown();
+      try {
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+          executor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        executor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+      saveIfDirty();
+    }
+  }
+
+  private void loadOrBuild() {
+    try {
+      if (load(file)) {
+        refresh();
+      } else {
+        rebuild();
+      }
+      saveIfDirty();
+      LOG.info("Link graph ready: " + size() + " pages");
+    } catch (IOException | RuntimeException e) {
+      LOG.log(Level.WARNING, "Failed to build link graph, falling back to searching all pages", e);
+    }
+  }
+
+  private void scheduleSave() {
+    if (executor != null && saveScheduled.compareAndSet(false, true)) {
+      try {
+        executor.schedule(() -> {
+          saveScheduled.set(false);
+          saveIfDirty();
+        }, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+      } catch (RejectedExecutionException e) {
+        // closing, which saves
+        saveScheduled.set(false);
+      }
+    }
+  }
+
+  private void saveIfDirty() {
+    if (!dirty || !ready || file == null) {
+      return;
+    }
+    try {
+      save(file);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Failed to save link graph", e);
+    }
+  }
+
+  private PageLinks get(String path) {
+    lock.readLock().lock();
+    try {
+      return pages.get(path);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void put(String path, PageLinks links) {
+    removePage(path);
+    pages.put(path, links);
+    for (String name : namesOf(links)) {
+      pathsByName.computeIfAbsent(name, n -> new HashSet<>()).add(path);
+    }
+    dirty = true;
+  }
+
+  private void removePage(String path) {
+    PageLinks links = pages.remove(path);
+    if (links == null) {
+      return;
+    }
+    for (String name : namesOf(links)) {
+      Set<String> paths = pathsByName.get(name);
+      if (paths != null) {
+        paths.remove(path);
+        if (paths.isEmpty()) {
+          pathsByName.remove(name);
+        }
+      }
+    }
+    dirty = true;
+  }
+
+  private NavigableMap<String, PageLinks> below(String path) {
+    return pages.subMap(path + ".", true, path + "/", false);
+  }
+
+  private WikiPage find(String path) {
+    WikiPage rootPage = root.get();
+    if (path == null || path.isEmpty()) {
+      return rootPage;
+    }
+    return rootPage.getPageCrawler().getPage(PathParser.parse(path));
+  }
+
+  private static PageLinks linksOf(WikiPage page, PageData data, byte[] signature) {
+    List<String> references = new ArrayList<>();
+    String content = data.getContent();
+    if (content != null && !content.isEmpty()) {
+      MarkUpSystem.make(content).findWhereUsed(new WikiSourcePage(page), references::add);
+    }
+    String[] symlinks = NONE;
+    WikiPageProperty symlinkProperty = data.getProperties().getProperty(SymbolicPage.PROPERTY_NAME);
+    if (symlinkProperty != null) {
+      List<String> targets = new ArrayList<>();
+      for (String link : symlinkProperty.keySet()) {
+        targets.add(symlinkProperty.get(link));
+      }
+      symlinks = targets.toArray(NONE);
+    }
+    return new PageLinks(signature, references.isEmpty() ? NONE : references.toArray(NONE), symlinks);
+  }
+
+  /**
+   * The page names a reference can resolve through: every word of the reference, ignoring path prefixes and
+   * link suffixes.
+   */
+  private static Set<String> namesOf(PageLinks links) {
+    Set<String> names = new HashSet<>();
+    for (String[] references : Arrays.asList(links.references, links.symlinks)) {
+      for (String reference : references) {
+        for (String name : reference.split("[^\\w-]+")) {
+          if (!name.isEmpty()) {
+            names.add(name);
+          }
+        }
+      }
+    }
+    return names;
+  }
+
+  /**
+   * SHA-256 of the content and the symbolic links: what the links of a page are parsed from.
+   */
+  private static byte[] signatureOf(PageData data) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(String.valueOf(data.getContent()).getBytes(StandardCharsets.UTF_8));
+    WikiPageProperty symlinkProperty = data.getProperties().getProperty(SymbolicPage.PROPERTY_NAME);
+    if (symlinkProperty != null) {
+      for (String link : new TreeSet<>(symlinkProperty.keySet())) {
+        digest.update((byte) 0);
+        digest.update((link + "=" + symlinkProperty.get(link)).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return digest.digest();
+  }
+
+  private static String pathOf(WikiPage page) {
+    return page.getFullPath().toString();
+  }
+
+  private static String[] readStrings(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    if (count == 0) {
+      return NONE;
+    }
+    String[] strings = new String[count];
+    for (int i = 0; i < count; i++) {
+      strings[i] = in.readUTF();
+    }
+    return strings;
+  }
+
+  private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+    out.writeInt(strings.length);
+    for (String string : strings) {
+      out.writeUTF(string);
+    }
+  }
+}
@@ -12,13 +12,22 @@ public class WhereUsedPageFinder implements TraversalListener<WikiPage>, PageFin
 
   private final WikiPage subjectPage;
   private final TraversalListener<? super WikiPage> observer;
+  private final LinkGraph linkGraph;
   private WikiPage currentPage;
 
   private final List<WikiPage> hits = new ArrayList<>();
 
   public WhereUsedPageFinder(WikiPage subjectPage, TraversalListener<? super WikiPage> observer) {
+    this(subjectPage, observer, null);
+  }
+
+  /**
+   * @param linkGraph when given and ready, only the pages it names as possible referrers are searched.
+   */
+  public WhereUsedPageFinder(WikiPage subjectPage, TraversalListener<? super WikiPage> observer, LinkGraph linkGraph) {
     this.subjectPage = subjectPage;
     this.observer = observer;
+    this.linkGraph = linkGraph;
   }
 
   @Override
@@ -58,7 +67,18 @@ public class WhereUsedPageFinder implements TraversalListener<WikiPage>, PageFin
   @Override
   public void search(WikiPage page) {
     hits.clear();
-    page.getPageCrawler().traverse(this, new NoPruningStrategy());
+    List<String> candidates = linkGraph != null && page.isRoot() ? linkGraph.referringPaths(subjectPage) : null;
+    if (candidates == null) {
+      page.getPageCrawler().traverse(this, new NoPruningStrategy());
+      return;
+    }
+    PageCrawler crawler = page.getPageCrawler();
+    for (String path : candidates) {
+      WikiPage candidate = path.isEmpty() ? page : crawler.getPage(PathParser.parse(path));
+      if (candidate != null) {
+        process(candidate);
+      }
+    }
   }
 
   private void addHit() {
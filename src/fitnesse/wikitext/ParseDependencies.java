@@ -0,0 +1,182 @@
+package fitnesse.wikitext;
+
+import fitnesse.wiki.WikiPageProperty;
+import fitnesse.wikitext.parser.Maybe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Records everything a parse read from outside the page content: variable lookups, variable definitions
+ * and included pages, in the order they happened.
+ * <p>
+ * {@link #replay(ParsingPage)} performs the same reads against a fresh parsing page. If every read gives the
+ * same answer, parsing the (unchanged) content again would produce the same syntax tree.
+ */
+public final class ParseDependencies {
+  private final List<Step> steps = new ArrayList<>();
+  private final Map<String, Set<String>> lookedUp = new HashMap<>();
+  private ParsingPage owner;
+  private int finalId;
+  private int includedLength;
+  private boolean closed;
+
+  private ParseDependencies() {
+  }
+
+  /**
+   * Starts recording the reads made while parsing with the given page (and pages derived from it).
+   */
+  public static ParseDependencies record(ParsingPage page) {
+    ParseDependencies dependencies = new ParseDependencies();
+    dependencies.owner = page;
+    page.trackDependencies(dependencies);
+    return dependencies;
+  }
+
+  /**
+   * Stops recording. Reads made after this call (e.g. by {@code getVariable}) are not part of the parse.
+   */
+  public ParseDependencies complete() {
+    closed = true;
+    finalId = owner.currentId();
+    owner.trackDependencies(null);
+    owner = null;
+    return this;
+  }
+
+  /**
+   * Returns the total length of the included page contents, used to estimate the memory held by a parse.
+   */
+  public int includedLength() {
+    return includedLength;
+  }
+
+  /**
+   * Repeats the recorded reads against a fresh parsing page, leaving it in the state the original parse
+   * left its page in. Returns false as soon as one read gives a different answer.
+   */
+  public boolean replay(ParsingPage page) {
+    Map<String, ParsingPage> named = new HashMap<>();
+    named.put(page.getNamedPage().getFullName(), page);
+    for (Step step : steps) {
+      if (!step.replay(page, named)) {
+        return false;
+      }
+    }
+    page.restoreId(finalId);
+    return true;
+  }
+
+  void lookup(String namedPage, String name, String value) {
+    if (closed || !lookedUp.computeIfAbsent(name, key -> new HashSet<>()).add(namedPage)) {
+      return;
+    }
+    steps.add(new Lookup(namedPage, name, value));
+  }
+
+  void define(String name, String value) {
+    if (closed) {
+      return;
+    }
+    lookedUp.remove(name);
+    steps.add(new Define(name, value));
+  }
+
+  void include(String namedPage, String pageName, Maybe<SourcePage> result) {
+    if (closed) {
+      return;
+    }
+    if (result.isNothing()) {
+      steps.add(new Include(namedPage, pageName, null, result.because(), null, null));
+    } else {
+      SourcePage included = result.getValue();
+      String content = included.getContent();
+      includedLength += content == null ? 0 : content.length();
+      steps.add(new Include(namedPage, pageName, included.getFullName(), null, content,
+        included.getProperty(WikiPageProperty.HELP)));
+    }
+  }
+
+  private interface Step {
+    boolean replay(ParsingPage page, Map<String, ParsingPage> named);
+  }
+
+  private static final class Lookup implements Step {
+    private final String namedPage;
+    private final String name;
+    private final String value;
+
+    private Lookup(String namedPage, String name, String value) {
+      this.namedPage = namedPage;
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    public boolean replay(ParsingPage page, Map<String, ParsingPage> named) {
+      ParsingPage context = named.get(namedPage);
+      return context != null && Objects.equals(value, context.findVariable(name).orElse(null));
+    }
+  }
+
+  private static final class Define implements Step {
+    private final String name;
+    private final String value;
+
+    private Define(String name, String value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    public boolean replay(ParsingPage page, Map<String, ParsingPage> named) {
+      page.putVariable(name, value);
+      return true;
+    }
+  }
+
+  private static final class Include implements Step {
+    private final String namedPage;
+    private final String pageName;
+    private final String fullName;
+    private final String failure;
+    private final String content;
+    private final String help;
+
+    private Include(String namedPage, String pageName, String fullName, String failure, String content, String help) {
+      this.namedPage = namedPage;
+      this.pageName = pageName;
+      this.fullName = fullName;
+      this.failure = failure;
+      this.content = content;
+      this.help = help;
+    }
+
+    @Override
+    public boolean replay(ParsingPage page, Map<String, ParsingPage> named) {
+      ParsingPage context = named.get(namedPage);
+      if (context == null) {
+        return false;
+      }
+      Maybe<SourcePage> result = context.getNamedPage().findIncludedPage(pageName);
+      if (result.isNothing()) {
+        return failure != null && failure.equals(result.because());
+      }
+      SourcePage included = result.getValue();
+      if (failure != null
+        || !fullName.equals(included.getFullName())
+        || !Objects.equals(content, included.getContent())
+        || !Objects.equals(help, included.getProperty(WikiPageProperty.HELP))) {
+        return false;
+      }
+      named.putIfAbsent(fullName, context.copyForNamedPage(included));
+      return true;
+    }
+  }
+}
@@ -23,6 +23,7 @@ public class ParsingPage implements VariableStore {
   private final SourcePage namedPage; // included page
   private final VariableSource variableSource;
   private final Cache cache;
+  private ParseDependencies dependencies;
   private int id;
 
   public ParsingPage(SourcePage page) {
@@ -55,16 +56,18 @@ public class ParsingPage implements VariableStore {
   }
 
   private ParsingPage(SourcePage page, Cache cache) {
-    this(page, page, cache, cache);
+    this(page, page, cache, cache, null);
   }
 
-  private ParsingPage(SourcePage page, SourcePage namedPage, VariableSource variableSource, Cache cache) {
+  private ParsingPage(SourcePage page, SourcePage namedPage, VariableSource variableSource, Cache cache,
+                      ParseDependencies dependencies) {
     this.page = page;
     this.namedPage = namedPage;
     this.variableSource = new CompositeVariableSource(
             new NamedPageVariableSource(namedPage),
             variableSource);
     this.cache = cache;
+    this.dependencies = dependencies;
   }
 
   public ParsingPage copyForNamedPage(SourcePage namedPage) {
@@ -72,7 +75,8 @@ public class ParsingPage implements VariableStore {
             this.page,
             namedPage,
             this.variableSource,
-            this.cache);
+            this.cache,
+            this.dependencies);
   }
 
   public SourcePage getPage() {
@@ -87,17 +91,47 @@ public class ParsingPage implements VariableStore {
     return cache.listVariables();
   }
 
+  /**
+   * Resolves an include relative to the named page, recording the result when dependencies are tracked.
+   */
+  public Maybe<SourcePage> findIncludedPage(String pageName) {
+    Maybe<SourcePage> includedPage = namedPage.findIncludedPage(pageName);
+    if (dependencies != null) {
+      dependencies.include(namedPage.getFullName(), pageName, includedPage);
+    }
+    return includedPage;
+  }
+
   @Override
   public int nextId() { return id++; }
 
   @Override
   public void putVariable(String name, String value) {
     cache.putVariable(name, value);
+    if (dependencies != null) {
+      dependencies.define(name, value);
+    }
   }
 
   @Override
   public Optional<String> findVariable(String name) {
-    return variableSource != null ? variableSource.findVariable(name) : Optional.empty();
+    Optional<String> value = variableSource != null ? variableSource.findVariable(name) : Optional.empty();
+    if (dependencies != null) {
+      dependencies.lookup(namedPage.getFullName(), name, value.orElse(null));
+    }
+    return value;
+  }
+
+  void trackDependencies(ParseDependencies dependencies) {
+    this.dependencies = dependencies;
+  }
+
+  int currentId() {
+    return id;
+  }
+
+  void restoreId(int id) {
+    this.id = id;
   }
 
   private static class Cache implements VariableSource {
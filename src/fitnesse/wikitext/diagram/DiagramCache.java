@@ -0,0 +1,319 @@
+package fitnesse.wikitext.diagram;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed cache of rendered diagrams, in memory and optionally on disk.
+ * <p>
+ * Diagrams are keyed by a SHA-256 of format and source, so an entry never goes stale and can be served with
+ * immutable caching headers. Both levels are bounded in bytes and drop the least recently used (memory) or oldest
+ * (disk) entries. Rendering runs on a small dedicated pool with a bounded queue; concurrent requests for the
+ * same diagram share one rendering.
+ */
+public final class DiagramCache implements AutoCloseable {
+  private static final Logger LOG = Logger.getLogger(DiagramCache.class.getName());
+  static final long DEFAULT_MEMORY_BYTES = 32L * 1024 * 1024;
+  static final long DEFAULT_DISK_BYTES = 256L * 1024 * 1024;
+  private static final int QUEUE_SIZE = 64;
+  private static final int MAX_ALLOWED_KEYS = 10_000;
+
+  /**
+   * Turns diagram source into an image in the given format.
+   */
+  public interface Renderer {
+    byte[] render(String source, String format) throws Exception;
+  }
+
+  private static volatile DiagramCache shared = new DiagramCache(PlantUmlRenderer::renderImage, null,
+    DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES, defaultThreads());
+
+  private final Renderer renderer;
+  private final Path directory;
+  private final long maxMemoryBytes;
+  private final long maxDiskBytes;
+  private final ThreadPoolExecutor pool;
+  private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+  private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+  private final LinkedHashMap<String, Long> diskEntries = new LinkedHashMap<>();
+  private final LinkedHashMap<String, Boolean> allowed = new LinkedHashMap<>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+      return size() > MAX_ALLOWED_KEYS;
+    }
+  };
+  private long memoryBytes;
+  private long diskBytes;
+
+  /**
+   * @param directory where rendered diagrams are kept across restarts, or null for memory only.
+   */
+  DiagramCache(Renderer renderer, Path directory, long maxMemoryBytes, long maxDiskBytes, int threads) {
+    this.renderer = renderer;
+    this.directory = directory;
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.maxDiskBytes = maxDiskBytes;
+    this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+      runnable -> {
+        Thread thread = new Thread(runnable, "diagram renderer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    this.pool.allowCoreThreadTimeOut(true);
+    if (directory != null) {
+      scanDirectory();
+    }
+  }
+
+  public static DiagramCache shared() {
+    return shared;
+  }
+
+  /**
+   * Keeps rendered diagrams of the shared cache in the given directory.
+   */
+  public static synchronized void useDirectory(Path directory) {
+    DiagramCache previous = shared;
+    shared = new DiagramCache(previous.renderer, directory, DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES, defaultThreads());
+    previous.close();
+  }
+
+  /**
+   * Returns the cache key, usable as an ETag, for a diagram.
+   */
+  public static String key(String source, String format) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(format.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+      byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder(hash.length * 2);
+      for (byte b : hash) {
+        hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the rendered diagram, rendering it on the diagram pool if it is not cached yet.
+   * The future fails if rendering fails or the pool is saturated.
+   */
+  public CompletableFuture<byte[]> get(String source, String format) {
+    String key = key(source, format);
+    byte[] cached = fromMemory(key);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    CompletableFuture<byte[]> created = new CompletableFuture<>();
+    CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, created);
+    if (existing != null) {
+      return existing;
+    }
+    try {
+      pool.execute(() -> {
+        try {
+          created.complete(load(key, source, format));
+        } catch (Throwable e) {
+          created.completeExceptionally(e);
+        } finally {
+          inFlight.remove(key, created);
+        }
+      });
+    } catch (RuntimeException e) {
+      inFlight.remove(key, created);
+      created.completeExceptionally(e);
+    }
+    return created;
+  }
+
+  /**
+   * Marks a diagram of a rendered wiki page, so {@link #getKnown(String, String)} may render it.
+   */
+  public void allow(String source, String format) {
+    String key = key(source, format);
+    synchronized (allowed) {
+      allowed.put(key, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Like {@link #get(String, String)}, but only for diagrams that a wiki page produced or that are already
+   * cached; returns null for any other source. Source that does not come from a page (e.g. from a URL) must not
+   * be rendered: PlantUML can include local files and fetch URLs.
+   */
+  public CompletableFuture<byte[]> getKnown(String source, String format) {
+    String key = key(source, format);
+    if (!isAllowed(key) && fromMemory(key) == null && !onDisk(key, format)) {
+      return null;
+    }
+    return get(source, format);
+  }
+
+  /**
+   * Blocking variant of {@link #get(String, String)} for the wiki page renderer.
+   */
+  public byte[] getBlocking(String source, String format, long timeoutMillis) throws IOException {
+    try {
+      return get(source, format).get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while rendering diagram", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Diagram rendering failed: " + e.getCause().getMessage(), e.getCause());
+    } catch (TimeoutException e) {
+      throw new IOException("Diagram rendering took longer than " + timeoutMillis + " ms", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    pool.shutdown();
+  }
+
+  private byte[] load(String key, String source, String format) throws Exception {
+    byte[] image = fromDisk(key, format);
+    if (image == null) {
+      image = renderer.render(source, format);
+      toDisk(key, format, image);
+    }
+    toMemory(key, image);
+    return image;
+  }
+
+  private boolean isAllowed(String key) {
+    synchronized (allowed) {
+      return allowed.containsKey(key);
+    }
+  }
+
+  private boolean onDisk(String key, String format) {
+    synchronized (diskEntries) {
+      return diskEntries.containsKey(fileName(key, format));
+    }
+  }
+
+  private synchronized byte[] fromMemory(String key) {
+    return memory.get(key);
+  }
+
+  private synchronized void toMemory(String key, byte[] image) {
+    if (image.length > maxMemoryBytes) {
+      return;
+    }
+    byte[] previous = memory.put(key, image);
+    memoryBytes += image.length - (previous == null ? 0 : previous.length);
+    Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+    while (memoryBytes > maxMemoryBytes && eldest.hasNext()) {
+      memoryBytes -= eldest.next().getValue().length;
+      eldest.remove();
+    }
+  }
+
+  private byte[] fromDisk(String key, String format) {
+    if (directory == null) {
+      return null;
+    }
+    try {
+      return Files.readAllBytes(directory.resolve(fileName(key, format)));
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOG.log(Level.FINE, "Unable to read cached diagram " + key, e);
+      return null;
+    }
+  }
+
+  private void toDisk(String key, String format, byte[] image) {
+    if (directory == null || image.length > maxDiskBytes) {
+      return;
+    }
+    String name = fileName(key, format);
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, key, ".tmp");
+      Files.write(temp, image);
+      Files.move(temp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to store rendered diagram in " + directory, e);
+      return;
+    }
+    List<String> evicted = new ArrayList<>();
+    synchronized (diskEntries) {
+      Long previous = diskEntries.put(name, (long) image.length);
+      diskBytes += image.length - (previous == null ? 0 : previous);
+      Iterator<Map.Entry<String, Long>> oldest = diskEntries.entrySet().iterator();
+      while (diskBytes > maxDiskBytes && oldest.hasNext()) {
+        Map.Entry<String, Long> entry = oldest.next();
+        diskBytes -= entry.getValue();
+        evicted.add(entry.getKey());
+        oldest.remove();
+      }
+    }
+    for (String old : evicted) {
+      try {
+        Files.deleteIfExists(directory.resolve(old));
+      } catch (IOException e) {
+        LOG.log(Level.FINE, "Unable to remove cached diagram " + old, e);
+      }
+    }
+  }
+
+  private void scanDirectory() {
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path file : stream) {
+        if (file.getFileName().toString().endsWith(".tmp")) {
+          Files.deleteIfExists(file);
+        } else {
+          files.add(file);
+        }
+      }
+      files.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+      synchronized (diskEntries) {
+        for (Path file : files) {
+          long size = Files.size(file);
+          diskEntries.put(file.getFileName().toString(), size);
+          diskBytes += size;
+        }
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to read diagram cache " + directory, e);
+    }
+  }
+
+  private static String fileName(String key, String format) {
+    return key + "." + format;
+  }
+
+  private static int defaultThreads() {
+    return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+  }
+}
@@ -2,9 +2,13 @@ package fitnesse.wikitext.diagram;
 
 import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 public final class PlantUmlEncoder {
+  private static final int MAX_DECODED_BYTES = 1024 * 1024;
+
   private PlantUmlEncoder() {
   }
 
@@ -14,6 +18,36 @@ public final class PlantUmlEncoder {
     return encode64(compressed);
   }
 
+  /**
+   * Reverses {@link #encode(String)}.
+   *
+   * @throws IllegalArgumentException if the text is not an encoded diagram.
+   */
+  public static String decode(String encoded) {
+    byte[] compressed = decode64(encoded);
+    Inflater inflater = new Inflater(true);
+    inflater.setInput(compressed);
+    byte[] buffer = new byte[1024];
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        output.write(buffer, 0, count);
+        if (output.size() > MAX_DECODED_BYTES) {
+          throw new IllegalArgumentException("Encoded diagram is too large");
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IllegalArgumentException("Not an encoded diagram", e);
+    } finally {
+      inflater.end();
+    }
+    return output.toString(StandardCharsets.UTF_8);
+  }
+
   private static byte[] deflate(byte[] input) {
     Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
     deflater.setInput(input);
@@ -40,6 +74,43 @@ public final class PlantUmlEncoder {
     return encoded.toString();
   }
 
+  private static byte[] decode64(String encoded) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (int i = 0; i < encoded.length(); i += 4) {
+      int c1 = decode6bit(encoded, i);
+      int c2 = decode6bit(encoded, i + 1);
+      int c3 = decode6bit(encoded, i + 2);
+      int c4 = decode6bit(encoded, i + 3);
+      output.write((c1 << 2) | (c2 >> 4));
+      output.write(((c2 & 0xf) << 4) | (c3 >> 2));
+      output.write(((c3 & 0x3) << 6) | c4);
+    }
+    return output.toByteArray();
+  }
+
+  private static int decode6bit(String encoded, int index) {
+    if (index >= encoded.length()) {
+      return 0;
+    }
+    char c = encoded.charAt(index);
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'A' && c <= 'Z') {
+      return c - 'A' + 10;
+    }
+    if (c >= 'a' && c <= 'z') {
+      return c - 'a' + 36;
+    }
+    if (c == '-') {
+      return 62;
+    }
+    if (c == '_') {
+      return 63;
+    }
+    throw new IllegalArgumentException("Not an encoded diagram");
+  }
+
   private static void append3bytes(StringBuilder encoded, int b1, int b2, int b3) {
     int c1 = (b1 >> 2) & 0x3f;
     int c2 = ((b1 & 0x3) << 4) | ((b2 >> 4) & 0xf);
@@ -6,6 +6,7 @@ import net.sourceforge.plantuml.FileFormatOption;
 import net.sourceforge.plantuml.SourceStringReader;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 public final class PlantUmlRenderer {
@@ -13,6 +14,7 @@ public final class PlantUmlRenderer {
   private static final String FORMAT_PROPERTY = "fitnesse.plantuml.format";
   private static final String STYLE_PROPERTY = "fitnesse.plantuml.style";
   private static final String STYLE_RESOURCE = "fitnesse/resources/plantuml/fitnesse-style.puml";
+  private static final long RENDER_TIMEOUT_MILLIS = 30_000L;
 
   private PlantUmlRenderer() {
   }
@@ -30,6 +32,8 @@ public final class PlantUmlRenderer {
       return "<pre class=\"plantuml-source\">" + HtmlUtil.escapeHTML(styled) + "</pre>";
     }
     String format = resolveFormat();
+    // Only diagrams that pages produce may be rendered by the /plantuml route.
+    DiagramCache.shared().allow(styled, format);
     String encoded = PlantUmlEncoder.encode(styled);
     String url = trimTrailingSlash(server) + "/" + format + "/" + encoded;
     return "<div class=\"fitnesse-diagram plantuml\">" +
@@ -144,15 +148,23 @@ public final class PlantUmlRenderer {
 
   private static String renderInlineSvg(String source) {
     try {
-      SourceStringReader reader = new SourceStringReader(source);
-      ByteArrayOutputStream output = new ByteArrayOutputStream();
-      if (reader.outputImage(output, new FileFormatOption(FileFormat.SVG)) == null) {
-        return "";
-      }
-      return output.toString(StandardCharsets.UTF_8);
+      byte[] svg = DiagramCache.shared().getBlocking(source, "svg", RENDER_TIMEOUT_MILLIS);
+      return new String(svg, StandardCharsets.UTF_8);
     } catch (Exception e) {
       return "";
     }
   }
 
+  /**
+   * Renders PlantUML source as an svg or png image.
+   */
+  public static byte[] renderImage(String source, String format) throws IOException {
+    FileFormat fileFormat = "png".equalsIgnoreCase(format) ? FileFormat.PNG : FileFormat.SVG;
+    SourceStringReader reader = new SourceStringReader(source);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    if (reader.outputImage(output, new FileFormatOption(fileFormat)) == null) {
+      throw new IOException("No PlantUML diagram found in source");
+    }
+    return output.toByteArray();
+  }
 }
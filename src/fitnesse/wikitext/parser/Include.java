@@ -46,7 +46,7 @@ public class Include extends SymbolType implements Rule, Translation {
       current.add(includedPageName);
     }
 
-    Maybe<SourcePage> includedPage = sourcePage.findIncludedPage(includedPageName);
+    Maybe<SourcePage> includedPage = parser.getPage().findIncludedPage(includedPageName);
     if (includedPage.isNothing()) {
       current.add("").add(new Symbol(SymbolType.Style, "error").add(includedPage.because()));
     } else if (HELP_ARG.equals(option)) {
@@ -99,6 +99,17 @@ public class Symbol extends Tree<Symbol> implements PropertyStore {
         return this;
     }
 
+    /**
+     * Copies this symbol and the symbols below it, so the copy can be changed without changing this tree.
+     */
+    public Symbol copy() {
+        Symbol copy = new Symbol(type, content, startOffset, endOffset);
+        if (variables != null) copy.variables = new HashMap<>(variables);
+        if (properties != null) copy.properties = new HashMap<>(properties);
+        for (Symbol child : branches) copy.add(child.copy());
+        return copy;
+    }
+
     public Symbol childrenAfter(int after) {
         Symbol result = new Symbol(SymbolType.SymbolList);
         for (int i = after + 1; i < branches.size(); i++) result.add(branches.get(i));
@@ -18,6 +18,15 @@ public class SyntaxTreeV2 implements SyntaxTree {
     tree = Symbol.emptySymbol;
   }
 
+  /**
+   * Wraps an already parsed tree, e.g. one shared from a cache, with the page it is rendered for.
+   */
+  public SyntaxTreeV2(Symbol tree, ParsingPage parsingPage) {
+    this.symbolProvider = SymbolProvider.wikiParsingProvider;
+    this.tree = tree;
+    this.parsingPage = parsingPage;
+  }
+
   public ParsingPage getParsingPage() { return parsingPage; }
   public Symbol getSyntaxTree() { return tree; }
 
@@ -67,6 +76,22 @@ public class SyntaxTreeV2 implements SyntaxTree {
     );
   }
 
+  /**
+   * Tells whether the HTML for this tree can change while the page content stays the same, because it
+   * shows page properties, child pages or the current date. Symbol types from plugins are assumed to.
+   */
+  public boolean hasVolatileHtml() {
+    boolean[] found = {false};
+    tree.walkPreOrder(node -> {
+      SymbolType type = node.getType();
+      if (type instanceof Contents || type instanceof Help || type instanceof LastModified || type instanceof Today
+        || type.getClass().getPackage() != SymbolType.class.getPackage()) {
+        found[0] = true;
+      }
+    });
+    return found[0];
+  }
+
   @Override
   public String translateToHtml() {
     return new HtmlTranslator(parsingPage.getPage(), this).translateTree(tree);
@@ -115,13 +115,23 @@ public class Table extends SymbolType implements Rule, Translation {
 
   protected String translateCellBody(Translator translator, Symbol cell) {
     final String literalDelimiter = new String(new char[]{255, 1, 255});
-    cell.walkPreOrder(node -> {
-      if (node.isType(Literal.symbolType)) {
-        node.setContent(literalDelimiter + node.getContent() + literalDelimiter);
-      }
-    });
+    // parsed trees are cached and rendered again, so literals are only delimited in a copy
+    Symbol body = containsLiteral(cell) ? cell.copy() : cell;
+    if (body != cell) {
+      body.walkPreOrder(node -> {
+        if (node.isType(Literal.symbolType)) {
+          node.setContent(literalDelimiter + node.getContent() + literalDelimiter);
+        }
+      });
+    }
+
+    return StringUtils.replace(translator.translate(body).trim(), literalDelimiter, "");
+  }
 
-    return StringUtils.replace(translator.translate(cell).trim(), literalDelimiter, "");
+  private static boolean containsLiteral(Symbol cell) {
+    boolean[] found = {false};
+    cell.walkPreOrder(node -> found[0] |= node.isType(Literal.symbolType));
+    return found[0];
   }
 
   protected int longestRow(Symbol table) {
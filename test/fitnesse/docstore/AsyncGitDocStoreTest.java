@@ -0,0 +1,169 @@
+package fitnesse.docstore;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncGitDocStoreTest {
+  @TempDir
+  public Path tempDir;
+
+  private Vertx vertx;
+
+  @BeforeEach
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  public void commitsAreReadableByGit() throws Exception {
+    AsyncGitDocStore store = new AsyncGitDocStore(vertx, tempDir);
+    PageRef page = new PageRef("FrontPage");
+    store.writePage(page, new PageWriteRequest("hello", "<properties/>", null, "Jane", "jane@example.invalid"));
+    store.writePage(new PageRef("FrontPage/ChildPage"), new PageWriteRequest("child", null));
+    store.writeAttachment(new AttachmentRef(page, "data.bin"),
+      new ByteArrayInputStream(new byte[] {1, 2, 3}), new Metadata("application/octet-stream", 3));
+
+    assertEquals("hello", git("show", "HEAD~2:FrontPage/content.txt"));
+    assertEquals("child", git("show", "HEAD~1:FrontPage/ChildPage/content.txt"));
+    assertEquals("wiki: update FrontPage (attachment)", git("log", "-1", "--format=%s"));
+    assertEquals("Jane <jane@example.invalid>", git("log", "-1", "--format=%an <%ae>", "HEAD~2"));
+    assertEquals("", git("status", "--porcelain"));
+    git("fsck", "--strict");
+
+    assertEquals("hello", store.readPage(page).content());
+    assertTrue(store.listChildren(page).stream().anyMatch(child -> child.wikiPath().equals("FrontPage/ChildPage")));
+    assertEquals("data.bin", store.listAttachments(page).get(0).name());
+  }
+
+  @Test
+  public void historyIsTheSameAsGitLog() throws Exception {
+    AsyncGitDocStore store = new AsyncGitDocStore(vertx, tempDir);
+    PageRef page = new PageRef("FrontPage");
+    store.writePage(page, new PageWriteRequest("one", "<properties/>", null, "Jane", "jane@example.invalid"));
+    store.writePage(new PageRef("OtherPage"), new PageWriteRequest("other", null));
+    store.writePage(page, new PageWriteRequest("two", "<properties/>", null, "John", "john@example.invalid"));
+
+    List<PageHistoryEntry> entries = store.history(page, new HistoryQuery(10)).entries();
+    List<PageHistoryEntry> expected = new GitHistoryService(tempDir).history(page, new HistoryQuery(10)).entries();
+    assertEquals(expected.size(), entries.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).commitId(), entries.get(i).commitId());
+      assertEquals(expected.get(i).author(), entries.get(i).author());
+      assertEquals(expected.get(i).authorEmail(), entries.get(i).authorEmail());
+      assertEquals(expected.get(i).message(), entries.get(i).message());
+      assertEquals(expected.get(i).timestamp(), entries.get(i).timestamp());
+    }
+  }
+
+  @Test
+  public void readsPackedRepositories() throws Exception {
+    AsyncGitDocStore store = new AsyncGitDocStore(vertx, tempDir);
+    PageRef page = new PageRef("FrontPage");
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      content.append("line ").append(i).append('\n');
+      store.writePage(page, new PageWriteRequest(content.toString(), null));
+    }
+    git("gc", "--aggressive", "--quiet");
+
+    store = new AsyncGitDocStore(vertx, tempDir);
+    assertEquals(5, store.history(page, new HistoryQuery(10)).entries().size());
+    store.writePage(page, new PageWriteRequest("after gc", null));
+    assertEquals("after gc", git("show", "HEAD:FrontPage/content.txt"));
+    assertEquals("", git("status", "--porcelain"));
+    git("fsck", "--strict");
+  }
+
+  @Test
+  public void concurrentSavesAllEndUpCommitted() throws Exception {
+    AsyncGitDocStore store = new AsyncGitDocStore(vertx, tempDir);
+    List<Future<String>> saves = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      saves.add(store.writePageAsync(new PageRef("Page" + i), new PageWriteRequest("content " + i, null)));
+    }
+    for (Future<String> save : saves) {
+      assertTrue(GitObjectDatabase.isObjectId(save.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS)));
+    }
+    for (int i = 0; i < 20; i++) {
+      assertEquals("content " + i, git("show", "HEAD:Page" + i + "/content.txt"));
+    }
+    assertEquals("", git("status", "--porcelain"));
+  }
+
+  @Test
+  public void savingResolvesConflictEntriesOfNonAsciiPaths() throws Exception {
+    AsyncGitDocStore store = new AsyncGitDocStore(vertx, tempDir);
+    PageRef page = new PageRef("Caf\u00e9Page");
+    store.writePage(page, new PageWriteRequest("one", null));
+    String blob = git("rev-parse", "HEAD:Caf\u00e9Page/content.txt");
+    String path = "Caf\u00e9Page/content.txt";
+    gitWithInput("0 0000000000000000000000000000000000000000\t" + path + "\n"
+        + "100644 " + blob + " 1\t" + path + "\n"
+        + "100644 " + blob + " 2\t" + path + "\n",
+      "update-index", "--index-info");
+
+    store.writePage(page, new PageWriteRequest("two", null));
+
+    String staged = git("ls-files", "--stage");
+    assertEquals(1L, staged.lines().count(), staged);
+    assertTrue(staged.startsWith("100644 "), staged);
+    assertEquals("", git("status", "--porcelain"));
+  }
+
+  @Test
+  public void rejectsSaveOfChangedPage() throws Exception {
+    AsyncGitDocStore store = new AsyncGitDocStore(vertx, tempDir);
+    PageRef page = new PageRef("FrontPage");
+    String first = store.writePageAsync(page, new PageWriteRequest("one", null))
+      .toCompletionStage().toCompletableFuture().get();
+    store.writePage(new PageRef("OtherPage"), new PageWriteRequest("other", null));
+    // another page changed since the expected version
+    store.writePage(page, new PageWriteRequest("two", null, first));
+    store.writePage(page, new PageWriteRequest("three", null));
+
+    assertThrows(DocStoreConflictException.class,
+      () -> store.writePage(page, new PageWriteRequest("four", null, first)));
+    assertEquals("three", store.readPage(page).content());
+  }
+
+  private String git(String... args) throws IOException, InterruptedException {
+    return gitWithInput("", args);
+  }
+
+  private String gitWithInput(String input, String... args) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    for (String arg : args) {
+      command.add(arg);
+    }
+    Process process = new ProcessBuilder(command).directory(tempDir.toFile()).redirectErrorStream(true).start();
+    try (OutputStream stdin = process.getOutputStream()) {
+      stdin.write(input.getBytes(StandardCharsets.UTF_8));
+    }
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+    assertEquals(0, process.waitFor(), output);
+    return output;
+  }
+}
@@ -0,0 +1,157 @@
+package fitnesse.docstore;
+
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class GitWriteBehindQueueTest {
+  private static final long LONG_WINDOW = 60_000;
+
+  @TempDir
+  public Path tempDir;
+
+  private Vertx vertx;
+
+  @BeforeEach
+  public void setUp() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    GitIdentityHolder.clear();
+    vertx.close();
+  }
+
+  @Test
+  public void pendingWritesAreReadableAndCommittedTogether() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 100);
+    store.writePage(new PageRef("PageOne"), new PageWriteRequest("one", "<properties/>"));
+    store.writePage(new PageRef("PageTwo"), new PageWriteRequest("two", null));
+
+    assertEquals("one", store.readPage(new PageRef("PageOne")).content());
+    assertEquals("two", store.readPage(new PageRef("PageTwo")).content());
+    assertEquals("0", git("rev-list", "--all", "--count"));
+
+    store.flush();
+    assertEquals("1", git("rev-list", "--all", "--count"));
+    assertEquals("wiki: update PageOne, PageTwo (page)", git("log", "-1", "--format=%s"));
+    assertEquals("", git("status", "--porcelain"));
+    assertFalse(Files.exists(tempDir.resolve(".git").resolve(GitWriteBehindQueue.JOURNAL_FILE)));
+  }
+
+  @Test
+  public void eachAuthorGetsTheirOwnCommit() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 100);
+    GitIdentityHolder.set(new GitIdentity("Jane", "jane@example.invalid"));
+    store.writePage(new PageRef("PageOne"), new PageWriteRequest("one", null));
+    store.writeProperties(new PageRef("PageOne"), new PageProperties("<properties/>"));
+    GitIdentityHolder.set(new GitIdentity("John", "john@example.invalid"));
+    store.writePage(new PageRef("PageTwo"), new PageWriteRequest("two", null));
+
+    List<PageHistoryEntry> history = store.history(new PageRef("PageOne"), new HistoryQuery(10)).entries();
+    assertEquals(1, history.size());
+    assertEquals("Jane", history.get(0).author());
+    assertEquals("wiki: update PageOne (page, properties)", history.get(0).message());
+    assertEquals("John <john@example.invalid>", git("log", "-1", "--format=%an <%ae>"));
+  }
+
+  @Test
+  public void eachCommitHoldsTheContentOfItsOwnWrite() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 100);
+    GitIdentityHolder.set(new GitIdentity("Jane", "jane@example.invalid"));
+    store.writePage(new PageRef("FrontPage"), new PageWriteRequest("by jane", null));
+    GitIdentityHolder.set(new GitIdentity("John", "john@example.invalid"));
+    store.writePage(new PageRef("FrontPage"), new PageWriteRequest("by john", null));
+
+    store.flush();
+    assertEquals("by jane", git("show", "HEAD~1:FrontPage/content.txt"));
+    assertEquals("Jane", git("log", "-1", "--format=%an", "HEAD~1"));
+    assertEquals("by john", git("show", "HEAD:FrontPage/content.txt"));
+    assertEquals("John", git("log", "-1", "--format=%an", "HEAD"));
+    assertEquals("", git("status", "--porcelain"));
+  }
+
+  @Test
+  public void pageWithoutRequestIsWrittenEmpty() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 100);
+    store.writePage(new PageRef("EmptyPage"), null);
+
+    assertEquals("", store.readPage(new PageRef("EmptyPage")).content());
+    store.flush();
+    assertEquals("", git("show", "HEAD:EmptyPage/content.txt"));
+  }
+
+  @Test
+  public void fullBatchIsCommittedWithoutWaitingForTheWindow() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 2);
+    store.writePage(new PageRef("PageOne"), new PageWriteRequest("one", null));
+    store.writePage(new PageRef("PageTwo"), new PageWriteRequest("two", null));
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!"1".equals(git("rev-list", "--all", "--count")) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    assertEquals("1", git("rev-list", "--all", "--count"));
+  }
+
+  @Test
+  public void uncommittedWritesAreRecoveredFromTheJournal() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 100);
+    store.writePage(new PageRef("FrontPage"), new PageWriteRequest("committed", null));
+    store.flush();
+    GitIdentityHolder.set(new GitIdentity("Jane", "jane@example.invalid"));
+    store.writePage(new PageRef("FrontPage"), new PageWriteRequest("pending", null));
+    // the server stops before the page is committed, and before its file was completely written
+    Files.write(tempDir.resolve("FrontPage/content.txt"), "pen".getBytes(StandardCharsets.UTF_8));
+    GitIdentityHolder.clear();
+
+    GitDocStore restarted = new GitDocStore(vertx, tempDir, "wiki: update %s", null, LONG_WINDOW, 100);
+    assertEquals("pending", restarted.readPage(new PageRef("FrontPage")).content());
+    assertEquals("pending", git("show", "HEAD:FrontPage/content.txt"));
+    assertEquals("Jane", git("log", "-1", "--format=%an"));
+    assertEquals("", git("status", "--porcelain"));
+  }
+
+  @Test
+  public void expectedVersionCommitsPendingWritesFirst() throws Exception {
+    GitDocStore store = new GitDocStore(vertx, tempDir, "wiki: update %s", GitDocStore.MergeStrategy.MERGE_COMMIT,
+      LONG_WINDOW, 100);
+    // merge commits are made by git itself
+    git("config", "user.name", "merger");
+    git("config", "user.email", "merger@example.invalid");
+    store.writePage(new PageRef("FrontPage"), new PageWriteRequest("one", null));
+    store.flush();
+    String first = git("rev-parse", "HEAD");
+    store.writePage(new PageRef("OtherPage"), new PageWriteRequest("other", null));
+    store.writePage(new PageRef("FrontPage"), new PageWriteRequest("two", null, first));
+
+    assertEquals("two", git("show", "HEAD:FrontPage/content.txt"));
+    assertEquals("other", git("show", "HEAD:OtherPage/content.txt"));
+    assertEquals("", git("status", "--porcelain"));
+  }
+
+  private String git(String... args) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add("git");
+    for (String arg : args) {
+      command.add(arg);
+    }
+    Process process = new ProcessBuilder(command).directory(tempDir.toFile()).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+    assertEquals(0, process.waitFor(), output);
+    return output;
+  }
+}
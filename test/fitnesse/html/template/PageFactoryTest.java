@@ -0,0 +1,83 @@
+package fitnesse.html.template;
+
+import fitnesse.ConfigurationParameter;
+import fitnesse.FitNesseContext;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.util.Clock;
+import fitnesse.util.DateAlteringClock;
+import org.apache.velocity.VelocityContext;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PageFactoryTest {
+  private FitNesseContext context;
+
+  @After
+  public void tearDown() throws IOException {
+    Clock.restoreDefaultClock();
+    if (context != null) {
+      FitNesseUtil.destroyTestContext(context);
+    }
+  }
+
+  @Test
+  public void keepsCompiledTemplates() {
+    context = FitNesseUtil.makeTestContext();
+    PageFactory pageFactory = context.pageFactory;
+
+    assertSame(pageFactory.getVelocityEngine().getTemplate("skeleton.vm"),
+      pageFactory.getVelocityEngine().getTemplate("skeleton.vm"));
+  }
+
+  @Test
+  public void invalidatingPicksUpNewOverrides() throws IOException {
+    context = FitNesseUtil.makeTestContext();
+    PageFactory pageFactory = context.pageFactory;
+    writeOverride("greeting.vm", "hello");
+    assertEquals("hello", pageFactory.render(new VelocityContext(), "greeting.vm"));
+
+    writeOverride("greeting.vm", "goodbye");
+    assertEquals("hello", pageFactory.render(new VelocityContext(), "greeting.vm"));
+
+    pageFactory.invalidateTemplates();
+    assertEquals("goodbye", pageFactory.render(new VelocityContext(), "greeting.vm"));
+  }
+
+  @Test
+  public void reloadsChangedOverridesInReloadMode() throws IOException {
+    DateAlteringClock clock = new DateAlteringClock(new Date()).freeze();
+    Properties properties = new Properties();
+    properties.setProperty(ConfigurationParameter.TEMPLATES_RELOAD.getKey(), "true");
+    context = FitNesseUtil.makeTestContext(properties);
+    PageFactory pageFactory = context.pageFactory;
+    File override = writeOverride("greeting.vm", "hello");
+    clock.elapse(5000);
+    assertEquals("hello", pageFactory.render(new VelocityContext(), "greeting.vm"));
+
+    writeOverride("greeting.vm", "goodbye");
+    override.setLastModified(override.lastModified() + 10000);
+    assertEquals("hello", pageFactory.render(new VelocityContext(), "greeting.vm"));
+
+    clock.elapse(5000);
+    assertEquals("goodbye", pageFactory.render(new VelocityContext(), "greeting.vm"));
+  }
+
+  private File writeOverride(String name, String content) throws IOException {
+    File templates = new File(context.getRootPagePath(), "files/fitnesse/templates");
+    templates.mkdirs();
+    File override = new File(templates, name);
+    Files.write(override.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return override;
+  }
+}
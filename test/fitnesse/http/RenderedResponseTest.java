@@ -0,0 +1,60 @@
+package fitnesse.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static util.RegexTestCase.assertHasRegexp;
+
+public class RenderedResponseTest {
+
+  @Test
+  public void sendsRenderedContentWithLength() throws IOException {
+    RenderedResponse response = new RenderedResponse(writer -> writer.write("café content"));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    response.sendTo(new ResponseSender() {
+      @Override
+      public void send(byte[] bytes) throws IOException {
+        output.write(bytes);
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+
+    String text = output.toString(StandardCharsets.UTF_8);
+    assertTrue(text.startsWith("HTTP/1.1 200 OK\r\n"));
+    assertHasRegexp("Content-Length: 13", text);
+    assertTrue(text.endsWith("\r\n\r\ncafé content"));
+  }
+
+  @Test
+  public void rendersOnlyOnce() {
+    AtomicInteger renders = new AtomicInteger();
+    RenderedResponse response = new RenderedResponse(writer -> {
+      renders.incrementAndGet();
+      for (int i = 0; i < 10000; i++) {
+        writer.write("line " + i + "\n");
+      }
+    });
+
+    assertEquals(response.getContentSize(), response.getContentBytes().length);
+    assertTrue(response.getContent().endsWith("line 9999\n"));
+    assertEquals(1, renders.get());
+  }
+
+  @Test
+  public void replacesRenderedContent() throws IOException {
+    RenderedResponse response = new RenderedResponse(writer -> writer.write("rendered"));
+    response.setContent("replaced");
+
+    assertEquals("replaced", response.getContent());
+    assertEquals(8, response.getContentSize());
+  }
+}
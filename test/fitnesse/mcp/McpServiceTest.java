@@ -7,6 +7,7 @@ import fitnesse.wiki.WikiPageUtil;
 import fitnesse.wiki.fs.InMemoryPage;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -14,6 +15,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class McpServiceTest {
 
@@ -32,6 +34,56 @@ public class McpServiceTest {
     assertThat(paths(listing.pages()), hasItem("FrontPage"));
   }
 
+  @Test
+  public void pagesThroughAllPagesWithCursors() {
+    WikiPage root = InMemoryPage.makeRoot("RooT");
+    WikiPageUtil.addPage(root, PathParser.parse("FrontPage"), "Front content");
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteOne.TestA"), "Test A");
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteOne.TestB"), "Test B");
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteTwo"), "Suite two");
+
+    McpService service = new McpService(root);
+    List<String> seen = new ArrayList<>();
+    String cursor = null;
+    do {
+      McpService.PageListing listing = service.listPages(2, cursor);
+      assertThat(listing.total(), is(5));
+      seen.addAll(paths(listing.pages()));
+      cursor = listing.nextCursor();
+    } while (cursor != null);
+    service.close();
+
+    assertThat(seen, is(List.of("FrontPage", "SuiteOne", "SuiteOne.TestA", "SuiteOne.TestB", "SuiteTwo")));
+  }
+
+  @Test
+  public void followsPageChanges() {
+    WikiPage root = InMemoryPage.makeRoot("RooT");
+    WikiPageUtil.addPage(root, PathParser.parse("FrontPage"), "Front content");
+    WikiPage suite = WikiPageUtil.addPage(root, PathParser.parse("SuiteOne"), "Suite");
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteOne.TestA"), "Test A");
+
+    McpService service = new McpService(root);
+    service.start();
+    String cursor = service.listPages(1, (String) null).nextCursor();
+    WikiPageUtil.addPage(root, PathParser.parse("AlphaPage"), "Alpha");
+    suite.remove();
+    WikiPageUtil.addPage(root, PathParser.parse("NewPage"), "New");
+
+    assertThat(paths(service.listPages(10, cursor).pages()), is(List.of("NewPage")));
+    assertThat(paths(service.listPages(10, 0).pages()), is(List.of("AlphaPage", "FrontPage", "NewPage")));
+    service.close();
+  }
+
+  @Test
+  public void rejectsUnknownCursors() {
+    McpService service = new McpService(InMemoryPage.makeRoot("RooT"));
+    assertThrows(IllegalArgumentException.class, () -> service.listPages(10, "not a cursor!"));
+    // Well-formed base64url of a page path, but not issued by the service.
+    assertThrows(IllegalArgumentException.class, () -> service.listPages(10, "RnJvbnRQYWdl"));
+    assertThrows(IllegalArgumentException.class, () -> service.listPages(10, "p1.bm90IGEgcGF0aA"));
+  }
+
   @Test
   public void readsPageContent() {
     WikiPage root = InMemoryPage.makeRoot("RooT");
@@ -0,0 +1,197 @@
+package fitnesse.reporting.history;
+
+import fitnesse.testsystems.TestSummary;
+import fitnesse.util.XmlUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecutionReportReaderTest {
+  private static final String TEST_REPORT = "<?xml version=\"1.0\"?>\n" +
+    "<testResults>\n" +
+    "  <FitNesseVersion>v1</FitNesseVersion>\n" +
+    "  <rootPath>SuitePage.TestPage</rootPath>\n" +
+    "  <result>\n" +
+    "    <counts><right>1</right><wrong>2</wrong><ignores>3</ignores><exceptions>4</exceptions></counts>\n" +
+    "    <date>2015-12-07T17:12:11+01:00</date>\n" +
+    "    <runTimeInMillis>234</runTimeInMillis>\n" +
+    "    <content>&lt;table&gt;content&lt;/table&gt;</content>\n" +
+    "    <relativePageName>TestPage</relativePageName>\n" +
+    "    <tags>smoke</tags>\n" +
+    "    <instructions>\n" +
+    "      <instructionResult>\n" +
+    "        <instruction>[decisionTable_0_0, make, decisionTable_0]</instruction>\n" +
+    "        <slimResult>OK</slimResult>\n" +
+    "        <expectation>\n" +
+    "          <status>pass</status>\n" +
+    "          <instructionId>decisionTable_0_0</instructionId>\n" +
+    "          <col>0</col>\n" +
+    "          <row>0</row>\n" +
+    "          <type>ConstructionExpectation</type>\n" +
+    "          <actual>OK</actual>\n" +
+    "          <evaluationMessage>ok</evaluationMessage>\n" +
+    "        </expectation>\n" +
+    "      </instructionResult>\n" +
+    "    </instructions>\n" +
+    "  </result>\n" +
+    "  <executionLog>\n" +
+    "    <testSystem>slim</testSystem>\n" +
+    "    <command>java -cp x</command>\n" +
+    "    <exitCode>0</exitCode>\n" +
+    "    <stdOut>out</stdOut>\n" +
+    "    <exception>boom</exception>\n" +
+    "  </executionLog>\n" +
+    "  <finalCounts><right>1</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions></finalCounts>\n" +
+    "  <totalRunTimeInMillis>250</totalRunTimeInMillis>\n" +
+    "</testResults>\n";
+
+  private static final String SUITE_REPORT = "<?xml version=\"1.0\"?>\n" +
+    "<suiteResults>\n" +
+    "  <FitNesseVersion>v1</FitNesseVersion>\n" +
+    "  <rootPath>Suite &amp; Co</rootPath>\n" +
+    "  <date>2015-12-07T17:12:00+01:00</date>\n" +
+    "  <pageHistoryLink>SuitePage?pageHistory&amp;resultDate=20151207171200</pageHistoryLink>\n" +
+    "  <pageHistoryReference>\n" +
+    "    <name>Suite.PassingPage</name>\n" +
+    "    <date>2015-12-07T17:12:01+01:00</date>\n" +
+    "    <counts><right>3</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions></counts>\n" +
+    "    <runTimeInMillis>1500</runTimeInMillis>\n" +
+    "  </pageHistoryReference>\n" +
+    "  <pageHistoryReference>\n" +
+    "    <name>Suite.FailingPage</name>\n" +
+    "    <date>2015-12-07T17:12:03+01:00</date>\n" +
+    "    <counts><right>1</right><wrong>2</wrong><ignores>0</ignores><exceptions>1</exceptions></counts>\n" +
+    "    <runTimeInMillis>250</runTimeInMillis>\n" +
+    "  </pageHistoryReference>\n" +
+    "  <finalCounts><right>1</right><wrong>1</wrong><ignores>0</ignores><exceptions>1</exceptions></finalCounts>\n" +
+    "  <totalRunTimeInMillis>1800</totalRunTimeInMillis>\n" +
+    "</suiteResults>\n";
+
+  @Test
+  public void readsTestReportLikeDom() throws Exception {
+    TestExecutionReport streamed = (TestExecutionReport) ExecutionReport.makeReport(TEST_REPORT);
+    TestExecutionReport dom = new TestExecutionReport(XmlUtil.newDocument(TEST_REPORT));
+
+    assertEquals(dom, streamed);
+    assertEquals(dom.getDate(), streamed.getDate());
+    assertEquals(250, streamed.getTotalRunTimeInMillis());
+    TestExecutionReport.TestResult result = streamed.getResults().get(0);
+    assertEquals("<table>content</table>", result.getContent());
+    assertEquals(new TestSummary(1, 2, 3, 4), result.getTestSummary());
+    assertEquals("smoke", result.getTags());
+    assertEquals("234", result.getRunTimeInMillis());
+    TestExecutionReport.Expectation expectation = result.getInstructions().get(0).getExpectations().get(0);
+    assertEquals("decisionTable_0_0", expectation.getInstructionId());
+    assertEquals("OK", expectation.getActual());
+    assertNull(expectation.getExpected());
+    assertEquals("OK", result.getInstructions().get(0).getSlimResult());
+
+    List<ExecutionReport.ExecutionLogReport> logs = streamed.getExecutionLogs();
+    assertEquals(1, logs.size());
+    assertEquals("java -cp x", logs.get(0).getCommand());
+    assertEquals("out", logs.get(0).getStdOut());
+    assertEquals("boom", logs.get(0).getExceptions().get(0).getMessage());
+  }
+
+  @Test
+  public void readsSuiteReportLikeDom() throws Exception {
+    ExecutionReport streamed = ExecutionReport.makeReport(
+      new ByteArrayInputStream(SUITE_REPORT.getBytes(StandardCharsets.UTF_8)));
+    SuiteExecutionReport dom = new SuiteExecutionReport(XmlUtil.newDocument(SUITE_REPORT));
+
+    assertTrue(streamed instanceof SuiteExecutionReport);
+    assertEquals(dom, streamed);
+    assertEquals("Suite & Co", streamed.getRootPath());
+    assertEquals(2, ((SuiteExecutionReport) streamed).getPageHistoryReferences().size());
+  }
+
+  @Test
+  public void summarizesWithoutBuildingTheReport() throws Exception {
+    File report = writeReport(SUITE_REPORT);
+    try {
+      ExecutionReportSummary summary = ExecutionReportSummary.read(report);
+      assertTrue(summary.isSuiteReport());
+      assertEquals("Suite & Co", summary.getRootPath());
+      assertEquals(2, summary.getPageCount());
+      assertEquals(new TestSummary(1, 1, 0, 1), summary.getFinalCounts());
+      assertEquals(1800, summary.getTotalRunTimeInMillis());
+
+      summary = ExecutionReportSummary.read(writeReport(TEST_REPORT, report));
+      assertFalse(summary.isSuiteReport());
+      assertEquals(1, summary.getPageCount());
+    } finally {
+      Files.deleteIfExists(report.toPath());
+    }
+  }
+
+  @Test
+  public void rejectsOtherDocuments() {
+    try {
+      ExecutionReport.makeReport("<html><body/></html>");
+      fail("expected exception");
+    } catch (InvalidReportException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("html is not a valid document element tag"));
+    }
+    try {
+      ExecutionReport.makeReport("<suiteResults><rootPath>x</rootPath>");
+      fail("expected exception");
+    } catch (InvalidReportException e) {
+      // truncated
+    }
+  }
+
+  @Test
+  public void convertsSuiteReportToJunit() throws Exception {
+    File report = writeReport(SUITE_REPORT);
+    try {
+      StringWriter junit = new StringWriter();
+      JunitReportWriter.convert(report, junit);
+      String xml = junit.toString();
+
+      assertTrue(xml, xml.contains("<testsuite name=\"Suite &amp; Co\" tests=\"2\" failures=\"1\" disabled=\"0\" errors=\"1\" time=\"1.800\">"));
+      assertTrue(xml, xml.contains("<testcase name=\"Suite.PassingPage\" assertions=\"3\" time=\"1.500\">"));
+      assertTrue(xml, xml.contains("<error message=\"1 exceptions\"/>"));
+      assertTrue(xml, xml.contains("<failure message=\"2 errors\"/>"));
+      assertTrue(xml, xml.contains("<system-out>Suite.FailingPage?pageHistory&amp;resultDate="));
+      assertTrue(xml, xml.endsWith("</testsuite>\n"));
+      // the output is well formed
+      XmlUtil.newDocument(xml);
+    } finally {
+      Files.deleteIfExists(report.toPath());
+    }
+  }
+
+  @Test
+  public void writesSuiteReportInMemoryAsConvertedFromFile() throws Exception {
+    File report = writeReport(SUITE_REPORT);
+    try {
+      StringWriter converted = new StringWriter();
+      JunitReportWriter.convert(report, converted);
+      StringWriter written = new StringWriter();
+      JunitReportWriter.write((SuiteExecutionReport) ExecutionReport.makeReport(report), written);
+      assertEquals(converted.toString(), written.toString());
+    } finally {
+      Files.deleteIfExists(report.toPath());
+    }
+  }
+
+  private static File writeReport(String content) throws Exception {
+    return writeReport(content, File.createTempFile("report", ".xml"));
+  }
+
+  private static File writeReport(String content, File file) throws Exception {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
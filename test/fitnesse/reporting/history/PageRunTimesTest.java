@@ -0,0 +1,73 @@
+package fitnesse.reporting.history;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import util.FileUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class PageRunTimesTest {
+  private File historyDirectory;
+
+  @Before
+  public void setUp() {
+    historyDirectory = new File("TestDir/testHistory");
+    historyDirectory.mkdirs();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtil.deleteFileSystemDirectory("TestDir");
+  }
+
+  @Test
+  public void readsRunTimeOfLatestRun() throws IOException {
+    addHistoryFile("SuitePage.TestPage", "20240101120000_1_0_0_0.xml", testResults(500));
+    addHistoryFile("SuitePage.TestPage", "20240102120000_1_0_0_0.xml", testResults(700));
+
+    assertEquals(700, new PageRunTimes(historyDirectory).getRunTimeInMillis("SuitePage.TestPage"));
+  }
+
+  @Test
+  public void runTimeOfPagesWithoutHistoryIsUnknown() {
+    assertEquals(PageRunTimes.UNKNOWN, new PageRunTimes(historyDirectory).getRunTimeInMillis("SuitePage.OtherPage"));
+  }
+
+  @Test
+  public void runTimeOfUnreadableHistoryIsUnknown() throws IOException {
+    addHistoryFile("SuitePage.TestPage", "20240101120000_1_0_0_0.xml", "<testResults><result><runTimeInMillis>");
+
+    assertEquals(PageRunTimes.UNKNOWN, new PageRunTimes(historyDirectory).getRunTimeInMillis("SuitePage.TestPage"));
+  }
+
+  @Test
+  public void onlyTestResultsHaveARunTime() throws Exception {
+    String suiteResults = "<suiteResults><pageHistoryReference><runTimeInMillis>12</runTimeInMillis>"
+      + "</pageHistoryReference></suiteResults>";
+
+    assertEquals(PageRunTimes.UNKNOWN, PageRunTimes.readRunTimeInMillis(toStream(suiteResults)));
+    assertEquals(42, PageRunTimes.readRunTimeInMillis(toStream(testResults(42))));
+  }
+
+  private void addHistoryFile(String pageName, String fileName, String content) throws IOException {
+    File pageDirectory = new File(historyDirectory, pageName);
+    pageDirectory.mkdirs();
+    FileUtil.createFile(new File(pageDirectory, fileName), content);
+  }
+
+  private static String testResults(long runTimeInMillis) {
+    return "<?xml version=\"1.0\"?>\n<testResults><FitNesseVersion>v1</FitNesseVersion><result><counts><right>1</right>"
+      + "</counts><runTimeInMillis>" + runTimeInMillis + "</runTimeInMillis><content>&lt;table&gt;</content>"
+      + "</result></testResults>";
+  }
+
+  private static ByteArrayInputStream toStream(String xml) {
+    return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+  }
+}
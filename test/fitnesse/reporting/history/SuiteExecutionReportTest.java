@@ -2,15 +2,11 @@ package fitnesse.reporting.history;
 
 import static fitnesse.reporting.history.SuiteExecutionReport.PageHistoryReference;
 import static org.hamcrest.CoreMatchers.*;
-import static org.mockito.Mockito.*;
 import static org.junit.Assert.*;
 
 import fitnesse.FitNesseVersion;
 import org.junit.Before;
 import org.junit.Test;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import fitnesse.testsystems.TestSummary;
 
@@ -108,19 +104,13 @@ public class SuiteExecutionReportTest {
   
   @Test
   public void shouldHandleMissingRunTimesGraceFully() throws Exception {
-    Element element = mock(Element.class);
-    NodeList emptyNodeList = mock(NodeList.class);
-    when(element.getElementsByTagName("runTimeInMillis")).thenReturn(emptyNodeList);
-    when(emptyNodeList.getLength()).thenReturn(0);
-    assertThat(report1.getRunTimeInMillisOrZeroIfNotPresent(element), is(0L));
-    
-    element = mock(Element.class);
-    NodeList matchingNodeList = mock(NodeList.class);
-    Node elementWithText = mock(Element.class);
-    when(element.getElementsByTagName("runTimeInMillis")).thenReturn(matchingNodeList);
-    when(matchingNodeList.getLength()).thenReturn(1);
-    when(matchingNodeList.item(0)).thenReturn(elementWithText);
-    when(elementWithText.getTextContent()).thenReturn("255");
-    assertThat(report1.getRunTimeInMillisOrZeroIfNotPresent(element), is(255L));
+    SuiteExecutionReport report = (SuiteExecutionReport) ExecutionReport.makeReport("<suiteResults>"
+      + "<pageHistoryReference><name>NoRunTime</name><date>2014-01-01T10:00:00+01:00</date>"
+      + "<counts><right>1</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions></counts></pageHistoryReference>"
+      + "<pageHistoryReference><name>WithRunTime</name><date>2014-01-01T10:00:00+01:00</date>"
+      + "<runTimeInMillis>255</runTimeInMillis><counts><right>1</right><wrong>0</wrong><ignores>0</ignores><exceptions>0</exceptions></counts></pageHistoryReference>"
+      + "</suiteResults>");
+    assertThat(report.getPageHistoryReferences().get(0).getRunTimeInMillis(), is(0L));
+    assertThat(report.getPageHistoryReferences().get(1).getRunTimeInMillis(), is(255L));
   }
 }
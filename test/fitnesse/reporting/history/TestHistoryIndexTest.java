@@ -0,0 +1,148 @@
+package fitnesse.reporting.history;
+
+import fitnesse.testsystems.TestSummary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestHistoryIndexTest {
+  private File pageDirectory;
+  private File index;
+
+  @Before
+  public void setUp() {
+    pageDirectory = new File("TestDir/testHistory/SuitePage.TestPage");
+    pageDirectory.mkdirs();
+    index = new File(pageDirectory, TestHistoryIndex.FILE_NAME);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtil.deleteFileSystemDirectory("TestDir");
+  }
+
+  @Test
+  public void existingHistoryFilesAreIndexedWhenFirstRead() throws IOException {
+    addHistoryFile("20240101120000_1_2_3_4.xml");
+    addHistoryFile("20240102120000_5_0_0_0.xml");
+
+    List<TestResultRecord> records = TestHistoryIndex.read(pageDirectory);
+
+    assertTrue(index.isFile());
+    assertEquals(2, records.size());
+    assertEquals(describe(records), describe(TestHistoryIndex.read(pageDirectory)));
+    assertEquals("20240101120000_1_2_3_4.xml 1/2/3/4 -1, 20240102120000_5_0_0_0.xml 5/0/0/0 -1",
+      describe(records));
+  }
+
+  @Test
+  public void newRunsAreAddedToTheIndex() throws Exception {
+    addHistoryFile("20240101120000_1_0_0_0.xml");
+    TestHistoryIndex.read(pageDirectory);
+    long indexLength = index.length();
+
+    long time = PageHistory.getDateFormat().parse("20240102120000").getTime();
+    Writer writer = TestHistoryIndex.recordingWriter(new File(pageDirectory, "20240102120000_2_0_0_0.xml"),
+      new TestSummary(2, 0, 0, 0), time + 123);
+    writer.write("<testResults/>");
+    writer.close();
+
+    assertTrue(index.length() > indexLength);
+    List<TestResultRecord> records = TestHistoryIndex.read(pageDirectory);
+    assertEquals(2, records.size());
+    TestResultRecord added = records.get(1);
+    assertEquals(time, added.getDate().getTime());
+    assertEquals(2, added.getRight());
+    assertTrue(added.getRunTimeInMillis() >= 0);
+    assertEquals("<testResults/>", FileUtil.getFileContent(added.getFile()));
+  }
+
+  @Test
+  public void runIsNotAddedTwiceWhenTheIndexIsRebuiltWhileItIsWritten() throws Exception {
+    addHistoryFile("20240101120000_1_0_0_0.xml");
+    TestHistoryIndex.read(pageDirectory);
+
+    long time = PageHistory.getDateFormat().parse("20240102120000").getTime();
+    Writer writer = TestHistoryIndex.recordingWriter(new File(pageDirectory, "20240102120000_2_0_0_0.xml"),
+      new TestSummary(2, 0, 0, 0), time);
+    index.setLastModified(pageDirectory.lastModified() - 2000);
+    assertEquals(2, TestHistoryIndex.read(pageDirectory).size());
+    writer.close();
+
+    assertEquals("20240101120000_1_0_0_0.xml 1/0/0/0 -1, 20240102120000_2_0_0_0.xml 2/0/0/0 -1",
+      describe(TestHistoryIndex.read(pageDirectory)));
+  }
+
+  @Test
+  public void filesAddedInTheSameSecondAsTheIndexAreFound() throws IOException {
+    addHistoryFile("20240101120000_1_0_0_0.xml");
+    TestHistoryIndex.read(pageDirectory);
+
+    addHistoryFile("20240102120000_1_0_0_0.xml");
+    index.setLastModified(pageDirectory.lastModified());
+
+    assertEquals(2, TestHistoryIndex.read(pageDirectory).size());
+  }
+
+  @Test
+  public void indexIsRebuiltWhenFilesAreRemovedBehindItsBack() throws IOException {
+    addHistoryFile("20240101120000_1_0_0_0.xml");
+    addHistoryFile("20240102120000_1_0_0_0.xml");
+    TestHistoryIndex.read(pageDirectory);
+
+    FileUtil.deleteFile(new File(pageDirectory, "20240101120000_1_0_0_0.xml"));
+    index.setLastModified(pageDirectory.lastModified() - 2000);
+
+    assertEquals("20240102120000_1_0_0_0.xml 1/0/0/0 -1", describe(TestHistoryIndex.read(pageDirectory)));
+  }
+
+  @Test
+  public void incompleteIndexIsNotUsed() throws IOException {
+    addHistoryFile("20240101120000_1_0_0_0.xml");
+    TestHistoryIndex.read(pageDirectory);
+    byte[] bytes = Files.readAllBytes(index.toPath());
+    Files.write(index.toPath(), Arrays.copyOf(bytes, bytes.length - 3));
+
+    assertEquals("20240101120000_1_0_0_0.xml 1/0/0/0 -1", describe(TestHistoryIndex.read(pageDirectory)));
+  }
+
+  @Test
+  public void indexIsRemovedWhenItIsTheLastFile() throws IOException {
+    TestHistoryIndex.read(pageDirectory);
+    assertTrue(index.isFile());
+
+    TestHistoryIndex.deleteIfOnlyEntry(pageDirectory);
+
+    assertFalse(index.exists());
+  }
+
+  private void addHistoryFile(String name) throws IOException {
+    FileUtil.createFile(new File(pageDirectory, name), "<testResults/>");
+  }
+
+  private static String describe(List<TestResultRecord> records) {
+    StringBuilder description = new StringBuilder();
+    for (TestResultRecord record : records) {
+      if (description.length() > 0) {
+        description.append(", ");
+      }
+      description.append(record.getFile().getName()).append(' ')
+        .append(record.getRight()).append('/').append(record.getWrong()).append('/')
+        .append(record.getIgnores()).append('/').append(record.getExceptions()).append(' ')
+        .append(record.getRunTimeInMillis());
+    }
+    return description.toString();
+  }
+}
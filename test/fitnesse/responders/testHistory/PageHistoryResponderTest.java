@@ -311,6 +311,22 @@ public class PageHistoryResponderTest {
     assertHasRegexp("(12321 ms)", response.getContent());
   }
 
+  @Test
+  public void canGetSuiteExecutionReportAsJunit() throws Exception {
+    File pageDirectory = addPageDirectory("SuitePage");
+    File resultFile = new File(pageDirectory, "19801205012000_30_20_3_0.xml");
+    addDummySuiteResult(resultFile);
+    request = new MockRequest();
+    request.setResource("SuitePage");
+    request.addInput("resultDate", "19801205012000");
+    request.addInput("format", "junit");
+    response = (SimpleResponse) responder.makeResponse(context, request);
+    assertEquals("text/xml", response.getContentType());
+    assertSubString("<testsuite name=\"SuitePage\" tests=\"2\"", response.getContent());
+    assertSubString("<testcase name=\"SuitePage.TestPageOne\"", response.getContent());
+    assertSubString("<testcase name=\"SuitePage.TestPageTwo\"", response.getContent());
+  }
+
   @Test
   public void canGetLatestWhenOnlyOneTestResultExists() throws Exception {
     File pageDirectory = addPageDirectory("TestPage");
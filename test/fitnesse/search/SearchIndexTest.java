@@ -0,0 +1,173 @@
+package fitnesse.search;
+
+import fitnesse.wiki.PageChangeEvent;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
+import fitnesse.wiki.fs.InMemoryPage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class SearchIndexTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private WikiPage root;
+  private SearchIndex index;
+  private SearchService service;
+
+  @Before
+  public void setUp() {
+    root = InMemoryPage.makeRoot("RooT");
+    WikiPageUtil.addPage(root, PathParser.parse("FrontPage"), "Welcome to the wiki");
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteOne.TestAlpha"), "alpha beta gamma alpha");
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteOne.TestBeta"), "beta alpha");
+    index = new SearchIndex();
+    index.rebuild(root);
+    service = new SearchService(root, index);
+  }
+
+  @Test
+  public void ranksPagesWithMoreOccurrencesFirst() {
+    assertThat(paths(search("alpha")), contains("SuiteOne.TestAlpha", "SuiteOne.TestBeta"));
+  }
+
+  @Test
+  public void requiresAllTermsToMatch() {
+    assertThat(paths(search("alpha gamma")), contains("SuiteOne.TestAlpha"));
+    assertThat(search("alpha delta"), is(empty()));
+  }
+
+  @Test
+  public void matchesPartsOfWords() {
+    WikiPageUtil.addPage(root, PathParser.parse("LinkPage"), "See FrontPage");
+    index.update(root.getPageCrawler().getPage(PathParser.parse("LinkPage")));
+
+    assertThat(paths(search("alph")), contains("SuiteOne.TestAlpha", "SuiteOne.TestBeta"));
+    assertThat(paths(search("come")), contains("FrontPage"));
+    assertThat(paths(search("tpag")), contains("LinkPage"));
+    assertThat(paths(search("mm")), contains("SuiteOne.TestAlpha"));
+
+    index.remove("LinkPage");
+    assertThat(search("tpag"), is(empty()));
+  }
+
+  @Test
+  public void matchesPhrasesOnConsecutivePositions() {
+    assertThat(paths(search("\"beta alpha\"")), contains("SuiteOne.TestBeta"));
+    assertThat(paths(search("\"alpha beta\"")), contains("SuiteOne.TestAlpha"));
+  }
+
+  @Test
+  public void buildsSnippetsFromPageContent() {
+    assertThat(search("welcome").get(0).snippet(), containsString("Welcome to the wiki"));
+  }
+
+  @Test
+  public void appliesTagAndPageTypeFilters() {
+    WikiPage page = root.getPageCrawler().getPage(PathParser.parse("SuiteOne.TestBeta"));
+    PageData data = page.getData();
+    data.setAttribute(PageData.PropertySUITES, "Smoke");
+    page.commit(data);
+    index.update(page);
+
+    assertThat(paths(service.search("alpha", SearchService.Mode.CONTENT, 10, 0,
+      Collections.singletonList("smoke"), SearchService.PageTypeFilter.TEST)), contains("SuiteOne.TestBeta"));
+    assertThat(service.search("alpha", SearchService.Mode.CONTENT, 10, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.SUITE), is(empty()));
+  }
+
+  @Test
+  public void updatesAndRemovesPagesIncrementally() {
+    WikiPage page = root.getPageCrawler().getPage(PathParser.parse("FrontPage"));
+    PageData data = page.getData();
+    data.setContent("delta");
+    page.commit(data);
+    index.update(page);
+
+    assertThat(paths(search("delta")), contains("FrontPage"));
+    assertThat(search("welcome"), is(empty()));
+
+    index.remove("SuiteOne");
+    assertThat(search("alpha"), is(empty()));
+  }
+
+  @Test
+  public void appliesPageChangeEvents() {
+    SearchIndexUpdater updater = new SearchIndexUpdater(index, root, Runnable::run);
+    WikiPageUtil.addPage(root, PathParser.parse("SuiteTwo.TestGamma"), "zeta");
+    updater.pageChanged(PageChangeEvent.created("SuiteTwo.TestGamma", null));
+    assertThat(paths(search("zeta")), contains("SuiteTwo.TestGamma"));
+
+    WikiPage moved = WikiPageUtil.addPage(root, PathParser.parse("SuiteThree"), "");
+    WikiPageUtil.addPage(moved, PathParser.parse("TestGamma"), "zeta");
+    root.getPageCrawler().getPage(PathParser.parse("SuiteTwo")).remove();
+    updater.pageChanged(PageChangeEvent.moved("SuiteTwo", "SuiteThree"));
+    assertThat(paths(search("zeta")), contains("SuiteThree.TestGamma"));
+
+    root.getPageCrawler().getPage(PathParser.parse("SuiteThree")).remove();
+    updater.pageChanged(PageChangeEvent.deleted("SuiteThree"));
+    assertThat(search("zeta"), is(empty()));
+  }
+
+  @Test
+  public void answersTitleQueriesFromIndex() {
+    assertThat(paths(service.search("testb", SearchService.Mode.TITLE, 10, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY)), contains("SuiteOne.TestBeta"));
+  }
+
+  @Test
+  public void savesAndLoadsIndex() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("search").resolve("index.bin");
+    index.save(file);
+
+    SearchIndex loaded = new SearchIndex();
+    assertThat(loaded.load(file), is(true));
+    assertThat(loaded.isDirty(), is(false));
+    assertThat(loaded.size(), is(index.size()));
+    assertThat(paths(new SearchService(root, loaded).search("\"beta alpha\"", SearchService.Mode.CONTENT, 10, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY)), contains("SuiteOne.TestBeta"));
+    assertThat(paths(new SearchService(root, loaded).search("elco", SearchService.Mode.CONTENT, 10, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY)), contains("FrontPage"));
+  }
+
+  @Test
+  public void refreshReindexesOnlyChangedPages() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("index.bin");
+    index.save(file);
+    WikiPageUtil.addPage(root, PathParser.parse("NewPage"), "epsilon");
+    root.getPageCrawler().getPage(PathParser.parse("FrontPage")).remove();
+
+    SearchIndex loaded = new SearchIndex();
+    loaded.load(file);
+    loaded.refresh(root);
+
+    SearchService refreshed = new SearchService(root, loaded);
+    assertThat(paths(refreshed.search("epsilon", SearchService.Mode.CONTENT, 10, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY)), contains("NewPage"));
+    assertThat(refreshed.search("welcome", SearchService.Mode.CONTENT, 10, 0,
+      Collections.emptyList(), SearchService.PageTypeFilter.ANY), is(empty()));
+  }
+
+  private List<SearchResult> search(String query) {
+    return service.search(query, SearchService.Mode.CONTENT, 10, 0, Collections.emptyList(),
+      SearchService.PageTypeFilter.ANY);
+  }
+
+  private static List<String> paths(List<SearchResult> results) {
+    return results.stream().map(SearchResult::path).toList();
+  }
+}
@@ -4,6 +4,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -44,4 +46,35 @@ public class SlimStreamReaderTest {
     reader.getSlimMessage();
   }
 
-}
\ No newline at end of file
+  @Test
+  public void encodeListMessageToSend() throws IOException {
+    ByteArrayOutputStream writer = new ByteArrayOutputStream();
+    SlimStreamReader.sendSlimMessage(writer, Arrays.asList("foo", "b\u00e4r"));
+    assertEquals("000032:[000002:000003:foo:000003:b\u00e4r:]", writer.toString("UTF-8"));
+  }
+
+  @Test
+  public void readSlimMessageIntoCharacterBuffer() throws IOException {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      content.append("\u20ac\uD83C\uDC1C!");
+    }
+    byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+    ByteArrayOutputStream message = new ByteArrayOutputStream();
+    message.write(String.format("%06d:", bytes.length).getBytes(StandardCharsets.UTF_8));
+    message.write(bytes);
+    message.write("000003:bye".getBytes(StandardCharsets.UTF_8));
+    SlimStreamReader reader = new SlimStreamReader(new ByteArrayInputStream(message.toByteArray()));
+
+    assertEquals(content.toString(), reader.readSlimMessage().toString());
+    assertEquals("bye", reader.readSlimMessage().toString());
+  }
+
+  @Test( expected = IOException.class )
+  public void readTruncatedSlimMessageIntoCharacterBuffer() throws IOException {
+    InputStream input = new ByteArrayInputStream("000011:foo".getBytes());
+    SlimStreamReader reader = new SlimStreamReader(input);
+
+    reader.readSlimMessage();
+  }
+}
@@ -1,8 +1,22 @@
 package fitnesse.slim.fixtureInteraction;
 
+import fitnesse.slim.MethodExecutionResult;
 import org.junit.Test;
 
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class DefaultInteractionTest {
 
@@ -11,4 +25,85 @@ public class DefaultInteractionTest {
     DefaultInteraction d = new DefaultInteraction();
     assertTrue(CachedInteraction.class.isAssignableFrom(d.getClass()));
   }
+
+  @Test
+  public void defaultInteractionsShareMethodsFound() {
+    Method method = new DefaultInteraction().findMatchingMethod("setIntVal", new Testee(), 1);
+
+    assertSame(method, new DefaultInteraction().findMatchingMethod("setIntVal", new Testee(), 1));
+    assertNotSame(method, new CachedInteraction().findMatchingMethod("setIntVal", new Testee(), 1));
+  }
+
+  @Test
+  public void invokesMethodsWithConvertedArguments() throws Throwable {
+    DefaultInteraction interaction = new DefaultInteraction();
+    Testee testee = new Testee();
+
+    interaction.findAndInvoke("setIntVal", testee, "42");
+    MethodExecutionResult result = interaction.findAndInvoke("getIntVal", testee);
+
+    assertEquals("42", result.returnValue());
+    assertEquals(42, interaction.methodInvoke(Testee.class.getMethod("getIntVal"), testee));
+    assertNull(interaction.methodInvoke(Testee.class.getMethod("setIntVal", int.class), testee, 7));
+    assertEquals("7", interaction.methodInvoke(String.class.getMethod("valueOf", int.class), null, 7));
+  }
+
+  @Test
+  public void exceptionsOfMethodsAreThrownAsIs() throws Throwable {
+    DefaultInteraction interaction = new DefaultInteraction();
+    Method method = Integer.class.getMethod("parseInt", String.class);
+    try {
+      interaction.methodInvoke(method, null, "no number");
+      fail("exception expected");
+    } catch (NumberFormatException e) {
+      assertEquals(NumberFormatException.class, e.getClass());
+    }
+  }
+
+  @Test
+  public void badArgumentsFailLikeWithoutCache() throws Throwable {
+    Method method = Testee.class.getMethod("setIntVal", int.class);
+    String expected = badCallMessage(new SimpleInteraction(), method);
+
+    assertEquals(expected, badCallMessage(new DefaultInteraction(), method));
+  }
+
+  @Test
+  public void canBeUsedFromSeveralThreads() throws Exception {
+    DefaultInteraction interaction = new DefaultInteraction();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Object>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        final String value = Integer.toString(i);
+        results.add(executor.submit((Callable<Object>) () -> createAndGetIntVal(interaction, value)));
+      }
+      for (int i = 0; i < 100; i++) {
+        assertEquals(Integer.toString(i), results.get(i).get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static Object createAndGetIntVal(FixtureInteraction interaction, String value) throws Exception {
+    Testee testee = (Testee) interaction.createInstance(null, Testee.class.getName(), new Object[] {value});
+    try {
+      return interaction.findAndInvoke("getIntVal", testee).returnValue();
+    } catch (Exception | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  private static String badCallMessage(FixtureInteraction interaction, Method method) throws Throwable {
+    try {
+      interaction.methodInvoke(method, new Testee(), (Object) null);
+      fail("exception expected");
+      return null;
+    } catch (RuntimeException e) {
+      return e.getMessage();
+    }
+  }
 }
@@ -0,0 +1,69 @@
+package fitnesse.slim.protocol;
+
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class SlimDecoderTest {
+
+  @Test(expected = SyntaxError.class)
+  public void cantDecodeNull() {
+    SlimDecoder.decode(null);
+  }
+
+  @Test(expected = SyntaxError.class)
+  public void cantDecodeEmptyText() {
+    SlimDecoder.decode("");
+  }
+
+  @Test(expected = SyntaxError.class)
+  public void cantDecodeTextWithoutStartingBracket() {
+    SlimDecoder.decode("hello");
+  }
+
+  @Test(expected = SyntaxError.class)
+  public void cantDecodeTextWithoutEndingBracket() {
+    SlimDecoder.decode("[000000:");
+  }
+
+  @Test(expected = SyntaxError.class)
+  public void cantDecodeItemLongerThanText() {
+    SlimDecoder.decode("[000001:000009:hello:]");
+  }
+
+  @Test
+  public void decodesLikeDeserializer() {
+    check(asList("hello", "world"));
+    check(asList("h🀜llo", asList("nested", asList("deeper", "")), "single"));
+    check(asList("hello", "[world, world2]", "[000001:", "[", "  "));
+  }
+
+  @Test
+  public void keepsItemsThatOnlyLookLikeListsAsText() {
+    String serialized = "[000002:000009:[000000:]:000010:[000001:x]:]";
+    assertEquals(SlimDeserializer.deserialize(serialized), SlimDecoder.decode(serialized));
+  }
+
+  @Test
+  public void readsLengthsOfMoreThanSixDigits() {
+    assertEquals(asList("abcdefghij"), SlimDecoder.decode("[0000001:0000010:abcdefghij:]"));
+  }
+
+  @Test
+  public void decodesCharBuffers() {
+    List<Object> list = asList("a", asList("b", "c"));
+    CharBuffer buffer = CharBuffer.wrap("xx" + SlimSerializer.serialize(list)).position(2).slice();
+    assertEquals(list, SlimDecoder.decode(buffer));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void check(List<?> list) {
+    String serialized = SlimSerializer.serialize((List<Object>) list);
+    assertEquals(SlimDeserializer.deserialize(serialized), SlimDecoder.decode(serialized));
+    assertEquals(list, SlimDecoder.decode(serialized));
+  }
+}
@@ -0,0 +1,72 @@
+package fitnesse.slim.protocol;
+
+import fitnesse.slim.SlimStreamReader;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SlimEncoderTest {
+
+  @Test
+  public void writesEmptyList() throws Exception {
+    assertEquals("[000000:]", write(new ArrayList<>()));
+  }
+
+  @Test
+  public void writesNestedLists() throws Exception {
+    List<Object> list = asList("hello", asList("element", asList("a", "b")), null, 1);
+    assertSameAsSerializer(list);
+    assertEquals(SlimSerializer.serialize(list), write(list));
+  }
+
+  @Test
+  public void writesMultiByteCharacters() throws Exception {
+    assertSameAsSerializer(asList("héllo", "€ uro", "h🀜llo", asList("ü")));
+  }
+
+  @Test
+  public void writesUnpairedSurrogatesLikeStringGetBytes() throws Exception {
+    assertSameAsSerializer(asList("a\uD83C", "\uDC1Cb", "\uD83C🀜"));
+  }
+
+  @Test
+  public void writesItemsLongerThanTheBuffer() throws Exception {
+    StringBuilder large = new StringBuilder();
+    for (int i = 0; i < 20_000; i++) {
+      large.append(i % 7 == 0 ? 'é' : 'x');
+    }
+    assertSameAsSerializer(asList(large.toString(), asList(large.toString(), "tail")));
+  }
+
+  @Test
+  public void writesLengthsOfMoreThanSixDigits() throws Exception {
+    String item = String.join("", Collections.nCopies(1_000_001, "y"));
+    assertSameAsSerializer(Collections.singletonList(item));
+  }
+
+  private static void assertSameAsSerializer(List<?> list) throws IOException {
+    @SuppressWarnings("unchecked")
+    String serialized = SlimSerializer.serialize((List<Object>) list);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    SlimStreamReader.sendSlimMessage(expected, serialized);
+
+    ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    SlimEncoder.writeMessage(actual, list);
+
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+
+  private static String write(List<?> list) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    SlimEncoder.write(out, list);
+    return out.toString("UTF-8");
+  }
+}
@@ -6,6 +6,7 @@ import fitnesse.FitNesseContext;
 import fitnesse.testrunner.run.TestRun;
 import fitnesse.testrunner.run.TestRunFactoryRegistry;
 import fitnesse.testsystems.Descriptor;
+import fitnesse.testsystems.PhaseTimers;
 import fitnesse.testsystems.TestExecutionException;
 import fitnesse.testsystems.TestSystem;
 import fitnesse.testsystems.TestSystemFactory;
@@ -15,6 +16,8 @@ import fitnesse.wiki.PageData;
 import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
 import fitnesse.wiki.WikiPageUtil;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
@@ -23,6 +26,7 @@ import java.io.Closeable;
 import java.io.IOException;
 
 import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.mock;
@@ -70,6 +74,26 @@ public class MultipleTestsRunnerTest {
     verify(listener).close();
   }
 
+  @Test
+  public void shouldTimeTestSystemStartPerTestSystemAndSuite() throws TestExecutionException {
+    WikiPage testPage1 = addTestPage(suite, "TestPage1", "!define TEST_SYSTEM {A}");
+    WikiPage testPage2 = addTestPage(suite, "TestPage2", "!define TEST_SYSTEM {B}");
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    MultipleTestsRunner runner = new MultipleTestsRunner(createRun(testPage1, testPage2), testSystemFactory);
+    runner.setMeterRegistry(registry);
+    runner.setSuiteName("SuitePage");
+    runner.executeTestPages();
+
+    for (String testSystem : asList("A", "B")) {
+      Timer timer = registry.find(PhaseTimers.Phase.START.getMeterName())
+        .tag(PhaseTimers.TEST_SYSTEM_TAG, testSystem)
+        .tag(PhaseTimers.SUITE_TAG, "SuitePage")
+        .timer();
+      assertEquals(1, timer.count());
+    }
+  }
+
   private WikiPage addTestPage(WikiPage page, String name, String content) {
     WikiPage testPage = WikiPageUtil.addPage(page, PathParser.parse(name), content);
     PageData data = testPage.getData();
@@ -3,6 +3,7 @@
 package fitnesse.testrunner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import fitnesse.wiki.*;
@@ -10,6 +11,7 @@ import fitnesse.wiki.fs.InMemoryPage;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class SuiteContentsFinderTest {
@@ -135,4 +137,59 @@ public class SuiteContentsFinderTest {
 
     assertEquals(1, testPages.size());
   }
+
+  @Test
+  public void onlyPagesWithSuiteTablesCanBeSuiteSpecifications() {
+    assertTrue(SuiteContentsFinder.maySpecifySuite("|Suite|\n|Title|Test|\n"));
+    assertTrue(SuiteContentsFinder.maySpecifySuite("Some text\n-!| Suite |\n|Page|.FrontPage|\n"));
+    assertTrue(SuiteContentsFinder.maySpecifySuite("!include -seamless SpecificationPage"));
+    assertFalse(SuiteContentsFinder.maySpecifySuite("!contents -R2 -g -p -f -h"));
+    assertFalse(SuiteContentsFinder.maySpecifySuite("|script|\n|check|SuiteName|x|\n"));
+  }
+
+  @Test
+  public void findsPagesOfDeepTreesInPathOrder() {
+    List<WikiPage> expected = new ArrayList<>();
+    expected.add(testPage);
+    for (int i = 0; i < 5; i++) {
+      WikiPage subSuite = WikiPageUtil.addPage(suite, PathParser.parse("SubSuite" + i), "");
+      for (int j = 0; j < 5; j++) {
+        WikiPage test = addTestPage(subSuite, "TestPage" + j, "");
+        expected.add(test);
+        expected.add(addTestPage(test, "ChildTest", ""));
+      }
+    }
+
+    List<WikiPage> testPages = new SuiteContentsFinder(suite, null, root).getAllPagesToRunForThisSuite();
+
+    expected.sort((p1, p2) -> p1.getFullPath().compareTo(p2.getFullPath()));
+    assertEquals(expected, testPages);
+  }
+
+  @Test
+  public void cachedPagesAreFoundAgainUntilAPageChanges() {
+    try (SuiteContentsCache cache = SuiteContentsCache.start()) {
+      assertEquals(1, new SuiteContentsFinder(suite, null, root, cache).getAllPagesToRunForThisSuite().size());
+      try (PageChangeEvents.Suppression ignored = PageChangeEvents.suppress()) {
+        addTestPage(suite, "TestTwo", "not announced");
+      }
+
+      List<WikiPage> cachedPages = new SuiteContentsFinder(suite, null, root, cache).getAllPagesToRunForThisSuite();
+      assertEquals(1, cachedPages.size());
+      assertEquals(testPage.getFullPath(), cachedPages.get(0).getFullPath());
+
+      PageChangeEvents.publish(PageChangeEvent.created("SuitePageName.TestTwo", null));
+      assertEquals(2, new SuiteContentsFinder(suite, null, root, cache).getAllPagesToRunForThisSuite().size());
+    }
+  }
+
+  @Test
+  public void cacheTellsFiltersApart() {
+    try (SuiteContentsCache cache = SuiteContentsCache.start()) {
+      new SuiteContentsFinder(suite, null, root, cache).getAllPagesToRunForThisSuite();
+
+      SuiteFilter filter = new SuiteFilter("someTag", null);
+      assertEquals(0, new SuiteContentsFinder(suite, filter, root, cache).getAllPagesToRunForThisSuite().size());
+    }
+  }
 }
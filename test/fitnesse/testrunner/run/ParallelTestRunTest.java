@@ -0,0 +1,219 @@
+package fitnesse.testrunner.run;
+
+import fitnesse.testrunner.WikiPageIdentity;
+import fitnesse.testsystems.TestPage;
+import fitnesse.testsystems.TestSummary;
+import fitnesse.testsystems.TestSystem;
+import fitnesse.testsystems.TestSystemListener;
+import fitnesse.wiki.WikiPage;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static fitnesse.wiki.PageData.SUITE_SETUP_NAME;
+import static fitnesse.wiki.PageData.SUITE_TEARDOWN_NAME;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelTestRunTest extends PageListTestBase {
+  private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+  private final Set<String> threads = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private int announcedTotal;
+
+  @Test
+  public void factoryOnlyRunsWhenParallelTestSystemsIsSet() {
+    List<WikiPage> pages = addTestPages();
+    ParallelTestRunFactory factory = new ParallelTestRunFactory();
+    assertFalse(factory.canRun(pages));
+
+    customProperties.put(ParallelTestRunFactory.PARALLEL_TEST_SYSTEMS_ARG, "3");
+    pages = makeTestPageList();
+    assertTrue(factory.canRun(pages));
+    assertEquals(ParallelTestRun.class, factory.createRun(pages).getClass());
+  }
+
+  @Test
+  public void eachLaneIsSurroundedBySuiteSetUpAndTearDown() {
+    ParallelTestRun run = new ParallelTestRun(new PagesByTestSystem(addTestPages()), PagesByTestSystem::new, 2);
+    WikiPageIdentity identity = new WikiPageIdentity(testPage);
+
+    List<List<TestPage>> lanes = run.splitIntoLanes(identity);
+
+    assertEquals(2, lanes.size());
+    assertEquals(asList("SuiteSetUp", "SuitePageName.FirstTest", "SuitePageName.SecondTest", "SuiteTearDown"),
+      paths(lanes.get(0)));
+    assertEquals(asList("SuiteSetUp", "SuitePageName.TestPage", "SuitePageName.ThirdTest", "SuiteTearDown"),
+      paths(lanes.get(1)));
+  }
+
+  @Test
+  public void runsLanesConcurrentlyAndReportsInLaneOrder() throws Exception {
+    ParallelTestRun run = new ParallelTestRun(new PagesByTestSystem(addTestPages()), PagesByTestSystem::new, 2);
+
+    run.executeTestPages(new FakeCoordinator());
+
+    assertEquals(8, announcedTotal);
+    assertEquals(2, threads.size());
+    assertEquals(2, maxRunning.get());
+    assertEquals(asList(
+      "started system",
+      "start SuiteSetUp", "output SuiteSetUp \u2713", "complete SuiteSetUp",
+      "start SuitePageName.FirstTest", "output SuitePageName.FirstTest \u2713", "complete SuitePageName.FirstTest",
+      "start SuitePageName.SecondTest", "output SuitePageName.SecondTest \u2713", "complete SuitePageName.SecondTest",
+      "start SuiteTearDown", "output SuiteTearDown \u2713", "complete SuiteTearDown",
+      "stopped system",
+      "started system",
+      "start SuiteSetUp", "output SuiteSetUp \u2713", "complete SuiteSetUp",
+      "start SuitePageName.TestPage", "output SuitePageName.TestPage \u2713", "complete SuitePageName.TestPage",
+      "start SuitePageName.ThirdTest", "output SuitePageName.ThirdTest \u2713", "complete SuitePageName.ThirdTest",
+      "start SuiteTearDown", "output SuiteTearDown \u2713", "complete SuiteTearDown",
+      "stopped system"), events);
+  }
+
+  private List<WikiPage> addTestPages() {
+    addChildPage(root, SUITE_SETUP_NAME);
+    addChildPage(root, SUITE_TEARDOWN_NAME);
+    addChildPage(suite, "FirstTest");
+    addChildPage(suite, "SecondTest");
+    addChildPage(suite, "ThirdTest");
+    return makeTestPageList();
+  }
+
+  private static List<String> paths(List<TestPage> pages) {
+    List<String> paths = new ArrayList<>();
+    for (TestPage page : pages) {
+      paths.add(page.getFullPath());
+    }
+    return paths;
+  }
+
+  private class FakeCoordinator implements RunCoordinator {
+    @Override
+    public boolean isNotStopped() {
+      return true;
+    }
+
+    @Override
+    public void announceTotalTestsToRun(int toRun) {
+      announcedTotal = toRun;
+    }
+
+    @Override
+    public TestSystem startTestSystem(WikiPageIdentity identity, List<TestPage> testPages) {
+      return startTestSystem(identity, testPages, UnaryOperator.identity());
+    }
+
+    @Override
+    public TestSystem startTestSystem(WikiPageIdentity identity, List<TestPage> testPages,
+                                      UnaryOperator<TestSystemListener> listenerDecorator) {
+      FakeTestSystem testSystem = new FakeTestSystem();
+      testSystem.addTestSystemListener(listenerDecorator.apply(new RecordingListener()));
+      testSystem.start();
+      return testSystem;
+    }
+
+    @Override
+    public int announceTestStarted() {
+      return 0;
+    }
+
+    @Override
+    public void waitForNoTestsInProgress() {
+    }
+
+    @Override
+    public void reportException(Exception e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  private class RecordingListener implements TestSystemListener {
+    @Override
+    public void testSystemStarted(TestSystem testSystem) {
+      events.add("started system");
+    }
+
+    @Override
+    public void testStarted(TestPage testPage) {
+      events.add("start " + testPage.getFullPath());
+    }
+
+    @Override
+    public void testOutputChunk(TestPage testPage, String output) {
+      events.add(output);
+    }
+
+    @Override
+    public void testComplete(TestPage testPage, TestSummary testSummary) {
+      events.add("complete " + testPage.getFullPath());
+    }
+
+    @Override
+    public void testSystemStopped(TestSystem testSystem, Throwable cause) {
+      events.add("stopped system");
+    }
+  }
+
+  private class FakeTestSystem implements TestSystem {
+    private TestSystemListener listener;
+
+    @Override
+    public String getName() {
+      return "fake";
+    }
+
+    @Override
+    public void start() {
+      listener.testSystemStarted(this);
+    }
+
+    @Override
+    public void bye() {
+      running.decrementAndGet();
+      listener.testSystemStopped(this, null);
+    }
+
+    @Override
+    public void kill() {
+    }
+
+    @Override
+    public void runTests(TestPage pageToTest) {
+      threads.add(Thread.currentThread().getName());
+      if (pageToTest.getFullPath().equals("SuiteSetUp")) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        awaitOtherLane();
+      }
+      listener.testStarted(pageToTest);
+      listener.testOutputChunk(pageToTest, "output " + pageToTest.getFullPath() + " \u2713");
+      listener.testComplete(pageToTest, new TestSummary());
+    }
+
+    private void awaitOtherLane() {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (running.get() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.yield();
+      }
+    }
+
+    @Override
+    public boolean isSuccessfullyStarted() {
+      return true;
+    }
+
+    @Override
+    public void addTestSystemListener(TestSystemListener listener) {
+      this.listener = listener;
+    }
+  }
+}
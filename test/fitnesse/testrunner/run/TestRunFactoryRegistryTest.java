@@ -1,8 +1,15 @@
 package fitnesse.testrunner.run;
 
+import fitnesse.FitNesseContext;
+import fitnesse.testutil.FitNesseUtil;
+import fitnesse.wiki.PathParser;
 import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
 import org.junit.Test;
+import util.FileUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -53,6 +60,24 @@ public class TestRunFactoryRegistryTest {
     assertSame(expectedRun, run);
   }
 
+  @Test
+  public void partitionFileWinsOverParallelTestSystems() throws IOException {
+    FitNesseContext context = FitNesseUtil.makeTestContext();
+    try {
+      File partitions = new File(new File(context.getRootPagePath(), PathParser.FILES), "partitions.txt");
+      partitions.getParentFile().mkdirs();
+      FileUtil.createFile(partitions, "");
+      WikiPage page = WikiPageUtil.addPage(context.getRootPage(), PathParser.parse("SuitePage"),
+        "!define parallelTestSystems {2}\n!define partitionIndexFile {partitions.txt}\n");
+
+      TestRunFactory factory = context.testRunFactoryRegistry.getFactory(Collections.singletonList(page));
+
+      assertEquals(FileBasedTestRunFactory.class, factory.getClass());
+    } finally {
+      FitNesseUtil.destroyTestContext(context);
+    }
+  }
+
   private void addFactory(Function<List<WikiPage>, Optional<TestRun>> provider) {
     TestRunFactory factory = new TestRunFactory() {
       @Override
@@ -0,0 +1,37 @@
+package fitnesse.testsystems;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class PhaseTimersTest {
+
+  @Test
+  public void tagsTimersWithTheTopLevelSuite() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    PhaseTimers subSuite = new PhaseTimers(registry, "slim", "SuitePage.SubSuite.TestPage");
+    subSuite.stop(PhaseTimers.Phase.RENDER, subSuite.start());
+    PhaseTimers otherTest = new PhaseTimers(registry, "slim", "SuitePage.OtherTest");
+    otherTest.stop(PhaseTimers.Phase.RENDER, otherTest.start());
+
+    assertEquals(2, registry.find(PhaseTimers.Phase.RENDER.getMeterName())
+      .tag(PhaseTimers.SUITE_TAG, "SuitePage").timer().count());
+  }
+
+  @Test
+  public void limitsTheNumberOfSuites() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    registry.config().meterFilter(PhaseTimers.suiteLimit());
+    for (int i = 0; i <= PhaseTimers.MAX_SUITES; i++) {
+      new PhaseTimers(registry, "slim", "Suite" + i);
+    }
+
+    assertNotNull(registry.find(PhaseTimers.Phase.START.getMeterName())
+      .tag(PhaseTimers.SUITE_TAG, "Suite" + (PhaseTimers.MAX_SUITES - 1)).timer());
+    assertNull(registry.find(PhaseTimers.Phase.START.getMeterName())
+      .tag(PhaseTimers.SUITE_TAG, "Suite" + PhaseTimers.MAX_SUITES).timer());
+  }
+}
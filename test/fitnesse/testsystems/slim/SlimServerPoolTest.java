@@ -0,0 +1,162 @@
+package fitnesse.testsystems.slim;
+
+import fitnesse.socketservice.PlainClientSocketFactory;
+import fitnesse.testsystems.ExecutionLogListener;
+import fitnesse.testsystems.MockCommandRunner;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SlimServerPoolTest {
+  private final List<FakeClient> clients = new ArrayList<>();
+  private final SlimServerPool pool = new SlimServerPool(Runnable::run);
+  private boolean failToStart;
+
+  @Test
+  public void firstRequestStartsServersForLaterRuns() {
+    FakeSpec spec = new FakeSpec(2);
+
+    assertNull(pool.take(spec, new RecordingLog()));
+
+    assertEquals(2, clients.size());
+    assertTrue(clients.get(0).started);
+    assertEquals(2, pool.readyServers(spec));
+  }
+
+  @Test
+  public void handsOutStartedServersOnceAndStartsReplacements() {
+    FakeSpec spec = new FakeSpec(2);
+    pool.take(spec, new RecordingLog());
+
+    SlimCommandRunningClient first = pool.take(spec, new RecordingLog());
+    SlimCommandRunningClient second = pool.take(spec, new RecordingLog());
+
+    assertSame(clients.get(0), first);
+    assertSame(clients.get(1), second);
+    assertEquals(4, clients.size());
+    assertEquals(2, pool.readyServers(spec));
+  }
+
+  @Test
+  public void outputOfServerIsPassedOnToTheRunItIsHandedTo() {
+    FakeSpec spec = new FakeSpec(1);
+    pool.take(spec, new RecordingLog());
+    clients.get(0).log.stdOut("waiting");
+
+    RecordingLog log = new RecordingLog();
+    pool.take(spec, log);
+    clients.get(0).log.stdErr("running");
+
+    assertEquals(asList("out: waiting", "err: running"), log.events);
+  }
+
+  @Test
+  public void serversThatFailToStartAreNotHandedOut() {
+    FakeSpec spec = new FakeSpec(1);
+    failToStart = true;
+    pool.take(spec, new RecordingLog());
+
+    assertTrue(clients.get(0).killed);
+    assertNull(pool.take(spec, new RecordingLog()));
+  }
+
+  @Test
+  public void idleServersAreStopped() {
+    FakeSpec spec = new FakeSpec(2);
+    pool.take(spec, new RecordingLog());
+
+    pool.evictIdle(System.currentTimeMillis() + spec.idleMillis + 1);
+
+    assertEquals(0, pool.readyServers(spec));
+    assertTrue(clients.get(0).killed);
+    assertTrue(clients.get(1).killed);
+  }
+
+  @Test
+  public void closeStopsAllServers() {
+    FakeSpec spec = new FakeSpec(1);
+    pool.take(spec, new RecordingLog());
+
+    pool.close();
+
+    assertTrue(clients.get(0).killed);
+    assertNull(pool.take(spec, new RecordingLog()));
+    assertEquals(1, clients.size());
+  }
+
+  private class FakeSpec extends SlimServerPool.ServerSpec {
+    FakeSpec(int warmServers) {
+      super(new String[] {"java", "fitnesse.slim.SlimService"}, null, "localhost", 10, 0.3,
+        new PlainClientSocketFactory(), warmServers, 60_000L);
+    }
+
+    @Override
+    SlimCommandRunningClient newClient(ExecutionLogListener executionLogListener) {
+      FakeClient client = new FakeClient(executionLogListener);
+      clients.add(client);
+      return client;
+    }
+  }
+
+  private class FakeClient extends SlimCommandRunningClient {
+    private final ExecutionLogListener log;
+    private boolean started;
+    private boolean killed;
+
+    FakeClient(ExecutionLogListener log) {
+      super(new MockCommandRunner(log), "localhost", 0, 10, 0.3, new PlainClientSocketFactory());
+      this.log = log;
+    }
+
+    @Override
+    public void start() throws IOException {
+      if (failToStart) {
+        throw new IOException("no server");
+      }
+      started = true;
+    }
+
+    @Override
+    public void kill() {
+      killed = true;
+    }
+  }
+
+  private static class RecordingLog implements ExecutionLogListener {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void commandStarted(ExecutionContext context) {
+      events.add("started: " + context.getCommand());
+    }
+
+    @Override
+    public void stdOut(String output) {
+      events.add("out: " + output);
+    }
+
+    @Override
+    public void stdErr(String output) {
+      events.add("err: " + output);
+    }
+
+    @Override
+    public void exitCode(int exitCode) {
+      events.add("exit: " + exitCode);
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable e) {
+      events.add("exception: " + e.getMessage());
+    }
+  }
+}
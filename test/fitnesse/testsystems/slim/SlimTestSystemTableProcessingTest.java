@@ -13,6 +13,7 @@ import fitnesse.testsystems.slim.tables.SlimAssertion;
 import fitnesse.testsystems.slim.tables.SlimExpectation;
 import fitnesse.testsystems.slim.tables.SlimTable;
 import fitnesse.wiki.WikiPageDummy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -153,6 +154,86 @@ public class SlimTestSystemTableProcessingTest {
     assertTestRecords(error(exceptionId), pass("ThisPageTeardown"));
   }
 
+  @Test
+  public void phasesOfTableProcessingAreTimed() throws TestExecutionException {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    slimTestSystem.setPhaseTimers(new PhaseTimers(registry, "slim", "SuitePage"));
+
+    slimTestSystem.processTable(table("Table1"), false);
+    slimTestSystem.processTable(table("Table2"), false);
+
+    for (PhaseTimers.Phase phase : Arrays.asList(PhaseTimers.Phase.INSTRUCTIONS, PhaseTimers.Phase.ROUND_TRIP,
+        PhaseTimers.Phase.EVALUATION)) {
+      assertEquals(phase.name(), 2, registry.find(phase.getMeterName())
+        .tag(PhaseTimers.TEST_SYSTEM_TAG, "slim").tag(PhaseTimers.SUITE_TAG, "SuitePage").timer().count());
+    }
+  }
+
+  @Test
+  public void preparedTablesAreSentInOneRoundTrip() throws TestExecutionException {
+    List<SlimTable> tables = Arrays.asList(table("Table1"), table("Table2"), table("Table3"));
+    slimTestSystem.prepareTables(tables);
+    for (SlimTable table : tables) {
+      slimTestSystem.processTable(table, false);
+    }
+
+    assertTestRecords(pass("Table1"), pass("Table2"), pass("Table3"));
+    assertEquals(1, slimTestSystem.slimClientMock.roundTrips);
+  }
+
+  @Test
+  public void tearDownIsNotSentWithPrecedingTables() throws TestExecutionException {
+    String exceptionId = SlimServer.EXCEPTION_STOP_TEST_TAG + "StopTestException";
+    List<SlimTable> tables = Arrays.asList(table(exceptionId), table("Table2"), tearDownTable("TearDown"));
+    slimTestSystem.prepareTables(tables);
+    for (SlimTable table : tables) {
+      slimTestSystem.processTable(table, false);
+    }
+
+    assertTestRecords(fail(exceptionId), ignore("Table2"), pass("TearDown"));
+    assertEquals(2, slimTestSystem.slimClientMock.roundTrips);
+  }
+
+  @Test
+  public void tablesSkippedByServerAfterIgnoreScriptTestAreSentAgain() throws TestExecutionException {
+    String exceptionId = SlimServer.EXCEPTION_IGNORE_SCRIPT_TEST_TAG + "table1 with random ignore exception";
+    List<SlimTable> tables = Arrays.asList(table(exceptionId), table("Table2"), table("Table3"));
+    slimTestSystem.prepareTables(tables);
+    for (SlimTable table : tables) {
+      slimTestSystem.processTable(table, false);
+    }
+
+    assertTestRecords(ignore(exceptionId), pass("Table2"), pass("Table3"));
+    assertEquals(3, slimTestSystem.slimClientMock.roundTrips);
+  }
+
+  @Test
+  public void tablesSkippedByServerAfterIgnoreAllTestsAreIgnored() throws TestExecutionException {
+    String exceptionId = SlimServer.EXCEPTION_IGNORE_ALL_TESTS_TAG + "table1 with random ignore exception";
+    List<SlimTable> tables = Arrays.asList(table(exceptionId), table("Table2"), table("Table3"));
+    slimTestSystem.prepareTables(tables);
+    for (SlimTable table : tables) {
+      slimTestSystem.processTable(table, false);
+    }
+
+    assertTestRecords(ignore(exceptionId), ignore("Table2"), ignore("Table3"));
+    assertEquals(1, slimTestSystem.slimClientMock.roundTrips);
+  }
+
+  @Test
+  public void tableAfterOneStoringSymbolsIsSentSeparately() throws TestExecutionException {
+    DummySlimTable storingTable = table("Table1");
+    storingTable.setStoresSymbols(true);
+    List<SlimTable> tables = Arrays.asList(storingTable, table("Table2"), table("Table3"));
+    slimTestSystem.prepareTables(tables);
+    for (SlimTable table : tables) {
+      slimTestSystem.processTable(table, false);
+    }
+
+    assertTestRecords(pass("Table1"), pass("Table2"), pass("Table3"));
+    assertEquals(3, slimTestSystem.slimClientMock.roundTrips);
+  }
+
   private static DummySlimTable table(String exceptionId) {
     return new DummySlimTable(exceptionId);
   }
@@ -241,6 +322,7 @@ public class SlimTestSystemTableProcessingTest {
 
     private final List<SlimAssertion> assertions;
     private boolean tearDown;
+    private boolean storesSymbols;
 
     public DummySlimTable(String assertionId) {
       super(null, null, null);
@@ -259,6 +341,15 @@ public class SlimTestSystemTableProcessingTest {
       return tearDown;
     }
 
+    public void setStoresSymbols(boolean storesSymbols) {
+      this.storesSymbols = storesSymbols;
+    }
+
+    @Override
+    public boolean storesSymbolsOnEvaluation() {
+      return storesSymbols;
+    }
+
     @Override
     protected String getTableType() {
       return "test";
@@ -308,7 +399,12 @@ public class SlimTestSystemTableProcessingTest {
     }
   }
 
+  /**
+   * Like the Slim server, stops executing the instructions of a message after one that stops or ignores the test.
+   */
   private static class InstructionIdMirroringSlimClient implements SlimClient {
+    private int roundTrips;
+
     @Override
     public void start() throws IOException, SlimVersionMismatch {
       throw new UnsupportedOperationException();
@@ -316,13 +412,22 @@ public class SlimTestSystemTableProcessingTest {
 
     @Override
     public Map<String, Object> invokeAndGetResponse(List<Instruction> statements) throws SlimCommunicationException {
+      roundTrips++;
       Map<String, Object> response = new HashMap<>();
       for (Instruction statement : statements) {
         response.put(statement.getId(), statement.getId());
+        if (stopsExecution(statement.getId())) {
+          break;
+        }
       }
       return response;
     }
 
+    private static boolean stopsExecution(String result) {
+      return result.startsWith(SlimServer.EXCEPTION_STOP_TEST_TAG) || result.startsWith(SlimServer.EXCEPTION_STOP_SUITE_TAG)
+        || result.startsWith(SlimServer.EXCEPTION_IGNORE_SCRIPT_TEST_TAG) || result.startsWith(SlimServer.EXCEPTION_IGNORE_ALL_TESTS_TAG);
+    }
+
     @Override
     public void connect() throws IOException, SlimVersionMismatch {
       throw new UnsupportedOperationException();
@@ -0,0 +1,100 @@
+package fitnesse.util;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AppendOnlyLogTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Vertx vertx;
+  private Path tempDir;
+
+  @Before
+  public void setUp() {
+    vertx = Vertx.vertx();
+    tempDir = tempFolder.getRoot().toPath();
+  }
+
+  @After
+  public void tearDown() {
+    vertx.close();
+  }
+
+  @Test
+  public void writesLinesInOrder() throws Exception {
+    Path file = tempDir.resolve("logs").resolve("events.jsonl");
+    AppendOnlyLog log = new AppendOnlyLog(vertx, file);
+    List<Future<Void>> appends = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      appends.add(log.append("event " + i));
+    }
+    await(Future.all(appends));
+
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(1000, lines.size());
+    assertEquals("event 0", lines.get(0));
+    assertEquals("event 999", lines.get(999));
+    log.close();
+  }
+
+  @Test
+  public void rotatesLargeFiles() throws Exception {
+    Path file = tempDir.resolve("events.jsonl");
+    AppendOnlyLog log = new AppendOnlyLog(vertx, file, new AppendOnlyLog.Options()
+      .setBatchSize(1)
+      .setMaxFileBytes(100)
+      .setFsyncPolicy(AppendOnlyLog.FsyncPolicy.EVERY_BATCH));
+    List<Future<Void>> appends = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      appends.add(log.append("0123456789012345678901234567890123456789"));
+    }
+    await(Future.all(appends));
+
+    List<Path> files = listFiles();
+    assertEquals(5, files.size());
+    for (Path logFile : files) {
+      assertTrue(Files.size(logFile) <= 100);
+      assertTrue(logFile.getFileName().toString().endsWith(".jsonl"));
+    }
+    log.close();
+  }
+
+  @Test
+  public void closeWritesPendingLines() throws IOException {
+    Path file = tempDir.resolve("events.jsonl");
+    AppendOnlyLog log = new AppendOnlyLog(vertx, file, new AppendOnlyLog.Options().setLingerMillis(1000));
+    log.append("first");
+    log.append("second");
+    log.close();
+
+    assertEquals(List.of("first", "second"), Files.readAllLines(file));
+    assertTrue(log.append("third").failed());
+  }
+
+  private static void await(Future<?> future) throws Exception {
+    future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+
+  private List<Path> listFiles() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.toList();
+    }
+  }
+}
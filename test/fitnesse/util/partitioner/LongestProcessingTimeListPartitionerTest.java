@@ -0,0 +1,84 @@
+package fitnesse.util.partitioner;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+
+public class LongestProcessingTimeListPartitionerTest {
+  private final Map<String, Long> runTimes = new HashMap<>();
+  private final Map<String, String> groups = new HashMap<>();
+  private final LongestProcessingTimeListPartitioner<String> partitioner = new LongestProcessingTimeListPartitioner<>(
+    s -> runTimes.getOrDefault(s, -1L), s -> groups.getOrDefault(s, s));
+
+  @Test
+  public void partitionEmpty() {
+    assertEquals(asList(emptyList(), emptyList()), partitioner.split(emptyList(), 2));
+  }
+
+  @Test
+  public void longestElementsAreSpreadFirst() {
+    runTimes.put("a", 240L);
+    runTimes.put("b", 20L);
+    runTimes.put("c", 20L);
+    runTimes.put("d", 200L);
+    runTimes.put("e", 30L);
+
+    List<List<String>> partitions = partitioner.split(asList("a", "b", "c", "d", "e"), 2);
+
+    assertEquals(asList(asList("a", "c"), asList("b", "d", "e")), partitions);
+  }
+
+  @Test
+  public void elementsOfAGroupStayTogether() {
+    runTimes.put("a", 10L);
+    runTimes.put("b", 10L);
+    runTimes.put("c", 10L);
+    runTimes.put("d", 10L);
+    groups.put("a", "setUp1");
+    groups.put("c", "setUp1");
+    groups.put("b", "setUp2");
+    groups.put("d", "setUp2");
+
+    List<List<String>> partitions = partitioner.split(asList("a", "b", "c", "d"), 2);
+
+    assertEquals(asList(asList("a", "c"), asList("b", "d")), partitions);
+  }
+
+  @Test
+  public void groupsLongerThanAnEqualShareAreSplit() {
+    runTimes.put("a", 10L);
+    runTimes.put("b", 10L);
+    runTimes.put("c", 10L);
+    runTimes.put("d", 10L);
+    groups.put("a", "setUp");
+    groups.put("b", "setUp");
+    groups.put("c", "setUp");
+
+    List<List<String>> partitions = partitioner.split(asList("a", "b", "c", "d"), 2);
+
+    assertEquals(asList(asList("a", "c"), asList("b", "d")), partitions);
+  }
+
+  @Test
+  public void unknownRunTimesAreAssumedToBeAverage() {
+    runTimes.put("a", 100L);
+    runTimes.put("b", 100L);
+
+    List<List<String>> partitions = partitioner.split(asList("a", "b", "c", "d"), 2);
+
+    assertEquals(asList(asList("a", "c"), asList("b", "d")), partitions);
+  }
+
+  @Test
+  public void withoutRunTimesElementsAreCounted() {
+    List<List<String>> partitions = partitioner.split(asList("a", "b", "c", "d", "e"), 3);
+
+    assertEquals(asList(asList("a", "d"), asList("b", "e"), asList("c")), partitions);
+  }
+}
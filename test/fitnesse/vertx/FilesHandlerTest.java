@@ -0,0 +1,148 @@
+package fitnesse.vertx;
+
+import fitnesse.FitNesseContext;
+import fitnesse.responders.files.FileResponder;
+import fitnesse.testutil.FitNesseUtil;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(VertxExtension.class)
+class FilesHandlerTest {
+  private FitNesseContext context;
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (context != null) {
+      FitNesseUtil.destroyTestContext(context);
+    }
+  }
+
+  @Test
+  void servesFilesRangesAndBundledResources(Vertx vertx, VertxTestContext testContext) throws Exception {
+    context = FitNesseUtil.makeTestContext();
+    Path filesDir = Path.of(context.getRootPagePath()).resolve("files");
+    Files.createDirectories(filesDir);
+    Files.writeString(filesDir.resolve("sample.txt"), "hello world", StandardCharsets.UTF_8);
+
+    ResponderBusService busService = new ResponderBusService(vertx, context);
+    EventBus bus = vertx.eventBus();
+    busService.register(bus, "fitnesse.files", new FileResponder());
+    FilesHandler handler = new FilesHandler(new File(context.getRootPagePath()), rc -> handleFiles(rc, bus, busService));
+    Router router = Router.router(vertx);
+    router.get("/files").handler(handler);
+    router.get("/files/").handler(handler);
+    router.get("/files/*").handler(handler);
+
+    vertx.createHttpServer().requestHandler(router).listen(0).onComplete(testContext.succeeding(server -> {
+      int port = server.actualPort();
+      WebClient client = WebClient.create(vertx);
+      client.get(port, "localhost", "/files/sample.txt").send()
+        .compose(response -> {
+          testContext.verify(() -> {
+            assertEquals(200, response.statusCode());
+            assertEquals("hello world", response.bodyAsString());
+            assertEquals("bytes", response.getHeader("Accept-Ranges"));
+          });
+          return client.get(port, "localhost", "/files/sample.txt")
+            .putHeader("If-None-Match", response.getHeader("ETag")).send();
+        })
+        .compose(response -> {
+          testContext.verify(() -> assertEquals(304, response.statusCode()));
+          return client.get(port, "localhost", "/files/sample.txt").putHeader("Range", "bytes=6-").send();
+        })
+        .compose(response -> {
+          testContext.verify(() -> {
+            assertEquals(206, response.statusCode());
+            assertEquals("bytes 6-10/11", response.getHeader("Content-Range"));
+            assertEquals("world", response.bodyAsString());
+          });
+          return client.get(port, "localhost", "/files/sample.txt").putHeader("Range", "bytes=20-").send();
+        })
+        .compose(response -> {
+          testContext.verify(() -> assertEquals(416, response.statusCode()));
+          return client.get(port, "localhost", "/files/fitnesse/css/fitnesse_wiki.css")
+            .putHeader("Accept-Encoding", "gzip").send();
+        })
+        .compose(response -> {
+          testContext.verify(() -> {
+            assertEquals(200, response.statusCode());
+            assertEquals("gzip", response.getHeader("Content-Encoding"));
+            assertEquals("Accept-Encoding", response.getHeader("Vary"));
+            assertTrue(response.getHeader("Content-Type").startsWith("text/css"));
+          });
+          return client.get(port, "localhost", "/files/").send();
+        })
+        .onComplete(testContext.succeeding(response -> {
+          testContext.verify(() -> {
+            assertEquals(200, response.statusCode());
+            assertTrue(response.bodyAsString().contains("sample.txt"));
+          });
+          server.close();
+          testContext.completeNow();
+        }));
+    }));
+  }
+
+  @Test
+  void parsesSingleByteRanges() {
+    assertArrayEquals(new long[] {0, 4}, FilesHandler.parseRange("bytes=0-4", 10));
+    assertArrayEquals(new long[] {5, 9}, FilesHandler.parseRange("bytes=5-", 10));
+    assertArrayEquals(new long[] {7, 9}, FilesHandler.parseRange("bytes=-3", 10));
+    assertArrayEquals(new long[] {8, 9}, FilesHandler.parseRange("bytes=8-100", 10));
+    assertSame(FilesHandler.UNSATISFIABLE, FilesHandler.parseRange("bytes=10-", 10));
+    assertNull(FilesHandler.parseRange("bytes=0-1,3-4", 10));
+    assertNull(FilesHandler.parseRange("bytes=4-2", 10));
+    assertNull(FilesHandler.parseRange("items=0-1", 10));
+  }
+
+  @Test
+  void honoursGzipQuality() {
+    assertTrue(FilesHandler.acceptsGzip("gzip, deflate, br"));
+    assertTrue(FilesHandler.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+    assertFalse(FilesHandler.acceptsGzip("gzip;q=0"));
+    assertFalse(FilesHandler.acceptsGzip(null));
+  }
+
+  @Test
+  void loadsBundledResourcesWithPrecompressedVariants() {
+    ClasspathResources resources = ClasspathResources.load(Thread.currentThread().getContextClassLoader());
+    ClasspathResources.Resource css = resources.get("css/fitnesse_wiki.css");
+    assertNotNull(css);
+    assertNotNull(css.gzip);
+    assertTrue(css.gzip.length() < css.content.length());
+    assertTrue(css.etag.startsWith("\"") && css.etag.endsWith("\""));
+    assertNull(resources.get("css/missing.css"));
+  }
+
+  private static void handleFiles(RoutingContext ctx, EventBus bus, ResponderBusService busService) {
+    bus.request("fitnesse.files", busService.buildPayload(ctx, ctx.request().path().substring(1)))
+      .onComplete(ar -> {
+        if (ar.succeeded()) {
+          busService.writeResponse(ctx, (io.vertx.core.json.JsonObject) ar.result().body());
+        } else {
+          ctx.response().setStatusCode(500).end("EventBus error: " + ar.cause().getMessage());
+        }
+      });
+  }
+}
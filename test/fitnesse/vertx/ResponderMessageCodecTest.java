@@ -0,0 +1,48 @@
+package fitnesse.vertx;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@ExtendWith(VertxExtension.class)
+public class ResponderMessageCodecTest {
+
+  @Test
+  public void handsOverRequestsAndRepliesOnLocalDelivery(Vertx vertx, VertxTestContext testContext) {
+    ResponderMessageCodec.register(vertx.eventBus());
+    ResponderMessageCodec.register(vertx.eventBus());
+    JsonObject request = new JsonObject().put(ResponderBusService.HEADER_RESOURCE, "FrontPage");
+    JsonObject reply = new JsonObject().put("status", 200).put("body", Buffer.buffer("<html/>"));
+    vertx.eventBus().consumer("test.responder.codec", message -> {
+      testContext.verify(() -> assertSame(request, message.body()));
+      message.reply(reply, ResponderBusService.deliveryOptions());
+    });
+
+    vertx.eventBus().request("test.responder.codec", request, ResponderBusService.deliveryOptions())
+      .onComplete(testContext.succeeding(message -> {
+        testContext.verify(() -> {
+          assertSame(reply, message.body());
+          assertEquals("<html/>", ((JsonObject) message.body()).getBuffer("body").toString());
+        });
+        testContext.completeNow();
+      }));
+  }
+
+  @Test
+  public void writesBodiesAsJsonOnTheWire() {
+    ResponderMessageCodec codec = new ResponderMessageCodec();
+    Buffer wire = Buffer.buffer().appendString("prefix");
+    codec.encodeToWire(wire, new JsonObject().put("status", 404).put("body", Buffer.buffer(new byte[] {0, 1, 2})));
+
+    JsonObject decoded = codec.decodeFromWire("prefix".length(), wire);
+    assertEquals(404, decoded.getInteger("status").intValue());
+    assertEquals(Buffer.buffer(new byte[] {0, 1, 2}), decoded.getBuffer("body"));
+  }
+}
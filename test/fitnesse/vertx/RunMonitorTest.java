@@ -3,6 +3,9 @@ package fitnesse.vertx;
 import io.vertx.core.json.JsonObject;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
@@ -35,4 +38,20 @@ public class RunMonitorTest {
     assertThat(monitor.canAccept(1), is(false));
     assertThat(monitor.canAccept(0), is(true)); // unlimited when <=0
   }
+
+  @Test
+  public void publishesPerPageResults() {
+    List<JsonObject> results = new ArrayList<>();
+    RunMonitor monitor = new RunMonitor();
+    monitor.setOnResult(results::add);
+    monitor.testStarted("SuiteOne.TestOne");
+    monitor.testCompleted("SuiteOne.TestOne", 3, 1, 0, 2);
+
+    assertThat(results.size(), is(2));
+    assertThat(results.get(0).getString("type"), is("started"));
+    assertThat(results.get(1).getString("type"), is("completed"));
+    assertThat(results.get(1).getString("page"), is("SuiteOne.TestOne"));
+    assertThat(results.get(1).getInteger("wrong"), is(1));
+    assertThat(results.get(1).getInteger("exceptions"), is(2));
+  }
 }
@@ -0,0 +1,99 @@
+package fitnesse.vertx;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.ByteArrayOutputStream;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(VertxExtension.class)
+public class StreamingResponseSenderTest {
+  private final AtomicReference<JsonObject> head = new AtomicReference<>();
+  private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+  @Test
+  public void sendsHeadAndBodyAsTheyAreWritten(Vertx vertx) throws Exception {
+    receive(vertx, "test.stream.plain");
+    StreamingResponseSender sender = new StreamingResponseSender(vertx.eventBus(), "test.stream.plain", 5_000);
+    sender.send(bytes("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nCon"));
+    sender.send(bytes("tent-Length: 11\r\n\r\nhello"));
+    sender.send(bytes(" world"));
+    sender.close();
+
+    assertEquals(200, head.get().getInteger("status").intValue());
+    assertEquals("text/html", head.get().getJsonObject("headers").getString("Content-Type"));
+    assertFalse(head.get().getJsonObject("headers").containsKey("Content-Length"));
+    assertEquals("hello world", received());
+  }
+
+  @Test
+  public void removesChunkedFraming(Vertx vertx) throws Exception {
+    receive(vertx, "test.stream.chunked");
+    StreamingResponseSender sender = new StreamingResponseSender(vertx.eventBus(), "test.stream.chunked", 5_000);
+    sender.send(bytes("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"));
+    sender.send(bytes("5\r\nhello\r\n"));
+    sender.send(bytes("6\r\n world\r\n0\r\n\r\n"));
+    sender.close();
+
+    assertFalse(head.get().getJsonObject("headers").containsKey("Transfer-Encoding"));
+    assertEquals("hello world", received());
+  }
+
+  @Test
+  public void textOutputWithoutHeadersIsStreamedAsIs(Vertx vertx) throws Exception {
+    receive(vertx, "test.stream.text");
+    StreamingResponseSender sender = new StreamingResponseSender(vertx.eventBus(), "test.stream.text", 5_000);
+    sender.send(bytes("Starting Test System\n"));
+    sender.send(bytes(".... 4 right, 0 wrong\n"));
+    sender.close();
+
+    assertEquals(200, head.get().getInteger("status").intValue());
+    assertEquals("Starting Test System\n.... 4 right, 0 wrong\n", received());
+  }
+
+  @Test
+  public void stopsTheResponderWhenTheClientIsGone(Vertx vertx) {
+    vertx.eventBus().consumer("test.stream.gone", message -> message.fail(499, "Client closed the connection"));
+    StreamingResponseSender sender = new StreamingResponseSender(vertx.eventBus(), "test.stream.gone", 5_000);
+    assertThrows(SocketException.class, () -> {
+      sender.send(bytes("HTTP/1.1 200 OK\r\n\r\n"));
+      for (int i = 0; i < 100; i++) {
+        sender.send(new byte[64 * 1024]);
+      }
+      sender.close();
+    });
+  }
+
+  private void receive(Vertx vertx, String address) {
+    vertx.eventBus().consumer(address, message -> {
+      if (StreamingResponseSender.KIND_HEAD.equals(message.headers().get(StreamingResponseSender.HEADER_KIND))) {
+        head.set((JsonObject) message.body());
+      } else {
+        synchronized (body) {
+          body.writeBytes(((Buffer) message.body()).getBytes());
+        }
+      }
+      message.reply(null);
+    });
+  }
+
+  private String received() {
+    synchronized (body) {
+      return body.toString(StandardCharsets.UTF_8);
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,86 @@
+package fitnesse.wiki;
+
+import fitnesse.wiki.fs.InMemoryPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class PageChangeEventsTest {
+  private final List<PageChangeEvent> events = new ArrayList<>();
+  private final PageChangeListener listener = events::add;
+  private WikiPage root;
+
+  @Before
+  public void setUp() {
+    root = InMemoryPage.makeRoot("RooT");
+    PageChangeEvents.addListener(listener);
+  }
+
+  @After
+  public void tearDown() {
+    PageChangeEvents.removeListener(listener);
+  }
+
+  @Test
+  public void publishesCreatedThenUpdatedOnCommit() {
+    WikiPage page = WikiPageUtil.addPage(root, PathParser.parse("ParentPage.ChildPage"), "first");
+    PageData data = page.getData();
+    data.setContent("second");
+    page.commit(data);
+
+    assertThat(types(), contains(PageChangeEvent.Type.CREATED, PageChangeEvent.Type.UPDATED));
+    assertThat(events.get(1).newPath(), is("ParentPage.ChildPage"));
+    assertThat(events.get(1).oldPath(), is("ParentPage.ChildPage"));
+  }
+
+  @Test
+  public void publishesDeletedOnRemove() {
+    WikiPage page = WikiPageUtil.addPage(root, PathParser.parse("SomePage"), "content");
+    events.clear();
+    page.remove();
+
+    assertThat(types(), contains(PageChangeEvent.Type.DELETED));
+    assertThat(events.get(0).oldPath(), is("SomePage"));
+  }
+
+  @Test
+  public void suppressesEventsOnCurrentThread() {
+    try (PageChangeEvents.Suppression ignored = PageChangeEvents.suppress()) {
+      WikiPageUtil.addPage(root, PathParser.parse("SomePage"), "content");
+    }
+    assertThat(events, is(empty()));
+
+    PageChangeEvents.publish(PageChangeEvent.moved("SomePage", "OtherPage"));
+    assertThat(types(), contains(PageChangeEvent.Type.MOVED));
+  }
+
+  @Test
+  public void failingListenerDoesNotBreakCommit() {
+    PageChangeListener failing = event -> {
+      throw new IllegalStateException("boom");
+    };
+    PageChangeEvents.addListener(failing);
+    try {
+      WikiPageUtil.addPage(root, PathParser.parse("SomePage"), "content");
+    } finally {
+      PageChangeEvents.removeListener(failing);
+    }
+    assertThat(types(), contains(PageChangeEvent.Type.CREATED));
+  }
+
+  private List<PageChangeEvent.Type> types() {
+    List<PageChangeEvent.Type> types = new ArrayList<>();
+    for (PageChangeEvent event : events) {
+      types.add(event.type());
+    }
+    return types;
+  }
+}
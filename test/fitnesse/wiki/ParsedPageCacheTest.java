@@ -0,0 +1,157 @@
+package fitnesse.wiki;
+
+import fitnesse.wiki.fs.InMemoryPage;
+import fitnesse.wikitext.parser.Literal;
+import fitnesse.wikitext.parser.Symbol;
+import fitnesse.wikitext.parser.SyntaxTreeV2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ParsedPageCacheTest {
+  private WikiPage root;
+  private ParsedPageCache.StructureTracking tracking;
+
+  @Before
+  public void setUp() {
+    tracking = ParsedPageCache.startTrackingStructure();
+    root = InMemoryPage.makeRoot("RooT");
+    WikiPageUtil.addPage(root, PathParser.parse("ParentPage"), "!define COLOR {red}\n");
+    WikiPageUtil.addPage(root, PathParser.parse("ParentPage.IncludedPage"), "included alpha");
+    WikiPageUtil.addPage(root, PathParser.parse("ParentPage.ChildPage"),
+      "color ${COLOR}\n!include IncludedPage\nsee MissingPage\n");
+  }
+
+  @After
+  public void tearDown() {
+    tracking.close();
+    System.clearProperty("CACHE_TEST_VARIABLE");
+  }
+
+  @Test
+  public void sharesSyntaxTreeBetweenPageInstances() {
+    assertThat(tree("ParentPage.ChildPage"), sameInstance(tree("ParentPage.ChildPage")));
+  }
+
+  @Test
+  public void reparsesWhenContentChanges() {
+    Symbol before = tree("ParentPage.ChildPage");
+    setContent("ParentPage.ChildPage", "plain text");
+
+    assertThat(tree("ParentPage.ChildPage"), not(sameInstance(before)));
+    assertThat(html("ParentPage.ChildPage"), containsString("plain text"));
+  }
+
+  @Test
+  public void reparsesWhenInheritedDefineChanges() {
+    assertThat(html("ParentPage.ChildPage"), containsString("color red"));
+    setContent("ParentPage", "!define COLOR {blue}\n");
+
+    assertThat(html("ParentPage.ChildPage"), containsString("color blue"));
+    assertThat(page("ParentPage.ChildPage").getVariable("COLOR"), is("blue"));
+  }
+
+  @Test
+  public void reparsesWhenIncludedPageChanges() {
+    assertThat(html("ParentPage.ChildPage"), containsString("included alpha"));
+    setContent("ParentPage.IncludedPage", "included beta");
+
+    assertThat(html("ParentPage.ChildPage"), containsString("included beta"));
+  }
+
+  @Test
+  public void reparsesWhenSystemVariableChanges() {
+    WikiPageUtil.addPage(root, PathParser.parse("SystemPage"), "value ${CACHE_TEST_VARIABLE}");
+    System.setProperty("CACHE_TEST_VARIABLE", "one");
+    assertThat(html("SystemPage"), containsString("value one"));
+
+    System.setProperty("CACHE_TEST_VARIABLE", "two");
+    assertThat(html("SystemPage"), containsString("value two"));
+  }
+
+  @Test
+  public void rerendersLinksWhenPagesAreCreated() {
+    assertThat(html("ParentPage.ChildPage"), containsString("[?]"));
+    WikiPageUtil.addPage(root, PathParser.parse("ParentPage.MissingPage"), "now here");
+
+    assertThat(html("ParentPage.ChildPage"), not(containsString("[?]")));
+  }
+
+  @Test
+  public void keepsPageTreesApart() {
+    WikiPage otherRoot = InMemoryPage.makeRoot("RooT");
+    WikiPageUtil.addPage(otherRoot, PathParser.parse("ParentPage"), "!define COLOR {green}\n");
+    WikiPageUtil.addPage(otherRoot, PathParser.parse("ParentPage.ChildPage"), "color ${COLOR}\n");
+
+    assertThat(html("ParentPage.ChildPage"), containsString("color red"));
+    assertThat(otherRoot.getPageCrawler().getPage(PathParser.parse("ParentPage.ChildPage")).getHtml(),
+      containsString("color green"));
+  }
+
+  @Test
+  public void renderingTablesLeavesTheCachedTreeUnchanged() {
+    WikiPageUtil.addPage(root, PathParser.parse("TablePage"), "|!- x -!|\n");
+    String first = html("TablePage");
+    // a new page makes the cached HTML stale, so the shared tree is translated again
+    WikiPageUtil.addPage(root, PathParser.parse("OtherPage"), "other");
+
+    assertThat(html("TablePage"), is(first));
+    assertThat(literals(tree("TablePage")), is(Collections.singletonList(" x ")));
+  }
+
+  @Test
+  public void cachesHtmlOnlyWhilePageStructureIsTracked() {
+    assertThat(html("ParentPage.ChildPage"), sameInstance(html("ParentPage.ChildPage")));
+    tracking.close();
+
+    assertThat(html("ParentPage.ChildPage"), not(sameInstance(html("ParentPage.ChildPage"))));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedEntries() {
+    ParsedPageCache cache = new ParsedPageCache(16 * 40);
+    cache.parse((BaseWikitextPage) page("ParentPage.IncludedPage"), page("ParentPage.IncludedPage").getData());
+    cache.parse((BaseWikitextPage) page("ParentPage"), page("ParentPage").getData());
+
+    assertThat(cache.size(), is(1));
+  }
+
+  private WikiPage page(String path) {
+    return root.getPageCrawler().getPage(PathParser.parse(path));
+  }
+
+  private Symbol tree(String path) {
+    return ((SyntaxTreeV2) ((WikitextPage) page(path)).getSyntaxTree()).getSyntaxTree();
+  }
+
+  private static List<String> literals(Symbol tree) {
+    List<String> literals = new ArrayList<>();
+    tree.walkPreOrder(node -> {
+      if (node.isType(Literal.symbolType)) {
+        literals.add(node.getContent());
+      }
+    });
+    return literals;
+  }
+
+  private String html(String path) {
+    return page(path).getHtml();
+  }
+
+  private void setContent(String path, String content) {
+    WikiPage page = page(path);
+    PageData data = page.getData();
+    data.setContent(content);
+    page.commit(data);
+  }
+}
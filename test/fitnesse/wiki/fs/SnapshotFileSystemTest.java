@@ -0,0 +1,196 @@
+package fitnesse.wiki.fs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.SystemVariableSource;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotFileSystemTest {
+  private final AtomicInteger diskReads = new AtomicInteger();
+  private MemoryFileSystem disk;
+  private SnapshotFileSystem snapshot;
+
+  @Before
+  public void setUp() throws Exception {
+    disk = new MemoryFileSystem();
+    disk.makeFile(new File("RooT", "content.txt"), "root");
+    disk.makeFile(new File("RooT/PageOne", "content.txt"), "page one");
+    disk.makeFile(new File("RooT/PageOne", "properties.xml"), "<properties><Test/></properties>");
+    disk.makeFile(new File("RooT/PageOne/ChildPage", "content.txt"), "child");
+    disk.makeFile(new File("RooT/PageTwo", "content.txt"), "page two");
+    disk.makeFile(new File("RooT/files", "readme.txt"), "files");
+    snapshot = SnapshotFileSystem.start(new CountingFileSystem(), new File("RooT"));
+    snapshot.awaitBuild();
+  }
+
+  @After
+  public void tearDown() {
+    snapshot.close();
+  }
+
+  @Test
+  public void servesPagesWithoutReadingTheDisk() throws Exception {
+    diskReads.set(0);
+    WikiPage root = makeRoot();
+    List<WikiPage> children = root.getChildren();
+    assertEquals(2, children.size());
+    WikiPage pageOne = root.getChildPage("PageOne");
+    assertEquals("page one", pageOne.getData().getContent());
+    assertTrue(pageOne.getData().hasAttribute("Test"));
+    assertEquals("child", pageOne.getChildPage("ChildPage").getData().getContent());
+    assertNull(root.getChildPage("NoSuchPage"));
+
+    // files that do not exist are remembered as well
+    int afterFirstPass = diskReads.get();
+    root = makeRoot();
+    assertEquals(2, root.getChildren().size());
+    assertEquals("child", root.getChildPage("PageOne").getChildPage("ChildPage").getData().getContent());
+    assertNull(root.getChildPage("NoSuchPage"));
+    assertEquals(afterFirstPass, diskReads.get());
+  }
+
+  @Test
+  public void savedPagesAreReadAgain() throws Exception {
+    WikiPage pageOne = makeRoot().getChildPage("PageOne");
+    PageData data = pageOne.getData();
+    data.setContent("changed");
+    pageOne.commit(data);
+    WikiPageUtil.addPage(makeRoot(), PathParser.parse("PageThree"), "three");
+
+    WikiPage root = makeRoot();
+    assertEquals("changed", root.getChildPage("PageOne").getData().getContent());
+    assertEquals("three", root.getChildPage("PageThree").getData().getContent());
+    assertEquals(3, root.getChildren().size());
+
+    root.getChildPage("PageTwo").remove();
+    assertEquals(2, makeRoot().getChildren().size());
+    assertFalse(snapshot.exists(new File("RooT/PageTwo/content.txt")));
+  }
+
+  @Test
+  public void changesMadeThroughTheSnapshotAreSeenAfterRebuilding() throws Exception {
+    snapshot.makeFile(new File("RooT/PageTwo", "content.txt"), "new content");
+    snapshot.delete(new File("RooT/PageOne/ChildPage"));
+    snapshot.makeFile(new File("RooT/PageFour", "content.txt"), "four");
+    assertEquals("new content", snapshot.getContent(new File("RooT/PageTwo", "content.txt")));
+    assertFalse(snapshot.exists(new File("RooT/PageOne/ChildPage")));
+
+    snapshot.refresh();
+    snapshot.awaitBuild();
+    diskReads.set(0);
+    assertEquals(Arrays.asList("PageFour", "PageOne", "PageTwo", "content.txt", "files"),
+      sorted(snapshot.list(new File("RooT"))));
+    assertEquals(Arrays.asList("content.txt", "properties.xml"), sorted(snapshot.list(new File("RooT/PageOne"))));
+    assertEquals("new content", snapshot.getContent(new File("RooT/PageTwo", "content.txt")));
+    assertEquals("four", snapshot.getContent(new File("RooT/PageFour", "content.txt")));
+    assertEquals(0, diskReads.get());
+  }
+
+  @Test
+  public void filesDirectoryIsReadFromDisk() throws Exception {
+    disk.makeFile(new File("RooT/files", "other.txt"), "other");
+    assertEquals(2, snapshot.list(new File("RooT/files")).length);
+    assertEquals("other", snapshot.getContent(new File("RooT/files", "other.txt")));
+  }
+
+  private WikiPage makeRoot() {
+    return new FileSystemPageFactory(snapshot, new SimpleFileVersionsController(disk))
+      .makePage(new File("RooT"), "RooT", null, new SystemVariableSource(new Properties()));
+  }
+
+  private static List<String> sorted(String[] names) {
+    String[] copy = names.clone();
+    Arrays.sort(copy);
+    return Arrays.asList(copy);
+  }
+
+  /**
+   * Counts reads of the page tree; the files directory is always read from disk.
+   */
+  private class CountingFileSystem implements FileSystem {
+    private void count(File file) {
+      if (!file.getPath().startsWith(new File("RooT", "files").getPath())) {
+        diskReads.incrementAndGet();
+      }
+    }
+
+    @Override
+    public void makeFile(File file, String content) throws IOException {
+      disk.makeFile(file, content);
+    }
+
+    @Override
+    public void makeFile(File file, InputStream content) throws IOException {
+      disk.makeFile(file, content);
+    }
+
+    @Override
+    public void makeDirectory(File path) throws IOException {
+      disk.makeDirectory(path);
+    }
+
+    @Override
+    public boolean exists(File file) {
+      count(file);
+      return disk.exists(file);
+    }
+
+    @Override
+    public String[] list(File path) {
+      count(path);
+      return disk.list(path);
+    }
+
+    @Override
+    public String getContent(File file) throws IOException {
+      count(file);
+      return disk.getContent(file);
+    }
+
+    @Override
+    public InputStream getInputStream(File file) throws IOException {
+      count(file);
+      return disk.getInputStream(file);
+    }
+
+    @Override
+    public void delete(File path) throws IOException {
+      disk.delete(path);
+    }
+
+    @Override
+    public long lastModified(File file) {
+      count(file);
+      return disk.lastModified(file);
+    }
+
+    @Override
+    public void rename(File file, File originalFile) throws IOException {
+      disk.rename(file, originalFile);
+    }
+
+    @Override
+    public boolean isDirectory(File file) {
+      count(file);
+      return disk.isDirectory(file);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package fitnesse.wiki.search;
+
+import fitnesse.wiki.PageChangeEvents;
+import fitnesse.wiki.PageData;
+import fitnesse.wiki.PathParser;
+import fitnesse.wiki.SymbolicPage;
+import fitnesse.wiki.WikiPage;
+import fitnesse.wiki.WikiPageProperty;
+import fitnesse.wiki.WikiPageUtil;
+import fitnesse.wiki.fs.InMemoryPage;
+import fitnesse.wiki.refactoring.PageReferenceRenamer;
+import fitnesse.wiki.refactoring.ReferenceRenamingTraverser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LinkGraphTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private WikiPage root;
+  private WikiPage pageOne;
+  private WikiPage pageTwo;
+  private LinkGraph graph;
+
+  @Before
+  public void setUp() {
+    root = InMemoryPage.makeRoot("RooT");
+    pageOne = WikiPageUtil.addPage(root, PathParser.parse("PageOne"), "this is page one, uncle of PageTwo.ChildPage");
+    pageTwo = WikiPageUtil.addPage(root, PathParser.parse("PageTwo"), "my brother is PageOne. I have a >ChildPage.");
+    WikiPageUtil.addPage(root, PathParser.parse("PageThree"), "I have \n!include PageTwo\n");
+    WikiPageUtil.addPage(pageTwo, PathParser.parse("ChildPage"), "my uncle is .PageOne");
+    WikiPageUtil.addPage(root, PathParser.parse("PageFour"), "no references here");
+    graph = new LinkGraph(() -> root);
+    graph.rebuild();
+    PageChangeEvents.addListener(graph);
+  }
+
+  @After
+  public void tearDown() {
+    graph.close();
+  }
+
+  @Test
+  public void namesOnlyPagesThatMayReferToThePage() {
+    assertEquals(Arrays.asList("PageOne", "PageTwo", "PageTwo.ChildPage"), graph.referringPaths(pageOne));
+    assertEquals(Arrays.asList("PageOne", "PageThree", "PageTwo", "PageTwo.ChildPage"), graph.referringPaths(pageTwo));
+    assertEquals(Collections.emptyList(), graph.referringPaths(root.getChildPage("PageFour")));
+    assertEquals(Arrays.asList("PageOne", ">ChildPage"), graph.referencesOf("PageTwo"));
+    assertNull(graph.referringPaths(root));
+  }
+
+  @Test
+  public void whereUsedFindsTheSamePagesAsSearchingAllPages() {
+    for (WikiPage subject : Arrays.asList(pageOne, pageTwo, pageTwo.getChildPage("ChildPage"),
+      root.getChildPage("PageThree"))) {
+      List<String> all = new ArrayList<>();
+      new WhereUsedPageFinder(subject, page -> all.add(page.getFullPath().toString())).search(root);
+      List<String> indexed = new ArrayList<>();
+      new WhereUsedPageFinder(subject, page -> indexed.add(page.getFullPath().toString()), graph).search(root);
+      Collections.sort(all);
+      assertEquals(subject.getName(), all, indexed);
+    }
+  }
+
+  @Test
+  public void followsSavedPages() {
+    WikiPage pageFour = root.getChildPage("PageFour");
+    PageData data = pageFour.getData();
+    data.setContent("now using PageOne");
+    pageFour.commit(data);
+    assertTrue(graph.referringPaths(pageOne).contains("PageFour"));
+
+    data = pageFour.getData();
+    WikiPageProperty symlinks = data.getProperties().set(SymbolicPage.PROPERTY_NAME);
+    symlinks.set("LinkToThree", ".PageThree");
+    data.setContent("");
+    pageFour.commit(data);
+    assertFalse(graph.referringPaths(pageOne).contains("PageFour"));
+    assertEquals(Collections.singletonList(".PageThree"), graph.referencesOf("PageFour"));
+
+    pageTwo.remove();
+    assertEquals(Collections.singletonList("PageOne"), graph.referringPaths(pageOne));
+    assertEquals(Collections.emptyList(), graph.referencesOf("PageTwo.ChildPage"));
+  }
+
+  @Test
+  public void refreshParsesOnlyChangedPagesAfterLoading() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("graph.bin");
+    graph.save(file);
+    PageChangeEvents.removeListener(graph);
+    WikiPage pageFour = root.getChildPage("PageFour");
+    PageData data = pageFour.getData();
+    data.setContent("now using PageOne");
+    pageFour.commit(data);
+    root.getChildPage("PageThree").remove();
+
+    LinkGraph loaded = new LinkGraph(() -> root);
+    assertNull(loaded.referringPaths(pageOne));
+    assertTrue(loaded.load(file));
+    assertEquals(Arrays.asList("PageOne", "PageTwo", "PageTwo.ChildPage"), loaded.referringPaths(pageOne));
+    loaded.refresh();
+    assertEquals(Arrays.asList("PageFour", "PageOne", "PageTwo", "PageTwo.ChildPage"),
+      loaded.referringPaths(pageOne));
+    assertEquals(Arrays.asList("PageOne", "PageTwo", "PageTwo.ChildPage"), loaded.referringPaths(pageTwo));
+  }
+
+  @Test
+  public void startedGraphFollowsChangesAndSavesOnClose() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("graph.bin");
+    LinkGraph started = LinkGraph.start(() -> root, file);
+    WikiPage pageFour = root.getChildPage("PageFour");
+    PageData data = pageFour.getData();
+    data.setContent("now using PageOne");
+    pageFour.commit(data);
+    started.close();
+
+    assertEquals(Collections.singletonList("PageOne"), started.referencesOf("PageFour"));
+    LinkGraph loaded = new LinkGraph(() -> root);
+    assertTrue(loaded.load(file));
+    assertEquals(Arrays.asList("PageFour", "PageOne", "PageTwo", "PageTwo.ChildPage"),
+      loaded.referringPaths(pageOne));
+  }
+
+  @Test
+  public void renamingRewritesReferringPages() {
+    ReferenceRenamingTraverser.renameReferences(root, new PageReferenceRenamer(pageOne, "PageFive"), pageOne, graph);
+    assertEquals("my brother is PageFive. I have a >ChildPage.", root.getChildPage("PageTwo").getData().getContent());
+    assertEquals("my uncle is .PageFive",
+      root.getChildPage("PageTwo").getChildPage("ChildPage").getData().getContent());
+    assertEquals(Arrays.asList("PageTwo", "PageTwo.ChildPage"),
+      graph.referringPaths(WikiPageUtil.addPage(root, PathParser.parse("PageFive"), "")));
+  }
+}
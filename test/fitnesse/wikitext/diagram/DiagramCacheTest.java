@@ -0,0 +1,115 @@
+package fitnesse.wikitext.diagram;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class DiagramCacheTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final AtomicInteger renders = new AtomicInteger();
+
+  private byte[] render(String source, String format) {
+    renders.incrementAndGet();
+    return (format + ":" + source).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void rendersEachDiagramOnce() throws Exception {
+    try (DiagramCache cache = new DiagramCache(this::render, null, 1024, 1024, 1)) {
+      assertEquals("svg:A -> B", text(cache.getBlocking("A -> B", "svg", 5_000)));
+      assertEquals("svg:A -> B", text(cache.getBlocking("A -> B", "svg", 5_000)));
+      assertEquals("png:A -> B", text(cache.getBlocking("A -> B", "png", 5_000)));
+      assertEquals(2, renders.get());
+    }
+    assertNotEquals(DiagramCache.key("A -> B", "svg"), DiagramCache.key("A -> B", "png"));
+  }
+
+  @Test
+  public void keepsRenderedDiagramsOnDiskAcrossRestarts() throws Exception {
+    Path directory = tempFolder.getRoot().toPath().resolve("diagrams");
+    try (DiagramCache cache = new DiagramCache(this::render, directory, 1024, 1024, 1)) {
+      cache.getBlocking("A -> B", "svg", 5_000);
+    }
+    try (DiagramCache cache = new DiagramCache(this::render, directory, 1024, 1024, 1)) {
+      assertEquals("svg:A -> B", text(cache.getBlocking("A -> B", "svg", 5_000)));
+    }
+    assertEquals(1, renders.get());
+  }
+
+  @Test
+  public void dropsOldestEntriesWhenFull() throws Exception {
+    try (DiagramCache cache = new DiagramCache(this::render, tempFolder.getRoot().toPath(), 20, 20, 1)) {
+      cache.getBlocking("first", "svg", 5_000);
+      cache.getBlocking("second", "svg", 5_000);
+      cache.getBlocking("third", "svg", 5_000);
+      assertEquals(3, renders.get());
+      cache.getBlocking("third", "svg", 5_000);
+      assertEquals(3, renders.get());
+      cache.getBlocking("first", "svg", 5_000);
+      assertEquals(4, renders.get());
+    }
+  }
+
+  @Test
+  public void sharesOneRenderingBetweenConcurrentRequests() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    DiagramCache.Renderer slow = (source, format) -> {
+      release.await(5, TimeUnit.SECONDS);
+      return render(source, format);
+    };
+    try (DiagramCache cache = new DiagramCache(slow, null, 1024, 1024, 2)) {
+      CompletableFuture<byte[]> first = cache.get("A -> B", "svg");
+      CompletableFuture<byte[]> second = cache.get("A -> B", "svg");
+      assertSame(first, second);
+      release.countDown();
+      assertEquals("svg:A -> B", text(first.get(5, TimeUnit.SECONDS)));
+      assertEquals(1, renders.get());
+    }
+  }
+
+  @Test
+  public void rendersOnlyKnownDiagramsForUrls() throws Exception {
+    Path directory = tempFolder.getRoot().toPath().resolve("diagrams");
+    try (DiagramCache cache = new DiagramCache(this::render, directory, 1024, 1024, 1)) {
+      assertNull(cache.getKnown("!include /etc/passwd", "svg"));
+      cache.allow("A -> B", "svg");
+      assertEquals("svg:A -> B", text(cache.getKnown("A -> B", "svg").get(5, TimeUnit.SECONDS)));
+      assertNull(cache.getKnown("A -> B", "png"));
+    }
+    try (DiagramCache cache = new DiagramCache(this::render, directory, 1024, 1024, 1)) {
+      assertNotNull(cache.getKnown("A -> B", "svg"));
+    }
+    assertEquals(1, renders.get());
+  }
+
+  @Test
+  public void reportsRenderingFailures() {
+    try (DiagramCache cache = new DiagramCache((source, format) -> {
+      throw new IllegalStateException("syntax error");
+    }, null, 1024, 1024, 1)) {
+      IOException e = assertThrows(IOException.class, () -> cache.getBlocking("broken", "svg", 5_000));
+      assertEquals("Diagram rendering failed: syntax error", e.getMessage());
+    }
+  }
+
+  private static String text(byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -3,6 +3,7 @@ package fitnesse.wikitext.parser;
 import fitnesse.wikitext.diagram.PlantUmlEncoder;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class PlantUmlTest {
@@ -52,6 +53,17 @@ public class PlantUmlTest {
     }
   }
 
+  @Test
+  public void decodesEncodedSource() {
+    String source = "@startuml\nAlice -> Bob: Hi \u00e9\n@enduml\n";
+    assertEquals(source, PlantUmlEncoder.decode(PlantUmlEncoder.encode(source)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMalformedEncodedSource() {
+    PlantUmlEncoder.decode("not*encoded");
+  }
+
   private String normalize(String value) {
     String normalized = value;
     if (normalized.startsWith("\r\n")) {